@@ -30,6 +30,14 @@ public interface ColumnFamilyConstants {
      * A colf of 'f' denotes frequency entries which are by field by day
      */
     Text COLF_F = new Text("f");
+    /**
+     * A colf of 'fm' denotes frequency rollups which are by field by month, derived from the 'f' entries by the FrequencyRollupIterator
+     */
+    Text COLF_FM = new Text("fm");
+    /**
+     * A colf of 'fy' denotes frequency rollups which are by field by year, derived from the 'f' entries by the FrequencyRollupIterator
+     */
+    Text COLF_FY = new Text("fy");
     /**
      * A colf of 'tf' denotes term frequency fields (term frequency entries in the shard table containing term offsets)
      */
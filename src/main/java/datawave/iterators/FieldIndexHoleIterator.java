@@ -0,0 +1,448 @@
+package datawave.iterators;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.OptionDescriber;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.io.WritableUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import datawave.data.ColumnFamilyConstants;
+import datawave.query.util.FieldIndexHoleFinder;
+import datawave.util.time.DateHelper;
+
+/**
+ * An iterator for the metadata table that finds the field index holes on the tablet server, so that a scan returns the holes rather than every daily
+ * frequency and index entry. Each row (field) is read in full, its {@link ColumnFamilyConstants#COLF_F} entries and the entries of the target index column are
+ * given to a {@link FieldIndexHoleFinder}, and one entry is returned for each datatype of the field that has holes. The key of that entry is the last key of
+ * the datatype in the row, and the value holds the date ranges of the holes, see {@link #decodeHoles(Value)}. Columns other than the frequency and target index
+ * columns are ignored.
+ * <p>
+ * Index entries without a date are boundary markers as of the day before their timestamp, which is computed in UTC to match the dates of the other entries.
+ * <p>
+ * The holes can be limited to a date range with the {@link #START_DATE_OPT} and {@link #END_DATE_OPT} options, in which case the frequency and index entries
+ * outside the range are skipped by seeking on the {@code datatype\0date} column qualifier, as the {@link MetadataFColumnSeekingFilter} does, and the holes are
+ * clipped to the range. Boundary markers dated after the range are still read, as they replace the holes before them, as are the index entries without a date.
+ * Boundary markers dated before the range are skipped, as they only affect the holes up to their date. As the entries before the range are not read, a hole
+ * that is open at the start of the range is returned from the first date in the range with a frequency entry.
+ */
+public class FieldIndexHoleIterator implements SortedKeyValueIterator<Key,Value>, OptionDescriber {
+    
+    private static final Logger log = LoggerFactory.getLogger(FieldIndexHoleIterator.class);
+    
+    public static final String COLUMN_FAMILY_OPT = "column.family";
+    public static final String DATATYPES_OPT = "datatypes";
+    public static final String MIN_THRESHOLD_OPT = "min.threshold";
+    public static final String START_DATE_OPT = "start.date";
+    public static final String END_DATE_OPT = "end.date";
+    
+    // the length of a yyyyMMdd date
+    private static final int DATE_LENGTH = 8;
+    
+    private SortedKeyValueIterator<Key,Value> source;
+    private Map<String,String> options;
+    private Range range;
+    private Range seekRange;
+    private Collection<ByteSequence> columnFamilies;
+    private boolean inclusive;
+    
+    // the date range of the holes as yyyyMMdd bytes and dates, or null for all dates
+    private byte[] startDateBytes;
+    private byte[] endDateBytes;
+    private Date startDate;
+    private Date endDate;
+    
+    private Text targetColumnFamily = ColumnFamilyConstants.COLF_I;
+    private FieldIndexHoleFinder finder;
+    
+    private final Deque<Map.Entry<Key,Value>> topEntries = new ArrayDeque<>();
+    private final Text row = new Text();
+    
+    /**
+     * Configure the iterator on a scan
+     *
+     * @param setting
+     *            the iterator setting
+     * @param targetColumnFamily
+     *            the index column to find holes in, {@link ColumnFamilyConstants#COLF_I} or {@link ColumnFamilyConstants#COLF_RI}
+     * @param datatypes
+     *            the datatypes to find holes for, an empty set for all datatypes
+     * @param minThreshold
+     *            the minimum percentage threshold required for an index row to be considered NOT a hole on a particular date, in the range 0.0 to 1.0
+     */
+    public static void configure(IteratorSetting setting, Text targetColumnFamily, Set<String> datatypes, double minThreshold) {
+        setting.addOption(COLUMN_FAMILY_OPT, targetColumnFamily.toString());
+        if (!datatypes.isEmpty()) {
+            setting.addOption(DATATYPES_OPT, String.join(",", datatypes));
+        }
+        setting.addOption(MIN_THRESHOLD_OPT, Double.toString(minThreshold));
+    }
+    
+    /**
+     * Configure the iterator on a scan to find the holes in a date range
+     *
+     * @param setting
+     *            the iterator setting
+     * @param targetColumnFamily
+     *            the index column to find holes in, {@link ColumnFamilyConstants#COLF_I} or {@link ColumnFamilyConstants#COLF_RI}
+     * @param datatypes
+     *            the datatypes to find holes for, an empty set for all datatypes
+     * @param minThreshold
+     *            the minimum percentage threshold required for an index row to be considered NOT a hole on a particular date, in the range 0.0 to 1.0
+     * @param begin
+     *            the first date of the range
+     * @param end
+     *            the last date of the range
+     */
+    public static void configure(IteratorSetting setting, Text targetColumnFamily, Set<String> datatypes, double minThreshold, Date begin, Date end) {
+        configure(setting, targetColumnFamily, datatypes, minThreshold);
+        setting.addOption(START_DATE_OPT, DateHelper.format(begin));
+        setting.addOption(END_DATE_OPT, DateHelper.format(end));
+    }
+    
+    @Override
+    public void init(SortedKeyValueIterator<Key,Value> source, Map<String,String> options, IteratorEnvironment env) throws IOException {
+        if (!validateOptions(options)) {
+            throw new IllegalArgumentException("Iterator not configured with correct options");
+        }
+        
+        this.source = source;
+        this.options = options;
+        
+        String opt = options.get(COLUMN_FAMILY_OPT);
+        if (opt != null) {
+            targetColumnFamily = new Text(opt);
+        }
+        
+        Set<String> datatypes = new HashSet<>();
+        opt = options.get(DATATYPES_OPT);
+        if (opt != null && !opt.isEmpty()) {
+            Collections.addAll(datatypes, opt.split(","));
+        }
+        
+        opt = options.get(MIN_THRESHOLD_OPT);
+        double minThreshold = opt == null ? 1.0d : Double.parseDouble(opt);
+        finder = new FieldIndexHoleFinder(minThreshold, datatypes);
+        
+        opt = options.get(START_DATE_OPT);
+        if (opt != null) {
+            startDateBytes = opt.getBytes(StandardCharsets.UTF_8);
+            startDate = DateHelper.parse(opt);
+            opt = options.get(END_DATE_OPT);
+            endDateBytes = opt.getBytes(StandardCharsets.UTF_8);
+            endDate = DateHelper.parse(opt);
+        }
+    }
+    
+    @Override
+    public IteratorOptions describeOptions() {
+        IteratorOptions opts = new IteratorOptions(getClass().getSimpleName(), "Finds the field index holes of each field and datatype", null, null);
+        opts.addNamedOption(COLUMN_FAMILY_OPT, "The index column to find holes in, i (default) or ri");
+        opts.addNamedOption(DATATYPES_OPT, "A comma separated list of the datatypes to find holes for, all datatypes if not set");
+        opts.addNamedOption(MIN_THRESHOLD_OPT, "The minimum ratio of the index count to the frequency count for a date not to be a hole, 1.0 if not set");
+        opts.addNamedOption(START_DATE_OPT, "The yyyyMMdd start date of the holes, all dates if not set");
+        opts.addNamedOption(END_DATE_OPT, "The yyyyMMdd end date of the holes, required with the start date");
+        return opts;
+    }
+    
+    @Override
+    public boolean validateOptions(Map<String,String> options) {
+        String opt = options.get(MIN_THRESHOLD_OPT);
+        if (opt != null) {
+            try {
+                Double.parseDouble(opt);
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+        
+        // the date range must be given in full
+        String start = options.get(START_DATE_OPT);
+        String end = options.get(END_DATE_OPT);
+        if (start == null || end == null) {
+            return start == null && end == null;
+        }
+        byte[] startBytes = start.getBytes(StandardCharsets.UTF_8);
+        byte[] endBytes = end.getBytes(StandardCharsets.UTF_8);
+        return isDate(startBytes, 0, startBytes.length) && isDate(endBytes, 0, endBytes.length);
+    }
+    
+    @Override
+    public boolean hasTop() {
+        return !topEntries.isEmpty();
+    }
+    
+    @Override
+    public void next() throws IOException {
+        topEntries.poll();
+        findTop();
+    }
+    
+    /**
+     * Seek to the start of the row containing the start key, as a row must be read in full to find its holes. Keys before the requested start key are dropped
+     * once the holes of the row have been found.
+     */
+    @Override
+    public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive) throws IOException {
+        this.range = range;
+        this.columnFamilies = columnFamilies;
+        this.inclusive = inclusive;
+        this.topEntries.clear();
+        
+        seekRange = range;
+        if (!range.isInfiniteStartKey()) {
+            Key start = range.getStartKey();
+            seekRange = new Range(new Key(start.getRow()), true, range.getEndKey(), range.isEndKeyInclusive());
+        }
+        
+        source.seek(seekRange, columnFamilies, inclusive);
+        findTop();
+    }
+    
+    @Override
+    public Key getTopKey() {
+        Map.Entry<Key,Value> entry = topEntries.peek();
+        return entry == null ? null : entry.getKey();
+    }
+    
+    @Override
+    public Value getTopValue() {
+        Map.Entry<Key,Value> entry = topEntries.peek();
+        return entry == null ? null : entry.getValue();
+    }
+    
+    @Override
+    public SortedKeyValueIterator<Key,Value> deepCopy(IteratorEnvironment env) {
+        FieldIndexHoleIterator copy = new FieldIndexHoleIterator();
+        try {
+            copy.init(source.deepCopy(env), options, env);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to copy " + getClass().getSimpleName(), e);
+        }
+        return copy;
+    }
+    
+    private void findTop() throws IOException {
+        while (topEntries.isEmpty() && source.hasTop()) {
+            for (Map.Entry<Key,Value> entry : findRowHoles()) {
+                if (!range.beforeStartKey(entry.getKey())) {
+                    topEntries.add(entry);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Consume the current row from the source and find its holes
+     *
+     * @return the entries to return for the row, in sorted order
+     */
+    private List<Map.Entry<Key,Value>> findRowHoles() throws IOException {
+        source.getTopKey().getRow(row);
+        
+        // the last key of each datatype, copied into once per datatype of the row rather than per entry
+        Map<String,Key> lastKeys = new HashMap<>();
+        while (source.hasTop() && source.getTopKey().compareRow(row) == 0) {
+            Key key = source.getTopKey();
+            boolean frequency = key.compareColumnFamily(ColumnFamilyConstants.COLF_F) == 0;
+            if (frequency || key.compareColumnFamily(targetColumnFamily) == 0) {
+                if (startDateBytes != null && skipOutsideDateRange(key, frequency)) {
+                    continue;
+                }
+                String datatype = finder.add(key, source.getTopValue());
+                if (datatype != null) {
+                    lastKeys.computeIfAbsent(datatype, k -> new Key()).set(key);
+                }
+            }
+            source.next();
+        }
+        
+        List<Map.Entry<Key,Value>> entries = new ArrayList<>();
+        for (Map.Entry<String,Set<Pair<Date,Date>>> holes : finder.findHoles().entrySet()) {
+            Collection<Pair<Date,Date>> dateRanges = holes.getValue();
+            if (startDate != null) {
+                dateRanges = clipHoles(dateRanges, startDate, endDate);
+                if (dateRanges.isEmpty()) {
+                    continue;
+                }
+            }
+            entries.add(Map.entry(lastKeys.get(holes.getKey()), encodeHoles(dateRanges)));
+        }
+        entries.sort(Map.Entry.comparingByKey());
+        
+        if (log.isTraceEnabled()) {
+            log.trace("found {} datatypes with holes in row {}", entries.size(), row);
+        }
+        return entries;
+    }
+    
+    /**
+     * Skip the current entry of the source if it is outside the date range. A frequency or index entry dated before the start date is skipped by seeking to the
+     * start date of its datatype, and a frequency entry dated after the end date by seeking past its datatype. An index entry dated after the end date is
+     * skipped unless it is a boundary marker.
+     *
+     * @param key
+     *            the current key of the source
+     * @param frequency
+     *            whether the key is a frequency entry
+     * @return true if the entry was skipped, in which case the source has been advanced
+     * @throws IOException
+     *             if the source could not be advanced
+     */
+    private boolean skipOutsideDateRange(Key key, boolean frequency) throws IOException {
+        ByteSequence cq = key.getColumnQualifierData();
+        byte[] bytes = cq.getBackingArray();
+        int offset = cq.offset();
+        int end = offset + cq.length();
+        
+        int dateOffset = indexOfNullByte(bytes, offset, end) + 1;
+        int dateEnd = dateOffset + DATE_LENGTH;
+        // entries without a date are boundary markers
+        if (dateOffset == 0 || dateEnd > end || !isDate(bytes, dateOffset, DATE_LENGTH) || (dateEnd < end && bytes[dateEnd] != 0)) {
+            return false;
+        }
+        
+        Key hint;
+        if (WritableComparator.compareBytes(bytes, dateOffset, DATE_LENGTH, startDateBytes, 0, startDateBytes.length) < 0) {
+            hint = getHint(key, bytes, offset, dateOffset, startDateBytes);
+        } else if (WritableComparator.compareBytes(bytes, dateOffset, DATE_LENGTH, endDateBytes, 0, endDateBytes.length) <= 0) {
+            return false;
+        } else if (frequency) {
+            hint = getHint(key, bytes, offset, dateOffset, new byte[] {(byte) 0xff});
+        } else if (dateEnd < end) {
+            return false;
+        } else {
+            hint = null;
+        }
+        
+        // seek within the range, or simply move on if the hint is past its end
+        if (hint == null || seekRange.afterEndKey(hint)) {
+            source.next();
+        } else {
+            source.seek(new Range(hint, true, seekRange.getEndKey(), seekRange.isEndKeyInclusive()), columnFamilies, inclusive);
+        }
+        return true;
+    }
+    
+    /**
+     * Get the key of the datatype of a column qualifier followed by the given suffix, in the row and column family of a key
+     */
+    private static Key getHint(Key key, byte[] bytes, int offset, int dateOffset, byte[] suffix) {
+        byte[] cq = new byte[dateOffset - offset + suffix.length];
+        System.arraycopy(bytes, offset, cq, 0, dateOffset - offset);
+        System.arraycopy(suffix, 0, cq, dateOffset - offset, suffix.length);
+        return new Key(key.getRowData().toArray(), key.getColumnFamilyData().toArray(), cq, new byte[0], Long.MAX_VALUE);
+    }
+    
+    private static int indexOfNullByte(byte[] bytes, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    private static boolean isDate(byte[] bytes, int offset, int length) {
+        if (length != DATE_LENGTH) {
+            return false;
+        }
+        for (int i = offset; i < offset + length; i++) {
+            if (bytes[i] < '0' || bytes[i] > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Clip the date ranges of holes to a date range, dropping those outside it
+     *
+     * @param holes
+     *            the date ranges of the holes
+     * @param begin
+     *            the start of the date range
+     * @param end
+     *            the end of the date range
+     * @return the date ranges of the holes within the date range
+     */
+    public static List<Pair<Date,Date>> clipHoles(Collection<Pair<Date,Date>> holes, Date begin, Date end) {
+        List<Pair<Date,Date>> clipped = new ArrayList<>(holes.size());
+        for (Pair<Date,Date> hole : holes) {
+            if (!hole.getLeft().after(end) && !hole.getRight().before(begin)) {
+                Date start = hole.getLeft().before(begin) ? begin : hole.getLeft();
+                Date stop = hole.getRight().after(end) ? end : hole.getRight();
+                clipped.add(Pair.of(start, stop));
+            }
+        }
+        return clipped;
+    }
+    
+    /**
+     * Encode the date ranges of holes as a variable length encoded count followed by the start and end of each range in milliseconds since the epoch
+     *
+     * @param holes
+     *            the date ranges of the holes
+     * @return the value
+     * @throws IOException
+     *             if the value could not be written
+     */
+    public static Value encodeHoles(Collection<Pair<Date,Date>> holes) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        WritableUtils.writeVLong(out, holes.size());
+        for (Pair<Date,Date> hole : holes) {
+            WritableUtils.writeVLong(out, hole.getLeft().getTime());
+            WritableUtils.writeVLong(out, hole.getRight().getTime());
+        }
+        out.flush();
+        return new Value(bytes.toByteArray());
+    }
+    
+    /**
+     * Decode the date ranges of holes written by {@link #encodeHoles(Collection)}
+     *
+     * @param value
+     *            the value
+     * @return the date ranges of the holes
+     * @throws IOException
+     *             if the value could not be read
+     */
+    public static List<Pair<Date,Date>> decodeHoles(Value value) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(value.get()));
+        int size = (int) WritableUtils.readVLong(in);
+        List<Pair<Date,Date>> holes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Date start = new Date(WritableUtils.readVLong(in));
+            Date end = new Date(WritableUtils.readVLong(in));
+            holes.add(Pair.of(start, end));
+        }
+        return holes;
+    }
+}
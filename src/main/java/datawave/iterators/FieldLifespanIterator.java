@@ -0,0 +1,135 @@
+package datawave.iterators;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.PartialKey;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import datawave.data.ColumnFamilyConstants;
+
+/**
+ * An iterator for the metadata table's {@link ColumnFamilyConstants#COLF_F} column that reduces the daily counts of each field and datatype to the first and
+ * last day the field was seen. As the dates in the column qualifier sort in order, the first key of a field and datatype holds its first date and the last key
+ * its last date, so nothing needs to be decoded while passing over the days in between.
+ * <p>
+ * One entry is returned per field and datatype, under the last key of the group with the newest timestamp of the group, so that a refresh can track what it has
+ * seen. The last date is at the end of that key's column qualifier, and the value holds the first date as yyyyMMdd. A scan that is torn down and resumed
+ * after a returned key may see the last day of that group again as a group of its own, which leaves the lifespan unchanged.
+ */
+public class FieldLifespanIterator implements SortedKeyValueIterator<Key,Value> {
+    
+    private static final Logger log = LoggerFactory.getLogger(FieldLifespanIterator.class);
+    
+    private SortedKeyValueIterator<Key,Value> source;
+    
+    private Key topKey;
+    private Value topValue;
+    
+    @Override
+    public void init(SortedKeyValueIterator<Key,Value> source, Map<String,String> options, IteratorEnvironment env) throws IOException {
+        this.source = source;
+    }
+    
+    @Override
+    public boolean hasTop() {
+        return topKey != null;
+    }
+    
+    @Override
+    public void next() throws IOException {
+        findTop();
+    }
+    
+    @Override
+    public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive) throws IOException {
+        source.seek(range, columnFamilies, inclusive);
+        findTop();
+    }
+    
+    @Override
+    public Key getTopKey() {
+        return topKey;
+    }
+    
+    @Override
+    public Value getTopValue() {
+        return topValue;
+    }
+    
+    @Override
+    public SortedKeyValueIterator<Key,Value> deepCopy(IteratorEnvironment env) {
+        FieldLifespanIterator copy = new FieldLifespanIterator();
+        copy.source = source.deepCopy(env);
+        return copy;
+    }
+    
+    /**
+     * Consume the next field and datatype from the source, keeping the date of its first key and its last key
+     */
+    private void findTop() throws IOException {
+        topKey = null;
+        topValue = null;
+        
+        while (source.hasTop()) {
+            Key first = source.getTopKey();
+            ByteSequence colq = first.getColumnQualifierData();
+            int separator = getDatatypeLength(colq);
+            if (separator == colq.length()) {
+                log.warn("Could not find nullbyte separator in column qualifier for: {}", first);
+                source.next();
+                continue;
+            }
+            
+            byte[] firstDate = colq.subSequence(separator + 1, colq.length()).toArray();
+            Key last = new Key(first);
+            long maxTimestamp = first.getTimestamp();
+            source.next();
+            while (source.hasTop() && isSameGroup(last, source.getTopKey())) {
+                last = new Key(source.getTopKey());
+                maxTimestamp = Math.max(maxTimestamp, last.getTimestamp());
+                source.next();
+            }
+            
+            last.setTimestamp(maxTimestamp);
+            topKey = last;
+            topValue = new Value(firstDate);
+            return;
+        }
+    }
+    
+    private static boolean isSameGroup(Key last, Key key) {
+        if (!last.equals(key, PartialKey.ROW_COLFAM)) {
+            return false;
+        }
+        
+        ByteSequence lastColq = last.getColumnQualifierData();
+        ByteSequence colq = key.getColumnQualifierData();
+        int length = getDatatypeLength(lastColq);
+        return length == getDatatypeLength(colq) && lastColq.subSequence(0, length).equals(colq.subSequence(0, length));
+    }
+    
+    /**
+     * Get the length of the datatype at the start of a column qualifier, which is everything up to the first null byte
+     *
+     * @param colq
+     *            the column qualifier
+     * @return the length of the datatype
+     */
+    private static int getDatatypeLength(ByteSequence colq) {
+        for (int i = 0; i < colq.length(); i++) {
+            if (colq.byteAt(i) == 0) {
+                return i;
+            }
+        }
+        return colq.length();
+    }
+}
@@ -0,0 +1,208 @@
+package datawave.iterators;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.IteratorUtil.IteratorScope;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.ValueFormatException;
+import org.apache.accumulo.core.iterators.user.SummingCombiner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import datawave.data.ColumnFamilyConstants;
+
+/**
+ * A compaction iterator for the metadata table that maintains monthly ({@link ColumnFamilyConstants#COLF_FM}) and yearly
+ * ({@link ColumnFamilyConstants#COLF_FY}) totals of the daily {@link ColumnFamilyConstants#COLF_F} counts of each field and datatype, so that a count over a
+ * long date range can read one key per month or year instead of one key per day. The rollup column qualifiers follow the f column, i.e. the datatype and a
+ * yyyyMM or yyyy date separated by a null byte, and carry the visibility of the daily entries they were summed from.
+ * <p>
+ * The rollups are maintained as follows:
+ * <ul>
+ * <li>A minor compaction adds the daily counts it writes to the rollups of their month and year, as each count reaches a minor compaction exactly once.</li>
+ * <li>A full major compaction sees every daily count of the tablet, so it drops the existing rollups and recomputes them. This also rolls up daily counts
+ * that were bulk imported, deleted, or written before this iterator was configured.</li>
+ * <li>Any other compaction, and a scan, passes the data through unchanged.</li>
+ * </ul>
+ * The iterator must be configured for the minc and majc scopes at a lower priority than the {@link SummingCombiner} of the f column, and the fm and fy
+ * columns need a {@link SummingCombiner} of their own, like the f column, to combine the rollups written by separate compactions. Rollups are only produced
+ * for whole rows, which is always the case for a compaction.
+ */
+public class FrequencyRollupIterator implements SortedKeyValueIterator<Key,Value> {
+    
+    private static final Logger log = LoggerFactory.getLogger(FrequencyRollupIterator.class);
+    
+    private static final ByteSequence COLF_F = new ArrayByteSequence(ColumnFamilyConstants.COLF_F.copyBytes());
+    private static final ByteSequence COLF_FM = new ArrayByteSequence(ColumnFamilyConstants.COLF_FM.copyBytes());
+    private static final ByteSequence COLF_FY = new ArrayByteSequence(ColumnFamilyConstants.COLF_FY.copyBytes());
+    
+    // the length of yyyyMMdd, yyyyMM and yyyy
+    private static final int DAY_LENGTH = 8;
+    private static final int MONTH_LENGTH = 6;
+    private static final int YEAR_LENGTH = 4;
+    
+    private SortedKeyValueIterator<Key,Value> source;
+    
+    // whether daily counts are added to the rollups, and whether the existing rollups are dropped
+    private boolean rollingUp = false;
+    private boolean rebuilding = false;
+    
+    // the rollups of the current row, keyed without a timestamp, holding the sum and the newest timestamp of the daily counts
+    private final TreeMap<Key,long[]> pending = new TreeMap<>();
+    
+    private Key topKey;
+    private Value topValue;
+    
+    @Override
+    public void init(SortedKeyValueIterator<Key,Value> source, Map<String,String> options, IteratorEnvironment env) throws IOException {
+        this.source = source;
+        if (env != null) {
+            IteratorScope scope = env.getIteratorScope();
+            if (scope == IteratorScope.minc) {
+                rollingUp = true;
+            } else if (scope == IteratorScope.majc && env.isFullMajorCompaction()) {
+                rollingUp = true;
+                rebuilding = true;
+            }
+        }
+        log.debug("Rolling up frequencies: {}, rebuilding: {}", rollingUp, rebuilding);
+    }
+    
+    @Override
+    public boolean hasTop() {
+        return topKey != null;
+    }
+    
+    @Override
+    public void next() throws IOException {
+        findTop();
+    }
+    
+    @Override
+    public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive) throws IOException {
+        pending.clear();
+        source.seek(range, columnFamilies, inclusive);
+        findTop();
+    }
+    
+    @Override
+    public Key getTopKey() {
+        return topKey;
+    }
+    
+    @Override
+    public Value getTopValue() {
+        return topValue;
+    }
+    
+    @Override
+    public SortedKeyValueIterator<Key,Value> deepCopy(IteratorEnvironment env) {
+        FrequencyRollupIterator copy = new FrequencyRollupIterator();
+        copy.source = source.deepCopy(env);
+        copy.rollingUp = rollingUp;
+        copy.rebuilding = rebuilding;
+        return copy;
+    }
+    
+    /**
+     * Return the lesser of the next source entry and the next pending rollup. As the rollup columns sort after the f column, every daily count of a row has
+     * been added to the pending rollups before the first rollup of that row is returned.
+     */
+    private void findTop() throws IOException {
+        topKey = null;
+        topValue = null;
+        
+        if (rebuilding) {
+            while (source.hasTop() && isRollup(source.getTopKey())) {
+                source.next();
+            }
+        }
+        
+        Map.Entry<Key,long[]> rollup = pending.firstEntry();
+        Key rollupKey = null;
+        if (rollup != null) {
+            rollupKey = new Key(rollup.getKey());
+            rollupKey.setTimestamp(rollup.getValue()[1]);
+        }
+        
+        if (rollupKey != null && (!source.hasTop() || rollupKey.compareTo(source.getTopKey()) <= 0)) {
+            pending.pollFirstEntry();
+            topKey = rollupKey;
+            topValue = new Value(SummingCombiner.VAR_LEN_ENCODER.encode(rollup.getValue()[0]));
+            return;
+        }
+        
+        if (source.hasTop()) {
+            topKey = new Key(source.getTopKey());
+            topValue = new Value(source.getTopValue());
+            if (rollingUp && !topKey.isDeleted() && isDaily(topKey)) {
+                addToRollups(topKey, topValue);
+            }
+            source.next();
+        }
+    }
+    
+    /**
+     * Add a daily count to the rollups of its month and year
+     *
+     * @param key
+     *            the daily key
+     * @param value
+     *            the daily count
+     */
+    private void addToRollups(Key key, Value value) {
+        ByteSequence colq = key.getColumnQualifierData();
+        int separator = -1;
+        for (int i = 0; i < colq.length(); i++) {
+            if (colq.byteAt(i) == 0) {
+                separator = i;
+                break;
+            }
+        }
+        if (separator == -1 || colq.length() - separator - 1 != DAY_LENGTH) {
+            log.warn("Could not find a datatype and date in column qualifier for: {}", key);
+            return;
+        }
+        
+        long count;
+        try {
+            count = FrequencySummingIterator.readVLong(value.get());
+        } catch (ValueFormatException e) {
+            log.warn("Could not convert the Value to a long for key: {}", key);
+            return;
+        }
+        
+        byte[] bytes = colq.toArray();
+        byte[] row = key.getRowData().toArray();
+        byte[] visibility = key.getColumnVisibilityData().toArray();
+        byte[] month = Arrays.copyOf(bytes, separator + 1 + MONTH_LENGTH);
+        byte[] year = Arrays.copyOf(bytes, separator + 1 + YEAR_LENGTH);
+        addToRollup(new Key(row, COLF_FM.getBackingArray(), month, visibility, Long.MAX_VALUE), count, key.getTimestamp());
+        addToRollup(new Key(row, COLF_FY.getBackingArray(), year, visibility, Long.MAX_VALUE), count, key.getTimestamp());
+    }
+    
+    private void addToRollup(Key rollupKey, long count, long timestamp) {
+        long[] rollup = pending.computeIfAbsent(rollupKey, k -> new long[] {0L, timestamp});
+        rollup[0] += count;
+        rollup[1] = Math.max(rollup[1], timestamp);
+    }
+    
+    private static boolean isDaily(Key key) {
+        return key.getColumnFamilyData().equals(COLF_F);
+    }
+    
+    private static boolean isRollup(Key key) {
+        ByteSequence colf = key.getColumnFamilyData();
+        return colf.equals(COLF_FM) || colf.equals(COLF_FY);
+    }
+}
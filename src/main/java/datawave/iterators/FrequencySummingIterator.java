@@ -0,0 +1,214 @@
+package datawave.iterators;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.PartialKey;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.OptionDescriber;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.ValueFormatException;
+import org.apache.accumulo.core.iterators.user.SummingCombiner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import datawave.data.ColumnFamilyConstants;
+
+/**
+ * An iterator for the metadata table's {@link ColumnFamilyConstants#COLF_F} column that sums the daily counts on the tablet server, so that a count over a date
+ * range returns one entry per group instead of one entry per day. This iterator is intended to be placed after a {@link MetadataFColumnSeekingFilter}, which
+ * limits the counts to the requested datatypes and dates.
+ * <p>
+ * Consecutive keys are summed while they are in the same group, which is either the field (row) or the field and datatype, see {@link #GROUPING_OPT}. The sum
+ * is returned as a variable length encoded long under the last key of the group. As that key is a real key from the source, a scan that is torn down and
+ * resumed after it continues with the next group.
+ */
+public class FrequencySummingIterator implements SortedKeyValueIterator<Key,Value>, OptionDescriber {
+    
+    private static final Logger log = LoggerFactory.getLogger(FrequencySummingIterator.class);
+    
+    public static final String GROUPING_OPT = "grouping";
+    
+    /**
+     * How keys are grouped into a single sum
+     */
+    public enum Grouping {
+        /**
+         * One sum per field across all datatypes
+         */
+        FIELD,
+        /**
+         * One sum per field and datatype
+         */
+        DATATYPE
+    }
+    
+    private SortedKeyValueIterator<Key,Value> source;
+    private Grouping grouping = Grouping.FIELD;
+    
+    private Key topKey;
+    private Value topValue;
+    
+    @Override
+    public void init(SortedKeyValueIterator<Key,Value> source, Map<String,String> options, IteratorEnvironment env) throws IOException {
+        if (!validateOptions(options)) {
+            throw new IllegalArgumentException("Iterator not configured with correct options");
+        }
+        
+        this.source = source;
+        String opt = options.get(GROUPING_OPT);
+        if (opt != null) {
+            grouping = Grouping.valueOf(opt.toUpperCase(Locale.ROOT));
+        }
+    }
+    
+    @Override
+    public IteratorOptions describeOptions() {
+        IteratorOptions opts = new IteratorOptions(getClass().getSimpleName(), "Sums the frequency counts by field, or by field and datatype", null, null);
+        opts.addNamedOption(GROUPING_OPT, "The grouping of the sums, either FIELD (default) or DATATYPE");
+        return opts;
+    }
+    
+    @Override
+    public boolean validateOptions(Map<String,String> options) {
+        String opt = options.get(GROUPING_OPT);
+        if (opt != null) {
+            try {
+                Grouping.valueOf(opt.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    @Override
+    public boolean hasTop() {
+        return topKey != null;
+    }
+    
+    @Override
+    public void next() throws IOException {
+        findTop();
+    }
+    
+    @Override
+    public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive) throws IOException {
+        source.seek(range, columnFamilies, inclusive);
+        findTop();
+    }
+    
+    @Override
+    public Key getTopKey() {
+        return topKey;
+    }
+    
+    @Override
+    public Value getTopValue() {
+        return topValue;
+    }
+    
+    @Override
+    public SortedKeyValueIterator<Key,Value> deepCopy(IteratorEnvironment env) {
+        FrequencySummingIterator copy = new FrequencySummingIterator();
+        copy.source = source.deepCopy(env);
+        copy.grouping = grouping;
+        return copy;
+    }
+    
+    /**
+     * Consume the next group from the source and sum its counts
+     */
+    private void findTop() throws IOException {
+        topKey = null;
+        topValue = null;
+        
+        long sum = 0L;
+        Key last = null;
+        while (source.hasTop()) {
+            Key key = source.getTopKey();
+            if (last != null && !isSameGroup(last, key)) {
+                break;
+            }
+            
+            try {
+                sum += readVLong(source.getTopValue().get());
+            } catch (ValueFormatException e) {
+                log.warn("Could not convert the Value to a long for key: {}", key);
+            }
+            last = new Key(key);
+            source.next();
+        }
+        
+        if (last != null) {
+            topKey = last;
+            topValue = new Value(SummingCombiner.VAR_LEN_ENCODER.encode(sum));
+        }
+    }
+    
+    /**
+     * Decode a variable length encoded long, as written by {@link SummingCombiner#VAR_LEN_ENCODER}, directly from the value bytes rather than through a stream
+     *
+     * @param bytes
+     *            the value bytes
+     * @return the long
+     * @throws ValueFormatException
+     *             if the bytes are too short for the variable length encoded long
+     */
+    public static long readVLong(byte[] bytes) {
+        if (bytes.length == 0) {
+            throw new ValueFormatException("Cannot decode an empty value");
+        }
+        byte first = bytes[0];
+        if (first >= -112) {
+            return first;
+        }
+        
+        boolean negative = first < -120;
+        int length = negative ? -119 - first : -111 - first;
+        if (bytes.length < length) {
+            throw new ValueFormatException("Expected " + length + " bytes for a variable length long but found " + bytes.length);
+        }
+        long value = 0L;
+        for (int i = 1; i < length; i++) {
+            value = (value << 8) | (bytes[i] & 0xFF);
+        }
+        return negative ? ~value : value;
+    }
+    
+    private boolean isSameGroup(Key last, Key key) {
+        if (!last.equals(key, PartialKey.ROW_COLFAM)) {
+            return false;
+        }
+        if (grouping == Grouping.FIELD) {
+            return true;
+        }
+        
+        ByteSequence lastColq = last.getColumnQualifierData();
+        ByteSequence colq = key.getColumnQualifierData();
+        int length = getDatatypeLength(lastColq);
+        return length == getDatatypeLength(colq) && lastColq.subSequence(0, length).equals(colq.subSequence(0, length));
+    }
+    
+    /**
+     * Get the length of the datatype at the start of a column qualifier, which is everything up to the first null byte
+     *
+     * @param colq
+     *            the column qualifier
+     * @return the length of the datatype
+     */
+    private static int getDatatypeLength(ByteSequence colq) {
+        for (int i = 0; i < colq.length(); i++) {
+            if (colq.byteAt(i) == 0) {
+                return i;
+            }
+        }
+        return colq.length();
+    }
+}
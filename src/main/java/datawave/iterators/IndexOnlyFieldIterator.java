@@ -0,0 +1,162 @@
+package datawave.iterators;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.hadoop.io.Text;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.SetMultimap;
+
+import datawave.data.ColumnFamilyConstants;
+import datawave.query.util.MetadataColumnQualifiers;
+
+/**
+ * An iterator for the metadata table that classifies the index-only fields on the tablet server. Each row (field) is read in full, its
+ * {@link ColumnFamilyConstants#COLF_E}, {@link ColumnFamilyConstants#COLF_I} and {@link ColumnFamilyConstants#COLF_CI} columns are grouped by datatype, and
+ * only the following keys are returned:
+ * <ul>
+ * <li>one {@link ColumnFamilyConstants#COLF_I} key for each datatype in which the field has no other column, i.e. a candidate index-only field</li>
+ * <li>one {@link ColumnFamilyConstants#COLF_CI} key for each composite field name referenced by the row. Composite field names are never index-only fields,
+ * but the composite field may be stored in a different row, so these markers must be applied by the client once the scan is complete.</li>
+ * </ul>
+ * All other columns are consumed and dropped. Values are not returned.
+ */
+public class IndexOnlyFieldIterator implements SortedKeyValueIterator<Key,Value> {
+    
+    private static final Logger log = LoggerFactory.getLogger(IndexOnlyFieldIterator.class);
+    
+    private static final Value EMPTY_VALUE = new Value();
+    
+    private SortedKeyValueIterator<Key,Value> source;
+    private Range range;
+    
+    private final Deque<Key> topKeys = new ArrayDeque<>();
+    private final Text row = new Text();
+    
+    @Override
+    public void init(SortedKeyValueIterator<Key,Value> source, Map<String,String> options, IteratorEnvironment env) throws IOException {
+        this.source = source;
+    }
+    
+    @Override
+    public boolean hasTop() {
+        return !topKeys.isEmpty();
+    }
+    
+    @Override
+    public void next() throws IOException {
+        topKeys.poll();
+        findTop();
+    }
+    
+    /**
+     * Seek to the start of the row containing the start key, as a row must be read in full to be classified. Keys before the requested start key are dropped
+     * once the row has been classified.
+     */
+    @Override
+    public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive) throws IOException {
+        this.range = range;
+        this.topKeys.clear();
+        
+        Range seekRange = range;
+        if (!range.isInfiniteStartKey()) {
+            Key start = range.getStartKey();
+            seekRange = new Range(new Key(start.getRow()), true, range.getEndKey(), range.isEndKeyInclusive());
+        }
+        
+        source.seek(seekRange, columnFamilies, inclusive);
+        findTop();
+    }
+    
+    @Override
+    public Key getTopKey() {
+        return topKeys.peek();
+    }
+    
+    @Override
+    public Value getTopValue() {
+        return EMPTY_VALUE;
+    }
+    
+    @Override
+    public SortedKeyValueIterator<Key,Value> deepCopy(IteratorEnvironment env) {
+        IndexOnlyFieldIterator copy = new IndexOnlyFieldIterator();
+        copy.source = source.deepCopy(env);
+        return copy;
+    }
+    
+    private void findTop() throws IOException {
+        while (topKeys.isEmpty() && source.hasTop()) {
+            for (Key key : classifyRow()) {
+                if (!range.beforeStartKey(key)) {
+                    topKeys.add(key);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Consume the current row from the source and classify it
+     *
+     * @return the keys to return for the row, in sorted order
+     */
+    private List<Key> classifyRow() throws IOException {
+        source.getTopKey().getRow(row);
+        
+        SetMultimap<String,Text> columnsByDatatype = HashMultimap.create();
+        Map<String,Key> indexKeys = new HashMap<>();
+        Map<String,Key> compositeKeys = new HashMap<>();
+        
+        Text holder = new Text();
+        while (source.hasTop() && source.getTopKey().compareRow(row) == 0) {
+            Key key = source.getTopKey();
+            Text columnFamily = key.getColumnFamily();
+            
+            if (columnFamily.equals(ColumnFamilyConstants.COLF_E) || columnFamily.equals(ColumnFamilyConstants.COLF_I)
+                            || columnFamily.equals(ColumnFamilyConstants.COLF_CI)) {
+                String colq = key.getColumnQualifier(holder).toString();
+                String datatype = MetadataColumnQualifiers.getDatatype(colq);
+                columnsByDatatype.put(datatype, columnFamily);
+                
+                if (columnFamily.equals(ColumnFamilyConstants.COLF_I)) {
+                    indexKeys.putIfAbsent(datatype, new Key(key));
+                } else if (columnFamily.equals(ColumnFamilyConstants.COLF_CI)) {
+                    compositeKeys.putIfAbsent(MetadataColumnQualifiers.getCompositeFieldName(colq), new Key(key));
+                }
+            }
+            source.next();
+        }
+        
+        List<Key> keys = new ArrayList<>(compositeKeys.values());
+        for (Map.Entry<String,Key> entry : indexKeys.entrySet()) {
+            Set<Text> columns = columnsByDatatype.get(entry.getKey());
+            if (columns.size() == 1) {
+                keys.add(entry.getValue());
+            }
+        }
+        Collections.sort(keys);
+        
+        if (log.isTraceEnabled()) {
+            log.trace("classified row {} as {}", row, keys);
+        }
+        return keys;
+    }
+    
+}
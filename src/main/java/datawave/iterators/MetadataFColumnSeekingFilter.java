@@ -1,9 +1,11 @@
 package datawave.iterators;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 import java.util.TreeSet;
 
+import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.PartialKey;
 import org.apache.accumulo.core.data.Value;
@@ -13,6 +15,7 @@ import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.accumulo.core.iterators.user.SeekingFilter;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableComparator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -41,6 +44,11 @@ public class MetadataFColumnSeekingFilter extends SeekingFilter implements Optio
     private String startDate;
     private String endDate;
     
+    // the datatypes and dates as bytes, so that keys can be filtered without decoding the column qualifier
+    private byte[][] datatypeBytes;
+    private byte[] startDateBytes;
+    private byte[] endDateBytes;
+    
     @Override
     public void init(SortedKeyValueIterator<Key,Value> source, Map<String,String> options, IteratorEnvironment env) throws IOException {
         if (!validateOptions(options)) {
@@ -57,6 +65,14 @@ public class MetadataFColumnSeekingFilter extends SeekingFilter implements Optio
         startDate = options.get(START_DATE);
         endDate = options.get(END_DATE);
         
+        datatypeBytes = new byte[datatypes.size()][];
+        int i = 0;
+        for (String datatype : datatypes) {
+            datatypeBytes[i++] = datatype.getBytes(StandardCharsets.UTF_8);
+        }
+        startDateBytes = startDate.getBytes(StandardCharsets.UTF_8);
+        endDateBytes = endDate.getBytes(StandardCharsets.UTF_8);
+        
         super.init(source, options, env);
     }
     
@@ -81,6 +97,7 @@ public class MetadataFColumnSeekingFilter extends SeekingFilter implements Optio
      * <li>key date is before the start date</li>
      * <li>key date is after the end date</li>
      * </ol>
+     * The column qualifier is compared byte by byte against the datatypes and dates, as the yyyyMMdd dates sort lexicographically.
      * 
      * @param k
      *            a key
@@ -93,19 +110,28 @@ public class MetadataFColumnSeekingFilter extends SeekingFilter implements Optio
         if (log.isTraceEnabled()) {
             log.trace("filter key: {}", k.toStringNoTime());
         }
-        String cq = k.getColumnQualifier().toString();
-        int index = cq.indexOf('\u0000');
-        String datatype = cq.substring(0, index);
-        if (!datatypes.isEmpty() && !datatypes.contains(datatype)) {
+        ByteSequence cq = k.getColumnQualifierData();
+        byte[] bytes = cq.getBackingArray();
+        int offset = cq.offset();
+        int length = cq.length();
+        
+        int index = indexOfNullByte(bytes, offset, length);
+        if (index == -1) {
+            log.warn("Could not find nullbyte separator in column qualifier for: {}", k);
+            return new FilterResult(false, AdvanceResult.NEXT);
+        }
+        
+        if (datatypeBytes.length > 0 && !containsDatatype(bytes, offset, index)) {
             return new FilterResult(false, AdvanceResult.USE_HINT);
         }
         
-        String date = cq.substring(index + 1);
-        if (date.compareTo(startDate) < 0) {
+        int dateOffset = offset + index + 1;
+        int dateLength = length - index - 1;
+        if (WritableComparator.compareBytes(bytes, dateOffset, dateLength, startDateBytes, 0, startDateBytes.length) < 0) {
             return new FilterResult(false, AdvanceResult.USE_HINT);
         }
         
-        if (date.compareTo(endDate) > 0) {
+        if (WritableComparator.compareBytes(bytes, dateOffset, dateLength, endDateBytes, 0, endDateBytes.length) > 0) {
             return new FilterResult(false, AdvanceResult.USE_HINT);
         }
         
@@ -140,6 +166,24 @@ public class MetadataFColumnSeekingFilter extends SeekingFilter implements Optio
         return hint;
     }
     
+    private static int indexOfNullByte(byte[] bytes, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            if (bytes[offset + i] == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    private boolean containsDatatype(byte[] bytes, int offset, int length) {
+        for (byte[] datatype : datatypeBytes) {
+            if (WritableComparator.compareBytes(bytes, offset, length, datatype, 0, datatype.length) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
     private Key getSeekToNextDatatypeKey(Key key, String datatype) {
         if (datatypes.isEmpty()) {
             // no datatypes provided, so we must instead produce a 'rollover' start key
@@ -9,10 +9,8 @@ import java.util.Map.Entry;
 import java.util.Set;
 
 import org.apache.accumulo.core.client.AccumuloClient;
-import org.apache.accumulo.core.client.Scanner;
 import org.apache.accumulo.core.client.TableNotFoundException;
 import org.apache.accumulo.core.data.Key;
-import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.security.Authorizations;
 import org.apache.hadoop.io.Text;
@@ -26,7 +24,9 @@ import org.springframework.stereotype.Component;
 import com.google.common.base.Preconditions;
 
 import datawave.data.ColumnFamilyConstants;
-import datawave.security.util.ScannerHelper;
+import datawave.query.util.FullTableScanner;
+import datawave.query.util.MetadataSnapshot;
+import datawave.query.util.MetadataSnapshotHelper;
 
 @EnableCaching
 @Component("compositeMetadataHelper")
@@ -44,6 +44,9 @@ public class CompositeMetadataHelper {
     protected final String metadataTableName;
     protected final Set<Authorizations> auths;
     
+    protected MetadataSnapshotHelper metadataSnapshotHelper = null;
+    protected int fullTableScanThreads = 1;
+    
     /**
      * Initializes the instance with a provided update interval.
      *
@@ -78,6 +81,34 @@ public class CompositeMetadataHelper {
         return metadataTableName;
     }
     
+    public MetadataSnapshotHelper getMetadataSnapshotHelper() {
+        return metadataSnapshotHelper;
+    }
+    
+    /**
+     * Set the {@link MetadataSnapshotHelper} used to build the {@link CompositeMetadata} without a separate scan of the table
+     *
+     * @param metadataSnapshotHelper
+     *            the MetadataSnapshotHelper, or null to scan the table
+     */
+    public void setMetadataSnapshotHelper(MetadataSnapshotHelper metadataSnapshotHelper) {
+        this.metadataSnapshotHelper = metadataSnapshotHelper;
+    }
+    
+    public int getFullTableScanThreads() {
+        return fullTableScanThreads;
+    }
+    
+    /**
+     * Set the number of threads used for the full-table scan, see {@link FullTableScanner}
+     *
+     * @param fullTableScanThreads
+     *            the number of threads, 1 to scan serially
+     */
+    public void setFullTableScanThreads(int fullTableScanThreads) {
+        this.fullTableScanThreads = fullTableScanThreads;
+    }
+    
     @Cacheable(value = "getCompositeMetadata", key = "{#root.target.auths,#root.target.metadataTableName}", cacheManager = "metadataHelperCacheManager",
                     sync = true)
     public CompositeMetadata getCompositeMetadata() throws TableNotFoundException {
@@ -93,71 +124,87 @@ public class CompositeMetadataHelper {
         
         SimpleDateFormat dateFormat = new SimpleDateFormat(transitionDateFormat);
         
-        // Scanner to the provided metadata table
-        Scanner bs = ScannerHelper.createScanner(accumuloClient, metadataTableName, auths);
-        
-        Range range = new Range();
-        bs.setRange(range);
-        
-        // Fetch all the column
-        for (Text colf : metadataCompositeColfs) {
-            bs.fetchColumnFamily(colf);
+        if (metadataSnapshotHelper != null) {
+            MetadataSnapshot snapshot = metadataSnapshotHelper.getMetadataSnapshot();
+            for (Text colf : metadataCompositeColfs) {
+                for (Entry<String,String> entry : snapshot.getColumnQualifiers(colf).entries()) {
+                    addCompositeMetadata(compositeMetadata, colf, entry.getKey(), entry.getValue(), datatypeFilter, dateFormat);
+                }
+            }
+            return compositeMetadata;
         }
         
-        for (Entry<Key,Value> entry : bs) {
-            Text colFam = entry.getKey().getColumnFamily();
-            
-            String colq = entry.getKey().getColumnQualifier().toString();
-            int idx = colq.indexOf(NULL_BYTE);
-            String type = colq.substring(0, idx); // this is the datatype
+        // Scanner to the provided metadata table
+        try (FullTableScanner bs = new FullTableScanner(accumuloClient, metadataTableName, auths, fullTableScanThreads)) {
+            // Fetch all the column
+            for (Text colf : metadataCompositeColfs) {
+                bs.fetchColumnFamily(colf);
+            }
             
-            if (datatypeFilter == null || datatypeFilter.isEmpty() || datatypeFilter.contains(type)) {
-                String fieldName = entry.getKey().getRow().toString();
-                if (colFam.equals(ColumnFamilyConstants.COLF_CITD)) {
-                    if (null != entry.getKey().getColumnQualifier()) {
-                        if (idx != -1) {
-                            try {
-                                Date transitionDate = dateFormat.parse(colq.substring(idx + 1));
-                                compositeMetadata.addCompositeTransitionDateByType(type, fieldName, transitionDate);
-                            } catch (ParseException e) {
-                                log.trace("Unable to parse composite field transition date", e);
-                            }
-                        } else {
-                            log.warn("EventMetadata entry did not contain a null byte in the column qualifier: " + entry.getKey());
-                        }
-                    } else {
-                        log.warn("ColumnQualifier null in EventMetadata for key: " + entry.getKey());
-                    }
-                } else if (colFam.equals(ColumnFamilyConstants.COLF_CI)) {
-                    // Get the column qualifier from the key. It contains the datatype
-                    // and composite name,idx
-                    if (null != entry.getKey().getColumnQualifier()) {
-                        if (idx != -1) {
-                            String[] componentFields = colq.substring(idx + 1).split(",");
-                            compositeMetadata.setCompositeFieldMappingByType(type, fieldName, Arrays.asList(componentFields));
-                        } else {
-                            log.warn("EventMetadata entry did not contain a null byte in the column qualifier: " + entry.getKey());
-                        }
-                    } else {
-                        log.warn("ColumnQualifier null in EventMetadata for key: " + entry.getKey());
-                    }
-                } else if (colFam.equals(ColumnFamilyConstants.COLF_CISEP)) {
-                    if (null != entry.getKey().getColumnQualifier()) {
-                        if (idx != -1) {
-                            String separator = colq.substring(idx + 1);
-                            compositeMetadata.addCompositeFieldSeparatorByType(type, fieldName, separator);
-                        } else {
-                            log.warn("EventMetadata entry did not contain a null byte in the column qualifier: " + entry.getKey().toString());
-                        }
-                    } else {
-                        log.warn("ColumnQualifier null in EventMetadata for key: " + entry.getKey().toString());
-                    }
+            for (Entry<Key,Value> entry : bs) {
+                if (null != entry.getKey().getColumnQualifier()) {
+                    addCompositeMetadata(compositeMetadata, entry.getKey().getColumnFamily(), entry.getKey().getRow().toString(),
+                                    entry.getKey().getColumnQualifier().toString(), datatypeFilter, dateFormat);
+                } else {
+                    log.warn("ColumnQualifier null in EventMetadata for key: " + entry.getKey());
                 }
             }
         }
         
-        bs.close();
-        
         return compositeMetadata;
     }
+    
+    /**
+     * Add a single composite entry ({@link ColumnFamilyConstants#COLF_CI}, {@link ColumnFamilyConstants#COLF_CITD} or
+     * {@link ColumnFamilyConstants#COLF_CISEP}) to the {@link CompositeMetadata}
+     *
+     * @param compositeMetadata
+     *            the CompositeMetadata to update
+     * @param colFam
+     *            the column family of the entry
+     * @param fieldName
+     *            the field name, taken from the row
+     * @param colq
+     *            the column qualifier, which starts with the datatype
+     * @param datatypeFilter
+     *            the set of datatypes to include, null or empty for all
+     * @param dateFormat
+     *            the format used to parse composite transition dates
+     */
+    private void addCompositeMetadata(CompositeMetadata compositeMetadata, Text colFam, String fieldName, String colq, Set<String> datatypeFilter,
+                    SimpleDateFormat dateFormat) {
+        int idx = colq.indexOf(NULL_BYTE);
+        String type = colq.substring(0, idx); // this is the datatype
+        
+        if (datatypeFilter == null || datatypeFilter.isEmpty() || datatypeFilter.contains(type)) {
+            if (colFam.equals(ColumnFamilyConstants.COLF_CITD)) {
+                if (idx != -1) {
+                    try {
+                        Date transitionDate = dateFormat.parse(colq.substring(idx + 1));
+                        compositeMetadata.addCompositeTransitionDateByType(type, fieldName, transitionDate);
+                    } catch (ParseException e) {
+                        log.trace("Unable to parse composite field transition date", e);
+                    }
+                } else {
+                    log.warn("EventMetadata entry did not contain a null byte in the column qualifier: " + fieldName + " " + colq);
+                }
+            } else if (colFam.equals(ColumnFamilyConstants.COLF_CI)) {
+                // Get the column qualifier from the key. It contains the datatype
+                // and composite name,idx
+                if (idx != -1) {
+                    String[] componentFields = colq.substring(idx + 1).split(",");
+                    compositeMetadata.setCompositeFieldMappingByType(type, fieldName, Arrays.asList(componentFields));
+                } else {
+                    log.warn("EventMetadata entry did not contain a null byte in the column qualifier: " + fieldName + " " + colq);
+                }
+            } else if (colFam.equals(ColumnFamilyConstants.COLF_CISEP)) {
+                if (idx != -1) {
+                    String separator = colq.substring(idx + 1);
+                    compositeMetadata.addCompositeFieldSeparatorByType(type, fieldName, separator);
+                } else {
+                    log.warn("EventMetadata entry did not contain a null byte in the column qualifier: " + fieldName + " " + colq);
+                }
+            }
+        }
+    }
 }
@@ -5,26 +5,21 @@ import java.io.DataInputStream;
 import java.io.IOException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
-import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.SortedMap;
-import java.util.SortedSet;
-import java.util.TreeMap;
-import java.util.TreeSet;
 import java.util.concurrent.ExecutionException;
 
 import org.apache.accumulo.core.client.AccumuloClient;
+import org.apache.accumulo.core.client.BatchScanner;
 import org.apache.accumulo.core.client.IteratorSetting;
 import org.apache.accumulo.core.client.Scanner;
 import org.apache.accumulo.core.client.TableNotFoundException;
@@ -33,7 +28,6 @@ import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.iterators.user.RegExFilter;
 import org.apache.accumulo.core.security.Authorizations;
-import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.WritableUtils;
@@ -58,6 +52,8 @@ import com.google.common.collect.Sets;
 import datawave.data.ColumnFamilyConstants;
 import datawave.data.type.Type;
 import datawave.data.type.TypeFactory;
+import datawave.iterators.FieldIndexHoleIterator;
+import datawave.iterators.IndexOnlyFieldIterator;
 import datawave.query.composite.CompositeMetadata;
 import datawave.query.composite.CompositeMetadataHelper;
 import datawave.query.model.IndexFieldHole;
@@ -95,6 +91,11 @@ public class AllFieldMetadataHelper {
     private int typeCacheExpirationInMinutes = -1;
     protected TypeFactory typeFactory = null;
     
+    protected MetadataSnapshotHelper metadataSnapshotHelper = null;
+    protected int fullTableScanThreads = 1;
+    protected int fieldIndexHoleThreads = 8;
+    protected FieldIndexHoleHelper fieldIndexHoleHelper = null;
+    
     /**
      * Initializes the instance with a provided update interval.
      *
@@ -136,12 +137,7 @@ public class AllFieldMetadataHelper {
      * @return the datatype
      */
     protected String getDatatype(Key k) {
-        String datatype = k.getColumnQualifier().toString();
-        int index = datatype.indexOf('\0');
-        if (index >= 0) {
-            datatype = datatype.substring(0, index);
-        }
-        return datatype;
+        return MetadataColumnQualifiers.getDatatype(k.getColumnQualifier().toString());
     }
     
     /**
@@ -152,16 +148,7 @@ public class AllFieldMetadataHelper {
      * @return the field name
      */
     protected String getCompositeFieldName(Key k) {
-        String compositeFieldName = k.getColumnQualifier().toString();
-        int index = compositeFieldName.indexOf('\0');
-        if (index >= 0) {
-            compositeFieldName = compositeFieldName.substring(index + 1);
-            index = compositeFieldName.indexOf(',');
-            if (index != -1) {
-                compositeFieldName = compositeFieldName.substring(0, index);
-            }
-        }
-        return compositeFieldName;
+        return MetadataColumnQualifiers.getCompositeFieldName(k.getColumnQualifier().toString());
     }
     
     /**
@@ -200,6 +187,32 @@ public class AllFieldMetadataHelper {
         return typeMetadataHelper;
     }
     
+    /**
+     * Get the {@link MetadataSnapshotHelper}, if one is configured
+     *
+     * @return the MetadataSnapshotHelper or null
+     */
+    public MetadataSnapshotHelper getMetadataSnapshotHelper() {
+        return metadataSnapshotHelper;
+    }
+    
+    /**
+     * Set the {@link MetadataSnapshotHelper} used to serve the full-table field metadata from a single {@link MetadataSnapshot}. The helper is also handed to
+     * the {@link TypeMetadataHelper} and {@link CompositeMetadataHelper} so that all of them share the same snapshot. The snapshot is only retained by the
+     * metadata cache, so this should only be set to a helper proxied by it, otherwise every structure is served from a new scan of the whole table.
+     *
+     * @param metadataSnapshotHelper
+     *            the MetadataSnapshotHelper, or null to scan the table per structure
+     */
+    public void setMetadataSnapshotHelper(MetadataSnapshotHelper metadataSnapshotHelper) {
+        this.metadataSnapshotHelper = metadataSnapshotHelper;
+        this.typeMetadataHelper.setMetadataSnapshotHelper(metadataSnapshotHelper);
+        this.compositeMetadataHelper.setMetadataSnapshotHelper(metadataSnapshotHelper);
+        if (metadataSnapshotHelper != null) {
+            metadataSnapshotHelper.setFullTableScanThreads(fullTableScanThreads);
+        }
+    }
+    
     /**
      * Method that determines whether a column exists in the metadata table for the given key.
      * 
@@ -265,6 +278,44 @@ public class AllFieldMetadataHelper {
         return false;
     }
     
+    /**
+     * Loads the datatypes for which every field is indexed, reverse indexed and tokenized from the {@link FieldIndexFlags#COLUMN_FAMILIES} in a single scan, so
+     * that {@link MetadataHelper#isIndexed(String, Set)} and its siblings can be answered in memory for any ingest type filter.
+     *
+     * @return the field index flags
+     * @throws TableNotFoundException
+     *             if no table exists
+     */
+    @Cacheable(value = "getFieldIndexFlags", key = "{#root.target.auths,#root.target.metadataTableName}", cacheManager = "metadataHelperCacheManager",
+                    sync = true)
+    public FieldIndexFlags getFieldIndexFlags() throws TableNotFoundException {
+        log.debug("cache fault for getFieldIndexFlags({}, {})", this.auths, this.metadataTableName);
+        
+        FieldIndexFlags.Builder builder = new FieldIndexFlags.Builder();
+        
+        if (metadataSnapshotHelper != null) {
+            MetadataSnapshot snapshot = metadataSnapshotHelper.getMetadataSnapshot();
+            for (Text colf : FieldIndexFlags.COLUMN_FAMILIES) {
+                for (Entry<String,String> entry : snapshot.getFields(colf).entries()) {
+                    builder.add(colf, entry.getValue(), entry.getKey());
+                }
+            }
+            return builder.build();
+        }
+        
+        try (FullTableScanner bs = new FullTableScanner(accumuloClient, metadataTableName, auths, fullTableScanThreads)) {
+            for (Text colf : FieldIndexFlags.COLUMN_FAMILIES) {
+                bs.fetchColumnFamily(colf);
+            }
+            
+            for (Entry<Key,Value> entry : bs) {
+                Key k = entry.getKey();
+                builder.add(k.getColumnFamily(), k.getRow().toString(), getDatatype(k));
+            }
+        }
+        return builder.build();
+    }
+    
     /**
      * Returns a Set of all Types in use by any type in Accumulo
      * 
@@ -286,8 +337,7 @@ public class AllFieldMetadataHelper {
         
         Set<Type<?>> datatypes = Sets.newHashSetWithExpectedSize(10);
         
-        try (Scanner bs = ScannerHelper.createScanner(accumuloClient, metadataTableName, auths)) {
-            bs.setRange(new Range());
+        try (FullTableScanner bs = new FullTableScanner(accumuloClient, metadataTableName, auths, fullTableScanThreads)) {
             bs.fetchColumnFamily(ColumnFamilyConstants.COLF_T);
             
             for (Entry<Key,Value> entry : bs) {
@@ -351,8 +401,7 @@ public class AllFieldMetadataHelper {
         
         ArrayListMultimap<String,String> compositeToFieldMap = ArrayListMultimap.create();
         
-        try (Scanner bs = ScannerHelper.createScanner(accumuloClient, metadataTableName, auths)) {
-            bs.setRange(new Range());
+        try (FullTableScanner bs = new FullTableScanner(accumuloClient, metadataTableName, auths, fullTableScanThreads)) {
             bs.fetchColumnFamily(ColumnFamilyConstants.COLF_CI);
             
             for (Entry<Key,Value> entry : bs) {
@@ -419,8 +468,7 @@ public class AllFieldMetadataHelper {
         
         SimpleDateFormat dateFormat = new SimpleDateFormat(CompositeMetadataHelper.transitionDateFormat);
         
-        try (Scanner bs = ScannerHelper.createScanner(accumuloClient, metadataTableName, auths)) {
-            bs.setRange(new Range());
+        try (FullTableScanner bs = new FullTableScanner(accumuloClient, metadataTableName, auths, fullTableScanThreads)) {
             bs.fetchColumnFamily(ColumnFamilyConstants.COLF_CITD);
             
             for (Entry<Key,Value> entry : bs) {
@@ -491,8 +539,7 @@ public class AllFieldMetadataHelper {
         // Note: Intentionally using the same transition date format as the composite fields.
         SimpleDateFormat dateFormat = new SimpleDateFormat(CompositeMetadataHelper.transitionDateFormat);
         
-        try (Scanner bs = ScannerHelper.createScanner(accumuloClient, metadataTableName, auths)) {
-            bs.setRange(new Range());
+        try (FullTableScanner bs = new FullTableScanner(accumuloClient, metadataTableName, auths, fullTableScanThreads)) {
             bs.fetchColumnFamily(ColumnFamilyConstants.COLF_WCD);
             
             for (Entry<Key,Value> entry : bs) {
@@ -560,8 +607,7 @@ public class AllFieldMetadataHelper {
         
         Map<String,String> sepMap = new HashMap<>();
         
-        try (Scanner bs = ScannerHelper.createScanner(accumuloClient, metadataTableName, auths)) {
-            bs.setRange(new Range());
+        try (FullTableScanner bs = new FullTableScanner(accumuloClient, metadataTableName, auths, fullTableScanThreads)) {
             bs.fetchColumnFamily(ColumnFamilyConstants.COLF_CISEP);
             
             for (Entry<Key,Value> entry : bs) {
@@ -939,10 +985,13 @@ public class AllFieldMetadataHelper {
             log.trace("loadAllFields from table: {}", metadataTableName);
         }
         
+        if (metadataSnapshotHelper != null) {
+            return metadataSnapshotHelper.getMetadataSnapshot().getAllFields();
+        }
+        
         Multimap<String,String> fields = HashMultimap.create();
         
-        try (Scanner bs = ScannerHelper.createScanner(accumuloClient, metadataTableName, auths)) {
-            bs.setRange(new Range());
+        try (FullTableScanner bs = new FullTableScanner(accumuloClient, metadataTableName, auths, fullTableScanThreads)) {
             
             // We don't want to fetch all columns because that could include model
             // field names
@@ -979,59 +1028,37 @@ public class AllFieldMetadataHelper {
             log.trace("loadIndexOnlyFields from table: {}", metadataTableName);
         }
         
-        Multimap<String,String> fields = HashMultimap.create();
+        if (metadataSnapshotHelper != null) {
+            return metadataSnapshotHelper.getMetadataSnapshot().getIndexOnlyFields();
+        }
         
-        final Map<String,Multimap<Text,Text>> metadata = new HashMap<>();
+        Multimap<String,String> fields = HashMultimap.create();
+        Set<String> compositeFields = Sets.newHashSet();
         
-        try (Scanner bs = ScannerHelper.createScanner(accumuloClient, metadataTableName, auths)) {
+        // For all keys in the DatawaveMetadata table
+        try (FullTableScanner bs = new FullTableScanner(accumuloClient, metadataTableName, auths, fullTableScanThreads)) {
             // Fetch the 'e' and 'i' columns
             bs.fetchColumnFamily(ColumnFamilyConstants.COLF_E);
             bs.fetchColumnFamily(ColumnFamilyConstants.COLF_I);
             bs.fetchColumnFamily(ColumnFamilyConstants.COLF_CI);
             
-            // For all keys in the DatawaveMetadata table
-            bs.setRange(new Range());
+            // Classify each field on the tablet server, which returns only the fields which have just the 'i' column for a datatype and the composite field
+            // names
+            bs.addScanIterator(new IteratorSetting(50, "indexOnlyFields", IndexOnlyFieldIterator.class));
             
-            Iterator<Entry<Key,Value>> iterator = bs.iterator();
-            Set<String> compositeFields = Sets.newHashSet();
-            // Collect the results and put them into a Multimap
-            while (iterator.hasNext()) {
-                Entry<Key,Value> entry = iterator.next();
+            for (Entry<Key,Value> entry : bs) {
                 Key k = entry.getKey();
-                Text fieldName = k.getRow();
-                Text fieldType = k.getColumnFamily();
-                String dataType = getDatatype(k);
-                if (fieldType.equals(ColumnFamilyConstants.COLF_CI)) {
+                if (k.getColumnFamily().equals(ColumnFamilyConstants.COLF_CI)) {
                     compositeFields.add(getCompositeFieldName(k));
-                }
-                
-                Multimap<Text,Text> md = metadata.get(dataType);
-                if (md == null) {
-                    md = HashMultimap.create();
-                    metadata.put(dataType, md);
-                    
-                }
-                md.put(fieldName, fieldType);
-            }
-            
-            // Find all of the fields which only have the 'i' column
-            for (String dataType : metadata.keySet()) {
-                for (Text fieldName : metadata.get(dataType).keySet()) {
-                    Collection<Text> columns = metadata.get(dataType).get(fieldName);
-                    
-                    if (1 == columns.size()) {
-                        Text c = columns.iterator().next();
-                        
-                        if (c.equals(ColumnFamilyConstants.COLF_I)) {
-                            if (compositeFields.contains(fieldName.toString()) == false) {
-                                fields.put(dataType, fieldName.toString());
-                            }
-                        }
-                    }
+                } else {
+                    fields.put(getDatatype(k), k.getRow().toString());
                 }
             }
         }
         
+        // A composite field name is never an index only field
+        fields.values().removeAll(compositeFields);
+        
         return Multimaps.unmodifiableMultimap(fields);
     }
     
@@ -1051,9 +1078,12 @@ public class AllFieldMetadataHelper {
         if (log.isTraceEnabled()) {
             log.trace("loadTermFrequencyFields from table: {}", metadataTableName);
         }
+        
+        if (metadataSnapshotHelper != null) {
+            return metadataSnapshotHelper.getMetadataSnapshot().getFields(ColumnFamilyConstants.COLF_TF);
+        }
         // Scanner to the provided metadata table
-        try (Scanner bs = ScannerHelper.createScanner(accumuloClient, metadataTableName, auths)) {
-            bs.setRange(new Range());
+        try (FullTableScanner bs = new FullTableScanner(accumuloClient, metadataTableName, auths, fullTableScanThreads)) {
             bs.fetchColumnFamily(ColumnFamilyConstants.COLF_TF);
             
             for (Entry<Key,Value> entry : bs) {
@@ -1080,10 +1110,13 @@ public class AllFieldMetadataHelper {
             log.trace("loadIndexedFields from table: {}", metadataTableName);
         }
         
+        if (metadataSnapshotHelper != null) {
+            return metadataSnapshotHelper.getMetadataSnapshot().getFields(ColumnFamilyConstants.COLF_I);
+        }
+        
         Multimap<String,String> fields = HashMultimap.create();
         
-        try (Scanner bs = ScannerHelper.createScanner(accumuloClient, metadataTableName, auths)) {
-            bs.setRange(new Range());
+        try (FullTableScanner bs = new FullTableScanner(accumuloClient, metadataTableName, auths, fullTableScanThreads)) {
             bs.fetchColumnFamily(ColumnFamilyConstants.COLF_I);
             
             for (Entry<Key,Value> entry : bs) {
@@ -1110,10 +1143,13 @@ public class AllFieldMetadataHelper {
             log.trace("loadReverseIndexedFields from table: {}", metadataTableName);
         }
         
+        if (metadataSnapshotHelper != null) {
+            return metadataSnapshotHelper.getMetadataSnapshot().getFields(ColumnFamilyConstants.COLF_RI);
+        }
+        
         Multimap<String,String> fields = HashMultimap.create();
         
-        try (Scanner bs = ScannerHelper.createScanner(accumuloClient, metadataTableName, auths)) {
-            bs.setRange(new Range());
+        try (FullTableScanner bs = new FullTableScanner(accumuloClient, metadataTableName, auths, fullTableScanThreads)) {
             bs.fetchColumnFamily(ColumnFamilyConstants.COLF_RI);
             
             for (Entry<Key,Value> entry : bs) {
@@ -1141,8 +1177,7 @@ public class AllFieldMetadataHelper {
         
         Multimap<String,String> fields = HashMultimap.create();
         
-        try (Scanner bs = ScannerHelper.createScanner(accumuloClient, metadataTableName, fullUserAuths)) {
-            bs.setRange(new Range());
+        try (FullTableScanner bs = new FullTableScanner(accumuloClient, metadataTableName, fullUserAuths, fullTableScanThreads)) {
             bs.fetchColumnFamily(ColumnFamilyConstants.COLF_I);
             
             for (Entry<Key,Value> entry : bs) {
@@ -1168,10 +1203,13 @@ public class AllFieldMetadataHelper {
             log.trace("loadExpansionFields from table: {}", metadataTableName);
         }
         
+        if (metadataSnapshotHelper != null) {
+            return metadataSnapshotHelper.getMetadataSnapshot().getFields(ColumnFamilyConstants.COLF_EXP);
+        }
+        
         Multimap<String,String> fields = HashMultimap.create();
         
-        try (Scanner bs = ScannerHelper.createScanner(accumuloClient, metadataTableName, auths)) {
-            bs.setRange(new Range());
+        try (FullTableScanner bs = new FullTableScanner(accumuloClient, metadataTableName, auths, fullTableScanThreads)) {
             bs.fetchColumnFamily(ColumnFamilyConstants.COLF_EXP);
             
             for (Entry<Key,Value> entry : bs) {
@@ -1197,10 +1235,13 @@ public class AllFieldMetadataHelper {
             log.trace("loadContentFields from table: {}", metadataTableName);
         }
         
+        if (metadataSnapshotHelper != null) {
+            return metadataSnapshotHelper.getMetadataSnapshot().getFields(ColumnFamilyConstants.COLF_CONTENT);
+        }
+        
         Multimap<String,String> fields = HashMultimap.create();
         
-        try (Scanner bs = ScannerHelper.createScanner(accumuloClient, metadataTableName, auths)) {
-            bs.setRange(new Range());
+        try (FullTableScanner bs = new FullTableScanner(accumuloClient, metadataTableName, auths, fullTableScanThreads)) {
             bs.fetchColumnFamily(ColumnFamilyConstants.COLF_CONTENT);
             
             for (Entry<Key,Value> entry : bs) {
@@ -1228,11 +1269,14 @@ public class AllFieldMetadataHelper {
             log.trace("loadDatatypes from table: {}", metadataTableName);
         }
         
+        if (metadataSnapshotHelper != null) {
+            return metadataSnapshotHelper.getMetadataSnapshot().getDatatypes();
+        }
+        
         HashSet<String> datatypes = new HashSet<>();
         final Text holder = new Text();
         
-        try (Scanner bs = ScannerHelper.createScanner(accumuloClient, metadataTableName, auths)) {
-            bs.setRange(new Range());
+        try (FullTableScanner bs = new FullTableScanner(accumuloClient, metadataTableName, auths, fullTableScanThreads)) {
             bs.fetchColumnFamily(ColumnFamilyConstants.COLF_E);
             
             for (Entry<Key,Value> entry : bs) {
@@ -1258,7 +1302,30 @@ public class AllFieldMetadataHelper {
      */
     public Map<String,Map<String,IndexFieldHole>> getFieldIndexHoles(Set<String> fields, Set<String> datatypes, double minThreshold)
                     throws TableNotFoundException, IOException {
-        return getFieldIndexHoles(ColumnFamilyConstants.COLF_I, fields, datatypes, minThreshold);
+        return getFieldIndexHoles(ColumnFamilyConstants.COLF_I, fields, datatypes, minThreshold, null, null);
+    }
+    
+    /**
+     * Fetches results from {@link #metadataTableName} and calculates the set of field index holes within a date range that exists for all indexed entries. Only
+     * the frequency and index entries within the date range are read, along with the boundary markers that affect it, and the holes are clipped to the range.
+     * The map consists of field names to datatypes to field index holes.
+     * 
+     * @param fields
+     *            the fields to fetch field index holes for, an empty set will result in all fields being fetched
+     * @param datatypes
+     *            the datatypes to fetch field index holes for, an empty set will result in all datatypes being fetched
+     * @param minThreshold
+     *            the minimum percentage threshold required for an index row to be considered NOT a hole on a particular date, this should be a value in the
+     *            range 0.0 to 1.0
+     * @param begin
+     *            the start date
+     * @param end
+     *            the end date
+     * @return a map of field names and datatype pairs to field index holes
+     */
+    public Map<String,Map<String,IndexFieldHole>> getFieldIndexHoles(Set<String> fields, Set<String> datatypes, double minThreshold, Date begin, Date end)
+                    throws TableNotFoundException, IOException {
+        return getFieldIndexHoles(ColumnFamilyConstants.COLF_I, fields, datatypes, minThreshold, begin, end);
     }
     
     /**
@@ -1276,7 +1343,30 @@ public class AllFieldMetadataHelper {
      */
     public Map<String,Map<String,IndexFieldHole>> getReversedFieldIndexHoles(Set<String> fields, Set<String> datatypes, double minThreshold)
                     throws TableNotFoundException, IOException {
-        return getFieldIndexHoles(ColumnFamilyConstants.COLF_RI, fields, datatypes, minThreshold);
+        return getFieldIndexHoles(ColumnFamilyConstants.COLF_RI, fields, datatypes, minThreshold, null, null);
+    }
+    
+    /**
+     * Fetches results from {@link #metadataTableName} and calculates the set of field index holes within a date range that exists for all reversed indexed
+     * entries. Only the frequency and reversed index entries within the date range are read, along with the boundary markers that affect it, and the holes are
+     * clipped to the range. The map consists of field names to datatypes to field index holes.
+     * 
+     * @param fields
+     *            the fields to fetch field index holes for, an empty set will result in all fields being fetched
+     * @param datatypes
+     *            the datatypes to fetch field index holes for, an empty set will result in all datatypes being fetched
+     * @param minThreshold
+     *            the minimum percentage threshold required for an index row to be considered NOT a hole on a particular date, this should be a value in the
+     *            range 0.0 to 1.0
+     * @param begin
+     *            the start date
+     * @param end
+     *            the end date
+     * @return a map of field names and datatype pairs to field index holes
+     */
+    public Map<String,Map<String,IndexFieldHole>> getReversedFieldIndexHoles(Set<String> fields, Set<String> datatypes, double minThreshold, Date begin,
+                    Date end) throws TableNotFoundException, IOException {
+        return getFieldIndexHoles(ColumnFamilyConstants.COLF_RI, fields, datatypes, minThreshold, begin, end);
     }
     
     /**
@@ -1290,14 +1380,21 @@ public class AllFieldMetadataHelper {
      *            a set of datatypes (can be empty to denote all)
      * @param minThreshold
      *            the minimum threshold
+     * @param begin
+     *            the start date, or null for all dates
+     * @param end
+     *            the end date, or null for all dates
      * @return a map of index holes by datatype
      * @throws TableNotFoundException
      *             if no table exists
      * @throws IOException
      *             if a value fails to deserialize
      */
-    private Map<String,Map<String,IndexFieldHole>> getFieldIndexHoles(Text targetColumnFamily, Set<String> fields, Set<String> datatypes, double minThreshold)
-                    throws TableNotFoundException, IOException {
+    private Map<String,Map<String,IndexFieldHole>> getFieldIndexHoles(Text targetColumnFamily, Set<String> fields, Set<String> datatypes, double minThreshold,
+                    Date begin, Date end) throws TableNotFoundException, IOException {
+        // all fields are wanted if none are given, in which case the whole table is scanned
+        boolean allFields = fields == null || fields.isEmpty();
+        
         // create local copies to avoid side effects
         fields = new HashSet<>(fields);
         datatypes = new HashSet<>(datatypes);
@@ -1349,32 +1446,121 @@ public class AllFieldMetadataHelper {
             minThreshold = 0.0d;
         }
         
-        Map<String,Map<String,IndexFieldHole>> indexHoles;
-        try (Scanner bs = ScannerHelper.createScanner(accumuloClient, metadataTableName, auths)) {
+        // Use the cached holes if a cache is configured, clipped to the date range if any.
+        if (fieldIndexHoleHelper != null && !fields.isEmpty()) {
+            Map<String,Map<String,IndexFieldHole>> fieldIndexHoles = fieldIndexHoleHelper.getFieldIndexHoles(targetColumnFamily, fields, datatypes,
+                            minThreshold);
+            return begin == null ? fieldIndexHoles : clipFieldIndexHoles(fieldIndexHoles, begin, end);
+        }
+        
+        // Determine which ranges to use.
+        if (allFields || fields.isEmpty()) {
+            // If no fields are specified, scan over all entries in the table.
+            return findFieldIndexHoles(targetColumnFamily, Collections.singleton(new Range()), fields, datatypes, minThreshold, begin, end);
+        } else {
+            // Otherwise scan the row of each field, rather than every row between the lowest and highest field.
+            List<Range> ranges = new ArrayList<>(fields.size());
+            for (String field : fields) {
+                ranges.add(Range.exact(field));
+            }
+            return findFieldIndexHoles(targetColumnFamily, ranges, fields, datatypes, minThreshold, begin, end);
+        }
+    }
+    
+    /**
+     * Clip field index holes to a date range, dropping the holes outside it
+     *
+     * @param fieldIndexHoles
+     *            the field index holes
+     * @param begin
+     *            the start date
+     * @param end
+     *            the end date
+     * @return the field index holes within the date range
+     */
+    private Map<String,Map<String,IndexFieldHole>> clipFieldIndexHoles(Map<String,Map<String,IndexFieldHole>> fieldIndexHoles, Date begin, Date end) {
+        // compare whole days, as the holes are
+        Date beginDay = DateHelper.parse(DateHelper.format(begin));
+        Date endDay = DateHelper.parse(DateHelper.format(end));
+        
+        ImmutableMap.Builder<String,Map<String,IndexFieldHole>> fieldMapBuilder = new ImmutableMap.Builder<>();
+        fieldIndexHoles.forEach((fieldName, datatypeMap) -> {
+            ImmutableMap.Builder<String,IndexFieldHole> datatypeMapBuilder = new ImmutableMap.Builder<>();
+            datatypeMap.forEach((datatype, hole) -> {
+                List<Pair<Date,Date>> dateRanges = FieldIndexHoleIterator.clipHoles(hole.getDateRanges(), beginDay, endDay);
+                if (!dateRanges.isEmpty()) {
+                    datatypeMapBuilder.put(datatype, new IndexFieldHole(fieldName, datatype, dateRanges));
+                }
+            });
+            Map<String,IndexFieldHole> datatypeHoles = datatypeMapBuilder.build();
+            if (!datatypeHoles.isEmpty()) {
+                fieldMapBuilder.put(fieldName, datatypeHoles);
+            }
+        });
+        return fieldMapBuilder.build();
+    }
+    
+    /**
+     * Find the field index holes in the given ranges of the metadata table. The holes of each field are found on the tablet server by the
+     * {@link FieldIndexHoleIterator}, which reads the row of a field in full, so the ranges are scanned with up to {@link #getFieldIndexHoleThreads()} threads
+     * and the results come back in no particular order.
+     *
+     * @param targetColumnFamily
+     *            the target column family
+     * @param ranges
+     *            the ranges to scan
+     * @param fields
+     *            the fields, which are filtered on if there is more than one
+     * @param datatypes
+     *            a set of datatypes (can be empty to denote all)
+     * @param minThreshold
+     *            the minimum threshold
+     * @param begin
+     *            the start date, or null for all dates
+     * @param end
+     *            the end date, or null for all dates
+     * @return a map of index holes by datatype
+     * @throws TableNotFoundException
+     *             if no table exists
+     * @throws IOException
+     *             if a value fails to deserialize
+     */
+    private Map<String,Map<String,IndexFieldHole>> findFieldIndexHoles(Text targetColumnFamily, Collection<Range> ranges, Set<String> fields,
+                    Set<String> datatypes, double minThreshold, Date begin, Date end) throws TableNotFoundException, IOException {
+        int threads = Math.max(1, Math.min(fieldIndexHoleThreads, ranges.size()));
+        try (BatchScanner bs = ScannerHelper.createBatchScanner(accumuloClient, metadataTableName, auths, threads)) {
             
             // Fetch the frequency column and the specified index column.
             bs.fetchColumnFamily(ColumnFamilyConstants.COLF_F);
             bs.fetchColumnFamily(targetColumnFamily);
+            bs.setRanges(ranges);
             
-            // Determine which range to use.
-            Range range;
-            if (fields.isEmpty()) {
-                // If no fields are specified, scan over all entries in the table.
-                range = new Range();
-            } else if (fields.size() == 1) {
-                // If just one field is specified, limit the range to where the row is the field.
-                range = new Range(new Text(fields.iterator().next()));
+            // Find the holes on the tablet server, which returns one entry per field and datatype with holes
+            IteratorSetting setting = new IteratorSetting(50, "fieldIndexHoles", FieldIndexHoleIterator.class);
+            if (begin == null) {
+                FieldIndexHoleIterator.configure(setting, targetColumnFamily, datatypes, minThreshold);
             } else {
-                // If more than one field is specified, sort the fields and limit the range from the lowest to highest field (lexicographically).
-                SortedSet<String> sortedFields = new TreeSet<>(fields);
-                range = new Range(new Text(sortedFields.first()), new Text(sortedFields.last()));
+                FieldIndexHoleIterator.configure(setting, targetColumnFamily, datatypes, minThreshold, begin, end);
+            }
+            bs.addScanIterator(setting);
+            
+            Map<String,ImmutableMap.Builder<String,IndexFieldHole>> fieldIndexHoles = new HashMap<>();
+            for (Entry<Key,Value> entry : bs) {
+                Key key = entry.getKey();
+                String fieldName = key.getRow().toString();
+                if (fields.size() > 1 && !fields.contains(fieldName)) {
+                    continue;
+                }
+                String datatype = MetadataColumnQualifiers.getDatatype(key.getColumnQualifier().toString());
+                IndexFieldHole fieldIndexHole = new IndexFieldHole(fieldName, datatype, FieldIndexHoleIterator.decodeHoles(entry.getValue()));
+                fieldIndexHoles.computeIfAbsent(fieldName, k -> new ImmutableMap.Builder<>()).put(datatype, fieldIndexHole);
             }
-            bs.setRange(range);
             
-            FieldIndexHoleFinder finder = new FieldIndexHoleFinder(bs, minThreshold, fields, datatypes);
-            indexHoles = finder.findHoles();
+            // Return the field index holes as an immutable structure.
+            ImmutableMap.Builder<String,Map<String,IndexFieldHole>> fieldMapBuilder = new ImmutableMap.Builder<>();
+            fieldIndexHoles.forEach((fieldName, datatypeMapBuilder) -> fieldMapBuilder.put(fieldName, datatypeMapBuilder.build()));
+            return fieldMapBuilder.build();
         }
-        return indexHoles;
     }
     
     public int getTypeCacheSize() {
@@ -1393,467 +1579,53 @@ public class AllFieldMetadataHelper {
         this.typeCacheExpirationInMinutes = typeCacheExpirationInMinutes;
     }
     
-    private enum BOUNDARY_TYPE {
-        NONE, // denoting a non-boundary marker
-        IMPLIED, // denoting a boundary implied by the old style index entry (using timestamp for date)
-        MANUAL_INDEXED, // denoting a boundary that was manually injected including the date in the key and a true value
-        MANUAL_UNINDEXED // denoting a boundary that was manually injected including the date in the key and a false value
+    public int getFullTableScanThreads() {
+        return fullTableScanThreads;
     }
     
-    private static class FieldCount {
-        private long count = 0;
-        private Date date = null;
-        private BOUNDARY_TYPE boundaryType = BOUNDARY_TYPE.NONE;
-        
-        public void increment(long value) {
-            this.count += value;
-        }
-        
-        public void setBoundaryValue(BOUNDARY_TYPE boundaryType) {
-            this.boundaryType = boundaryType;
-        }
-        
-        public boolean isBoundary() {
-            return this.boundaryType != null && this.boundaryType != BOUNDARY_TYPE.NONE;
-        }
-        
-        public boolean isIndexBoundary() {
-            return this.boundaryType == BOUNDARY_TYPE.IMPLIED || this.boundaryType == BOUNDARY_TYPE.MANUAL_INDEXED;
-        }
-        
-        public boolean isUnindexedBoundary() {
-            return this.boundaryType == BOUNDARY_TYPE.MANUAL_UNINDEXED;
-        }
-        
-        public BOUNDARY_TYPE getBoundaryType() {
-            return this.boundaryType;
-        }
-        
-        public void setDate(Date date) {
-            this.date = date;
-        }
-        
-        public Date getDate() {
-            return date;
-        }
-        
-        public long getCount() {
-            return this.count;
-        }
-        
-        @Override
-        public String toString() {
-            return ToStringBuilder.reflectionToString(this);
-        }
+    public int getFieldIndexHoleThreads() {
+        return fieldIndexHoleThreads;
     }
     
     /**
-     * Utility class for finding field index holes.
+     * Set the number of threads of the batch scanner used to find the field index holes of more than one field
+     *
+     * @param fieldIndexHoleThreads
+     *            the number of threads
      */
-    private static class FieldIndexHoleFinder {
-        
-        private final Scanner scanner;
-        private final double minThreshold;
-        private final Set<String> fields;
-        private final Set<String> datatypes;
-        private final boolean filterFields;
-        private final boolean filterDatatypes;
-        
-        // Contains datatypes to dates and counts for entries seen in "f" rows for the current field name.
-        private final Map<String,SortedMap<Date,FieldCount>> frequencyMap = new HashMap<>();
-        
-        // Contains datatypes to dates and counts for entries seen in the target "i" or "ri" index rows for the current field name.
-        private final Map<String,SortedMap<Date,FieldCount>> indexMap = new HashMap<>();
-        
-        // Points to the target map object that we add entries to. This changes when we see a different column family compared to the previous row when scanning
-        // over entries. We must initially start adding entries to the frequency map.
-        private Map<String,SortedMap<Date,FieldCount>> targetMap = frequencyMap;
-        
-        // Map of field names to maps of datatypes to date ranges encompassing field index holes.
-        Map<String,Multimap<String,Pair<Date,Date>>> fieldIndexHoles = new HashMap<>();
-        
-        FieldIndexHoleFinder(Scanner scanner, double minThreshold, Set<String> fields, Set<String> datatypes) {
-            this.scanner = scanner;
-            this.minThreshold = minThreshold;
-            this.fields = Collections.unmodifiableSet(fields);
-            this.datatypes = Collections.unmodifiableSet(datatypes);
-            // Actively filter out entries based on the field if we have more than one field specified. If we have an empty set, we are searching for field
-            // index holes for all fields. If we have just one field, the range for the scanner will already be limited to just the field.
-            this.filterFields = fields.size() > 1;
-            // Actively filter out entries based on the datatypes if we have any datatypes specified. If we have an empty set, we are searching for field index
-            // holes for all datatypes.
-            this.filterDatatypes = !datatypes.isEmpty();
-        }
-        
-        /**
-         * Find and return all field index holes for the scanner in this {@link FieldIndexHoleFinder}.
-         * 
-         * @return the field index holes
-         * @throws IOException
-         *             if a value fails to deserialize
-         */
-        Map<String,Map<String,IndexFieldHole>> findHoles() throws IOException {
-            String prevFieldName = null;
-            Text prevColumnFamily = null;
-            
-            String currFieldName;
-            String currDatatype;
-            Text currColumnFamily;
-            Date currDate;
-            long currCount;
-            BOUNDARY_TYPE currBoundaryType;
-            
-            for (Map.Entry<Key,Value> entry : scanner) {
-                
-                // Parse the current row.
-                Key key = entry.getKey();
-                currFieldName = key.getRow().toString();
-                currColumnFamily = key.getColumnFamily();
-                
-                // avoid carrying over anything
-                currDatatype = null;
-                currDate = null;
-                currBoundaryType = BOUNDARY_TYPE.NONE;
-                
-                String cq = key.getColumnQualifier().toString();
-                int offset = cq.indexOf(NULL_BYTE);
-                if (offset < 0) {
-                    currDatatype = cq;
-                    
-                    // Check if the current field and datatype are part of the fields and datatypes we want to retrieve field index holes for.
-                    if (!isPartOfTarget(currFieldName, currDatatype)) {
-                        continue;
-                    }
-                    
-                    // we can treat this like an index marker but the ts of the entry denotes the boundary
-                    currDate = getPreviousDay(key.getTimestamp());
-                    log.warn("Found an index entry missing the date, treating as an index marker at " + currDate + " : " + key);
-                    currBoundaryType = BOUNDARY_TYPE.IMPLIED;
-                    currCount = 0;
-                } else {
-                    currDatatype = cq.substring(0, offset);
-                    
-                    // Check if the current field and datatype are part of the fields and datatypes we want to retrieve field index holes for.
-                    if (!isPartOfTarget(currFieldName, currDatatype)) {
-                        continue;
-                    }
-                    
-                    String cqRemainder = cq.substring((offset + 1));
-                    // check for a marker of <dt>\0<date>\0true/false vs just <dt>\0<date>
-                    // where the boolean denotes that we can assume the field is indexed/no on and before this date
-                    offset = cqRemainder.indexOf(NULL_BYTE);
-                    if (offset >= 0) {
-                        currBoundaryType = Boolean.valueOf(cqRemainder.substring(offset + 1)) ? BOUNDARY_TYPE.MANUAL_INDEXED : BOUNDARY_TYPE.MANUAL_UNINDEXED;
-                        currDate = DateHelper.parse(cqRemainder.substring(0, offset));
-                        currCount = 0;
-                    } else {
-                        currBoundaryType = null;
-                        try {
-                            currDate = DateHelper.parse(cqRemainder);
-                            ByteArrayInputStream byteStream = new ByteArrayInputStream(entry.getValue().get());
-                            DataInputStream inputStream = new DataInputStream(byteStream);
-                            currCount = WritableUtils.readVLong(inputStream);
-                        } catch (DateTimeParseException e) {
-                            // probably the really old type classname format instead of a date.
-                            // we can treat this like an index marker but the ts of the entry denotes the boundary
-                            currDate = getPreviousDay(key.getTimestamp());
-                            log.warn("Found an index entry missing the date, treating as an index marker at " + currDate + " : " + key);
-                            currBoundaryType = BOUNDARY_TYPE.IMPLIED;
-                            currCount = 0;
-                        }
-                    }
-                }
-                
-                // If this is the very first entry we've looked at, update our tracking variables
-                if (prevFieldName == null) {
-                    prevFieldName = currFieldName;
-                    // assume we are starting with the COLF_F entries
-                    prevColumnFamily = ColumnFamilyConstants.COLF_F;
-                    // Set the target map to the frequency map.
-                    this.targetMap = frequencyMap;
-                }
-                
-                // The column family is different. We have two possible scenarios:
-                // - The previous column family was 'f'. The current row is an index row for to the current field.
-                // - The previous column family was the target index column family. The current row is an 'f' row for a new field.
-                //
-                // In both cases, record the last entry, and begin collecting date ranges for the next batch of related rows.
-                if (!prevColumnFamily.equals(currColumnFamily)) {
-                    // The column family is "f". We have collected the date ranges for all datatypes for the previous field name. Get the field index holes for
-                    // the
-                    // previously collected data.
-                    if (currColumnFamily.equals(ColumnFamilyConstants.COLF_F)) {
-                        // Find and add all field index holes for the current frequency and index entries.
-                        findFieldIndexHoles(prevFieldName);
-                        // Clear the entry maps.
-                        clearEntryMaps();
-                        // Set the target map to the frequency map.
-                        this.targetMap = frequencyMap;
-                    } else {
-                        // The current column family is the target index column family. Set the target map to the index map.
-                        this.targetMap = indexMap;
-                    }
-                    
-                    // Add the current entry to the target entry map.
-                    addToTargetMap(currDatatype, currDate, currCount, currBoundaryType);
-                } else {
-                    // The column family is the same. We have two possible scenarios:
-                    // - A row with a field that is different to the previous field.
-                    // - A row with the same field.
-                    
-                    // We have encountered a new field name and the previous fieldName-datatype combination did not have any corresponding index row entries.
-                    if (!currFieldName.equals(prevFieldName)) {
-                        // Find and add all field index holes for the current frequency and index entries.
-                        findFieldIndexHoles(prevFieldName);
-                        // Clear the entry maps.
-                        clearEntryMaps();
-                        // Add the current entry to the target entry map.
-                        addToTargetMap(currDatatype, currDate, currCount, currBoundaryType);
-                    } else {
-                        // The current row has the same field. Add the current entry to the target map.
-                        addToTargetMap(currDatatype, currDate, currCount, currBoundaryType);
-                    }
-                }
-                
-                // Set the values for our prev entry to the current entry.
-                prevFieldName = currFieldName;
-                prevColumnFamily = currColumnFamily;
-            }
-            
-            // After there are no more rows, ensure that we find any field index holes that exist in the last batch of entries.
-            findFieldIndexHoles(prevFieldName);
-            
-            // Return the field index holes as an immutable structure.
-            return getImmutableFieldIndexHoles();
-        }
-        
-        private Date getPreviousDay(long ts) {
-            Calendar c = Calendar.getInstance();
-            c.setTimeInMillis(ts);
-            c.set(Calendar.HOUR_OF_DAY, 0);
-            c.set(Calendar.SECOND, 0);
-            c.set(Calendar.MINUTE, 0);
-            c.set(Calendar.MILLISECOND, 0);
-            c.add(Calendar.DATE, -1);
-            return c.getTime();
-        }
-        
-        private Date getNextDay(long ts) {
-            Calendar c = Calendar.getInstance();
-            c.setTimeInMillis(ts);
-            c.set(Calendar.HOUR_OF_DAY, 0);
-            c.set(Calendar.SECOND, 0);
-            c.set(Calendar.MINUTE, 0);
-            c.set(Calendar.MILLISECOND, 0);
-            c.add(Calendar.DATE, +1);
-            return c.getTime();
-        }
-        
-        /**
-         * Return whether the given field and datatype represent a pairing that should be evaluated for field index holes.
-         */
-        private boolean isPartOfTarget(String field, String datatype) {
-            return (!filterFields || fields.contains(field)) && (!filterDatatypes || datatypes.contains(datatype));
-        }
-        
-        /**
-         * Add the current date and count to the current target map for the current datatype.
-         */
-        private void addToTargetMap(String datatype, Date date, long count, BOUNDARY_TYPE boundaryType) {
-            FieldCount fieldCount = getFieldCount(targetMap, datatype, date);
-            fieldCount.increment(count);
-            if (boundaryType != null) {
-                fieldCount.setBoundaryValue(boundaryType);
-                
-                // If this is an implied boundary type, then the date of field count is actually the following day
-                // (see calls to getPreviousDay above)
-                if (boundaryType == BOUNDARY_TYPE.IMPLIED) {
-                    fieldCount.setDate(getNextDay(date.getTime()));
-                }
-            }
-            
-            // we need to ensure we have a frequency entry if a boundary so that we will catch this when finding holes
-            getFieldCount(frequencyMap, datatype, date);
-        }
-        
-        /**
-         * Return the field count entry from the specified map. A new entry is added to the map if missing
-         * 
-         * @param datatype
-         * @param date
-         * @return The field count. Never null
-         */
-        private FieldCount getFieldCount(Map<String,SortedMap<Date,FieldCount>> map, String datatype, Date date) {
-            SortedMap<Date,FieldCount> datesToCounts = map.computeIfAbsent(datatype, (k) -> new TreeMap<>());
-            FieldCount fieldCount = datesToCounts.get(date);
-            if (fieldCount == null) {
-                fieldCount = new FieldCount();
-                fieldCount.setDate(date);
-                datesToCounts.put(date, fieldCount);
-            }
-            return fieldCount;
-        }
-        
-        /**
-         * Clear the maps {@link #frequencyMap} and {@link #indexMap}.
-         */
-        private void clearEntryMaps() {
-            this.frequencyMap.clear();
-            this.indexMap.clear();
-        }
-        
-        /**
-         * Find all field index holes for given field name, and store them in {@link #fieldIndexHoles}.
-         * 
-         * @param fieldName
-         *            the field name
-         */
-        private void findFieldIndexHoles(String fieldName) {
-            Multimap<String,Pair<Date,Date>> indexHoles = fieldIndexHoles.computeIfAbsent(fieldName, k -> HashMultimap.create());
-            // Compare the entries for each datatype to identify any and all field index holes.
-            for (String datatype : frequencyMap.keySet()) {
-                // At least one corresponding index row was seen. Compare the entries to identify any index holes.
-                if (indexMap.containsKey(datatype)) {
-                    // Add all index holes found for the entries for the current datatype.
-                    Set<Pair<Date,Date>> holes = getIndexHoles(frequencyMap.get(datatype), indexMap.get(datatype));
-                    indexHoles.putAll(datatype, holes);
-                } else {
-                    // No corresponding index rows were seen for any of the frequency rows. Each date is an index hole. Add a date range of the earliest date to
-                    // the latest date.
-                    SortedMap<Date,FieldCount> entryMap = frequencyMap.get(datatype);
-                    indexHoles.put(datatype, Pair.of(entryMap.firstKey(), entryMap.lastKey()));
-                }
-            }
-        }
-        
-        /**
-         * An expression to determine if we can assume a field is index on a particular date given the previous boundary and the date in question. This is true
-         * if the previous boundary was an implied boundary (previous index entry type, based on timestamp of key) and the date in question is the date that the
-         * implied boundary was found. In this case the boundary is actually assigned the previous date in the map but the date in the FieldCount is the actual
-         * date the marker was found on based on the key timestamp.
-         * 
-         * @param date
-         *            the date in question
-         * @param prevBoundary
-         *            the previous boundary if any
-         * @return true if we can assume indexed
-         */
-        private boolean canAssumeIndexed(Date date, FieldCount prevBoundary) {
-            if (prevBoundary != null && prevBoundary.getBoundaryType() == BOUNDARY_TYPE.IMPLIED) {
-                return date.equals(prevBoundary.getDate());
-            }
-            return false;
-        }
-        
-        /**
-         * Return a set of all index hole date ranges found for the given maps of frequency and index entries.
-         * 
-         * @param frequencyMap
-         *            the frequency entries
-         * @param indexMap
-         *            the index entries
-         * @return a set of index holes, possibly empty, but never null
-         */
-        private Set<Pair<Date,Date>> getIndexHoles(SortedMap<Date,FieldCount> frequencyMap, SortedMap<Date,FieldCount> indexMap) {
-            Set<Pair<Date,Date>> indexHoles = new HashSet<>();
-            Date holeStartDate = null;
-            Date prevDate = null;
-            FieldCount prevBoundary = null;
-            
-            for (Date date : frequencyMap.keySet()) {
-                // see if we can assume this date is indexed
-                boolean canAssumeIndexed = canAssumeIndexed(date, prevBoundary);
-                prevBoundary = null;
-                
-                // There is a corresponding index entry for the current date.
-                if (indexMap.containsKey(date) || canAssumeIndexed) {
-                    FieldCount indexCount = indexMap.get(date);
-                    
-                    // if this is a boundary marker, then replace/clear map thus far
-                    if (indexCount != null && indexCount.isBoundary()) {
-                        // all holes thus far are to be replaced
-                        indexHoles.clear();
-                        // if not indexed, then start a hole since the beginning
-                        if (indexCount.isUnindexedBoundary()) {
-                            holeStartDate = frequencyMap.firstKey();
-                        } else {
-                            // else indexed since the beginning
-                            holeStartDate = null;
-                            // keep track of the previous indexed boundary
-                            prevBoundary = indexCount;
-                        }
-                    } else if (canAssumeIndexed || meetsMinThreshold(frequencyMap.get(date), indexCount)) {
-                        // The count for the current index entry meets the minimum threshold.
-                        // The previous entry was part of an index hole. Capture the index hole range.
-                        if (holeStartDate != null) {
-                            indexHoles.add(Pair.of(holeStartDate, prevDate));
-                            holeStartDate = null;
-                        }
-                    } else {
-                        // The count for the current index entry does not meet the minimum threshold, and thus this entry is part of an index hole. Mark the
-                        // start of an index hole date range if we have not already found one.
-                        if (holeStartDate == null) {
-                            holeStartDate = date;
-                        }
-                    }
-                } else {
-                    // There is no corresponding index entry for the current date. This is the start of an index hole if we have not previously found one.
-                    if (holeStartDate == null) {
-                        holeStartDate = date;
-                    }
-                }
-                
-                // Track the previous date
-                prevDate = date;
-            }
-            
-            // If we have finished looking at all dates, and we have a trailing index hole, capture the last index hole date range.
-            if (holeStartDate != null) {
-                indexHoles.add(Pair.of(holeStartDate, prevDate));
-            }
-            
-            return indexHoles;
-        }
-        
-        /**
-         * Return whether the given index count meets the minimum threshold for the given frequency count.
-         * 
-         * @param frequencyCount
-         *            the frequency count
-         * @param indexCount
-         *            the index count
-         * @return true if the threshold is met, or false otherwise
-         */
-        private boolean meetsMinThreshold(FieldCount frequencyCount, FieldCount indexCount) {
-            if (indexCount.getCount() >= frequencyCount.getCount()) {
-                return true;
-            }
-            
-            double percentage = (double) (indexCount.getCount()) / frequencyCount.getCount();
-            return percentage >= minThreshold;
-        }
-        
-        /**
-         * Return an immutable version of {@link #fieldIndexHoles}, with all empty collections removed.
-         * 
-         * @return an immutable map.
-         */
-        private Map<String,Map<String,IndexFieldHole>> getImmutableFieldIndexHoles() {
-            ImmutableMap.Builder<String,Map<String,IndexFieldHole>> fieldMapBuilder = new ImmutableMap.Builder<>();
-            
-            for (String fieldName : this.fieldIndexHoles.keySet()) {
-                Multimap<String,Pair<Date,Date>> datatypeMap = this.fieldIndexHoles.get(fieldName);
-                if (!datatypeMap.isEmpty()) {
-                    ImmutableMap.Builder<String,IndexFieldHole> datatypeMapBuilder = new ImmutableMap.Builder<>();
-                    for (String datatype : datatypeMap.keySet()) {
-                        IndexFieldHole fieldIndexHole = new IndexFieldHole(fieldName, datatype, datatypeMap.get(datatype));
-                        datatypeMapBuilder.put(datatype, fieldIndexHole);
-                    }
-                    fieldMapBuilder.put(fieldName, datatypeMapBuilder.build());
-                }
-            }
-            
-            return fieldMapBuilder.build();
+    public void setFieldIndexHoleThreads(int fieldIndexHoleThreads) {
+        this.fieldIndexHoleThreads = fieldIndexHoleThreads;
+    }
+    
+    public FieldIndexHoleHelper getFieldIndexHoleHelper() {
+        return fieldIndexHoleHelper;
+    }
+    
+    /**
+     * Set the {@link FieldIndexHoleHelper} used to answer field index hole requests from a cache that is extended incrementally, instead of finding the holes
+     * from every entry for each request
+     *
+     * @param fieldIndexHoleHelper
+     *            the FieldIndexHoleHelper, or null to find the holes for each request
+     */
+    public void setFieldIndexHoleHelper(FieldIndexHoleHelper fieldIndexHoleHelper) {
+        this.fieldIndexHoleHelper = fieldIndexHoleHelper;
+    }
+    
+    /**
+     * Set the number of threads used for full-table scans of the metadata table. With more than one thread the table is partitioned at its split points and
+     * the partitions are scanned concurrently, see {@link FullTableScanner}. The setting is passed along to the {@link TypeMetadataHelper},
+     * {@link CompositeMetadataHelper} and {@link MetadataSnapshotHelper}.
+     *
+     * @param fullTableScanThreads
+     *            the number of threads, 1 to scan serially
+     */
+    public void setFullTableScanThreads(int fullTableScanThreads) {
+        this.fullTableScanThreads = fullTableScanThreads;
+        this.typeMetadataHelper.setFullTableScanThreads(fullTableScanThreads);
+        this.compositeMetadataHelper.setFullTableScanThreads(fullTableScanThreads);
+        if (metadataSnapshotHelper != null) {
+            metadataSnapshotHelper.setFullTableScanThreads(fullTableScanThreads);
         }
     }
     
@@ -0,0 +1,170 @@
+package datawave.query.util;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.hadoop.io.Text;
+
+import datawave.data.ColumnFamilyConstants;
+
+/**
+ * The datatypes for which each field is indexed, reverse indexed and tokenized, loaded once from the {@link #COLUMN_FAMILIES} of the metadata table. Each
+ * datatype is assigned an index in a shared dictionary, and each field maps to a bitset of the datatypes with an entry in a column family, so determining
+ * whether a field is flagged for any of a set of datatypes is an in-memory lookup rather than a scan.
+ */
+public class FieldIndexFlags {
+    
+    /**
+     * The column families of the flags
+     */
+    public static final List<Text> COLUMN_FAMILIES = List.of(ColumnFamilyConstants.COLF_I, ColumnFamilyConstants.COLF_RI, ColumnFamilyConstants.COLF_TF);
+    
+    private final Map<String,Integer> datatypeIndices;
+    private final Map<Text,Map<String,BitSet>> flagsByColumnFamily;
+    
+    private FieldIndexFlags(Builder builder) {
+        this.datatypeIndices = Collections.unmodifiableMap(new HashMap<>(builder.datatypeIndices));
+        Map<Text,Map<String,BitSet>> flags = new HashMap<>();
+        for (Map.Entry<Text,Map<String,BitSet>> entry : builder.flagsByColumnFamily.entrySet()) {
+            flags.put(entry.getKey(), Collections.unmodifiableMap(new HashMap<>(entry.getValue())));
+        }
+        this.flagsByColumnFamily = Collections.unmodifiableMap(flags);
+    }
+    
+    /**
+     * Determine whether a field has an entry in a column family for any of a set of datatypes
+     *
+     * @param columnFamily
+     *            one of the {@link #COLUMN_FAMILIES}
+     * @param fieldName
+     *            the field, which is expected to be upper case
+     * @param datatypes
+     *            the datatypes, or null or empty for any datatype
+     * @return true if the field has an entry for any of the datatypes
+     * @throws IllegalArgumentException
+     *             if the column family is not one of the {@link #COLUMN_FAMILIES}
+     */
+    public boolean isSet(Text columnFamily, String fieldName, Set<String> datatypes) {
+        Map<String,BitSet> flags = flagsByColumnFamily.get(columnFamily);
+        if (flags == null) {
+            throw new IllegalArgumentException("Column family is not tracked by FieldIndexFlags: " + columnFamily);
+        }
+        
+        BitSet fieldDatatypes = flags.get(fieldName);
+        if (fieldDatatypes == null) {
+            return false;
+        }
+        if (datatypes == null || datatypes.isEmpty()) {
+            return !fieldDatatypes.isEmpty();
+        }
+        
+        for (String datatype : datatypes) {
+            Integer index = datatypeIndices.get(datatype);
+            if (index != null && fieldDatatypes.get(index)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Determine for each of a collection of fields whether it has an entry in a column family for any of a set of datatypes. The datatypes are resolved to a
+     * bitset once, and each field is then a single bitset intersection.
+     *
+     * @param columnFamily
+     *            one of the {@link #COLUMN_FAMILIES}
+     * @param fieldNames
+     *            the fields, which are expected to be upper case
+     * @param datatypes
+     *            the datatypes, or null or empty for any datatype
+     * @return a map of each field, in iteration order, to whether it has an entry for any of the datatypes
+     * @throws IllegalArgumentException
+     *             if the column family is not one of the {@link #COLUMN_FAMILIES}
+     */
+    public Map<String,Boolean> isSet(Text columnFamily, Collection<String> fieldNames, Set<String> datatypes) {
+        Map<String,BitSet> flags = flagsByColumnFamily.get(columnFamily);
+        if (flags == null) {
+            throw new IllegalArgumentException("Column family is not tracked by FieldIndexFlags: " + columnFamily);
+        }
+        
+        BitSet filter = null;
+        if (datatypes != null && !datatypes.isEmpty()) {
+            filter = new BitSet(datatypeIndices.size());
+            for (String datatype : datatypes) {
+                Integer index = datatypeIndices.get(datatype);
+                if (index != null) {
+                    filter.set(index);
+                }
+            }
+        }
+        
+        Map<String,Boolean> result = new LinkedHashMap<>();
+        for (String fieldName : fieldNames) {
+            BitSet fieldDatatypes = flags.get(fieldName);
+            result.put(fieldName, fieldDatatypes != null && (filter == null ? !fieldDatatypes.isEmpty() : fieldDatatypes.intersects(filter)));
+        }
+        return result;
+    }
+    
+    /**
+     * Get the datatypes known to these flags
+     *
+     * @return an unmodifiable set of datatypes
+     */
+    public Set<String> getDatatypes() {
+        return datatypeIndices.keySet();
+    }
+    
+    /**
+     * Accumulates the field, column family and datatype of metadata table entries
+     */
+    public static class Builder {
+        private final Map<String,Integer> datatypeIndices = new HashMap<>();
+        private final Map<Text,Map<String,BitSet>> flagsByColumnFamily = new HashMap<>();
+        
+        public Builder() {
+            for (Text columnFamily : COLUMN_FAMILIES) {
+                flagsByColumnFamily.put(columnFamily, new HashMap<>());
+            }
+        }
+        
+        /**
+         * Record that a field has an entry in a column family for a datatype. Column families other than the {@link #COLUMN_FAMILIES} are ignored.
+         *
+         * @param columnFamily
+         *            the column family
+         * @param fieldName
+         *            the field
+         * @param datatype
+         *            the datatype
+         * @return this builder
+         */
+        public Builder add(Text columnFamily, String fieldName, String datatype) {
+            Map<String,BitSet> flags = flagsByColumnFamily.get(columnFamily);
+            if (flags != null) {
+                Integer index = datatypeIndices.get(datatype);
+                if (index == null) {
+                    index = datatypeIndices.size();
+                    datatypeIndices.put(datatype, index);
+                }
+                flags.computeIfAbsent(fieldName, k -> new BitSet()).set(index);
+            }
+            return this;
+        }
+        
+        /**
+         * Build the flags from the entries added so far
+         *
+         * @return the flags
+         */
+        public FieldIndexFlags build() {
+            return new FieldIndexFlags(this);
+        }
+    }
+}
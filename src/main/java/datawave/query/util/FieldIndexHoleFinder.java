@@ -0,0 +1,596 @@
+package datawave.query.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.ValueFormatException;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableComparator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import datawave.data.ColumnFamilyConstants;
+import datawave.iterators.FieldIndexHoleIterator;
+import datawave.iterators.FrequencySummingIterator;
+import datawave.util.time.DateHelper;
+
+/**
+ * Finds the field index holes of a field from its {@link ColumnFamilyConstants#COLF_F} entries and the entries of an index column, either
+ * {@link ColumnFamilyConstants#COLF_I} or {@link ColumnFamilyConstants#COLF_RI}. A date on which the index count of a datatype is below the minimum threshold
+ * of its frequency count is part of a hole. An index boundary marker, which is an index entry of {@code datatype\0date\0true|false}, or an index entry without
+ * a date that is taken to be a boundary as of the day before its timestamp, replaces any holes found before it.
+ * <p>
+ * The entries of one field are added with {@link #add(Key, Value)}, after which {@link #findHoles()} returns the holes of that field and resets the finder for
+ * the next field. This is done on the tablet server by the {@link FieldIndexHoleIterator}. Alternatively {@link #findHoleStates()} returns a
+ * {@link HoleState} for each datatype, from which the holes can later be extended with only the entries of the last date and after, see
+ * {@link #resume(Map)}.
+ * <p>
+ * Dates are kept as day ordinals, see {@link FrequencyIndex#toDayOrdinal(String)}, in sorted primitive arrays per datatype that are read directly from the
+ * bytes of the column qualifier and reused from one field to the next, so that adding an entry does not create any objects. Days are only converted to a
+ * {@link Date} for the holes that are returned.
+ */
+public class FieldIndexHoleFinder {
+    
+    private static final Logger log = LoggerFactory.getLogger(FieldIndexHoleFinder.class);
+    
+    // the length of a yyyyMMdd date
+    private static final int DATE_LENGTH = 8;
+    
+    private static final byte[] TRUE = "true".getBytes(StandardCharsets.UTF_8);
+    
+    // denoting no day, e.g. when no hole is open
+    private static final int NO_DAY = Integer.MIN_VALUE;
+    
+    private static final byte NONE = 0; // denoting a non-boundary marker
+    private static final byte IMPLIED = 1; // denoting a boundary implied by the old style index entry (using timestamp for date)
+    private static final byte MANUAL_INDEXED = 2; // denoting a boundary that was manually injected including the date in the key and a true value
+    private static final byte MANUAL_UNINDEXED = 3; // denoting a boundary that was manually injected including the date in the key and a false value
+    
+    /**
+     * The holes of a datatype of a field, along with the state of the search as of the day before the last date seen. As the counts of the last date may still
+     * grow, the search is resumed from that date rather than after it.
+     */
+    public static class HoleState {
+        private final int firstDay;
+        private final int resumeDay;
+        private final int[] resumeHoles;
+        private final int resumeHoleStartDay;
+        private final int resumePrevDay;
+        private final int resumeImpliedBoundaryDay;
+        private final Set<Pair<Date,Date>> holes;
+        
+        private HoleState(int firstDay, int resumeDay, int[] resumeHoles, int resumeHoleStartDay, int resumePrevDay, int resumeImpliedBoundaryDay,
+                        Set<Pair<Date,Date>> holes) {
+            this.firstDay = firstDay;
+            this.resumeDay = resumeDay;
+            this.resumeHoles = resumeHoles;
+            this.resumeHoleStartDay = resumeHoleStartDay;
+            this.resumePrevDay = resumePrevDay;
+            this.resumeImpliedBoundaryDay = resumeImpliedBoundaryDay;
+            this.holes = Collections.unmodifiableSet(holes);
+        }
+        
+        /**
+         * Get the last date seen, from which the search is resumed
+         *
+         * @return the date
+         */
+        public Date getResumeDate() {
+            return toDate(resumeDay);
+        }
+        
+        /**
+         * Get the holes up to and including the last date seen
+         *
+         * @return the date ranges of the holes, possibly empty
+         */
+        public Set<Pair<Date,Date>> getHoles() {
+            return holes;
+        }
+        
+        @Override
+        public String toString() {
+            return ToStringBuilder.reflectionToString(this);
+        }
+    }
+    
+    /**
+     * The frequency and index counts of a datatype of the current field, each sorted by day. Every index day is also a frequency day.
+     */
+    private static class DatatypeCounts {
+        private byte[] name = new byte[16];
+        private int nameLength;
+        private String datatype;
+        private HoleState resumeState;
+        
+        private int[] frequencyDays = new int[64];
+        private long[] frequencyCounts = new long[64];
+        private int frequencySize;
+        
+        private int[] indexDays = new int[64];
+        private long[] indexCounts = new long[64];
+        private byte[] indexBoundaries = new byte[64];
+        private int indexSize;
+        
+        /**
+         * Start the counts of the datatype held in the given bytes for a new field
+         */
+        private void reset(byte[] bytes, int length, Map<String,HoleState> resumeStates) {
+            if (name.length < length) {
+                name = new byte[Math.max(length, name.length * 2)];
+            }
+            System.arraycopy(bytes, 0, name, 0, length);
+            nameLength = length;
+            datatype = new String(bytes, 0, length, StandardCharsets.UTF_8);
+            resumeState = resumeStates.get(datatype);
+            frequencySize = 0;
+            indexSize = 0;
+        }
+        
+        private boolean isDatatype(byte[] bytes, int length) {
+            return WritableComparator.compareBytes(name, 0, nameLength, bytes, 0, length) == 0;
+        }
+        
+        private void addFrequency(int day, long count) {
+            int position = find(frequencyDays, frequencySize, day);
+            if (position < 0) {
+                position = -position - 1;
+                if (frequencySize == frequencyDays.length) {
+                    frequencyDays = Arrays.copyOf(frequencyDays, frequencySize * 2);
+                    frequencyCounts = Arrays.copyOf(frequencyCounts, frequencySize * 2);
+                }
+                System.arraycopy(frequencyDays, position, frequencyDays, position + 1, frequencySize - position);
+                System.arraycopy(frequencyCounts, position, frequencyCounts, position + 1, frequencySize - position);
+                frequencyDays[position] = day;
+                frequencyCounts[position] = 0L;
+                frequencySize++;
+            }
+            frequencyCounts[position] += count;
+        }
+        
+        private void addIndex(int day, long count, byte boundaryType) {
+            int position = find(indexDays, indexSize, day);
+            if (position < 0) {
+                position = -position - 1;
+                if (indexSize == indexDays.length) {
+                    indexDays = Arrays.copyOf(indexDays, indexSize * 2);
+                    indexCounts = Arrays.copyOf(indexCounts, indexSize * 2);
+                    indexBoundaries = Arrays.copyOf(indexBoundaries, indexSize * 2);
+                }
+                System.arraycopy(indexDays, position, indexDays, position + 1, indexSize - position);
+                System.arraycopy(indexCounts, position, indexCounts, position + 1, indexSize - position);
+                System.arraycopy(indexBoundaries, position, indexBoundaries, position + 1, indexSize - position);
+                indexDays[position] = day;
+                indexCounts[position] = 0L;
+                indexBoundaries[position] = NONE;
+                indexSize++;
+            }
+            indexCounts[position] += count;
+            if (boundaryType != NONE) {
+                indexBoundaries[position] = boundaryType;
+            }
+            
+            // we need to ensure we have a frequency entry if a boundary so that we will catch this when finding holes
+            addFrequency(day, 0L);
+        }
+        
+        /**
+         * Find a day among the first size days, checking the last day first as the entries of a field are added in date order
+         *
+         * @return the position of the day, or (-(insertion point) - 1) if it is not found
+         */
+        private static int find(int[] days, int size, int day) {
+            if (size == 0 || days[size - 1] < day) {
+                return -size - 1;
+            }
+            if (days[size - 1] == day) {
+                return size - 1;
+            }
+            return Arrays.binarySearch(days, 0, size, day);
+        }
+    }
+    
+    private final double minThreshold;
+    private final byte[][] datatypes;
+    
+    // The counts by datatype for the current field name, of which the first used are in use. The rest are kept for the next field names.
+    private final List<DatatypeCounts> counts = new ArrayList<>();
+    private int used = 0;
+    private DatatypeCounts current = null;
+    
+    // The states to resume from for the current field name, by datatype.
+    private Map<String,HoleState> resumeStates = Collections.emptyMap();
+    
+    // The column qualifier of the entry being added.
+    private final Text columnQualifier = new Text();
+    
+    // The holes of the datatype being searched as start and end day pairs.
+    private int[] holeDays = new int[16];
+    private int holeSize = 0;
+    
+    /**
+     * Create a finder
+     *
+     * @param minThreshold
+     *            the minimum percentage threshold required for an index row to be considered NOT a hole on a particular date, in the range 0.0 to 1.0
+     * @param datatypes
+     *            the datatypes to find holes for, an empty set for all datatypes
+     */
+    public FieldIndexHoleFinder(double minThreshold, Set<String> datatypes) {
+        this.minThreshold = minThreshold;
+        // Actively filter out entries based on the datatypes if we have any datatypes specified. If we have an empty set, we are searching for field index
+        // holes for all datatypes.
+        this.datatypes = new byte[datatypes.size()][];
+        int i = 0;
+        for (String datatype : datatypes) {
+            this.datatypes[i++] = datatype.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+    
+    /**
+     * Resume the search for the current field from the given states. Entries of a datatype with a state that are dated before its
+     * {@link HoleState#getResumeDate() resume date} are ignored, as they are already accounted for by the state. Must be called before the entries of the
+     * field are added.
+     *
+     * @param states
+     *            the states by datatype
+     */
+    public void resume(Map<String,HoleState> states) {
+        this.resumeStates = states;
+    }
+    
+    /**
+     * Add a frequency or index entry of the current field. Any column family other than {@link ColumnFamilyConstants#COLF_F} is taken to be the index column.
+     *
+     * @param key
+     *            the key
+     * @param value
+     *            the value, the count of a frequency or index entry
+     * @return the datatype of the entry, or null if the entry is ignored, as its datatype is not one of the datatypes to find holes for or it is before the
+     *         resume date of its datatype. The same instance is returned for every entry of a datatype of the current field.
+     * @throws IOException
+     *             if a value fails to deserialize
+     */
+    public String add(Key key, Value value) throws IOException {
+        key.getColumnQualifier(columnQualifier);
+        byte[] cq = columnQualifier.getBytes();
+        int length = columnQualifier.getLength();
+        int offset = indexOfNullByte(cq, 0, length);
+        
+        // Check if the current datatype is one we want to retrieve field index holes for.
+        DatatypeCounts datatypeCounts = getDatatypeCounts(cq, offset < 0 ? length : offset);
+        if (datatypeCounts == null) {
+            return null;
+        }
+        
+        int day;
+        long count = 0L;
+        byte boundaryType = NONE;
+        if (offset < 0) {
+            // we can treat this like an index marker but the ts of the entry denotes the boundary
+            day = getPreviousDay(key);
+            boundaryType = IMPLIED;
+        } else {
+            int dateOffset = offset + 1;
+            // check for a marker of <dt>\0<date>\0true/false vs just <dt>\0<date>
+            // where the boolean denotes that we can assume the field is indexed/no on and before this date
+            offset = indexOfNullByte(cq, dateOffset, length);
+            if (offset >= 0) {
+                boundaryType = isTrue(cq, offset + 1, length) ? MANUAL_INDEXED : MANUAL_UNINDEXED;
+                if (offset - dateOffset != DATE_LENGTH) {
+                    throw new DateTimeException("Expected a yyyyMMdd date in the index marker " + key);
+                }
+                day = FrequencyIndex.toDayOrdinal(cq, dateOffset);
+            } else {
+                try {
+                    if (length - dateOffset != DATE_LENGTH) {
+                        throw new DateTimeException("Expected a yyyyMMdd date");
+                    }
+                    day = FrequencyIndex.toDayOrdinal(cq, dateOffset);
+                    count = FrequencySummingIterator.readVLong(value.get());
+                } catch (DateTimeException e) {
+                    // probably the really old type classname format instead of a date.
+                    // we can treat this like an index marker but the ts of the entry denotes the boundary
+                    day = getPreviousDay(key);
+                    boundaryType = IMPLIED;
+                } catch (ValueFormatException e) {
+                    throw new IOException("Could not read the count of " + key, e);
+                }
+            }
+        }
+        
+        // Entries before the resume date are already accounted for.
+        if (datatypeCounts.resumeState != null && day < datatypeCounts.resumeState.resumeDay) {
+            return null;
+        }
+        
+        if (key.compareColumnFamily(ColumnFamilyConstants.COLF_F) == 0) {
+            datatypeCounts.addFrequency(day, count);
+        } else {
+            datatypeCounts.addIndex(day, count, boundaryType);
+        }
+        return datatypeCounts.datatype;
+    }
+    
+    /**
+     * Find the field index holes of the entries added since the last call, and reset the finder for the next field.
+     *
+     * @return the date ranges of the holes by datatype, without the datatypes that have no holes
+     */
+    public Map<String,Set<Pair<Date,Date>>> findHoles() {
+        Map<String,Set<Pair<Date,Date>>> indexHoles = new HashMap<>();
+        findHoleStates().forEach((datatype, state) -> {
+            if (!state.getHoles().isEmpty()) {
+                indexHoles.put(datatype, state.getHoles());
+            }
+        });
+        return indexHoles;
+    }
+    
+    /**
+     * Find the field index holes of the entries added since the last call, continuing from the states given to {@link #resume(Map)} if any, and reset the
+     * finder for the next field.
+     *
+     * @return the state of each datatype that had entries added, including those without holes. A datatype that was resumed but had no entries added is not
+     *         returned, its state is unchanged.
+     */
+    public Map<String,HoleState> findHoleStates() {
+        Map<String,HoleState> states = new HashMap<>();
+        // Compare the entries for each datatype to identify any and all field index holes. If no corresponding index rows were seen for any of the frequency
+        // rows, each date is an index hole, so that the hole runs from the earliest date to the latest date.
+        for (int i = 0; i < used; i++) {
+            DatatypeCounts datatypeCounts = counts.get(i);
+            // a datatype with only entries before its resume date has none
+            if (datatypeCounts.frequencySize > 0) {
+                states.put(datatypeCounts.datatype, getIndexHoles(datatypeCounts));
+            }
+        }
+        
+        this.used = 0;
+        this.current = null;
+        this.resumeStates = Collections.emptyMap();
+        return states;
+    }
+    
+    /**
+     * Return the counts of the datatype held in the first length bytes of the column qualifier, starting them on the first entry of the datatype for the
+     * current field.
+     *
+     * @return the counts, or null if the datatype should not be evaluated for field index holes
+     */
+    private DatatypeCounts getDatatypeCounts(byte[] cq, int length) {
+        // the entries of a datatype are mostly consecutive
+        if (current != null && current.isDatatype(cq, length)) {
+            return current;
+        }
+        for (int i = 0; i < used; i++) {
+            if (counts.get(i).isDatatype(cq, length)) {
+                current = counts.get(i);
+                return current;
+            }
+        }
+        
+        if (!isPartOfTarget(cq, length)) {
+            return null;
+        }
+        if (used == counts.size()) {
+            counts.add(new DatatypeCounts());
+        }
+        current = counts.get(used++);
+        current.reset(cq, length, resumeStates);
+        return current;
+    }
+    
+    /**
+     * Return whether the given datatype should be evaluated for field index holes.
+     */
+    private boolean isPartOfTarget(byte[] cq, int length) {
+        if (datatypes.length == 0) {
+            return true;
+        }
+        for (byte[] datatype : datatypes) {
+            if (WritableComparator.compareBytes(cq, 0, length, datatype, 0, datatype.length) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Return the day before the day of the timestamp of an index entry without a date, in UTC, matching the dates parsed by {@link DateHelper}
+     */
+    private static int getPreviousDay(Key key) {
+        int day = (int) LocalDate.ofInstant(Instant.ofEpochMilli(key.getTimestamp()), ZoneOffset.UTC).toEpochDay() - 1;
+        log.warn("Found an index entry missing the date, treating as an index marker at {} : {}", LocalDate.ofEpochDay(day), key);
+        return day;
+    }
+    
+    private static int indexOfNullByte(byte[] bytes, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Return whether the bytes from the offset up to the given end are "true", ignoring case, as {@link Boolean#valueOf(String)} does
+     */
+    private static boolean isTrue(byte[] bytes, int from, int to) {
+        if (to - from != TRUE.length) {
+            return false;
+        }
+        for (int i = 0; i < TRUE.length; i++) {
+            if (Character.toLowerCase(bytes[from + i]) != TRUE[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Return the date that {@link DateHelper#parse(String)} returns for the yyyyMMdd date of a day ordinal
+     */
+    private static Date toDate(int day) {
+        return DateHelper.parse(LocalDate.ofEpochDay(day).format(DateTimeFormatter.BASIC_ISO_DATE));
+    }
+    
+    /**
+     * Return the index hole date ranges found for the frequency and index entries of a datatype. An index entry that is an implied boundary is stored under the
+     * day before the day it was found on, and the field can be assumed to be indexed on that day, which is tracked as the implied boundary day.
+     *
+     * @param datatypeCounts
+     *            the frequency and index entries, and the state to continue from if any
+     * @return the state with the index holes, possibly empty, but never null
+     */
+    private HoleState getIndexHoles(DatatypeCounts datatypeCounts) {
+        int[] frequencyDays = datatypeCounts.frequencyDays;
+        int frequencySize = datatypeCounts.frequencySize;
+        int[] indexDays = datatypeCounts.indexDays;
+        int indexSize = datatypeCounts.indexSize;
+        
+        int firstDay = frequencyDays[0];
+        holeSize = 0;
+        int holeStartDay = NO_DAY;
+        int prevDay = NO_DAY;
+        int impliedBoundaryDay = NO_DAY;
+        HoleState resumeFrom = datatypeCounts.resumeState;
+        if (resumeFrom != null) {
+            firstDay = resumeFrom.firstDay;
+            for (int i = 0; i < resumeFrom.resumeHoles.length; i += 2) {
+                addHole(resumeFrom.resumeHoles[i], resumeFrom.resumeHoles[i + 1]);
+            }
+            holeStartDay = resumeFrom.resumeHoleStartDay;
+            prevDay = resumeFrom.resumePrevDay;
+            impliedBoundaryDay = resumeFrom.resumeImpliedBoundaryDay;
+        }
+        
+        // The state as of the day before the last date, from which the search can be resumed.
+        int[] resumeHoles = null;
+        int resumeHoleStartDay = NO_DAY;
+        int resumePrevDay = NO_DAY;
+        int resumeImpliedBoundaryDay = NO_DAY;
+        
+        // the index days are a subset of the frequency days, so both are walked together
+        int indexPosition = 0;
+        for (int position = 0; position < frequencySize; position++) {
+            int day = frequencyDays[position];
+            if (position == frequencySize - 1) {
+                resumeHoles = Arrays.copyOf(holeDays, holeSize);
+                resumeHoleStartDay = holeStartDay;
+                resumePrevDay = prevDay;
+                resumeImpliedBoundaryDay = impliedBoundaryDay;
+            }
+            
+            // see if we can assume this date is indexed
+            boolean canAssumeIndexed = day == impliedBoundaryDay;
+            impliedBoundaryDay = NO_DAY;
+            
+            boolean hasIndex = indexPosition < indexSize && indexDays[indexPosition] == day;
+            
+            // There is a corresponding index entry for the current date.
+            if (hasIndex || canAssumeIndexed) {
+                byte boundaryType = hasIndex ? datatypeCounts.indexBoundaries[indexPosition] : NONE;
+                
+                // if this is a boundary marker, then replace/clear map thus far
+                if (boundaryType != NONE) {
+                    // all holes thus far are to be replaced
+                    holeSize = 0;
+                    // if not indexed, then start a hole since the beginning
+                    if (boundaryType == MANUAL_UNINDEXED) {
+                        holeStartDay = firstDay;
+                    } else {
+                        // else indexed since the beginning
+                        holeStartDay = NO_DAY;
+                        // keep track of the day an implied boundary was found on
+                        if (boundaryType == IMPLIED) {
+                            impliedBoundaryDay = day + 1;
+                        }
+                    }
+                } else if (canAssumeIndexed || meetsMinThreshold(datatypeCounts.frequencyCounts[position], datatypeCounts.indexCounts[indexPosition])) {
+                    // The count for the current index entry meets the minimum threshold.
+                    // The previous entry was part of an index hole. Capture the index hole range.
+                    if (holeStartDay != NO_DAY) {
+                        addHole(holeStartDay, prevDay);
+                        holeStartDay = NO_DAY;
+                    }
+                } else {
+                    // The count for the current index entry does not meet the minimum threshold, and thus this entry is part of an index hole. Mark the
+                    // start of an index hole date range if we have not already found one.
+                    if (holeStartDay == NO_DAY) {
+                        holeStartDay = day;
+                    }
+                }
+            } else {
+                // There is no corresponding index entry for the current date. This is the start of an index hole if we have not previously found one.
+                if (holeStartDay == NO_DAY) {
+                    holeStartDay = day;
+                }
+            }
+            
+            if (hasIndex) {
+                indexPosition++;
+            }
+            
+            // Track the previous date
+            prevDay = day;
+        }
+        
+        // If we have finished looking at all dates, and we have a trailing index hole, capture the last index hole date range.
+        if (holeStartDay != NO_DAY) {
+            addHole(holeStartDay, prevDay);
+        }
+        
+        Set<Pair<Date,Date>> indexHoles = new HashSet<>();
+        for (int i = 0; i < holeSize; i += 2) {
+            indexHoles.add(Pair.of(toDate(holeDays[i]), toDate(holeDays[i + 1])));
+        }
+        int lastDay = frequencyDays[frequencySize - 1];
+        return new HoleState(firstDay, lastDay, resumeHoles, resumeHoleStartDay, resumePrevDay, resumeImpliedBoundaryDay, indexHoles);
+    }
+    
+    private void addHole(int startDay, int endDay) {
+        if (holeSize + 2 > holeDays.length) {
+            holeDays = Arrays.copyOf(holeDays, holeDays.length * 2);
+        }
+        holeDays[holeSize++] = startDay;
+        holeDays[holeSize++] = endDay;
+    }
+    
+    /**
+     * Return whether the given index count meets the minimum threshold for the given frequency count.
+     *
+     * @param frequencyCount
+     *            the frequency count
+     * @param indexCount
+     *            the index count
+     * @return true if the threshold is met, or false otherwise
+     */
+    private boolean meetsMinThreshold(long frequencyCount, long indexCount) {
+        if (indexCount >= frequencyCount) {
+            return true;
+        }
+        
+        double percentage = (double) indexCount / frequencyCount;
+        return percentage >= minThreshold;
+    }
+}
@@ -0,0 +1,406 @@
+package datawave.query.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.apache.accumulo.core.client.AccumuloClient;
+import org.apache.accumulo.core.client.BatchScanner;
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.client.Scanner;
+import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.Filter;
+import org.apache.accumulo.core.iterators.user.RegExFilter;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.hadoop.io.Text;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+
+import datawave.data.ColumnFamilyConstants;
+import datawave.iterators.MetadataFColumnSeekingFilter;
+import datawave.query.model.IndexFieldHole;
+import datawave.security.util.ScannerHelper;
+import datawave.util.time.DateHelper;
+
+/**
+ * Caches the field index holes of a metadata table and set of auths, for each target index column, set of datatypes and threshold, and keeps them up to date
+ * incrementally. For each field the cache holds a {@link FieldIndexHoleFinder.HoleState} per datatype and the boundary markers of the index column, which
+ * are the index entries that are not a datatype and a date.
+ * <p>
+ * Once the holes of a field are older than the {@link #setRefreshIntervalMillis(long) refresh interval}, the next request reads its boundary markers and,
+ * if they are unchanged, only its {@link ColumnFamilyConstants#COLF_F} and index entries from the last date of each datatype onward, which extend the cached
+ * states. If the boundary markers have changed, a datatype is found that the field had no entries for, or the
+ * {@link #setFullReconcileIntervalMillis(long) reconcile interval} has elapsed, the field is recomputed from all of its entries. Other entries dated before
+ * the last date that are written or deleted in between are only picked up by a recompute.
+ * <p>
+ * Since the f column is not cached, the client given to this helper should be the real client rather than a
+ * {@link datawave.webservice.common.connection.WrappedAccumuloClient}.
+ */
+public class FieldIndexHoleHelper {
+    private static final Logger log = LoggerFactory.getLogger(FieldIndexHoleHelper.class);
+    
+    // a frequency or index count, i.e. a datatype and a yyyyMMdd date. All other index entries are boundary markers.
+    private static final String COUNT_REGEX = "[^\\x00]*\\x00[0-9]{8}";
+    private static final Pattern COUNT_PATTERN = Pattern.compile(COUNT_REGEX);
+    
+    // an end date after every date in the f and index columns
+    private static final String MAX_DATE = "99991231";
+    
+    protected final AccumuloClient accumuloClient;
+    protected final String metadataTableName;
+    protected final Set<Authorizations> auths;
+    
+    protected int scanThreads = 8;
+    protected long refreshIntervalMillis = TimeUnit.MINUTES.toMillis(5);
+    protected long fullReconcileIntervalMillis = TimeUnit.HOURS.toMillis(1);
+    
+    public static final long DEFAULT_MAXIMUM_SIZE = 100000L;
+    public static final long DEFAULT_EXPIRE_AFTER_ACCESS_MILLIS = TimeUnit.HOURS.toMillis(6);
+    
+    // the holes of each table, set of auths, index column, set of datatypes, threshold and field. A field that is not requested for a while is dropped.
+    private static final Cache<List<Object>,FieldHoles> fieldHoles = Caffeine.newBuilder().maximumSize(DEFAULT_MAXIMUM_SIZE)
+                    .expireAfterAccess(DEFAULT_EXPIRE_AFTER_ACCESS_MILLIS, TimeUnit.MILLISECONDS).build();
+    // the locks serializing the updates for each table, set of auths, index column, set of datatypes and threshold, held only while in use
+    private static final Cache<List<Object>,Object> cacheLocks = Caffeine.newBuilder().weakValues().build();
+    
+    /**
+     * The cached holes of a field
+     */
+    private static class FieldHoles {
+        private final Map<String,FieldIndexHoleFinder.HoleState> states;
+        private final Set<Key> markers;
+        private final long loadTime;
+        private final long fullLoadTime;
+        
+        private FieldHoles(Map<String,FieldIndexHoleFinder.HoleState> states, Set<Key> markers, long loadTime, long fullLoadTime) {
+            this.states = states;
+            this.markers = markers;
+            this.loadTime = loadTime;
+            this.fullLoadTime = fullLoadTime;
+        }
+    }
+    
+    /**
+     * Initializes the instance
+     *
+     * @param client
+     *            A client connection to Accumulo
+     * @param metadataTableName
+     *            The name of the DatawaveMetadata table
+     * @param auths
+     *            Any {@link Authorizations} to use
+     */
+    public FieldIndexHoleHelper(AccumuloClient client, String metadataTableName, Set<Authorizations> auths) {
+        Preconditions.checkNotNull(client, "A valid AccumuloClient is required by FieldIndexHoleHelper");
+        this.accumuloClient = client;
+        
+        Preconditions.checkNotNull(metadataTableName, "The metadata table name is required by FieldIndexHoleHelper");
+        this.metadataTableName = metadataTableName;
+        
+        Preconditions.checkNotNull(auths, "Accumulo scan Authorizations are required by FieldIndexHoleHelper");
+        this.auths = auths;
+    }
+    
+    public Set<Authorizations> getAuths() {
+        return auths;
+    }
+    
+    public String getMetadataTableName() {
+        return metadataTableName;
+    }
+    
+    public int getScanThreads() {
+        return scanThreads;
+    }
+    
+    /**
+     * Set the number of threads of the batch scanners used to refresh the holes of more than one field
+     *
+     * @param scanThreads
+     *            the number of threads
+     */
+    public void setScanThreads(int scanThreads) {
+        this.scanThreads = scanThreads;
+    }
+    
+    public long getRefreshIntervalMillis() {
+        return refreshIntervalMillis;
+    }
+    
+    /**
+     * Set the age after which the holes of a field are extended with the entries written since they were found
+     *
+     * @param refreshIntervalMillis
+     *            the interval in milliseconds
+     */
+    public void setRefreshIntervalMillis(long refreshIntervalMillis) {
+        this.refreshIntervalMillis = refreshIntervalMillis;
+    }
+    
+    public long getFullReconcileIntervalMillis() {
+        return fullReconcileIntervalMillis;
+    }
+    
+    /**
+     * Set how long the holes of a field may be extended incrementally before they are recomputed from all of its entries
+     *
+     * @param fullReconcileIntervalMillis
+     *            the interval in milliseconds
+     */
+    public void setFullReconcileIntervalMillis(long fullReconcileIntervalMillis) {
+        this.fullReconcileIntervalMillis = fullReconcileIntervalMillis;
+    }
+    
+    /**
+     * Forget the cached holes, forcing the next request for each field to recompute them from all of its entries
+     */
+    public static void clearFieldIndexHoles() {
+        fieldHoles.invalidateAll();
+    }
+    
+    /**
+     * Get the field index holes of the given fields, loading or refreshing those that are missing from the cache or older than the refresh interval
+     *
+     * @param targetColumnFamily
+     *            the index column, {@link ColumnFamilyConstants#COLF_I} or {@link ColumnFamilyConstants#COLF_RI}
+     * @param fields
+     *            the fields
+     * @param datatypes
+     *            the datatypes, an empty set for all datatypes
+     * @param minThreshold
+     *            the minimum percentage threshold required for an index row to be considered NOT a hole on a particular date, in the range 0.0 to 1.0
+     * @return a map of field names and datatype pairs to field index holes
+     * @throws TableNotFoundException
+     *             if no table exists
+     * @throws IOException
+     *             if a value fails to deserialize
+     */
+    public Map<String,Map<String,IndexFieldHole>> getFieldIndexHoles(Text targetColumnFamily, Set<String> fields, Set<String> datatypes, double minThreshold)
+                    throws TableNotFoundException, IOException {
+        Set<String> sortedDatatypes = new TreeSet<>(datatypes);
+        List<Object> key = Arrays.asList(metadataTableName, auths, targetColumnFamily.toString(), sortedDatatypes, minThreshold);
+        Map<String,FieldHoles> cache = new HashMap<>();
+        
+        synchronized (cacheLocks.get(key, k -> new Object())) {
+            long now = System.currentTimeMillis();
+            Set<String> loads = new TreeSet<>();
+            Set<String> refreshes = new TreeSet<>();
+            for (String field : fields) {
+                FieldHoles holes = fieldHoles.getIfPresent(getFieldKey(key, field));
+                if (holes != null) {
+                    cache.put(field, holes);
+                }
+                if (holes == null || now - holes.fullLoadTime >= fullReconcileIntervalMillis) {
+                    loads.add(field);
+                } else if (now - holes.loadTime >= refreshIntervalMillis) {
+                    refreshes.add(field);
+                }
+            }
+            
+            if (!refreshes.isEmpty()) {
+                loads.addAll(refreshFields(cache, refreshes, targetColumnFamily, sortedDatatypes, minThreshold, now));
+            }
+            if (!loads.isEmpty()) {
+                loadFields(cache, loads, targetColumnFamily, sortedDatatypes, minThreshold, now);
+            }
+            
+            loads.addAll(refreshes);
+            for (String field : loads) {
+                fieldHoles.put(getFieldKey(key, field), cache.get(field));
+            }
+        }
+        
+        ImmutableMap.Builder<String,Map<String,IndexFieldHole>> fieldMapBuilder = new ImmutableMap.Builder<>();
+        for (String field : fields) {
+            ImmutableMap.Builder<String,IndexFieldHole> datatypeMapBuilder = new ImmutableMap.Builder<>();
+            boolean hasHoles = false;
+            for (Entry<String,FieldIndexHoleFinder.HoleState> entry : cache.get(field).states.entrySet()) {
+                if (!entry.getValue().getHoles().isEmpty()) {
+                    datatypeMapBuilder.put(entry.getKey(), new IndexFieldHole(field, entry.getKey(), entry.getValue().getHoles()));
+                    hasHoles = true;
+                }
+            }
+            if (hasHoles) {
+                fieldMapBuilder.put(field, datatypeMapBuilder.build());
+            }
+        }
+        return fieldMapBuilder.build();
+    }
+    
+    /**
+     * Find the holes of each field from all of its entries, scanning the row of one field at a time in order
+     */
+    private void loadFields(Map<String,FieldHoles> cache, Set<String> fields, Text targetColumnFamily, Set<String> datatypes, double minThreshold, long now)
+                    throws TableNotFoundException, IOException {
+        log.debug("loading field index holes of {} fields from table {}", fields.size(), metadataTableName);
+        FieldIndexHoleFinder finder = new FieldIndexHoleFinder(minThreshold, datatypes);
+        try (Scanner scanner = ScannerHelper.createScanner(accumuloClient, metadataTableName, auths)) {
+            scanner.fetchColumnFamily(ColumnFamilyConstants.COLF_F);
+            scanner.fetchColumnFamily(targetColumnFamily);
+            
+            for (String field : fields) {
+                scanner.setRange(Range.exact(field));
+                Set<Key> markers = new HashSet<>();
+                for (Entry<Key,Value> entry : scanner) {
+                    Key key = entry.getKey();
+                    if (isBoundaryMarker(key, targetColumnFamily)) {
+                        markers.add(key);
+                    }
+                    finder.add(key, entry.getValue());
+                }
+                cache.put(field, new FieldHoles(finder.findHoleStates(), markers, now, now));
+            }
+        }
+    }
+    
+    /**
+     * Extend the holes of each field with its entries from the last date of its datatypes onward. A field with no datatypes yet is read in full.
+     *
+     * @return the fields whose boundary markers have changed or that have entries for a datatype new to the field, which were not refreshed
+     */
+    private Set<String> refreshFields(Map<String,FieldHoles> cache, Set<String> fields, Text targetColumnFamily, Set<String> datatypes, double minThreshold,
+                    long now) throws TableNotFoundException, IOException {
+        log.debug("refreshing field index holes of {} fields from table {}", fields.size(), metadataTableName);
+        Map<String,Set<Key>> markers = scanBoundaryMarkers(fields, targetColumnFamily);
+        
+        // group the fields with unchanged boundary markers by the date to scan from, which is mostly the same for all fields
+        Set<String> changed = new TreeSet<>();
+        SortedMap<String,List<String>> fieldsByStartDate = new TreeMap<>();
+        for (String field : fields) {
+            FieldHoles holes = cache.get(field);
+            if (!holes.markers.equals(markers.getOrDefault(field, Collections.emptySet()))) {
+                changed.add(field);
+                continue;
+            }
+            
+            String startDate = holes.states.isEmpty() ? "" : MAX_DATE;
+            for (FieldIndexHoleFinder.HoleState state : holes.states.values()) {
+                String resumeDate = DateHelper.format(state.getResumeDate());
+                if (resumeDate.compareTo(startDate) < 0) {
+                    startDate = resumeDate;
+                }
+            }
+            fieldsByStartDate.computeIfAbsent(startDate, k -> new ArrayList<>()).add(field);
+        }
+        
+        FieldIndexHoleFinder finder = new FieldIndexHoleFinder(minThreshold, datatypes);
+        for (Entry<String,List<String>> group : fieldsByStartDate.entrySet()) {
+            Map<String,List<Entry<Key,Value>>> entries = scanFromDate(group.getValue(), targetColumnFamily, datatypes, group.getKey());
+            for (String field : group.getValue()) {
+                FieldHoles holes = cache.get(field);
+                finder.resume(holes.states);
+                for (Entry<Key,Value> entry : entries.getOrDefault(field, Collections.emptyList())) {
+                    finder.add(entry.getKey(), entry.getValue());
+                }
+                // the markers are added again in case one is dated on or after the resume date, which is idempotent
+                Set<Key> fieldMarkers = markers.getOrDefault(field, Collections.emptySet());
+                for (Key marker : fieldMarkers) {
+                    finder.add(marker, new Value());
+                }
+                
+                Map<String,FieldIndexHoleFinder.HoleState> found = finder.findHoleStates();
+                // a new datatype, or one backfilled after being dropped, may have entries before the resume date, so the field is read in full
+                if (!holes.states.isEmpty() && !holes.states.keySet().containsAll(found.keySet())) {
+                    changed.add(field);
+                    continue;
+                }
+                
+                Map<String,FieldIndexHoleFinder.HoleState> states = new HashMap<>(holes.states);
+                states.putAll(found);
+                cache.put(field, new FieldHoles(states, fieldMarkers, now, holes.fullLoadTime));
+            }
+        }
+        
+        if (!changed.isEmpty()) {
+            log.debug("boundary markers or datatypes changed for fields {}", changed);
+        }
+        return changed;
+    }
+    
+    /**
+     * Scan the boundary markers of the index column of the given fields. The markers are filtered on the tablet server, so only they are returned.
+     */
+    private Map<String,Set<Key>> scanBoundaryMarkers(Set<String> fields, Text targetColumnFamily) throws TableNotFoundException {
+        Map<String,Set<Key>> markers = new HashMap<>();
+        try (BatchScanner bs = ScannerHelper.createBatchScanner(accumuloClient, metadataTableName, auths, getThreads(fields.size()))) {
+            bs.setRanges(toRanges(fields));
+            bs.fetchColumnFamily(targetColumnFamily);
+            
+            IteratorSetting setting = new IteratorSetting(50, "boundaryMarkers", RegExFilter.class);
+            RegExFilter.setRegexs(setting, null, null, COUNT_REGEX, null, false);
+            Filter.setNegate(setting, true);
+            bs.addScanIterator(setting);
+            
+            for (Entry<Key,Value> entry : bs) {
+                markers.computeIfAbsent(entry.getKey().getRow().toString(), k -> new HashSet<>()).add(entry.getKey());
+            }
+        }
+        return markers;
+    }
+    
+    /**
+     * Scan the frequency and index entries of the given fields dated on or after the start date, grouped by field
+     */
+    private Map<String,List<Entry<Key,Value>>> scanFromDate(List<String> fields, Text targetColumnFamily, Set<String> datatypes, String startDate)
+                    throws TableNotFoundException {
+        Map<String,List<Entry<Key,Value>>> entries = new HashMap<>();
+        try (BatchScanner bs = ScannerHelper.createBatchScanner(accumuloClient, metadataTableName, auths, getThreads(fields.size()))) {
+            bs.setRanges(toRanges(fields));
+            bs.fetchColumnFamily(ColumnFamilyConstants.COLF_F);
+            bs.fetchColumnFamily(targetColumnFamily);
+            
+            IteratorSetting setting = new IteratorSetting(50, "dateFilter", MetadataFColumnSeekingFilter.class);
+            setting.addOption(MetadataFColumnSeekingFilter.DATATYPES_OPT, String.join(",", datatypes));
+            setting.addOption(MetadataFColumnSeekingFilter.START_DATE, startDate);
+            setting.addOption(MetadataFColumnSeekingFilter.END_DATE, MAX_DATE);
+            bs.addScanIterator(setting);
+            
+            for (Entry<Key,Value> entry : bs) {
+                entries.computeIfAbsent(entry.getKey().getRow().toString(), k -> new ArrayList<>()).add(entry);
+            }
+        }
+        return entries;
+    }
+    
+    private static List<Object> getFieldKey(List<Object> key, String field) {
+        List<Object> fieldKey = new ArrayList<>(key);
+        fieldKey.add(field);
+        return fieldKey;
+    }
+    
+    private int getThreads(int fields) {
+        return Math.max(1, Math.min(scanThreads, fields));
+    }
+    
+    private static List<Range> toRanges(Iterable<String> fields) {
+        List<Range> ranges = new ArrayList<>();
+        for (String field : fields) {
+            ranges.add(Range.exact(field));
+        }
+        return ranges;
+    }
+    
+    private static boolean isBoundaryMarker(Key key, Text targetColumnFamily) {
+        return key.getColumnFamily().equals(targetColumnFamily) && !COUNT_PATTERN.matcher(key.getColumnQualifier().toString()).matches();
+    }
+}
@@ -0,0 +1,197 @@
+package datawave.query.util;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.client.AccumuloClient;
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.user.TimestampFilter;
+import org.apache.accumulo.core.security.Authorizations;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+import datawave.data.ColumnFamilyConstants;
+import datawave.iterators.FieldLifespanIterator;
+
+/**
+ * Loads and refreshes the {@link FieldLifespans} for a metadata table and set of auths with a single pass of the {@link FieldLifespanIterator} over the
+ * {@link ColumnFamilyConstants#COLF_F} column. The lifespans are shared by every helper for the same table and auths, and are refreshed in the same way as the
+ * {@link FrequencyIndexHelper}: with only the entries written since the {@link FieldLifespans#getMaxTimestamp() watermark} once they are older than the
+ * {@link #setRefreshIntervalMillis(long) refresh interval}, and with a full load once the {@link #setFullReconcileIntervalMillis(long) reconcile interval} has
+ * elapsed.
+ */
+public class FieldLifespanHelper {
+    private static final Logger log = LoggerFactory.getLogger(FieldLifespanHelper.class);
+    
+    protected final AccumuloClient accumuloClient;
+    protected final String metadataTableName;
+    protected final Set<Authorizations> auths;
+    
+    protected int fullTableScanThreads = 1;
+    protected long refreshIntervalMillis = TimeUnit.MINUTES.toMillis(5);
+    protected long fullReconcileIntervalMillis = TimeUnit.HOURS.toMillis(1);
+    
+    // the lifespans for each table and set of auths
+    private static final ConcurrentMap<List<Object>,FieldLifespans> lifespans = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<List<Object>,Object> lifespanLocks = new ConcurrentHashMap<>();
+    
+    /**
+     * Initializes the instance
+     *
+     * @param client
+     *            A client connection to Accumulo
+     * @param metadataTableName
+     *            The name of the DatawaveMetadata table
+     * @param auths
+     *            Any {@link Authorizations} to use
+     */
+    public FieldLifespanHelper(AccumuloClient client, String metadataTableName, Set<Authorizations> auths) {
+        Preconditions.checkNotNull(client, "A valid AccumuloClient is required by FieldLifespanHelper");
+        this.accumuloClient = client;
+        
+        Preconditions.checkNotNull(metadataTableName, "The metadata table name is required by FieldLifespanHelper");
+        this.metadataTableName = metadataTableName;
+        
+        Preconditions.checkNotNull(auths, "Accumulo scan Authorizations are required by FieldLifespanHelper");
+        this.auths = auths;
+    }
+    
+    public Set<Authorizations> getAuths() {
+        return auths;
+    }
+    
+    public String getMetadataTableName() {
+        return metadataTableName;
+    }
+    
+    public int getFullTableScanThreads() {
+        return fullTableScanThreads;
+    }
+    
+    /**
+     * Set the number of threads used for a full load of the lifespans, see {@link FullTableScanner}
+     *
+     * @param fullTableScanThreads
+     *            the number of threads, 1 to scan serially
+     */
+    public void setFullTableScanThreads(int fullTableScanThreads) {
+        this.fullTableScanThreads = fullTableScanThreads;
+    }
+    
+    public long getRefreshIntervalMillis() {
+        return refreshIntervalMillis;
+    }
+    
+    /**
+     * Set the age after which the lifespans are refreshed with the entries written since they were loaded
+     *
+     * @param refreshIntervalMillis
+     *            the interval in milliseconds
+     */
+    public void setRefreshIntervalMillis(long refreshIntervalMillis) {
+        this.refreshIntervalMillis = refreshIntervalMillis;
+    }
+    
+    public long getFullReconcileIntervalMillis() {
+        return fullReconcileIntervalMillis;
+    }
+    
+    /**
+     * Set how long incremental refreshes may be built on top of a full load before the next refresh scans the full column again
+     *
+     * @param fullReconcileIntervalMillis
+     *            the interval in milliseconds
+     */
+    public void setFullReconcileIntervalMillis(long fullReconcileIntervalMillis) {
+        this.fullReconcileIntervalMillis = fullReconcileIntervalMillis;
+    }
+    
+    /**
+     * Forget the field lifespans, forcing the next request for each of them to scan the full column
+     */
+    public static void clearFieldLifespans() {
+        lifespans.clear();
+    }
+    
+    /**
+     * Get the {@link FieldLifespans} for this table and auths, loading or refreshing them if they are older than the refresh interval
+     *
+     * @return the field lifespans
+     * @throws TableNotFoundException
+     *             if no table exists
+     */
+    public FieldLifespans getFieldLifespans() throws TableNotFoundException {
+        List<Object> key = Arrays.asList(metadataTableName, auths);
+        FieldLifespans current = lifespans.get(key);
+        if (current == null || System.currentTimeMillis() - current.getLoadTime() >= refreshIntervalMillis) {
+            synchronized (lifespanLocks.computeIfAbsent(key, k -> new Object())) {
+                current = lifespans.get(key);
+                if (current == null || System.currentTimeMillis() - current.getLoadTime() >= refreshIntervalMillis) {
+                    current = loadFieldLifespans(current);
+                    lifespans.put(key, current);
+                }
+            }
+        }
+        return current;
+    }
+    
+    /**
+     * Load new lifespans, incrementally from the previous lifespans when there are some and the reconcile interval has not elapsed, or else with a full scan
+     *
+     * @param previous
+     *            the previous lifespans, or null
+     * @return the new lifespans
+     * @throws TableNotFoundException
+     *             if no table exists
+     */
+    protected FieldLifespans loadFieldLifespans(FieldLifespans previous) throws TableNotFoundException {
+        long now = System.currentTimeMillis();
+        if (previous != null && now - previous.getFullLoadTime() < fullReconcileIntervalMillis) {
+            log.debug("refreshing field lifespans from table {} with entries since {}", metadataTableName, previous.getMaxTimestamp());
+            return loadFieldLifespans(new FieldLifespans.Builder(previous).setLoadTime(now), previous.getMaxTimestamp());
+        }
+        
+        log.debug("loading field lifespans from table {}", metadataTableName);
+        return loadFieldLifespans(new FieldLifespans.Builder().setLoadTime(now).setFullLoadTime(now), null);
+    }
+    
+    /**
+     * Scan the {@link ColumnFamilyConstants#COLF_F} column of the metadata table through the {@link FieldLifespanIterator}, adding every lifespan to the
+     * builder
+     *
+     * @param builder
+     *            the builder, possibly seeded from previous lifespans
+     * @param startTimestamp
+     *            if not null, only entries with a timestamp at or after this one are scanned
+     * @return the new lifespans
+     * @throws TableNotFoundException
+     *             if no table exists
+     */
+    protected FieldLifespans loadFieldLifespans(FieldLifespans.Builder builder, Long startTimestamp) throws TableNotFoundException {
+        try (FullTableScanner bs = new FullTableScanner(accumuloClient, metadataTableName, auths, startTimestamp == null ? fullTableScanThreads : 1)) {
+            bs.fetchColumnFamily(ColumnFamilyConstants.COLF_F);
+            
+            if (startTimestamp != null) {
+                IteratorSetting cfg = new IteratorSetting(50, "timestampFilter", TimestampFilter.class);
+                TimestampFilter.setStart(cfg, startTimestamp, true);
+                bs.addScanIterator(cfg);
+            }
+            bs.addScanIterator(new IteratorSetting(51, "fieldLifespanIterator", FieldLifespanIterator.class));
+            
+            for (Entry<Key,Value> entry : bs) {
+                builder.add(entry.getKey(), entry.getValue());
+            }
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,295 @@
+package datawave.query.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import datawave.data.ColumnFamilyConstants;
+import datawave.iterators.FieldLifespanIterator;
+
+/**
+ * The first and last day each field was seen in each datatype, according to the daily counts in the metadata table's {@link ColumnFamilyConstants#COLF_F}
+ * column. Dates are in the sortable yyyyMMdd format of that column.
+ * <p>
+ * As lifespans only widen as entries are added, newer lifespans can be built from a copy of these plus only the entries written since, see
+ * {@link Builder#Builder(FieldLifespans)}. A lifespan narrowed by deleted entries is only corrected by a full load.
+ */
+public class FieldLifespans {
+    private static final Logger log = LoggerFactory.getLogger(FieldLifespans.class);
+    
+    private final Map<String,Map<String,Lifespan>> lifespansByField;
+    private final long maxTimestamp;
+    private final long loadTime;
+    private final long fullLoadTime;
+    
+    private FieldLifespans(Builder builder) {
+        this.maxTimestamp = builder.maxTimestamp;
+        this.loadTime = builder.loadTime;
+        this.fullLoadTime = builder.fullLoadTime;
+        
+        Map<String,Map<String,Lifespan>> byField = new HashMap<>();
+        for (Map.Entry<String,Map<String,Lifespan>> entry : builder.lifespansByField.entrySet()) {
+            byField.put(entry.getKey(), Collections.unmodifiableMap(new HashMap<>(entry.getValue())));
+        }
+        this.lifespansByField = Collections.unmodifiableMap(byField);
+    }
+    
+    /**
+     * Get the lifespan of a field across a set of datatypes
+     *
+     * @param field
+     *            the field
+     * @param datatypes
+     *            the datatypes, or null or empty for all datatypes
+     * @return the lifespan, or null if the field has not been seen in any of the datatypes
+     */
+    public Lifespan getLifespan(String field, Set<String> datatypes) {
+        Map<String,Lifespan> byDatatype = lifespansByField.get(field);
+        if (byDatatype == null) {
+            return null;
+        }
+        
+        Lifespan lifespan = null;
+        for (Map.Entry<String,Lifespan> entry : byDatatype.entrySet()) {
+            if (datatypes == null || datatypes.isEmpty() || datatypes.contains(entry.getKey())) {
+                lifespan = lifespan == null ? entry.getValue() : lifespan.merge(entry.getValue());
+            }
+        }
+        return lifespan;
+    }
+    
+    /**
+     * Get the lifespan of each of a collection of fields across a set of datatypes
+     *
+     * @param fields
+     *            the fields
+     * @param datatypes
+     *            the datatypes, or null or empty for all datatypes
+     * @return a map of each field that has been seen in any of the datatypes to its lifespan
+     */
+    public Map<String,Lifespan> getLifespans(Collection<String> fields, Set<String> datatypes) {
+        Map<String,Lifespan> lifespans = new HashMap<>();
+        for (String field : fields) {
+            Lifespan lifespan = getLifespan(field, datatypes);
+            if (lifespan != null) {
+                lifespans.put(field, lifespan);
+            }
+        }
+        return lifespans;
+    }
+    
+    /**
+     * Get the lifespans of a field by datatype
+     *
+     * @param field
+     *            the field
+     * @return an unmodifiable map of datatype to lifespan, empty if the field has not been seen
+     */
+    public Map<String,Lifespan> getLifespansByDatatype(String field) {
+        return lifespansByField.getOrDefault(field, Collections.emptyMap());
+    }
+    
+    /**
+     * Get the highest timestamp of the entries read into these lifespans
+     *
+     * @return the timestamp, or {@link Long#MIN_VALUE} if there are no lifespans
+     */
+    public long getMaxTimestamp() {
+        return maxTimestamp;
+    }
+    
+    /**
+     * Get the time at which the latest scan feeding these lifespans, full or incremental, was started
+     *
+     * @return the time in milliseconds
+     */
+    public long getLoadTime() {
+        return loadTime;
+    }
+    
+    /**
+     * Get the time at which the full scan these lifespans were originally built from was started
+     *
+     * @return the time in milliseconds
+     */
+    public long getFullLoadTime() {
+        return fullLoadTime;
+    }
+    
+    /**
+     * The first and last day a field was seen, inclusive
+     */
+    public static class Lifespan {
+        private final String firstDate;
+        private final String lastDate;
+        
+        public Lifespan(String firstDate, String lastDate) {
+            this.firstDate = firstDate;
+            this.lastDate = lastDate;
+        }
+        
+        public String getFirstDate() {
+            return firstDate;
+        }
+        
+        public String getLastDate() {
+            return lastDate;
+        }
+        
+        /**
+         * Determine whether this lifespan overlaps a date range
+         *
+         * @param beginDate
+         *            the start date, as yyyyMMdd
+         * @param endDate
+         *            the end date, as yyyyMMdd, inclusive
+         * @return true if the field was seen on a day that may fall within the date range
+         */
+        public boolean overlaps(String beginDate, String endDate) {
+            return firstDate.compareTo(endDate) <= 0 && lastDate.compareTo(beginDate) >= 0;
+        }
+        
+        /**
+         * Get the lifespan that covers both this lifespan and another
+         *
+         * @param other
+         *            the other lifespan
+         * @return the combined lifespan
+         */
+        public Lifespan merge(Lifespan other) {
+            String first = firstDate.compareTo(other.firstDate) <= 0 ? firstDate : other.firstDate;
+            String last = lastDate.compareTo(other.lastDate) >= 0 ? lastDate : other.lastDate;
+            return new Lifespan(first, last);
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Lifespan lifespan = (Lifespan) o;
+            return firstDate.equals(lifespan.firstDate) && lastDate.equals(lifespan.lastDate);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(firstDate, lastDate);
+        }
+        
+        @Override
+        public String toString() {
+            return "[" + firstDate + ", " + lastDate + "]";
+        }
+    }
+    
+    /**
+     * Accumulates the first and last dates of each field and datatype
+     */
+    public static class Builder {
+        private final Map<String,Map<String,Lifespan>> lifespansByField = new HashMap<>();
+        private long maxTimestamp = Long.MIN_VALUE;
+        private long loadTime = 0L;
+        private long fullLoadTime = 0L;
+        
+        public Builder() {}
+        
+        /**
+         * Create a builder that starts from the lifespans of a previous instance, including its timestamp watermark and full load time. The lifespans are
+         * widened by any dates added.
+         *
+         * @param previous
+         *            the previous lifespans
+         */
+        public Builder(FieldLifespans previous) {
+            for (Map.Entry<String,Map<String,Lifespan>> entry : previous.lifespansByField.entrySet()) {
+                lifespansByField.put(entry.getKey(), new HashMap<>(entry.getValue()));
+            }
+            maxTimestamp = previous.maxTimestamp;
+            fullLoadTime = previous.fullLoadTime;
+        }
+        
+        /**
+         * Set the time at which the scan feeding this builder was started
+         *
+         * @param loadTime
+         *            the time in milliseconds
+         * @return this builder
+         */
+        public Builder setLoadTime(long loadTime) {
+            this.loadTime = loadTime;
+            return this;
+        }
+        
+        /**
+         * Set the time at which the full scan feeding this builder, or the builder of the lifespans it was copied from, was started
+         *
+         * @param fullLoadTime
+         *            the time in milliseconds
+         * @return this builder
+         */
+        public Builder setFullLoadTime(long fullLoadTime) {
+            this.fullLoadTime = fullLoadTime;
+            return this;
+        }
+        
+        /**
+         * Add an entry returned by the {@link FieldLifespanIterator}. Entries that cannot be parsed are logged and skipped.
+         *
+         * @param key
+         *            the last key of a field and datatype, with the newest timestamp of its entries
+         * @param value
+         *            the first date of the field and datatype
+         * @return this builder
+         */
+        public Builder add(Key key, Value value) {
+            String colq = key.getColumnQualifier().toString();
+            int index = colq.indexOf('\0');
+            if (index == -1) {
+                log.warn("Could not find nullbyte separator in column qualifier for: {}", key);
+                return this;
+            }
+            
+            maxTimestamp = Math.max(maxTimestamp, key.getTimestamp());
+            return add(key.getRow().toString(), colq.substring(0, index), new String(value.get(), StandardCharsets.UTF_8), colq.substring(index + 1));
+        }
+        
+        /**
+         * Record that a field was seen in a datatype between two dates, widening any lifespan already recorded
+         *
+         * @param field
+         *            the field
+         * @param datatype
+         *            the datatype
+         * @param firstDate
+         *            the first date
+         * @param lastDate
+         *            the last date
+         * @return this builder
+         */
+        public Builder add(String field, String datatype, String firstDate, String lastDate) {
+            lifespansByField.computeIfAbsent(field, k -> new HashMap<>()).merge(datatype, new Lifespan(firstDate, lastDate), Lifespan::merge);
+            return this;
+        }
+        
+        /**
+         * Build the lifespans from the dates added so far
+         *
+         * @return the lifespans
+         */
+        public FieldLifespans build() {
+            return new FieldLifespans(this);
+        }
+    }
+}
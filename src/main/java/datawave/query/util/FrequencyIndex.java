@@ -0,0 +1,339 @@
+package datawave.query.util;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.ValueFormatException;
+import org.apache.accumulo.core.iterators.user.SummingCombiner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import datawave.data.ColumnFamilyConstants;
+
+/**
+ * An in-memory index of the daily counts in the metadata table's {@link ColumnFamilyConstants#COLF_F} column. For each field and datatype, the days with a
+ * count are held in a sorted array of day ordinals alongside an array of the cumulative counts, so the count over any date range is the difference of two
+ * cumulative counts found with two binary searches.
+ * <p>
+ * The count of each day and visibility is retained alongside, so that a newer index can be built from this one plus only the entries written since, see
+ * {@link Builder#Builder(FrequencyIndex)}. Only the field and datatype series with new entries are rebuilt, the others are shared with this index. As the f
+ * column is combined, an entry read again replaces the previous count for the same day and visibility rather than adding to it.
+ */
+public class FrequencyIndex {
+    private static final Logger log = LoggerFactory.getLogger(FrequencyIndex.class);
+    
+    private final Map<String,Map<String,DailyCounts>> countsByField;
+    private final long maxTimestamp;
+    private final long loadTime;
+    private final long fullLoadTime;
+    
+    private FrequencyIndex(Builder builder) {
+        this.maxTimestamp = builder.maxTimestamp;
+        this.loadTime = builder.loadTime;
+        this.fullLoadTime = builder.fullLoadTime;
+        
+        if (builder.added.isEmpty()) {
+            this.countsByField = builder.previous;
+            return;
+        }
+        
+        // rebuild the series with new entries, merging in the entries of the previous series that were not read again
+        Map<String,Map<String,DailyCounts>> byField = new HashMap<>(builder.previous);
+        for (Map.Entry<String,Map<String,TreeMap<Integer,Map<String,Long>>>> fieldEntry : builder.added.entrySet()) {
+            Map<String,DailyCounts> byDatatype = new HashMap<>(builder.previous.getOrDefault(fieldEntry.getKey(), Collections.emptyMap()));
+            for (Map.Entry<String,TreeMap<Integer,Map<String,Long>>> datatypeEntry : fieldEntry.getValue().entrySet()) {
+                TreeMap<Integer,Map<String,Long>> counts = datatypeEntry.getValue();
+                DailyCounts previous = byDatatype.get(datatypeEntry.getKey());
+                if (previous != null) {
+                    previous.addTo(counts);
+                }
+                byDatatype.put(datatypeEntry.getKey(), new DailyCounts(counts));
+            }
+            byField.put(fieldEntry.getKey(), Collections.unmodifiableMap(byDatatype));
+        }
+        this.countsByField = Collections.unmodifiableMap(byField);
+    }
+    
+    /**
+     * Get the sum of the counts for a field in any of a set of datatypes between two days, inclusive
+     *
+     * @param field
+     *            the field
+     * @param datatypes
+     *            the datatypes, or empty for all datatypes
+     * @param startDay
+     *            the first day, see {@link #toDayOrdinal(String)}
+     * @param endDay
+     *            the last day
+     * @return the count, or null if the field has no counts for the datatypes in the date range
+     */
+    public Long getCount(String field, Set<String> datatypes, int startDay, int endDay) {
+        Map<String,DailyCounts> byDatatype = countsByField.get(field);
+        if (byDatatype == null) {
+            return null;
+        }
+        
+        Long count = null;
+        for (Map.Entry<String,DailyCounts> entry : byDatatype.entrySet()) {
+            if (datatypes.isEmpty() || datatypes.contains(entry.getKey())) {
+                Long datatypeCount = entry.getValue().sum(startDay, endDay);
+                if (datatypeCount != null) {
+                    count = count == null ? datatypeCount : count + datatypeCount;
+                }
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Get the highest timestamp of the entries read into this index
+     *
+     * @return the timestamp, or {@link Long#MIN_VALUE} if the index is empty
+     */
+    public long getMaxTimestamp() {
+        return maxTimestamp;
+    }
+    
+    /**
+     * Get the time at which the latest scan feeding this index, full or incremental, was started
+     *
+     * @return the time in milliseconds
+     */
+    public long getLoadTime() {
+        return loadTime;
+    }
+    
+    /**
+     * Get the time at which the full scan this index was originally built from was started
+     *
+     * @return the time in milliseconds
+     */
+    public long getFullLoadTime() {
+        return fullLoadTime;
+    }
+    
+    /**
+     * Convert a date in the yyyyMMdd format of the {@link ColumnFamilyConstants#COLF_F} column to a day ordinal, the number of days since the epoch
+     *
+     * @param date
+     *            the date
+     * @return the day ordinal
+     * @throws DateTimeParseException
+     *             if the date cannot be parsed
+     */
+    public static int toDayOrdinal(String date) {
+        return (int) LocalDate.parse(date, DateTimeFormatter.BASIC_ISO_DATE).toEpochDay();
+    }
+    
+    /**
+     * Convert a date in the yyyyMMdd format of the {@link ColumnFamilyConstants#COLF_F} column to a day ordinal directly from the bytes of a column qualifier,
+     * without creating a String
+     *
+     * @param bytes
+     *            the bytes holding the date
+     * @param offset
+     *            the offset of the date in the bytes
+     * @return the day ordinal
+     * @throws DateTimeException
+     *             if the bytes are not a valid date
+     */
+    public static int toDayOrdinal(byte[] bytes, int offset) {
+        if (bytes.length - offset < 8) {
+            throw new DateTimeException("Expected 8 bytes for a yyyyMMdd date but found " + (bytes.length - offset));
+        }
+        int year = digits(bytes, offset, 4);
+        int month = digits(bytes, offset + 4, 2);
+        int day = digits(bytes, offset + 6, 2);
+        return (int) LocalDate.of(year, month, day).toEpochDay();
+    }
+    
+    private static int digits(byte[] bytes, int offset, int length) {
+        int value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new DateTimeException("Expected a digit in a yyyyMMdd date but found " + (char) bytes[i]);
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+    
+    /**
+     * The days with a count for a field and datatype, in ascending order, and the cumulative count through each of them. The count of each day and visibility
+     * is kept as well, so that the series can be rebuilt with the entries read again.
+     */
+    private static class DailyCounts {
+        private final int[] days;
+        private final long[] cumulativeCounts;
+        
+        // the day, visibility and count of each entry, in day order
+        private final int[] entryDays;
+        private final String[] entryVisibilities;
+        private final long[] entryCounts;
+        
+        DailyCounts(TreeMap<Integer,Map<String,Long>> countsByDay) {
+            int size = 0;
+            for (Map<String,Long> countsByVisibility : countsByDay.values()) {
+                size += countsByVisibility.size();
+            }
+            entryDays = new int[size];
+            entryVisibilities = new String[size];
+            entryCounts = new long[size];
+            
+            // most days have a single visibility, in which case the entry days are the days
+            days = size == countsByDay.size() ? entryDays : new int[countsByDay.size()];
+            cumulativeCounts = new long[countsByDay.size()];
+            int i = 0;
+            int entry = 0;
+            long total = 0L;
+            for (Map.Entry<Integer,Map<String,Long>> dayEntry : countsByDay.entrySet()) {
+                for (Map.Entry<String,Long> visibilityEntry : dayEntry.getValue().entrySet()) {
+                    total += visibilityEntry.getValue();
+                    entryDays[entry] = dayEntry.getKey();
+                    entryVisibilities[entry] = visibilityEntry.getKey();
+                    entryCounts[entry] = visibilityEntry.getValue();
+                    entry++;
+                }
+                days[i] = dayEntry.getKey();
+                cumulativeCounts[i] = total;
+                i++;
+            }
+        }
+        
+        /**
+         * Add the entries of this series to the counts by day and visibility, keeping any count already there, which was read more recently
+         */
+        void addTo(TreeMap<Integer,Map<String,Long>> countsByDay) {
+            for (int i = 0; i < entryDays.length; i++) {
+                countsByDay.computeIfAbsent(entryDays[i], k -> new HashMap<>()).putIfAbsent(entryVisibilities[i], entryCounts[i]);
+            }
+        }
+        
+        Long sum(int startDay, int endDay) {
+            int first = lowerBound(startDay);
+            int last = lowerBound(endDay + 1) - 1;
+            if (first > last) {
+                return null;
+            }
+            return cumulativeCounts[last] - (first > 0 ? cumulativeCounts[first - 1] : 0L);
+        }
+        
+        /**
+         * Find the index of the first day that is at or after a day
+         */
+        private int lowerBound(int day) {
+            int index = Arrays.binarySearch(days, day);
+            return index >= 0 ? index : -(index + 1);
+        }
+    }
+    
+    /**
+     * Accumulates {@link ColumnFamilyConstants#COLF_F} entries into a {@link FrequencyIndex}
+     */
+    public static class Builder {
+        private final Map<String,Map<String,DailyCounts>> previous;
+        // the counts added, by field, datatype, day and visibility
+        private final Map<String,Map<String,TreeMap<Integer,Map<String,Long>>>> added = new HashMap<>();
+        private long maxTimestamp = Long.MIN_VALUE;
+        private long loadTime = 0L;
+        private long fullLoadTime = 0L;
+        
+        public Builder() {
+            previous = Collections.emptyMap();
+        }
+        
+        /**
+         * Create a builder that starts from a previous index, including its timestamp watermark and full load time. The series of the previous index are reused
+         * for the fields and datatypes without new entries.
+         *
+         * @param previous
+         *            the previous index
+         */
+        public Builder(FrequencyIndex previous) {
+            this.previous = previous.countsByField;
+            maxTimestamp = previous.maxTimestamp;
+            fullLoadTime = previous.fullLoadTime;
+        }
+        
+        /**
+         * Set the time at which the scan feeding this builder was started
+         *
+         * @param loadTime
+         *            the time in milliseconds
+         * @return this builder
+         */
+        public Builder setLoadTime(long loadTime) {
+            this.loadTime = loadTime;
+            return this;
+        }
+        
+        /**
+         * Set the time at which the full scan feeding this builder, or the builder of the index it was copied from, was started
+         *
+         * @param fullLoadTime
+         *            the time in milliseconds
+         * @return this builder
+         */
+        public Builder setFullLoadTime(long fullLoadTime) {
+            this.fullLoadTime = fullLoadTime;
+            return this;
+        }
+        
+        /**
+         * Add a {@link ColumnFamilyConstants#COLF_F} entry, replacing the count of any entry previously added for the same field, datatype, day and
+         * visibility. Entries that cannot be parsed are logged and skipped.
+         *
+         * @param key
+         *            the key
+         * @param value
+         *            the value, a variable length encoded count
+         * @return this builder
+         */
+        public Builder add(Key key, Value value) {
+            String colq = key.getColumnQualifier().toString();
+            int index = colq.indexOf('\0');
+            if (index == -1) {
+                log.warn("Could not find nullbyte separator in column qualifier for: {}", key);
+                return this;
+            }
+            
+            int day;
+            long count;
+            try {
+                day = toDayOrdinal(colq.substring(index + 1));
+                count = SummingCombiner.VAR_LEN_ENCODER.decode(value.get());
+            } catch (DateTimeParseException e) {
+                log.warn("Could not convert date string for: {}", key);
+                return this;
+            } catch (ValueFormatException e) {
+                log.warn("Could not convert the Value to a long: {}", value);
+                return this;
+            }
+            
+            maxTimestamp = Math.max(maxTimestamp, key.getTimestamp());
+            added.computeIfAbsent(key.getRow().toString(), k -> new HashMap<>()).computeIfAbsent(colq.substring(0, index), k -> new TreeMap<>())
+                            .computeIfAbsent(day, k -> new HashMap<>()).put(key.getColumnVisibility().toString(), count);
+            return this;
+        }
+        
+        /**
+         * Build the index from the entries added so far
+         *
+         * @return the index
+         */
+        public FrequencyIndex build() {
+            return new FrequencyIndex(this);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package datawave.query.util;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.client.AccumuloClient;
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.user.TimestampFilter;
+import org.apache.accumulo.core.security.Authorizations;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+import datawave.data.ColumnFamilyConstants;
+
+/**
+ * Loads and refreshes the {@link FrequencyIndex} for a metadata table and set of auths. The index is shared by every helper for the same table and auths. Once
+ * it is older than the {@link #setRefreshIntervalMillis(long) refresh interval}, the next request refreshes it with only the
+ * {@link ColumnFamilyConstants#COLF_F} entries written since its {@link FrequencyIndex#getMaxTimestamp() watermark}. Entries that are deleted, or that are
+ * written with a timestamp older than the watermark, are only picked up by the full load that runs once the
+ * {@link #setFullReconcileIntervalMillis(long) reconcile interval} has elapsed.
+ * <p>
+ * Since the f column is not cached, the client given to this helper should be the real client rather than a
+ * {@link datawave.webservice.common.connection.WrappedAccumuloClient}.
+ */
+public class FrequencyIndexHelper {
+    private static final Logger log = LoggerFactory.getLogger(FrequencyIndexHelper.class);
+    
+    protected final AccumuloClient accumuloClient;
+    protected final String metadataTableName;
+    protected final Set<Authorizations> auths;
+    
+    protected int fullTableScanThreads = 1;
+    protected long refreshIntervalMillis = TimeUnit.MINUTES.toMillis(5);
+    protected long fullReconcileIntervalMillis = TimeUnit.HOURS.toMillis(1);
+    
+    // the index for each table and set of auths
+    private static final ConcurrentMap<List<Object>,FrequencyIndex> indexes = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<List<Object>,Object> indexLocks = new ConcurrentHashMap<>();
+    
+    /**
+     * Initializes the instance
+     *
+     * @param client
+     *            A client connection to Accumulo
+     * @param metadataTableName
+     *            The name of the DatawaveMetadata table
+     * @param auths
+     *            Any {@link Authorizations} to use
+     */
+    public FrequencyIndexHelper(AccumuloClient client, String metadataTableName, Set<Authorizations> auths) {
+        Preconditions.checkNotNull(client, "A valid AccumuloClient is required by FrequencyIndexHelper");
+        this.accumuloClient = client;
+        
+        Preconditions.checkNotNull(metadataTableName, "The metadata table name is required by FrequencyIndexHelper");
+        this.metadataTableName = metadataTableName;
+        
+        Preconditions.checkNotNull(auths, "Accumulo scan Authorizations are required by FrequencyIndexHelper");
+        this.auths = auths;
+    }
+    
+    public Set<Authorizations> getAuths() {
+        return auths;
+    }
+    
+    public String getMetadataTableName() {
+        return metadataTableName;
+    }
+    
+    public int getFullTableScanThreads() {
+        return fullTableScanThreads;
+    }
+    
+    /**
+     * Set the number of threads used for a full load of the index, see {@link FullTableScanner}
+     *
+     * @param fullTableScanThreads
+     *            the number of threads, 1 to scan serially
+     */
+    public void setFullTableScanThreads(int fullTableScanThreads) {
+        this.fullTableScanThreads = fullTableScanThreads;
+    }
+    
+    public long getRefreshIntervalMillis() {
+        return refreshIntervalMillis;
+    }
+    
+    /**
+     * Set the age after which the index is refreshed with the entries written since it was loaded
+     *
+     * @param refreshIntervalMillis
+     *            the interval in milliseconds
+     */
+    public void setRefreshIntervalMillis(long refreshIntervalMillis) {
+        this.refreshIntervalMillis = refreshIntervalMillis;
+    }
+    
+    public long getFullReconcileIntervalMillis() {
+        return fullReconcileIntervalMillis;
+    }
+    
+    /**
+     * Set how long incremental refreshes may be built on top of a full load before the next refresh scans the full column again
+     *
+     * @param fullReconcileIntervalMillis
+     *            the interval in milliseconds
+     */
+    public void setFullReconcileIntervalMillis(long fullReconcileIntervalMillis) {
+        this.fullReconcileIntervalMillis = fullReconcileIntervalMillis;
+    }
+    
+    /**
+     * Forget the frequency indexes, forcing the next request for each of them to scan the full column
+     */
+    public static void clearFrequencyIndexes() {
+        indexes.clear();
+    }
+    
+    /**
+     * Get the {@link FrequencyIndex} for this table and auths, loading or refreshing it if it is older than the refresh interval
+     *
+     * @return the frequency index
+     * @throws TableNotFoundException
+     *             if no table exists
+     */
+    public FrequencyIndex getFrequencyIndex() throws TableNotFoundException {
+        List<Object> key = Arrays.asList(metadataTableName, auths);
+        FrequencyIndex index = indexes.get(key);
+        if (index == null || System.currentTimeMillis() - index.getLoadTime() >= refreshIntervalMillis) {
+            synchronized (indexLocks.computeIfAbsent(key, k -> new Object())) {
+                index = indexes.get(key);
+                if (index == null || System.currentTimeMillis() - index.getLoadTime() >= refreshIntervalMillis) {
+                    index = loadFrequencyIndex(index);
+                    indexes.put(key, index);
+                }
+            }
+        }
+        return index;
+    }
+    
+    /**
+     * Load a new index, incrementally from the previous index when there is one and the reconcile interval has not elapsed, or else with a full scan
+     *
+     * @param previous
+     *            the previous index, or null
+     * @return the new index
+     * @throws TableNotFoundException
+     *             if no table exists
+     */
+    protected FrequencyIndex loadFrequencyIndex(FrequencyIndex previous) throws TableNotFoundException {
+        long now = System.currentTimeMillis();
+        if (previous != null && now - previous.getFullLoadTime() < fullReconcileIntervalMillis) {
+            log.debug("refreshing frequency index from table {} with entries since {}", metadataTableName, previous.getMaxTimestamp());
+            return loadFrequencyIndex(new FrequencyIndex.Builder(previous).setLoadTime(now), previous.getMaxTimestamp());
+        }
+        
+        log.debug("loading frequency index from table {}", metadataTableName);
+        return loadFrequencyIndex(new FrequencyIndex.Builder().setLoadTime(now).setFullLoadTime(now), null);
+    }
+    
+    /**
+     * Scan the {@link ColumnFamilyConstants#COLF_F} column of the metadata table, adding every entry to the builder
+     *
+     * @param builder
+     *            the builder, possibly seeded from a previous index
+     * @param startTimestamp
+     *            if not null, only entries with a timestamp at or after this one are scanned
+     * @return the new index
+     * @throws TableNotFoundException
+     *             if no table exists
+     */
+    protected FrequencyIndex loadFrequencyIndex(FrequencyIndex.Builder builder, Long startTimestamp) throws TableNotFoundException {
+        try (FullTableScanner bs = new FullTableScanner(accumuloClient, metadataTableName, auths, startTimestamp == null ? fullTableScanThreads : 1)) {
+            bs.fetchColumnFamily(ColumnFamilyConstants.COLF_F);
+            
+            if (startTimestamp != null) {
+                IteratorSetting cfg = new IteratorSetting(50, "timestampFilter", TimestampFilter.class);
+                TimestampFilter.setStart(cfg, startTimestamp, true);
+                bs.addScanIterator(cfg);
+            }
+            
+            for (Entry<Key,Value> entry : bs) {
+                builder.add(entry.getKey(), entry.getValue());
+            }
+        }
+        return builder.build();
+    }
+}
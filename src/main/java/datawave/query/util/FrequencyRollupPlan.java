@@ -0,0 +1,173 @@
+package datawave.query.util;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import org.apache.hadoop.io.Text;
+
+import datawave.data.ColumnFamilyConstants;
+import datawave.iterators.FrequencyRollupIterator;
+
+/**
+ * Covers a date range with the fewest keys of the metadata table's daily {@link ColumnFamilyConstants#COLF_F} counts and the monthly
+ * {@link ColumnFamilyConstants#COLF_FM} and yearly {@link ColumnFamilyConstants#COLF_FY} rollups written by the {@link FrequencyRollupIterator}. Whole years
+ * are read from the yearly rollups, whole months outside of those years from the monthly rollups, and only the remaining days from the daily counts, so a five
+ * year range reads at most 5 yearly, 22 monthly and 60 daily keys per field and datatype.
+ */
+public class FrequencyRollupPlan {
+    
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final DateTimeFormatter YEAR_FORMAT = DateTimeFormatter.ofPattern("yyyy");
+    
+    private FrequencyRollupPlan() {}
+    
+    /**
+     * A contiguous run of days, months or years, read from one column with the dates formatted as that column's column qualifiers
+     */
+    public static class Segment {
+        private final Text columnFamily;
+        private final String beginDate;
+        private final String endDate;
+        
+        public Segment(Text columnFamily, String beginDate, String endDate) {
+            this.columnFamily = columnFamily;
+            this.beginDate = beginDate;
+            this.endDate = endDate;
+        }
+        
+        public Text getColumnFamily() {
+            return columnFamily;
+        }
+        
+        public String getBeginDate() {
+            return beginDate;
+        }
+        
+        public String getEndDate() {
+            return endDate;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Segment segment = (Segment) o;
+            return columnFamily.equals(segment.columnFamily) && beginDate.equals(segment.beginDate) && endDate.equals(segment.endDate);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(columnFamily, beginDate, endDate);
+        }
+        
+        @Override
+        public String toString() {
+            return columnFamily + ":" + beginDate + "-" + endDate;
+        }
+    }
+    
+    /**
+     * Split a date range into the fewest segments of days, months and years. Moving forward from the start date, a whole year is taken where one starts and
+     * fits before the end date, otherwise a whole month, otherwise a day, and consecutive units of the same size are joined into one segment.
+     *
+     * @param beginDate
+     *            the start date as yyyyMMdd, inclusive
+     * @param endDate
+     *            the end date as yyyyMMdd, inclusive
+     * @return the segments in date order, or an empty list if the start date is after the end date
+     */
+    public static List<Segment> plan(String beginDate, String endDate) {
+        LocalDate begin = LocalDate.parse(beginDate, DateTimeFormatter.BASIC_ISO_DATE);
+        LocalDate end = LocalDate.parse(endDate, DateTimeFormatter.BASIC_ISO_DATE);
+        if (begin.isAfter(end)) {
+            return Collections.emptyList();
+        }
+        
+        List<Segment> segments = new ArrayList<>();
+        addRollups(segments, begin, end);
+        return segments;
+    }
+    
+    /**
+     * Split a date range into the fewest segments of days, months and years, reading only the days from the settle date on from the daily counts. Rollups of
+     * recent dates may not hold every daily count yet, as daily counts are only rolled up once they are compacted.
+     *
+     * @param beginDate
+     *            the start date as yyyyMMdd, inclusive
+     * @param endDate
+     *            the end date as yyyyMMdd, inclusive
+     * @param settleDate
+     *            the first date as yyyyMMdd whose rollups are not used
+     * @return the segments in date order, or an empty list if the start date is after the end date
+     */
+    public static List<Segment> plan(String beginDate, String endDate, String settleDate) {
+        LocalDate begin = LocalDate.parse(beginDate, DateTimeFormatter.BASIC_ISO_DATE);
+        LocalDate end = LocalDate.parse(endDate, DateTimeFormatter.BASIC_ISO_DATE);
+        LocalDate settle = LocalDate.parse(settleDate, DateTimeFormatter.BASIC_ISO_DATE);
+        if (begin.isAfter(end)) {
+            return Collections.emptyList();
+        }
+        
+        List<Segment> segments = new ArrayList<>();
+        if (begin.isBefore(settle)) {
+            addRollups(segments, begin, end.isBefore(settle) ? end : settle.minusDays(1));
+        }
+        if (!end.isBefore(settle)) {
+            LocalDate first = begin.isBefore(settle) ? settle : begin;
+            add(segments, ColumnFamilyConstants.COLF_F, first.format(DateTimeFormatter.BASIC_ISO_DATE), end.format(DateTimeFormatter.BASIC_ISO_DATE));
+        }
+        return segments;
+    }
+    
+    /**
+     * Add the segments of days, months and years covering a date range
+     */
+    private static void addRollups(List<Segment> segments, LocalDate begin, LocalDate end) {
+        LocalDate current = begin;
+        while (!current.isAfter(end)) {
+            LocalDate last;
+            if (current.getDayOfYear() == 1 && !current.plusYears(1).minusDays(1).isAfter(end)) {
+                last = current.plusYears(1).minusDays(1);
+                while (!last.plusYears(1).isAfter(end)) {
+                    last = last.plusYears(1);
+                }
+                add(segments, ColumnFamilyConstants.COLF_FY, current.format(YEAR_FORMAT), last.format(YEAR_FORMAT));
+            } else if (current.getDayOfMonth() == 1 && !current.plusMonths(1).minusDays(1).isAfter(end)) {
+                // whole months up to the end date or the end of the year, so that the next year is considered as a whole
+                last = current.plusMonths(1).minusDays(1);
+                while (last.getMonthValue() != 12 && !last.plusDays(1).plusMonths(1).minusDays(1).isAfter(end)) {
+                    last = last.plusDays(1).plusMonths(1).minusDays(1);
+                }
+                add(segments, ColumnFamilyConstants.COLF_FM, current.format(MONTH_FORMAT), last.format(MONTH_FORMAT));
+            } else {
+                // days up to the end date or the end of the month, so that the next month is considered as a whole
+                last = current;
+                while (last.plusDays(1).getDayOfMonth() != 1 && last.isBefore(end)) {
+                    last = last.plusDays(1);
+                }
+                add(segments, ColumnFamilyConstants.COLF_F, current.format(DateTimeFormatter.BASIC_ISO_DATE), last.format(DateTimeFormatter.BASIC_ISO_DATE));
+            }
+            current = last.plusDays(1);
+        }
+    }
+    
+    /**
+     * Add a segment, joining it to the previous segment if that is in the same column, as the segments are contiguous
+     */
+    private static void add(List<Segment> segments, Text columnFamily, String beginDate, String endDate) {
+        int previous = segments.size() - 1;
+        if (previous >= 0 && segments.get(previous).getColumnFamily().equals(columnFamily)) {
+            segments.set(previous, new Segment(columnFamily, segments.get(previous).getBeginDate(), endDate));
+        } else {
+            segments.add(new Segment(columnFamily, beginDate, endDate));
+        }
+    }
+}
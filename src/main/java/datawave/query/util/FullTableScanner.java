@@ -0,0 +1,280 @@
+package datawave.query.util;
+
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.client.AccumuloClient;
+import org.apache.accumulo.core.client.AccumuloException;
+import org.apache.accumulo.core.client.AccumuloSecurityException;
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.client.Scanner;
+import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.hadoop.io.Text;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import datawave.security.util.ScannerHelper;
+
+/**
+ * Reads every row of a table. With a single thread this is a plain {@link Scanner} over {@code new Range()}. With more than one thread the table is partitioned
+ * at its split points and the partitions are scanned on a pool shared by all full table scans. At most {@code threads} partitions of a scan are in flight at
+ * once, and each streams its entries through a bounded queue, so the memory held by a scan does not grow with the size of the table. Either way the entries are
+ * returned in key order, so callers see exactly what a serial scan would have returned.
+ * <p>
+ * A partition scan waits for its entries to be consumed, so a scanner that is not read to the end must be closed to release its threads.
+ */
+public class FullTableScanner implements Iterable<Entry<Key,Value>>, AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(FullTableScanner.class);
+    
+    // the number of threads shared by all of the parallel full table scans
+    private static final int SHARED_THREADS = 16;
+    
+    // the number of entries each partition scan may read ahead of the consumer
+    static final int DEFAULT_QUEUE_CAPACITY = 1000;
+    
+    // marks the end of the entries of a partition
+    private static final Entry<Key,Value> END_OF_PARTITION = new AbstractMap.SimpleImmutableEntry<>(null, null);
+    
+    private static final ExecutorService sharedExecutor = createSharedExecutor();
+    
+    private final AccumuloClient accumuloClient;
+    private final String tableName;
+    private final Set<Authorizations> auths;
+    private final int threads;
+    private final int queueCapacity;
+    
+    private final List<Text> columnFamilies = new ArrayList<>();
+    private final List<IteratorSetting> iterators = new ArrayList<>();
+    
+    // the scanner for the whole table when scanning serially
+    private final Scanner scanner;
+    // the partition scans that have been started and not yet consumed
+    private final Deque<PartitionScan> inFlight = new ArrayDeque<>();
+    private boolean started = false;
+    
+    /**
+     * Initializes the instance
+     *
+     * @param client
+     *            A client connection to Accumulo
+     * @param tableName
+     *            The name of the table to scan
+     * @param auths
+     *            Any {@link Authorizations} to use
+     * @param threads
+     *            The number of partitions to scan concurrently, a value of 1 or less scans the table serially
+     * @throws TableNotFoundException
+     *             if no table exists
+     */
+    public FullTableScanner(AccumuloClient client, String tableName, Set<Authorizations> auths, int threads) throws TableNotFoundException {
+        this(client, tableName, auths, threads, DEFAULT_QUEUE_CAPACITY);
+    }
+    
+    FullTableScanner(AccumuloClient client, String tableName, Set<Authorizations> auths, int threads, int queueCapacity) throws TableNotFoundException {
+        this.accumuloClient = client;
+        this.tableName = tableName;
+        this.auths = auths;
+        this.threads = threads;
+        this.queueCapacity = queueCapacity;
+        this.scanner = ScannerHelper.createScanner(client, tableName, auths);
+    }
+    
+    private static ExecutorService createSharedExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(SHARED_THREADS, SHARED_THREADS, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                        new ThreadFactoryBuilder().setNameFormat("full-table-scan-%d").setDaemon(true).build());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+    
+    public void fetchColumnFamily(Text colf) {
+        columnFamilies.add(colf);
+        scanner.fetchColumnFamily(colf);
+    }
+    
+    public void addScanIterator(IteratorSetting cfg) {
+        iterators.add(cfg);
+        scanner.addScanIterator(cfg);
+    }
+    
+    /**
+     * Start the scan. This may only be called once per instance.
+     *
+     * @return an iterator over every entry in the table, in key order
+     */
+    @Override
+    public Iterator<Entry<Key,Value>> iterator() {
+        if (started) {
+            throw new IllegalStateException("A FullTableScanner may only be iterated once");
+        }
+        started = true;
+        
+        List<Range> partitions = threads > 1 ? getPartitions() : Collections.singletonList(new Range());
+        if (partitions.size() == 1) {
+            scanner.setRange(partitions.get(0));
+            return scanner.iterator();
+        }
+        
+        if (log.isDebugEnabled()) {
+            log.debug("Scanning {} partitions of {} with {} threads", partitions.size(), tableName, threads);
+        }
+        
+        Iterator<Range> remaining = partitions.iterator();
+        for (int i = 0; i < threads && remaining.hasNext(); i++) {
+            startPartitionScan(remaining.next());
+        }
+        
+        return new AbstractIterator<Entry<Key,Value>>() {
+            @Override
+            protected Entry<Key,Value> computeNext() {
+                while (!inFlight.isEmpty()) {
+                    Entry<Key,Value> entry = inFlight.peekFirst().take();
+                    if (entry != END_OF_PARTITION) {
+                        return entry;
+                    }
+                    
+                    // keep the window full as each partition is consumed
+                    inFlight.removeFirst();
+                    if (remaining.hasNext()) {
+                        startPartitionScan(remaining.next());
+                    }
+                }
+                return endOfData();
+            }
+        };
+    }
+    
+    private void startPartitionScan(Range partition) {
+        PartitionScan partitionScan = new PartitionScan(partition);
+        partitionScan.future = sharedExecutor.submit(partitionScan);
+        inFlight.addLast(partitionScan);
+    }
+    
+    /**
+     * Get the ranges to scan, one per tablet of the table. If the splits cannot be listed, the whole table is returned as a single range.
+     *
+     * @return the ranges to scan
+     */
+    private List<Range> getPartitions() {
+        try {
+            return getPartitions(accumuloClient.tableOperations().listSplits(tableName));
+        } catch (TableNotFoundException e) {
+            throw new RuntimeException(e);
+        } catch (AccumuloException | AccumuloSecurityException e) {
+            log.warn("Unable to list the splits for {}, falling back to a serial scan", tableName, e);
+            return Collections.singletonList(new Range());
+        }
+    }
+    
+    /**
+     * Partition the table range at the split points. Each partition covers the rows of a single tablet, i.e. everything after the previous split up to and
+     * including the next split.
+     *
+     * @param splits
+     *            the sorted split points of the table
+     * @return the ranges, in order, that together cover the whole table
+     */
+    static List<Range> getPartitions(Collection<Text> splits) {
+        List<Range> partitions = new ArrayList<>(splits.size() + 1);
+        Text previous = null;
+        for (Text split : splits) {
+            partitions.add(new Range(previous, false, split, true));
+            previous = split;
+        }
+        partitions.add(new Range(previous, false, null, true));
+        return partitions;
+    }
+    
+    private Scanner createScanner(Range range) throws TableNotFoundException {
+        Scanner scanner = ScannerHelper.createScanner(accumuloClient, tableName, auths);
+        scanner.setRange(range);
+        for (Text colf : columnFamilies) {
+            scanner.fetchColumnFamily(colf);
+        }
+        for (IteratorSetting cfg : iterators) {
+            scanner.addScanIterator(cfg);
+        }
+        return scanner;
+    }
+    
+    /**
+     * A scan of a single partition which streams its entries through a bounded queue, ending with {@link #END_OF_PARTITION} once the partition has been read
+     * or the scan has failed.
+     */
+    private class PartitionScan implements Runnable {
+        private final Range range;
+        private final BlockingQueue<Entry<Key,Value>> entries = new ArrayBlockingQueue<>(queueCapacity);
+        private volatile Throwable failure;
+        private Future<?> future;
+        
+        PartitionScan(Range range) {
+            this.range = range;
+        }
+        
+        @Override
+        public void run() {
+            try {
+                try (Scanner partitionScanner = createScanner(range)) {
+                    for (Entry<Key,Value> entry : partitionScanner) {
+                        entries.put(entry);
+                    }
+                } catch (TableNotFoundException | RuntimeException | Error e) {
+                    failure = e;
+                }
+                entries.put(END_OF_PARTITION);
+            } catch (InterruptedException e) {
+                // the scan was closed, so nothing is waiting for the remaining entries
+                Thread.currentThread().interrupt();
+            }
+        }
+        
+        /**
+         * Take the next entry of the partition, waiting for it to be scanned
+         *
+         * @return the next entry, or {@link #END_OF_PARTITION} once every entry has been returned
+         */
+        Entry<Key,Value> take() {
+            Entry<Key,Value> entry;
+            try {
+                entry = entries.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while scanning " + tableName, e);
+            }
+            if (entry == END_OF_PARTITION && failure != null) {
+                throw new RuntimeException("Failed to scan a partition of " + tableName, failure);
+            }
+            return entry;
+        }
+    }
+    
+    @Override
+    public void close() {
+        for (PartitionScan partitionScan : inFlight) {
+            partitionScan.future.cancel(true);
+        }
+        inFlight.clear();
+        scanner.close();
+    }
+}
@@ -24,9 +24,19 @@ public class MetadataCacheManager {
     }
     
     /**
-     * Evicts all entries from all caches in the metadata helper {@link CacheManager}.
+     * Evicts all entries from all caches in the metadata helper {@link CacheManager}, along with the snapshots retained for incremental refresh, the
+     * shared metadata and the snapshots loaded in the background held by the {@link MetadataSnapshotHelper}, the {@link FrequencyIndex}es held by the
+     * {@link FrequencyIndexHelper}, the {@link FieldLifespans} held by the {@link FieldLifespanHelper}, and the shared {@link NegativeResultCache}.
      */
     public void evictCaches() {
+        MetadataSnapshotHelper.clearPreviousSnapshots();
+        MetadataSnapshotHelper.clearSharedMetadata();
+        MetadataSnapshotHelper.clearBackgroundSnapshots();
+        FrequencyIndexHelper.clearFrequencyIndexes();
+        FieldLifespanHelper.clearFieldLifespans();
+        FieldIndexHoleHelper.clearFieldIndexHoles();
+        MetadataHelper.clearSharedNegativeResults();
+        MetadataCachePopulator.closePopulators();
         cacheManager.getCacheNames().forEach(cacheName -> {
             Cache cache = cacheManager.getCache(cacheName);
             if (cache != null) {
@@ -0,0 +1,283 @@
+package datawave.query.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.accumulo.core.client.AccumuloClient;
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.BatchWriterConfig;
+import org.apache.accumulo.core.client.MutationsRejectedException;
+import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.apache.hadoop.io.Text;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import datawave.webservice.common.connection.WrappedAccumuloClient;
+
+/**
+ * Populates the cache of a {@link WrappedAccumuloClient} with entries read from the real client, off of the query thread. Entries are queued and written in
+ * batches by a small pool of threads shared by every populator, with a {@link BatchWriter} per table that is closed once the queue has been drained.
+ * <p>
+ * The queue is bounded: an entry that is already queued is not queued again, and an entry offered while the queue is full is dropped rather than blocking the
+ * caller, as it will simply be read from the real client again on the next cache miss. The counts of queued, deduplicated, dropped, written and failed entries
+ * are available for monitoring.
+ */
+public class MetadataCachePopulator {
+    private static final Logger log = LoggerFactory.getLogger(MetadataCachePopulator.class);
+    
+    public static final int DEFAULT_MAX_QUEUED_ENTRIES = 10000;
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    
+    private static final ExecutorService populatorExecutor = Executors.newFixedThreadPool(2,
+                    new ThreadFactoryBuilder().setNameFormat("metadata-cache-populator-%d").setDaemon(true).build());
+    
+    // the populator for each wrapped client, released along with the client once its remaining entries are written
+    private static final Cache<WrappedAccumuloClient,MetadataCachePopulator> populators = Caffeine.newBuilder().weakKeys().executor(populatorExecutor)
+                    .<WrappedAccumuloClient,MetadataCachePopulator> removalListener((client, populator, cause) -> populator.flush()).build();
+    
+    private final AccumuloClient cacheClient;
+    private final int batchSize;
+    private final Executor executor;
+    private final BlockingQueue<PendingEntry> queue;
+    private final Set<PendingEntry> pending = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+    private final Map<String,BatchWriter> writers = new HashMap<>();
+    
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong deduplicated = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    
+    /**
+     * Create a populator
+     *
+     * @param cacheClient
+     *            the client of the cache to write to
+     * @param maxQueuedEntries
+     *            the most entries waiting to be written, beyond which entries are dropped
+     * @param batchSize
+     *            the most entries written before the writer is flushed
+     * @param executor
+     *            the executor that writes the queued entries
+     */
+    public MetadataCachePopulator(AccumuloClient cacheClient, int maxQueuedEntries, int batchSize, Executor executor) {
+        this.cacheClient = cacheClient;
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<>(maxQueuedEntries);
+        this.executor = executor;
+    }
+    
+    /**
+     * Get the populator shared by every helper for the cache of a wrapped client, creating it on first use
+     *
+     * @param wrappedClient
+     *            the wrapped client
+     * @return the populator
+     */
+    public static MetadataCachePopulator forClient(WrappedAccumuloClient wrappedClient) {
+        return populators.get(wrappedClient, client -> new MetadataCachePopulator(client.getMock(), DEFAULT_MAX_QUEUED_ENTRIES, DEFAULT_BATCH_SIZE,
+                        populatorExecutor));
+    }
+    
+    /**
+     * Release the populators of every wrapped client, writing their queued entries first
+     */
+    public static void closePopulators() {
+        populators.invalidateAll();
+    }
+    
+    /**
+     * Queue an entry to be written to the cache. This never blocks: an entry that is already queued is ignored, and an entry is dropped if the queue is full.
+     *
+     * @param tableName
+     *            the table to write the entry to
+     * @param entry
+     *            the entry read from the real client
+     * @return true if the entry was queued
+     */
+    public boolean add(String tableName, Map.Entry<Key,Value> entry) {
+        PendingEntry pendingEntry = new PendingEntry(tableName, new Key(entry.getKey()), new Value(entry.getValue()));
+        if (!pending.add(pendingEntry)) {
+            deduplicated.incrementAndGet();
+            return false;
+        }
+        if (!queue.offer(pendingEntry)) {
+            pending.remove(pendingEntry);
+            dropped.incrementAndGet();
+            log.trace("Dropping cache entry for a full queue: {}", entry.getKey());
+            return false;
+        }
+        
+        queued.incrementAndGet();
+        scheduleDrain();
+        return true;
+    }
+    
+    /**
+     * Write every queued entry to the cache on the calling thread, and close the writers
+     */
+    public void flush() {
+        drain();
+    }
+    
+    public long getQueuedCount() {
+        return queued.get();
+    }
+    
+    public long getDeduplicatedCount() {
+        return deduplicated.get();
+    }
+    
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+    
+    public long getWrittenCount() {
+        return written.get();
+    }
+    
+    public long getFailedCount() {
+        return failed.get();
+    }
+    
+    /**
+     * Get the number of entries waiting to be written
+     *
+     * @return the number of entries
+     */
+    public int getBacklog() {
+        return queue.size();
+    }
+    
+    private void scheduleDrain() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(() -> {
+                    // clear the flag first so that anything queued from here on schedules another drain
+                    drainScheduled.set(false);
+                    drain();
+                });
+            } catch (RejectedExecutionException e) {
+                drainScheduled.set(false);
+                log.warn("Unable to schedule the cache populator", e);
+            }
+        }
+    }
+    
+    /**
+     * Write the queued entries in batches, combining the entries for the same table and row into one mutation, and then close the writers, which are created
+     * again by the next drain
+     */
+    private synchronized void drain() {
+        List<PendingEntry> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            Map<String,Map<Text,Mutation>> mutationsByTable = new LinkedHashMap<>();
+            Map<String,Integer> countsByTable = new HashMap<>();
+            for (PendingEntry entry : batch) {
+                pending.remove(entry);
+                Key key = entry.key;
+                mutationsByTable.computeIfAbsent(entry.tableName, k -> new LinkedHashMap<>()).computeIfAbsent(key.getRow(), Mutation::new)
+                                .put(key.getColumnFamily(), key.getColumnQualifier(), new ColumnVisibility(key.getColumnVisibility()), key.getTimestamp(),
+                                                entry.value);
+                countsByTable.merge(entry.tableName, 1, Integer::sum);
+            }
+            batch.clear();
+            
+            for (Map.Entry<String,Map<Text,Mutation>> entry : mutationsByTable.entrySet()) {
+                String tableName = entry.getKey();
+                int count = countsByTable.get(tableName);
+                try {
+                    BatchWriter writer = getWriter(tableName);
+                    writer.addMutations(entry.getValue().values());
+                    writer.flush();
+                    written.addAndGet(count);
+                } catch (MutationsRejectedException | TableNotFoundException e) {
+                    log.trace("Unable to add {} entries to cache table: {}", count, tableName, e);
+                    failed.addAndGet(count);
+                    closeWriter(tableName);
+                }
+            }
+        }
+        
+        for (String tableName : new ArrayList<>(writers.keySet())) {
+            closeWriter(tableName);
+        }
+    }
+    
+    private BatchWriter getWriter(String tableName) throws TableNotFoundException {
+        BatchWriter writer = writers.get(tableName);
+        if (writer == null) {
+            BatchWriterConfig bwConfig = new BatchWriterConfig().setMaxMemory(10L * (1024L * 1024L)).setMaxLatency(100L, TimeUnit.MILLISECONDS)
+                            .setMaxWriteThreads(1);
+            writer = cacheClient.createBatchWriter(tableName, bwConfig);
+            writers.put(tableName, writer);
+        }
+        return writer;
+    }
+    
+    private void closeWriter(String tableName) {
+        BatchWriter writer = writers.remove(tableName);
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (MutationsRejectedException e) {
+                log.trace("Error closing batch writer for cached table: {}", tableName, e);
+            }
+        }
+    }
+    
+    /**
+     * An entry waiting to be written, equal to another for the same table, key and value
+     */
+    private static class PendingEntry {
+        private final String tableName;
+        private final Key key;
+        private final Value value;
+        
+        PendingEntry(String tableName, Key key, Value value) {
+            this.tableName = tableName;
+            this.key = key;
+            this.value = value;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            PendingEntry that = (PendingEntry) o;
+            return tableName.equals(that.tableName) && key.equals(that.key) && value.equals(that.value);
+        }
+        
+        @Override
+        public int hashCode() {
+            return 31 * (31 * tableName.hashCode() + key.hashCode()) + value.hashCode();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package datawave.query.util;
+
+/**
+ * Parses the column qualifiers of the metadata table, which start with the datatype followed by a null byte and any column family specific suffix
+ */
+public class MetadataColumnQualifiers {
+    
+    private MetadataColumnQualifiers() {}
+    
+    /**
+     * Get the datatype from a column qualifier, which is everything up to the first null byte
+     *
+     * @param colq
+     *            the column qualifier
+     * @return the datatype
+     */
+    public static String getDatatype(String colq) {
+        int index = colq.indexOf('\0');
+        return index >= 0 ? colq.substring(0, index) : colq;
+    }
+    
+    /**
+     * Get the composite field name from a {@code ci} column qualifier, which follows the null byte up to the first comma
+     *
+     * @param colq
+     *            the column qualifier
+     * @return the composite field name
+     */
+    public static String getCompositeFieldName(String colq) {
+        int index = colq.indexOf('\0');
+        if (index >= 0) {
+            String compositeFieldName = colq.substring(index + 1);
+            index = compositeFieldName.indexOf(',');
+            return index != -1 ? compositeFieldName.substring(0, index) : compositeFieldName;
+        }
+        return colq;
+    }
+}
@@ -4,7 +4,7 @@ import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.nio.charset.CharacterCodingException;
-import java.time.format.DateTimeParseException;
+import java.time.DateTimeException;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
@@ -12,15 +12,20 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedSet;
-import java.util.TimeZone;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
@@ -29,22 +34,17 @@ import org.apache.accumulo.core.client.AccumuloClient;
 import org.apache.accumulo.core.client.AccumuloException;
 import org.apache.accumulo.core.client.AccumuloSecurityException;
 import org.apache.accumulo.core.client.BatchScanner;
-import org.apache.accumulo.core.client.BatchWriter;
-import org.apache.accumulo.core.client.BatchWriterConfig;
 import org.apache.accumulo.core.client.IteratorSetting;
-import org.apache.accumulo.core.client.MutationsRejectedException;
 import org.apache.accumulo.core.client.Scanner;
 import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
-import org.apache.accumulo.core.data.Mutation;
-import org.apache.accumulo.core.data.PartialKey;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.iterators.ValueFormatException;
 import org.apache.accumulo.core.iterators.user.RegExFilter;
 import org.apache.accumulo.core.iterators.user.SummingCombiner;
 import org.apache.accumulo.core.security.Authorizations;
-import org.apache.accumulo.core.security.ColumnVisibility;
 import org.apache.commons.lang3.time.DateUtils;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.WritableUtils;
@@ -65,12 +65,15 @@ import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
 import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.protobuf.InvalidProtocolBufferException;
 
 import datawave.data.ColumnFamilyConstants;
 import datawave.data.MetadataCardinalityCounts;
 import datawave.data.type.Type;
 import datawave.iterators.EdgeMetadataCombiner;
+import datawave.iterators.FrequencyRollupIterator;
+import datawave.iterators.FrequencySummingIterator;
 import datawave.iterators.MetadataFColumnSeekingFilter;
 import datawave.iterators.filter.EdgeMetadataCQStrippingIterator;
 import datawave.marking.MarkingFunctions;
@@ -108,20 +111,28 @@ import datawave.webservice.common.connection.WrappedAccumuloClient;
 public class MetadataHelper {
     private static final Logger log = LoggerFactory.getLogger(MetadataHelper.class);
     
+    // the most threads used to scan field counts, regardless of the number of tablet servers
+    protected static final int MAX_FIELD_COUNT_THREADS = 32;
+    
+    // the executor for asynchronous field counts, shared by every helper and sized from the tablet server count on first use
+    private static ExecutorService fieldCountExecutor = null;
+    private static int fieldCountThreads = 0;
+    
+    // the lookups that found nothing in either the cache or the real table, shared by every helper unless one is set
+    private static final NegativeResultCache sharedNegativeResultCache = new NegativeResultCache();
+    
     public static final String NULL_BYTE = "\0";
     
     protected static final Text PV = new Text("pv");
     
+    // identifies earliest occurrence lookups in the negative result cache
+    private static final String EARLIEST_OCCURRENCE = "earliestOccurrence";
+    
     protected static final Function<MetadataEntry,String> toFieldName = new MetadataEntryToFieldName();
     protected static final Function<MetadataEntry,String> toDatatype = new MetadataEntryToDatatype();
     
     protected String getDatatype(Key k) {
-        String datatype = k.getColumnQualifier().toString();
-        int index = datatype.indexOf('\0');
-        if (index >= 0) {
-            datatype = datatype.substring(0, index);
-        }
-        return datatype;
+        return MetadataColumnQualifiers.getDatatype(k.getColumnQualifier().toString());
     }
     
     protected final Metadata metadata = new Metadata();
@@ -138,11 +149,27 @@ public class MetadataHelper {
     protected Set<Authorizations> fullUserAuths;
     
     protected final AllFieldMetadataHelper allFieldMetadataHelper;
+    // whether the field index flags loaded by the allFieldMetadataHelper are held by the metadata cache, otherwise each would be a full table scan
+    protected boolean fieldIndexFlagsCached = false;
     protected final Collection<Authorizations> allMetadataAuths;
     
     // a set of fields that are dynamically created at evaluation time, and are not registered in the metadata table
     protected Set<String> evaluationOnlyFields = Collections.emptySet();
     
+    // when set, date range field counts are served from an in-memory index of the f column
+    protected FrequencyIndexHelper frequencyIndexHelper = null;
+    
+    // when set, date range field counts read the monthly and yearly rollups of the f column for the whole months and years of the range
+    protected boolean frequencyRollupsEnabled = false;
+    
+    // the rollups are not read for dates within this long of now, as their daily counts may not have been compacted yet
+    protected long frequencyRollupSettleMillis = TimeUnit.DAYS.toMillis(1);
+    
+    // the first and last dates of each field, created with the real client on first use if not set
+    protected FieldLifespanHelper fieldLifespanHelper = null;
+    
+    protected NegativeResultCache negativeResultCache = sharedNegativeResultCache;
+    
     public MetadataHelper(AllFieldMetadataHelper allFieldMetadataHelper, Collection<Authorizations> allMetadataAuths, AccumuloClient client,
                     String metadataTableName, Set<Authorizations> auths, Set<Authorizations> fullUserAuths) {
         Preconditions.checkNotNull(allFieldMetadataHelper, "An AllFieldMetadataHelper is required by MetadataHelper");
@@ -230,33 +257,6 @@ public class MetadataHelper {
         return minimizedAllMetadataAuths;
     }
     
-    /**
-     * Calculates and returns the power set of metadata authorizations
-     *
-     * @param allMetadataAuthsCollection
-     *            all metadata auths
-     * @return a set containing every possible combination of metadata auths
-     */
-    private Set<Set<String>> getAllMetadataAuthsPowerSet(Collection<Authorizations> allMetadataAuthsCollection) {
-        
-        // first, minimize the usersAuths:
-        Collection<Authorizations> minimizedCollection = AuthorizationsMinimizer.minimize(allMetadataAuthsCollection);
-        // now, the first entry in the minimized auths should have everything common to every Authorizations in the set
-        // make sure that the first entry contains all the Authorizations in the allMetadataAuths
-        Authorizations minimized = minimizedCollection.iterator().next(); // get the first one, which has all auths common to all in the original collection
-        Set<String> minimizedUserAuths = StreamSupport.stream(minimized.spliterator(), false).map(String::new).collect(Collectors.toSet());
-        if (log.isDebugEnabled()) {
-            log.debug("minimizedUserAuths: {} with size {}", minimizedUserAuths, minimizedUserAuths.size());
-        }
-        Set<Set<String>> powerset = Sets.powerSet(minimizedUserAuths);
-        Set<Set<String>> set = Sets.newHashSet();
-        for (Set<String> sub : powerset) {
-            Set<String> serializableSet = Sets.newHashSet(sub);
-            set.add(serializableSet);
-        }
-        return set;
-    }
-    
     /**
      * Get the mapping of datatypes to TypeMetadata
      *
@@ -265,26 +265,7 @@ public class MetadataHelper {
      *             if no table exists
      */
     public Map<Set<String>,TypeMetadata> getTypeMetadataMap() throws TableNotFoundException {
-        Collection<Set<String>> powerset = getAllMetadataAuthsPowerSet(this.allMetadataAuths);
-        if (log.isTraceEnabled()) {
-            log.trace("powerset: {}", powerset);
-        }
-        Map<Set<String>,TypeMetadata> map = Maps.newHashMap();
-        
-        for (Set<String> a : powerset) {
-            if (log.isTraceEnabled()) {
-                log.trace("get TypeMetadata with auths: {}", a);
-            }
-            
-            Authorizations at = new Authorizations(a.toArray(new String[0]));
-            
-            if (log.isTraceEnabled()) {
-                log.trace("made an Authorizations: {}", at);
-            }
-            TypeMetadata tm = this.allFieldMetadataHelper.getTypeMetadataHelper().getTypeMetadataForAuths(Collections.singleton(at));
-            map.put(a, tm);
-        }
-        return map;
+        return this.allFieldMetadataHelper.getTypeMetadataHelper().getTypeMetadataMap(this.allMetadataAuths);
     }
     
     public String getUsersMetadataAuthorizationSubset() {
@@ -627,13 +608,7 @@ public class MetadataHelper {
         Preconditions.checkNotNull(fieldName);
         Preconditions.checkNotNull(ingestTypeFilter);
         
-        Entry<String,Entry<String,Set<String>>> entry = Maps.immutableEntry(metadataTableName, Maps.immutableEntry(fieldName, ingestTypeFilter));
-        
-        try {
-            return this.allFieldMetadataHelper.isIndexed(ColumnFamilyConstants.COLF_RI, entry);
-        } catch (InstantiationException | ExecutionException e) {
-            throw new RuntimeException(e);
-        }
+        return isFieldIndexFlagSet(ColumnFamilyConstants.COLF_RI, fieldName, ingestTypeFilter);
     }
     
     /**
@@ -651,14 +626,7 @@ public class MetadataHelper {
         Preconditions.checkNotNull(fieldName);
         Preconditions.checkNotNull(ingestTypeFilter);
         
-        Entry<String,Entry<String,Set<String>>> entry = Maps.immutableEntry(metadataTableName, Maps.immutableEntry(fieldName, ingestTypeFilter));
-        
-        try {
-            return this.allFieldMetadataHelper.isIndexed(ColumnFamilyConstants.COLF_I, entry);
-        } catch (InstantiationException | ExecutionException e) {
-            throw new RuntimeException(e);
-        }
-        
+        return isFieldIndexFlagSet(ColumnFamilyConstants.COLF_I, fieldName, ingestTypeFilter);
     }
     
     /**
@@ -676,15 +644,120 @@ public class MetadataHelper {
         Preconditions.checkNotNull(fieldName);
         Preconditions.checkNotNull(ingestTypeFilter);
         
+        return isFieldIndexFlagSet(ColumnFamilyConstants.COLF_TF, fieldName, ingestTypeFilter);
+    }
+    
+    /**
+     * Determines for each of a collection of fields whether it has been indexed by looking for the i column in the metadata table. This is equivalent
+     * to calling {@link #isIndexed(String, Set)} for each field, but resolves the ingest type filter only once.
+     *
+     * @param fieldNames
+     *            the fields
+     * @param ingestTypeFilter
+     *            the ingest type filter
+     * @return a map of each field, as provided, to whether it is indexed for the provided ingest types
+     * @throws TableNotFoundException
+     *             if the table does not exist
+     */
+    public Map<String,Boolean> areIndexed(Collection<String> fieldNames, Set<String> ingestTypeFilter) throws TableNotFoundException {
+        Preconditions.checkNotNull(fieldNames);
+        Preconditions.checkNotNull(ingestTypeFilter);
+        
+        return getFieldIndexFlags(ColumnFamilyConstants.COLF_I, fieldNames, ingestTypeFilter);
+    }
+    
+    /**
+     * Determines for each of a collection of fields whether it has been reverse indexed by looking for the ri column in the metadata table. This is equivalent
+     * to calling {@link #isReverseIndexed(String, Set)} for each field, but resolves the ingest type filter only once.
+     *
+     * @param fieldNames
+     *            the fields
+     * @param ingestTypeFilter
+     *            the ingest type filter
+     * @return a map of each field, as provided, to whether it is reverse indexed for the provided ingest types
+     * @throws TableNotFoundException
+     *             if the table does not exist
+     */
+    public Map<String,Boolean> areReverseIndexed(Collection<String> fieldNames, Set<String> ingestTypeFilter) throws TableNotFoundException {
+        Preconditions.checkNotNull(fieldNames);
+        Preconditions.checkNotNull(ingestTypeFilter);
+        
+        return getFieldIndexFlags(ColumnFamilyConstants.COLF_RI, fieldNames, ingestTypeFilter);
+    }
+    
+    /**
+     * Determines for each of a collection of fields whether it has been tokenized by looking for the tf column in the metadata table. This is equivalent
+     * to calling {@link #isTokenized(String, Set)} for each field, but resolves the ingest type filter only once.
+     *
+     * @param fieldNames
+     *            the fields
+     * @param ingestTypeFilter
+     *            the ingest type filter
+     * @return a map of each field, as provided, to whether it is tokenized for the provided ingest types
+     * @throws TableNotFoundException
+     *             if the table does not exist
+     */
+    public Map<String,Boolean> areTokenized(Collection<String> fieldNames, Set<String> ingestTypeFilter) throws TableNotFoundException {
+        Preconditions.checkNotNull(fieldNames);
+        Preconditions.checkNotNull(ingestTypeFilter);
+        
+        return getFieldIndexFlags(ColumnFamilyConstants.COLF_TF, fieldNames, ingestTypeFilter);
+    }
+    
+    /**
+     * Determines whether a field has an entry in a column family for the provided ingest types. The flags for the whole table are used when they are held by
+     * the metadata cache, otherwise only the row for the field is read.
+     *
+     * @param colf
+     *            the column family
+     * @param fieldName
+     *            the field
+     * @param ingestTypeFilter
+     *            the ingest type filter
+     * @return true if the field has an entry for the provided ingest types
+     * @throws TableNotFoundException
+     *             if the table does not exist
+     */
+    private boolean isFieldIndexFlagSet(Text colf, String fieldName, Set<String> ingestTypeFilter) throws TableNotFoundException {
+        if (fieldIndexFlagsCached) {
+            // FieldNames are upper case by convention
+            return this.allFieldMetadataHelper.getFieldIndexFlags().isSet(colf, fieldName.toUpperCase(), ingestTypeFilter);
+        }
+        
         Entry<String,Entry<String,Set<String>>> entry = Maps.immutableEntry(metadataTableName, Maps.immutableEntry(fieldName, ingestTypeFilter));
         
         try {
-            return this.allFieldMetadataHelper.isIndexed(ColumnFamilyConstants.COLF_TF, entry);
+            return this.allFieldMetadataHelper.isIndexed(colf, entry);
         } catch (InstantiationException | ExecutionException e) {
             throw new RuntimeException(e);
         }
     }
     
+    private Map<String,Boolean> getFieldIndexFlags(Text colf, Collection<String> fieldNames, Set<String> ingestTypeFilter) throws TableNotFoundException {
+        if (!fieldIndexFlagsCached) {
+            Map<String,Boolean> result = new LinkedHashMap<>();
+            for (String fieldName : fieldNames) {
+                Preconditions.checkNotNull(fieldName);
+                result.put(fieldName, isFieldIndexFlagSet(colf, fieldName, ingestTypeFilter));
+            }
+            return result;
+        }
+        
+        // FieldNames are upper case by convention
+        Map<String,String> upperCaseFieldNames = new LinkedHashMap<>();
+        for (String fieldName : fieldNames) {
+            Preconditions.checkNotNull(fieldName);
+            upperCaseFieldNames.put(fieldName, fieldName.toUpperCase());
+        }
+        
+        Map<String,Boolean> flags = this.allFieldMetadataHelper.getFieldIndexFlags().isSet(colf, new HashSet<>(upperCaseFieldNames.values()), ingestTypeFilter);
+        Map<String,Boolean> result = new LinkedHashMap<>();
+        for (Entry<String,String> entry : upperCaseFieldNames.entrySet()) {
+            result.put(entry.getKey(), flags.get(entry.getValue()));
+        }
+        return result;
+    }
+    
     /**
      * Returns a Set of all TextNormalizers in use by any type in Accumulo
      *
@@ -828,6 +901,11 @@ public class MetadataHelper {
             log.trace("getAllNormalized from table: {}", metadataTableName);
         }
         
+        MetadataSnapshotHelper metadataSnapshotHelper = allFieldMetadataHelper.getMetadataSnapshotHelper();
+        if (metadataSnapshotHelper != null) {
+            return metadataSnapshotHelper.getMetadataSnapshot().getNormalizedFields();
+        }
+        
         try (Scanner bs = ScannerHelper.createScanner(accumuloClient, metadataTableName, auths)) {
             
             bs.setRange(new Range());
@@ -1260,57 +1338,42 @@ public class MetadataHelper {
      */
     public long getCardinalityForField(String fieldName, String datatype, Date begin, Date end) throws TableNotFoundException {
         log.trace("getCardinalityForField from table: {}", metadataTableName);
-        Text row = new Text(fieldName.toUpperCase());
+        String fieldNameUpper = fieldName.toUpperCase();
         
-        // Get all the rows in DatawaveMetadata for the field, only in the 'f' colfam
-        long count;
-        try (Scanner bs = ScannerHelper.createScanner(accumuloClient, metadataTableName, auths)) {
-            
-            Key startKey = new Key(row);
-            bs.setRange(new Range(startKey, startKey.followingKey(PartialKey.ROW)));
-            bs.fetchColumnFamily(ColumnFamilyConstants.COLF_F);
-            
-            count = 0;
-            
-            for (Entry<Key,Value> entry : bs) {
-                Text colq = entry.getKey().getColumnQualifier();
-                
-                int index = colq.find(NULL_BYTE);
-                if (index == -1) {
-                    continue;
-                }
+        // a day is counted if its start falls within begin and end, inclusive
+        String startDate = DateHelper.format(begin);
+        if (DateHelper.parse(startDate).before(begin)) {
+            startDate = DateHelper.format(new Date(begin.getTime() + TimeUnit.DAYS.toMillis(1)));
+        }
+        String endDate = DateHelper.format(end);
+        if (startDate.compareTo(endDate) > 0) {
+            return 0L;
+        }
+        
+        if (frequencyIndexHelper != null) {
+            Long count = frequencyIndexHelper.getFrequencyIndex().getCount(fieldNameUpper,
+                            datatype == null ? Collections.emptySet() : Collections.singleton(datatype), FrequencyIndex.toDayOrdinal(startDate),
+                            FrequencyIndex.toDayOrdinal(endDate));
+            return count == null ? 0L : count;
+        }
+        
+        // Sum the rows in DatawaveMetadata for the field, only in the 'f' colfam or its rollups, on the tablet server. With a datatype the range
+        // is bounded by the datatype and dates, otherwise the seeking filter skips over the dates outside of the range.
+        SortedSet<String> datatypes = datatype == null ? Collections.emptySortedSet() : new TreeSet<>(Collections.singleton(datatype));
+        long count = 0;
+        for (FrequencyRollupPlan.Segment segment : getFieldCountSegments(startDate, endDate)) {
+            try (Scanner bs = ScannerHelper.createScanner(accumuloClient, metadataTableName, auths)) {
+                bs.setRange(createFieldCountRanges(Collections.singleton(fieldNameUpper), datatypes, segment).iterator().next());
+                bs.fetchColumnFamily(segment.getColumnFamily());
+                bs.addScanIterator(createFieldCountSeekingFilter(datatypes, segment.getBeginDate(), segment.getEndDate()));
+                bs.addScanIterator(createFieldCountSummingIterator());
                 
-                // If we were given a non-null datatype
-                // Ensure that we process records only on that type
-                if (null != datatype) {
+                for (Entry<Key,Value> entry : bs) {
                     try {
-                        String type = Text.decode(colq.getBytes(), 0, index);
-                        if (!type.equals(datatype)) {
-                            continue;
-                        }
-                    } catch (CharacterCodingException e) {
-                        log.warn("Could not deserialize colqual: {}", entry.getKey());
-                        continue;
-                    }
-                }
-                
-                // Parse the date to ensure that we want this record
-                String dateStr = "null";
-                Date date;
-                try {
-                    dateStr = Text.decode(colq.getBytes(), index + 1, colq.getLength() - (index + 1));
-                    date = DateHelper.parse(dateStr);
-                    // Add the provided count if we fall within begin and end,
-                    // inclusive
-                    if (date.compareTo(begin) >= 0 && date.compareTo(end) <= 0) {
                         count += SummingCombiner.VAR_LEN_ENCODER.decode(entry.getValue().get());
+                    } catch (ValueFormatException e) {
+                        log.warn("Could not convert the Value to a long: {}", entry.getValue());
                     }
-                } catch (ValueFormatException e) {
-                    log.warn("Could not convert the Value to a long: {}", entry.getValue());
-                } catch (CharacterCodingException e) {
-                    log.warn("Could not deserialize colqual: {}", entry.getKey());
-                } catch (DateTimeParseException e) {
-                    log.warn("Could not convert date string: {}", dateStr);
                 }
             }
         }
@@ -1380,26 +1443,26 @@ public class MetadataHelper {
             truncatedEnd = new Date(truncatedEnd.getTime() + 86400000);
         }
         
-        Calendar cal = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
-        cal.setTime(truncatedBegin);
-        
-        // If the start and end date are the same, return the count for just the start date.
+        // If the start and end date are the same, count just the start date. Otherwise, count the days up to but excluding the end date.
         // TODO - Verify if this is the correct behavior, i.e. treating the end date as inclusive vs. not. It should probably match query date range behavior.
-        if (truncatedBegin.getTime() == truncatedEnd.getTime()) {
-            String desiredDate = DateHelper.format(cal.getTime());
-            return getCountsByFieldInDayWithTypes(fieldName, desiredDate, dataTypes);
-        } else {
-            // Otherwise, sum up the counts across the given date range.
-            long sum = 0L;
-            while (cal.getTime().before(truncatedEnd)) {
-                Date curDate = cal.getTime();
-                String desiredDate = DateHelper.format(curDate);
-                
-                sum += getCountsByFieldInDayWithTypes(fieldName, desiredDate, dataTypes);
-                cal.add(Calendar.DATE, 1);
-            }
-            return sum;
+        Date lastDay = truncatedBegin;
+        if (truncatedEnd.after(truncatedBegin)) {
+            long days = (truncatedEnd.getTime() - truncatedBegin.getTime() - 1) / TimeUnit.DAYS.toMillis(1);
+            lastDay = new Date(truncatedBegin.getTime() + TimeUnit.DAYS.toMillis(days));
+        }
+        
+        // the MetadataFColumnSeekingFilter treats an empty set of datatypes as all datatypes
+        Set<String> datatypes = dataTypes;
+        if (dataTypes instanceof UniversalSet) {
+            datatypes = Collections.emptySet();
+        } else if (dataTypes.isEmpty()) {
+            return 0L;
         }
+        
+        // a single scan of the field's f column, seeking by datatype and date
+        Map<String,Long> counts = getCountsForFieldsInDateRange(Collections.singleton(fieldName), datatypes, DateHelper.format(truncatedBegin),
+                        DateHelper.format(lastDay));
+        return counts.getOrDefault(fieldName, 0L);
     }
     
     /**
@@ -1468,10 +1531,14 @@ public class MetadataHelper {
         // try to get the counts by field using the original (cached) connector
         HashMap<String,Long> datatypeToCounts = getCountsByFieldInDayWithTypes(fieldName, date, accumuloClient, null);
         
-        // if we don't get a hit, try the real connector
-        if (datatypeToCounts.isEmpty() && accumuloClient instanceof WrappedAccumuloClient) {
+        // if we don't get a hit, try the real connector unless it recently found nothing as well
+        if (datatypeToCounts.isEmpty() && accumuloClient instanceof WrappedAccumuloClient
+                        && !negativeResultCache.isEmpty(metadataTableName, auths, ColumnFamilyConstants.COLF_F, fieldName, date)) {
             WrappedAccumuloClient wrappedClient = ((WrappedAccumuloClient) accumuloClient);
             datatypeToCounts = getCountsByFieldInDayWithTypes(fieldName, date, wrappedClient.getReal(), wrappedClient);
+            if (datatypeToCounts.isEmpty()) {
+                negativeResultCache.recordEmpty(metadataTableName, auths, ColumnFamilyConstants.COLF_F, fieldName, date);
+            }
         }
         
         return datatypeToCounts;
@@ -1502,8 +1569,6 @@ public class MetadataHelper {
                     throws TableNotFoundException, IOException {
         final HashMap<String,Long> datatypeToCounts = Maps.newHashMap();
         
-        BatchWriter writer = null;
-        
         // we have to use the real connector since the f column is not cached
         try (Scanner scanner = ScannerHelper.createScanner(client, metadataTableName, auths)) {
             scanner.fetchColumnFamily(ColumnFamilyConstants.COLF_F);
@@ -1519,7 +1584,7 @@ public class MetadataHelper {
                 // that we didn't get a hit in the cache. So, we will update the cache with the
                 // entries from the real table
                 if (wrappedClient != null && client == wrappedClient.getReal()) {
-                    writer = updateCache(entry, writer, wrappedClient);
+                    MetadataCachePopulator.forClient(wrappedClient).add(metadataTableName, entry);
                 }
                 
                 ByteArrayInputStream bais = new ByteArrayInputStream(entry.getValue().get());
@@ -1536,14 +1601,6 @@ public class MetadataHelper {
                 
                 datatypeToCounts.put(datatype, sum);
             }
-        } finally {
-            if (writer != null) {
-                try {
-                    writer.close();
-                } catch (MutationsRejectedException e) {
-                    log.warn("Error closing batch writer for cached table: " + metadataTableName, e);
-                }
-            }
         }
         
         return datatypeToCounts;
@@ -1601,12 +1658,14 @@ public class MetadataHelper {
      * @return a map of field counts
      */
     public Map<String,Long> getCountsForFieldsInDateRange(Set<String> fields, Set<String> datatypes, String beginDate, String endDate) {
+        if (frequencyIndexHelper != null) {
+            return getCountsForFieldsInDateRangeFromIndex(fields, datatypes, beginDate, endDate);
+        }
         
         SortedSet<String> sortedDatatypes = new TreeSet<>(datatypes);
         Map<String,Long> fieldCounts = new HashMap<>();
-        Set<Range> ranges = createFieldCountRanges(fields, sortedDatatypes, beginDate, endDate);
         
-        if (ranges.isEmpty()) {
+        if (fields.isEmpty()) {
             return fieldCounts;
         }
         
@@ -1615,37 +1674,335 @@ public class MetadataHelper {
             client = ((WrappedAccumuloClient) client).getReal();
         }
         
-        try (BatchScanner bs = ScannerHelper.createBatchScanner(client, getMetadataTableName(), getAuths(), fields.size())) {
-            
-            bs.setRanges(ranges);
+        int threads = Math.min(fields.size(), getFieldCountThreads(client));
+        for (FrequencyRollupPlan.Segment segment : getFieldCountSegments(beginDate, endDate)) {
+            try (BatchScanner bs = ScannerHelper.createBatchScanner(client, getMetadataTableName(), getAuths(), threads)) {
+                
+                bs.setRanges(createFieldCountRanges(fields, sortedDatatypes, segment));
+                bs.fetchColumnFamily(segment.getColumnFamily());
+                
+                bs.addScanIterator(createFieldCountSeekingFilter(sortedDatatypes, segment.getBeginDate(), segment.getEndDate()));
+                bs.addScanIterator(createFieldCountSummingIterator());
+                
+                for (Entry<Key,Value> entry : bs) {
+                    
+                    String field = entry.getKey().getRow().toString();
+                    Long count = readLongFromValue(entry.getValue());
+                    
+                    if (fieldCounts.containsKey(field)) {
+                        Long existingCount = fieldCounts.get(field);
+                        existingCount += count;
+                        fieldCounts.put(field, existingCount);
+                    } else {
+                        fieldCounts.put(field, count);
+                    }
+                }
+                
+            } catch (TableNotFoundException | IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return fieldCounts;
+    }
+    
+    /**
+     * Get counts for each field across the date range without blocking the caller. Optionally filter by datatypes if provided. The fields are counted on a
+     * shared executor, see {@link #streamCountsForFieldsInDateRange(Set, Set, String, String, BiConsumer)}.
+     *
+     * @param fields
+     *            the fields
+     * @param datatypes
+     *            the datatypes
+     * @param beginDate
+     *            the start date
+     * @param endDate
+     *            the end date
+     * @return a future of the map of field counts
+     */
+    public CompletableFuture<Map<String,Long>> getCountsForFieldsInDateRangeAsync(Set<String> fields, Set<String> datatypes, String beginDate,
+                    String endDate) {
+        Map<String,Long> fieldCounts = new ConcurrentHashMap<>();
+        return streamCountsForFieldsInDateRange(fields, datatypes, beginDate, endDate, fieldCounts::put).thenApply(v -> new HashMap<>(fieldCounts));
+    }
+    
+    /**
+     * Count each field across the date range, delivering the count for each field to a callback as soon as that field has been counted. Optionally filter by
+     * datatypes if provided. As with {@link #getCountsForFieldsInDateRange(Set, Set, String, String)}, a field without a count is not delivered.
+     * <p>
+     * Each field is scanned separately on an executor shared by every helper, bounded by the number of tablet servers, so a large set of fields does not
+     * create a thread per field. The callback is called from the executor threads and must be thread safe.
+     *
+     * @param fields
+     *            the fields
+     * @param datatypes
+     *            the datatypes
+     * @param beginDate
+     *            the start date
+     * @param endDate
+     *            the end date
+     * @param callback
+     *            called with each field and its count
+     * @return a future that completes once every field has been counted, or completes exceptionally if any field could not be counted
+     */
+    public CompletableFuture<Void> streamCountsForFieldsInDateRange(Set<String> fields, Set<String> datatypes, String beginDate, String endDate,
+                    BiConsumer<String,Long> callback) {
+        AccumuloClient client = accumuloClient;
+        if (client instanceof WrappedAccumuloClient) {
+            client = ((WrappedAccumuloClient) client).getReal();
+        }
+        ExecutorService executor = getFieldCountExecutor(client);
+        
+        if (frequencyIndexHelper != null) {
+            return CompletableFuture.runAsync(() -> getCountsForFieldsInDateRangeFromIndex(fields, datatypes, beginDate, endDate).forEach(callback), executor);
+        }
+        
+        SortedSet<String> sortedDatatypes = new TreeSet<>(datatypes);
+        AccumuloClient scanClient = client;
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[fields.size()];
+        int i = 0;
+        for (String field : fields) {
+            futures[i++] = CompletableFuture.runAsync(() -> {
+                Long count = scanCountForField(scanClient, field, sortedDatatypes, beginDate, endDate);
+                if (count != null) {
+                    callback.accept(field, count);
+                }
+            }, executor);
+        }
+        return CompletableFuture.allOf(futures);
+    }
+    
+    /**
+     * Get the count of each field and datatype on each day of the date range, from one seeking scan of the {@link ColumnFamilyConstants#COLF_F} column.
+     * Optionally filter by datatypes if provided.
+     * <p>
+     * The counts of a field and datatype are held in a dense array with one element per day, where the start date is at index 0, so the day by day shape of a
+     * field's volume is available without a lookup per day. The daily entries are read from their key and value bytes, and the field and datatype are only
+     * decoded when they change, as the entries of a field and datatype arrive together.
+     *
+     * @param fields
+     *            the fields
+     * @param datatypes
+     *            the datatypes
+     * @param beginDate
+     *            the start date
+     * @param endDate
+     *            the end date
+     * @return for each field, the daily counts of each datatype; a field or datatype without a count in the date range is not included
+     */
+    public Map<String,Map<String,long[]>> getDailyCounts(Set<String> fields, Set<String> datatypes, String beginDate, String endDate) {
+        Map<String,Map<String,long[]>> dailyCounts = new HashMap<>();
+        int startDay = FrequencyIndex.toDayOrdinal(beginDate);
+        int days = FrequencyIndex.toDayOrdinal(endDate) - startDay + 1;
+        if (fields.isEmpty() || days <= 0) {
+            return dailyCounts;
+        }
+        
+        AccumuloClient client = accumuloClient;
+        if (client instanceof WrappedAccumuloClient) {
+            client = ((WrappedAccumuloClient) client).getReal();
+        }
+        
+        SortedSet<String> sortedDatatypes = new TreeSet<>(datatypes);
+        int threads = Math.min(fields.size(), getFieldCountThreads(client));
+        try (BatchScanner bs = ScannerHelper.createBatchScanner(client, getMetadataTableName(), getAuths(), threads)) {
+            bs.setRanges(createFieldCountRanges(fields, sortedDatatypes, new FrequencyRollupPlan.Segment(ColumnFamilyConstants.COLF_F, beginDate, endDate)));
             bs.fetchColumnFamily(ColumnFamilyConstants.COLF_F);
+            bs.addScanIterator(createFieldCountSeekingFilter(sortedDatatypes, beginDate, endDate));
             
-            IteratorSetting setting = new IteratorSetting(50, "MetadataFrequencySeekingIterator", MetadataFColumnSeekingFilter.class);
-            setting.addOption(MetadataFColumnSeekingFilter.DATATYPES_OPT, Joiner.on(',').join(sortedDatatypes));
-            setting.addOption(MetadataFColumnSeekingFilter.START_DATE, beginDate);
-            setting.addOption(MetadataFColumnSeekingFilter.END_DATE, endDate);
-            bs.addScanIterator(setting);
-            
+            ByteSequence lastRow = null;
+            ByteSequence lastDatatype = null;
+            long[] counts = null;
             for (Entry<Key,Value> entry : bs) {
+                Key key = entry.getKey();
+                ByteSequence colq = key.getColumnQualifierData();
+                int separator = -1;
+                for (int i = 0; i < colq.length(); i++) {
+                    if (colq.byteAt(i) == 0) {
+                        separator = i;
+                        break;
+                    }
+                }
+                if (separator == -1 || colq.length() - separator - 1 != 8) {
+                    log.warn("Could not find a datatype and date in column qualifier for: {}", key);
+                    continue;
+                }
                 
-                String field = entry.getKey().getRow().toString();
-                Long count = readLongFromValue(entry.getValue());
+                ByteSequence row = key.getRowData();
+                ByteSequence datatype = colq.subSequence(0, separator);
+                if (counts == null || !row.equals(lastRow) || !datatype.equals(lastDatatype)) {
+                    lastRow = row;
+                    lastDatatype = datatype;
+                    counts = dailyCounts.computeIfAbsent(row.toString(), k -> new HashMap<>()).computeIfAbsent(datatype.toString(), k -> new long[days]);
+                }
                 
-                if (fieldCounts.containsKey(field)) {
-                    Long existingCount = fieldCounts.get(field);
-                    existingCount += count;
-                    fieldCounts.put(field, existingCount);
-                } else {
+                try {
+                    int day = FrequencyIndex.toDayOrdinal(colq.getBackingArray(), colq.offset() + separator + 1) - startDay;
+                    if (day >= 0 && day < days) {
+                        counts[day] += FrequencySummingIterator.readVLong(entry.getValue().get());
+                    }
+                } catch (DateTimeException | ValueFormatException e) {
+                    log.warn("Could not read the daily count for key: {}", key);
+                }
+            }
+        } catch (TableNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+        return dailyCounts;
+    }
+    
+    /**
+     * Scan the count for one field across the date range
+     *
+     * @param client
+     *            the client to scan with
+     * @param field
+     *            the field
+     * @param datatypes
+     *            the datatypes, or empty for all datatypes
+     * @param beginDate
+     *            the start date
+     * @param endDate
+     *            the end date
+     * @return the count, or null if the field has no count in the date range
+     */
+    private Long scanCountForField(AccumuloClient client, String field, SortedSet<String> datatypes, String beginDate, String endDate) {
+        Long count = null;
+        for (FrequencyRollupPlan.Segment segment : getFieldCountSegments(beginDate, endDate)) {
+            try (Scanner scanner = ScannerHelper.createScanner(client, getMetadataTableName(), getAuths())) {
+                scanner.setRange(createFieldCountRanges(Collections.singleton(field), datatypes, segment).iterator().next());
+                scanner.fetchColumnFamily(segment.getColumnFamily());
+                scanner.addScanIterator(createFieldCountSeekingFilter(datatypes, segment.getBeginDate(), segment.getEndDate()));
+                scanner.addScanIterator(createFieldCountSummingIterator());
+                
+                for (Entry<Key,Value> entry : scanner) {
+                    long value = readLongFromValue(entry.getValue());
+                    count = count == null ? value : count + value;
+                }
+            } catch (TableNotFoundException | IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Get the number of threads used to scan field counts, which is the number of tablet servers up to {@link #MAX_FIELD_COUNT_THREADS}
+     *
+     * @param client
+     *            the client used to find the tablet servers
+     * @return the number of threads
+     */
+    protected static synchronized int getFieldCountThreads(AccumuloClient client) {
+        if (fieldCountThreads == 0) {
+            int tabletServers;
+            try {
+                tabletServers = client.instanceOperations().getTabletServers().size();
+            } catch (RuntimeException e) {
+                log.warn("Unable to get the tablet servers, sizing the field count threads from the available processors", e);
+                tabletServers = Runtime.getRuntime().availableProcessors();
+            }
+            fieldCountThreads = Math.max(1, Math.min(tabletServers, MAX_FIELD_COUNT_THREADS));
+        }
+        return fieldCountThreads;
+    }
+    
+    /**
+     * Get the executor shared by every helper for asynchronous field counts, creating it on first use
+     *
+     * @param client
+     *            the client used to size the executor
+     * @return the executor
+     */
+    protected static synchronized ExecutorService getFieldCountExecutor(AccumuloClient client) {
+        if (fieldCountExecutor == null) {
+            fieldCountExecutor = Executors.newFixedThreadPool(getFieldCountThreads(client),
+                            new ThreadFactoryBuilder().setNameFormat("metadata-field-count-%d").setDaemon(true).build());
+        }
+        return fieldCountExecutor;
+    }
+    
+    /**
+     * Get counts for each field across the date range from the {@link FrequencyIndex}. As with a scan, a field is only included if it has a count for the
+     * datatypes in the date range.
+     *
+     * @param fields
+     *            the fields
+     * @param datatypes
+     *            the datatypes, or empty for all datatypes
+     * @param beginDate
+     *            the start date
+     * @param endDate
+     *            the end date
+     * @return a map of field counts
+     */
+    private Map<String,Long> getCountsForFieldsInDateRangeFromIndex(Set<String> fields, Set<String> datatypes, String beginDate, String endDate) {
+        Map<String,Long> fieldCounts = new HashMap<>();
+        try {
+            FrequencyIndex index = frequencyIndexHelper.getFrequencyIndex();
+            int startDay = FrequencyIndex.toDayOrdinal(beginDate);
+            int endDay = FrequencyIndex.toDayOrdinal(endDate);
+            for (String field : fields) {
+                Long count = index.getCount(field, datatypes, startDay, endDay);
+                if (count != null) {
                     fieldCounts.put(field, count);
                 }
             }
-            
-        } catch (TableNotFoundException | IOException e) {
+        } catch (TableNotFoundException e) {
             throw new RuntimeException(e);
         }
         return fieldCounts;
     }
     
+    /**
+     * Get the segments of a date range that field counts are read from. Without {@link #setFrequencyRollupsEnabled(boolean) rollups}, the whole range is read
+     * from the daily counts, as are the months and years that end within the {@link #setFrequencyRollupSettleMillis(long) settle time} with them.
+     *
+     * @param beginDate
+     *            the start date
+     * @param endDate
+     *            the end date
+     * @return the segments
+     */
+    private List<FrequencyRollupPlan.Segment> getFieldCountSegments(String beginDate, String endDate) {
+        if (frequencyRollupsEnabled) {
+            String settleDate = DateHelper.format(new Date(System.currentTimeMillis() - frequencyRollupSettleMillis));
+            return FrequencyRollupPlan.plan(beginDate, endDate, settleDate);
+        }
+        return Collections.singletonList(new FrequencyRollupPlan.Segment(ColumnFamilyConstants.COLF_F, beginDate, endDate));
+    }
+    
+    /**
+     * Create the {@link MetadataFColumnSeekingFilter} that limits a scan of the {@link ColumnFamilyConstants#COLF_F} column, or one of its rollups, to the
+     * datatypes and dates
+     *
+     * @param datatypes
+     *            the datatypes, or empty for all datatypes
+     * @param beginDate
+     *            the start date
+     * @param endDate
+     *            the end date
+     * @return the iterator setting
+     */
+    private IteratorSetting createFieldCountSeekingFilter(SortedSet<String> datatypes, String beginDate, String endDate) {
+        IteratorSetting setting = new IteratorSetting(50, "MetadataFrequencySeekingIterator", MetadataFColumnSeekingFilter.class);
+        setting.addOption(MetadataFColumnSeekingFilter.DATATYPES_OPT, Joiner.on(',').join(datatypes));
+        setting.addOption(MetadataFColumnSeekingFilter.START_DATE, beginDate);
+        setting.addOption(MetadataFColumnSeekingFilter.END_DATE, endDate);
+        return setting;
+    }
+    
+    /**
+     * Create the {@link FrequencySummingIterator} that sums the counts remaining after the {@link #createFieldCountSeekingFilter(SortedSet, String, String)
+     * seeking filter} into one entry per field
+     *
+     * @return the iterator setting
+     */
+    private IteratorSetting createFieldCountSummingIterator() {
+        IteratorSetting setting = new IteratorSetting(51, "MetadataFrequencySummingIterator", FrequencySummingIterator.class);
+        setting.addOption(FrequencySummingIterator.GROUPING_OPT, FrequencySummingIterator.Grouping.FIELD.name());
+        return setting;
+    }
+    
     /**
      * Build ranges for the {@link #getCountsForFieldsInDateRange(Set, Set, String, String)} method.
      * <p>
@@ -1655,23 +2012,22 @@ public class MetadataHelper {
      *            the fields
      * @param datatypes
      *            the datatypes
-     * @param beginDate
-     *            the start date
-     * @param endDate
-     *            the end date
+     * @param segment
+     *            the column and dates
      * @return a set of ranges for the provided fields, bounded by date and optionally datatypes
      */
-    private Set<Range> createFieldCountRanges(Set<String> fields, SortedSet<String> datatypes, String beginDate, String endDate) {
+    private Set<Range> createFieldCountRanges(Set<String> fields, SortedSet<String> datatypes, FrequencyRollupPlan.Segment segment) {
         Set<Range> ranges = new HashSet<>();
+        String columnFamily = segment.getColumnFamily().toString();
         for (String field : fields) {
             if (datatypes.isEmpty()) {
                 // punt the hard work to the MetadataFColumnSeekingFilter
-                ranges.add(Range.exact(field, "f"));
+                ranges.add(Range.exact(field, columnFamily));
             } else {
                 // more precise range, the MetadataFColumnSeekingFilter will handle seeing between the first and
                 // last datatypes as necessary
-                Key start = new Key(field, "f", datatypes.first() + '\u0000' + beginDate);
-                Key end = new Key(field, "f", datatypes.last() + '\u0000' + endDate + '\u0000');
+                Key start = new Key(field, columnFamily, datatypes.first() + '\u0000' + segment.getBeginDate());
+                Key end = new Key(field, columnFamily, datatypes.last() + '\u0000' + segment.getEndDate() + '\u0000');
                 ranges.add(new Range(start, true, end, false));
             }
         }
@@ -1719,10 +2075,14 @@ public class MetadataHelper {
         // try to get the date using the original (cached) connector
         Date date = getEarliestOccurrenceOfFieldWithType(fieldName, dataType, accumuloClient, null);
         
-        // if we don't get a hit, try the real connector
-        if (date == null && accumuloClient instanceof WrappedAccumuloClient) {
+        // if we don't get a hit, try the real connector unless it recently found nothing as well
+        if (date == null && accumuloClient instanceof WrappedAccumuloClient
+                        && !negativeResultCache.isEmpty(metadataTableName, auths, EARLIEST_OCCURRENCE, fieldName, dataType)) {
             WrappedAccumuloClient wrappedClient = ((WrappedAccumuloClient) accumuloClient);
             date = getEarliestOccurrenceOfFieldWithType(fieldName, dataType, wrappedClient.getReal(), wrappedClient);
+            if (date == null) {
+                negativeResultCache.recordEmpty(metadataTableName, auths, EARLIEST_OCCURRENCE, fieldName, dataType);
+            }
         }
         
         return date;
@@ -1743,7 +2103,6 @@ public class MetadataHelper {
      */
     protected Date getEarliestOccurrenceOfFieldWithType(String fieldName, final String dataType, AccumuloClient client, WrappedAccumuloClient wrappedClient) {
         String dateString = null;
-        BatchWriter writer = null;
         
         try (Scanner scanner = ScannerHelper.createScanner(client, metadataTableName, auths)) {
             scanner.fetchColumnFamily(ColumnFamilyConstants.COLF_F);
@@ -1762,7 +2121,7 @@ public class MetadataHelper {
                 // that we didn't get a hit in the cache. So, we will update the cache with the
                 // entries from the real table
                 if (wrappedClient != null && client == wrappedClient.getReal()) {
-                    writer = updateCache(entry, writer, wrappedClient);
+                    MetadataCachePopulator.forClient(wrappedClient).add(metadataTableName, entry);
                 }
                 
                 entry.getKey().getColumnQualifier(holder);
@@ -1783,14 +2142,6 @@ public class MetadataHelper {
             }
         } catch (TableNotFoundException e) {
             log.warn("Error creating scanner against table: {}", metadataTableName, e);
-        } finally {
-            if (writer != null) {
-                try {
-                    writer.close();
-                } catch (MutationsRejectedException e) {
-                    log.warn("Error closing batch writer for cached table: {}", metadataTableName, e);
-                }
-            }
         }
         
         Date date = null;
@@ -1801,6 +2152,51 @@ public class MetadataHelper {
         return date;
     }
     
+    /**
+     * Get the latest occurrence of a field across all datatypes
+     *
+     * @param fieldName
+     *            the field
+     * @return the latest date that this field occurs, or null if the field does not occur
+     */
+    public Date getLatestOccurrenceOfField(String fieldName) {
+        return getLatestOccurrenceOfFieldWithType(fieldName, null);
+    }
+    
+    /**
+     * Get the latest occurrence of a field for the given datatype
+     *
+     * @param fieldName
+     *            the field
+     * @param dataType
+     *            the datatype, or null for all datatypes
+     * @return the latest date that a field occurred for the given datatype, or null if the field does not occur
+     */
+    public Date getLatestOccurrenceOfFieldWithType(String fieldName, final String dataType) {
+        FieldLifespans.Lifespan lifespan = getLifespans(Collections.singleton(fieldName), dataType == null ? Collections.emptySet()
+                        : Collections.singleton(dataType)).get(fieldName);
+        return lifespan == null ? null : DateHelper.parse(lifespan.getLastDate());
+    }
+    
+    /**
+     * Get the first and last day each of a set of fields occurs in any of a set of datatypes, from {@link FieldLifespans} held in memory and refreshed
+     * incrementally. The planner can use these to drop fields that do not occur within a query's date range, see
+     * {@link FieldLifespans.Lifespan#overlaps(String, String)}.
+     *
+     * @param fields
+     *            the fields
+     * @param datatypes
+     *            the datatypes, or empty for all datatypes
+     * @return a map of each field that occurs in any of the datatypes to its lifespan
+     */
+    public Map<String,FieldLifespans.Lifespan> getLifespans(Set<String> fields, Set<String> datatypes) {
+        try {
+            return getFieldLifespanHelper().getFieldLifespans().getLifespans(fields, datatypes);
+        } catch (TableNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+    }
+    
     /**
      * Return the field index holes calculated between all "i" and "f" entries. The map consists of field names to datatypes to field index holes.
      * 
@@ -1836,37 +2232,47 @@ public class MetadataHelper {
     }
     
     /**
-     * Updates the table cache via the mock connector with the given entry and writer. If writer is null, a writer will be created and returned for subsequent
-     * use.
-     *
-     * @param entry
-     *            the entry to add
-     * @param writer
-     *            the batch writer
-     * @param wrappedClient
-     *            the wrapped client
-     * @return a batch writer
+     * Return the field index holes calculated between the "i" and "f" entries within a date range. Only the entries within the date range are read, along
+     * with the boundary markers that affect it, and the holes are clipped to the range. The map consists of field names to datatypes to field index holes.
+     * 
+     * @param fields
+     *            the fields to fetch field index holes for, an empty set will result in all fields being fetched
+     * @param datatypes
+     *            the datatypes to fetch field index holes for, an empty set will result in all datatypes being fetched
+     * @param minThreshold
+     *            the minimum percentage threshold required for an index row to be considered NOT a hole on a particular date, expected to be a value between
+     *            0.0 (inclusive) to 1.0 (inclusive)
+     * @param begin
+     *            the start date
+     * @param end
+     *            the end date
+     * @return the field index holes
      */
-    private BatchWriter updateCache(Entry<Key,Value> entry, BatchWriter writer, WrappedAccumuloClient wrappedClient) {
-        try {
-            if (writer == null) {
-                BatchWriterConfig bwConfig = new BatchWriterConfig().setMaxMemory(10L * (1024L * 1024L)).setMaxLatency(100L, TimeUnit.MILLISECONDS)
-                                .setMaxWriteThreads(1);
-                writer = wrappedClient.getMock().createBatchWriter(metadataTableName, bwConfig);
-            }
-            
-            Key valueKey = entry.getKey();
-            
-            Mutation m = new Mutation(entry.getKey().getRow());
-            m.put(valueKey.getColumnFamily(), valueKey.getColumnQualifier(), new ColumnVisibility(valueKey.getColumnVisibility()), valueKey.getTimestamp(),
-                            entry.getValue());
-            
-            writer.addMutation(m);
-        } catch (MutationsRejectedException | TableNotFoundException e) {
-            log.trace("Unable to add entry to cache for: {}", entry.getKey());
-        }
-        
-        return writer;
+    public Map<String,Map<String,IndexFieldHole>> getFieldIndexHoles(Set<String> fields, Set<String> datatypes, double minThreshold, Date begin, Date end)
+                    throws TableNotFoundException, IOException {
+        return allFieldMetadataHelper.getFieldIndexHoles(fields, datatypes, minThreshold, begin, end);
+    }
+    
+    /**
+     * Return the field index holes calculated between the "ri" and "f" entries within a date range. Only the entries within the date range are read, along
+     * with the boundary markers that affect it, and the holes are clipped to the range. The map consists of field names to datatypes to field index holes.
+     * 
+     * @param fields
+     *            the fields to fetch field index holes for, an empty set will result in all fields being fetched
+     * @param datatypes
+     *            the datatypes to fetch field index holes for, an empty set will result in all datatypes being fetched
+     * @param minThreshold
+     *            the minimum percentage threshold required for an index row to be considered NOT a hole on a particular date, expected to be a value between
+     *            0.0 (inclusive) to 1.0 (inclusive)
+     * @param begin
+     *            the start date
+     * @param end
+     *            the end date
+     * @return the field index holes
+     */
+    public Map<String,Map<String,IndexFieldHole>> getReversedFieldIndexHoles(Set<String> fields, Set<String> datatypes, double minThreshold, Date begin,
+                    Date end) throws TableNotFoundException, IOException {
+        return allFieldMetadataHelper.getReversedFieldIndexHoles(fields, datatypes, minThreshold, begin, end);
     }
     
     /**
@@ -2057,4 +2463,131 @@ public class MetadataHelper {
     public void setTypeCacheExpirationInMinutes(int typeCacheExpirationInMinutes) {
         allFieldMetadataHelper.setTypeCacheExpirationInMinutes(typeCacheExpirationInMinutes);
     }
+    
+    public int getFullTableScanThreads() {
+        return allFieldMetadataHelper.getFullTableScanThreads();
+    }
+    
+    public FrequencyIndexHelper getFrequencyIndexHelper() {
+        return frequencyIndexHelper;
+    }
+    
+    /**
+     * Set the {@link FrequencyIndexHelper} used to answer date range field counts from memory instead of scanning the f column
+     *
+     * @param frequencyIndexHelper
+     *            the FrequencyIndexHelper, or null to scan the f column for each request
+     */
+    public void setFrequencyIndexHelper(FrequencyIndexHelper frequencyIndexHelper) {
+        this.frequencyIndexHelper = frequencyIndexHelper;
+    }
+    
+    public FieldIndexHoleHelper getFieldIndexHoleHelper() {
+        return allFieldMetadataHelper.getFieldIndexHoleHelper();
+    }
+    
+    /**
+     * Set the {@link FieldIndexHoleHelper} used to answer field index hole requests from a cache that is extended incrementally
+     *
+     * @param fieldIndexHoleHelper
+     *            the FieldIndexHoleHelper, or null to find the holes for each request
+     */
+    public void setFieldIndexHoleHelper(FieldIndexHoleHelper fieldIndexHoleHelper) {
+        allFieldMetadataHelper.setFieldIndexHoleHelper(fieldIndexHoleHelper);
+    }
+    
+    public boolean isFieldIndexFlagsCached() {
+        return fieldIndexFlagsCached;
+    }
+    
+    /**
+     * Set whether {@link AllFieldMetadataHelper#getFieldIndexFlags()} is cached by the metadata cache, in which case the index, reverse index and tokenized
+     * lookups are answered from the flags of the whole table. Otherwise each lookup reads only the row of its field.
+     *
+     * @param fieldIndexFlagsCached
+     *            true if the field index flags are cached
+     */
+    public void setFieldIndexFlagsCached(boolean fieldIndexFlagsCached) {
+        this.fieldIndexFlagsCached = fieldIndexFlagsCached;
+    }
+    
+    public boolean isFrequencyRollupsEnabled() {
+        return frequencyRollupsEnabled;
+    }
+    
+    /**
+     * Set whether date range field counts that are scanned read the monthly and yearly rollups maintained by the {@link FrequencyRollupIterator} for the whole
+     * months and years of the range, and the daily counts only for the remaining days. This should only be enabled once the metadata table has had a full
+     * major compaction with the iterator configured, as daily counts written before then are not rolled up until that compaction. Daily counts are rolled up
+     * when they are compacted, so months and years that end within the {@link #setFrequencyRollupSettleMillis(long) settle time} are still read from the
+     * daily counts.
+     *
+     * @param frequencyRollupsEnabled
+     *            true to read the rollups, false to read only the daily counts
+     */
+    public void setFrequencyRollupsEnabled(boolean frequencyRollupsEnabled) {
+        this.frequencyRollupsEnabled = frequencyRollupsEnabled;
+    }
+    
+    public long getFrequencyRollupSettleMillis() {
+        return frequencyRollupSettleMillis;
+    }
+    
+    /**
+     * Set how long the daily counts of a date take to be compacted into the rollups. The rollups of a month or year are only read once its last day is older
+     * than this, which defaults to one day. This should be raised if minor compactions of the metadata table are infrequent, or if counts for past dates are
+     * bulk imported, as those are only rolled up by a full major compaction.
+     *
+     * @param frequencyRollupSettleMillis
+     *            the settle time in milliseconds
+     */
+    public void setFrequencyRollupSettleMillis(long frequencyRollupSettleMillis) {
+        this.frequencyRollupSettleMillis = frequencyRollupSettleMillis;
+    }
+    
+    /**
+     * Get the {@link FieldLifespanHelper}, creating one with the real client if none has been set
+     *
+     * @return the FieldLifespanHelper
+     */
+    public synchronized FieldLifespanHelper getFieldLifespanHelper() {
+        if (fieldLifespanHelper == null) {
+            AccumuloClient client = accumuloClient;
+            if (client instanceof WrappedAccumuloClient) {
+                client = ((WrappedAccumuloClient) client).getReal();
+            }
+            fieldLifespanHelper = new FieldLifespanHelper(client, metadataTableName, auths);
+        }
+        return fieldLifespanHelper;
+    }
+    
+    public synchronized void setFieldLifespanHelper(FieldLifespanHelper fieldLifespanHelper) {
+        this.fieldLifespanHelper = fieldLifespanHelper;
+    }
+    
+    public NegativeResultCache getNegativeResultCache() {
+        return negativeResultCache;
+    }
+    
+    /**
+     * Set the cache of lookups that found nothing in either the cache of a {@link WrappedAccumuloClient} or the real table. By default, a cache shared by
+     * every helper is used.
+     *
+     * @param negativeResultCache
+     *            the negative result cache
+     */
+    public void setNegativeResultCache(NegativeResultCache negativeResultCache) {
+        this.negativeResultCache = negativeResultCache;
+    }
+    
+    /**
+     * Forget the lookups that found nothing in the negative result cache shared by every helper
+     */
+    public static void clearSharedNegativeResults() {
+        sharedNegativeResultCache.clear();
+    }
+    
+    public void setFullTableScanThreads(int fullTableScanThreads) {
+        allFieldMetadataHelper.setFullTableScanThreads(fullTableScanThreads);
+    }
 }
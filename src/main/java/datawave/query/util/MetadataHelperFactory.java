@@ -66,7 +66,13 @@ public class MetadataHelperFactory {
             CompositeMetadataHelper compositeMetadataHelper = beanFactory.getBean(CompositeMetadataHelper.class, client, metadataTableName, authSubset);
             AllFieldMetadataHelper allFieldMetadataHelper = beanFactory.getBean(AllFieldMetadataHelper.class, typeMetadataHelper, compositeMetadataHelper,
                             client, metadataTableName, authSubset, fullUserAuths);
-            return beanFactory.getBean(MetadataHelper.class, allFieldMetadataHelper, allMetadataAuths, client, metadataTableName, authSubset, fullUserAuths);
+            MetadataSnapshotHelper metadataSnapshotHelper = beanFactory.getBean(MetadataSnapshotHelper.class, client, metadataTableName, authSubset);
+            metadataSnapshotHelper.setAllMetadataAuths(allMetadataAuths);
+            allFieldMetadataHelper.setMetadataSnapshotHelper(metadataSnapshotHelper);
+            MetadataHelper metadataHelper = beanFactory.getBean(MetadataHelper.class, allFieldMetadataHelper, allMetadataAuths, client, metadataTableName,
+                            authSubset, fullUserAuths);
+            metadataHelper.setFieldIndexFlagsCached(true);
+            return metadataHelper;
         } else {
             log.warn("MetadataHelper created outside of dependency-injection context. This is fine for unit testing, but this is an error in production code");
             if (log.isDebugEnabled())
@@ -82,6 +88,7 @@ public class MetadataHelperFactory {
             CompositeMetadataHelper compositeMetadataHelper = new CompositeMetadataHelper(client, metadataTableName, authSubset);
             AllFieldMetadataHelper allFieldMetadataHelper = new AllFieldMetadataHelper(typeMetadataHelper, compositeMetadataHelper, client, metadataTableName,
                             authSubset, fullUserAuths);
+            // no MetadataSnapshotHelper, as without the metadata cache every lookup would load a snapshot of the whole table
             return new MetadataHelper(allFieldMetadataHelper, allMetadataAuths, client, metadataTableName, authSubset, fullUserAuths);
         }
     }
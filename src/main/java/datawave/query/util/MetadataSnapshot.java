@@ -0,0 +1,334 @@
+package datawave.query.util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.hadoop.io.Text;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multimaps;
+import com.google.common.collect.SetMultimap;
+import com.google.common.collect.SortedSetMultimap;
+import com.google.common.collect.TreeMultimap;
+
+import datawave.data.ColumnFamilyConstants;
+
+/**
+ * An immutable view of the field-level metadata that is otherwise loaded by a separate full-table scan per column family. A snapshot is built from a single
+ * streaming pass over the {@link #COLUMN_FAMILIES} of the metadata table, after which the field sets, datatypes, normalized fields and the raw type and
+ * composite column qualifiers can all be served from memory.
+ * <p>
+ * The structures returned by a snapshot mirror those returned by the scans they replace in {@link AllFieldMetadataHelper}, {@link TypeMetadataHelper},
+ * {@link datawave.query.composite.CompositeMetadataHelper} and {@link MetadataHelper}.
+ * <p>
+ * A snapshot records the highest key timestamp it has seen, which allows a newer snapshot to be built from a copy of this one plus only the entries written
+ * since, see {@link Builder#Builder(MetadataSnapshot)}.
+ */
+public class MetadataSnapshot {
+    
+    /**
+     * The column families read when building a snapshot
+     */
+    public static final List<Text> COLUMN_FAMILIES = List.of(ColumnFamilyConstants.COLF_E, ColumnFamilyConstants.COLF_I, ColumnFamilyConstants.COLF_RI,
+                    ColumnFamilyConstants.COLF_TF, ColumnFamilyConstants.COLF_T, ColumnFamilyConstants.COLF_CI, ColumnFamilyConstants.COLF_CITD,
+                    ColumnFamilyConstants.COLF_CISEP, ColumnFamilyConstants.COLF_EXP, ColumnFamilyConstants.COLF_CONTENT, ColumnFamilyConstants.COLF_N);
+    
+    /**
+     * The column families for which a multimap of datatype to field is maintained
+     */
+    protected static final List<Text> FIELD_COLUMN_FAMILIES = List.of(ColumnFamilyConstants.COLF_E, ColumnFamilyConstants.COLF_I,
+                    ColumnFamilyConstants.COLF_RI, ColumnFamilyConstants.COLF_TF, ColumnFamilyConstants.COLF_T, ColumnFamilyConstants.COLF_CI,
+                    ColumnFamilyConstants.COLF_EXP, ColumnFamilyConstants.COLF_CONTENT);
+    
+    /**
+     * The column families that contribute to the set of all fields, see {@link AllFieldMetadataHelper#loadAllFields()}
+     */
+    protected static final List<Text> ALL_FIELDS_COLUMN_FAMILIES = List.of(ColumnFamilyConstants.COLF_T, ColumnFamilyConstants.COLF_I,
+                    ColumnFamilyConstants.COLF_E, ColumnFamilyConstants.COLF_RI, ColumnFamilyConstants.COLF_TF, ColumnFamilyConstants.COLF_CI);
+    
+    /**
+     * The column families for which the full column qualifier is retained, keyed by field
+     */
+    protected static final List<Text> QUALIFIER_COLUMN_FAMILIES = List.of(ColumnFamilyConstants.COLF_T, ColumnFamilyConstants.COLF_CI,
+                    ColumnFamilyConstants.COLF_CITD, ColumnFamilyConstants.COLF_CISEP);
+    
+    private final Map<Text,Multimap<String,String>> fieldsByColumnFamily;
+    private final Map<Text,SortedSetMultimap<String,String>> qualifiersByColumnFamily;
+    private final Set<String> datatypes;
+    private final Set<String> normalizedFields;
+    private final Multimap<String,String> allFields;
+    private final Multimap<String,String> indexOnlyFields;
+    private final long maxTimestamp;
+    private final long fullLoadTime;
+    
+    private MetadataSnapshot(Builder builder) {
+        Map<Text,Multimap<String,String>> fields = new HashMap<>();
+        for (Text columnFamily : FIELD_COLUMN_FAMILIES) {
+            fields.put(columnFamily, Multimaps.unmodifiableMultimap(HashMultimap.create(builder.fields.get(columnFamily))));
+        }
+        this.fieldsByColumnFamily = Collections.unmodifiableMap(fields);
+        
+        Map<Text,SortedSetMultimap<String,String>> qualifiers = new HashMap<>();
+        for (Text columnFamily : QUALIFIER_COLUMN_FAMILIES) {
+            qualifiers.put(columnFamily, Multimaps.unmodifiableSortedSetMultimap(TreeMultimap.create(builder.qualifiers.get(columnFamily))));
+        }
+        this.qualifiersByColumnFamily = Collections.unmodifiableMap(qualifiers);
+        
+        this.datatypes = Collections.unmodifiableSet(new HashSet<>(builder.datatypes));
+        this.normalizedFields = Collections.unmodifiableSet(new HashSet<>(builder.normalizedFields));
+        
+        Multimap<String,String> all = HashMultimap.create();
+        for (Text columnFamily : ALL_FIELDS_COLUMN_FAMILIES) {
+            all.putAll(builder.fields.get(columnFamily));
+        }
+        this.allFields = Multimaps.unmodifiableMultimap(all);
+        this.indexOnlyFields = Multimaps.unmodifiableMultimap(builder.computeIndexOnlyFields());
+        this.maxTimestamp = builder.maxTimestamp;
+        this.fullLoadTime = builder.fullLoadTime;
+    }
+    
+    /**
+     * Get the multimap of datatype to field for one of the {@link #FIELD_COLUMN_FAMILIES}
+     *
+     * @param columnFamily
+     *            the column family
+     * @return an unmodifiable multimap of datatype to field
+     * @throws IllegalArgumentException
+     *             if the column family is not tracked by field
+     */
+    public Multimap<String,String> getFields(Text columnFamily) {
+        Multimap<String,String> fields = fieldsByColumnFamily.get(columnFamily);
+        if (fields == null) {
+            throw new IllegalArgumentException("Column family is not tracked by field in a MetadataSnapshot: " + columnFamily);
+        }
+        return fields;
+    }
+    
+    /**
+     * Get the multimap of field to column qualifier for one of the {@link #QUALIFIER_COLUMN_FAMILIES}. Qualifiers are returned in the same order a scan of the
+     * table would return them.
+     *
+     * @param columnFamily
+     *            the column family
+     * @return an unmodifiable multimap of field to column qualifier
+     * @throws IllegalArgumentException
+     *             if the column family does not retain qualifiers
+     */
+    public SortedSetMultimap<String,String> getColumnQualifiers(Text columnFamily) {
+        SortedSetMultimap<String,String> qualifiers = qualifiersByColumnFamily.get(columnFamily);
+        if (qualifiers == null) {
+            throw new IllegalArgumentException("Column family does not retain qualifiers in a MetadataSnapshot: " + columnFamily);
+        }
+        return qualifiers;
+    }
+    
+    /**
+     * Get the multimap of datatype to field for every field that has occurred in the database
+     *
+     * @return an unmodifiable multimap of datatype to field
+     */
+    public Multimap<String,String> getAllFields() {
+        return allFields;
+    }
+    
+    /**
+     * Get the multimap of datatype to field for the fields which are indexed but do not appear as an attribute on the event
+     *
+     * @return an unmodifiable multimap of datatype to field
+     */
+    public Multimap<String,String> getIndexOnlyFields() {
+        return indexOnlyFields;
+    }
+    
+    /**
+     * Get the set of datatypes found in the {@link ColumnFamilyConstants#COLF_E} column
+     *
+     * @return an unmodifiable set of datatypes
+     */
+    public Set<String> getDatatypes() {
+        return datatypes;
+    }
+    
+    /**
+     * Get the set of fields that have a {@link ColumnFamilyConstants#COLF_N} column
+     *
+     * @return an unmodifiable set of fields
+     */
+    public Set<String> getNormalizedFields() {
+        return normalizedFields;
+    }
+    
+    /**
+     * Get the highest timestamp of any key added to this snapshot, or any snapshot it was built from
+     *
+     * @return the highest timestamp, or {@link Long#MIN_VALUE} if the snapshot is empty
+     */
+    public long getMaxTimestamp() {
+        return maxTimestamp;
+    }
+    
+    /**
+     * Get the time at which the full scan that this snapshot is ultimately built from was started
+     *
+     * @return the time in milliseconds, or 0 if not set
+     */
+    public long getFullLoadTime() {
+        return fullLoadTime;
+    }
+    
+    /**
+     * Perform an action for each of a minimal set of keys that rebuild an equivalent snapshot when added to a new {@link Builder}. The keys are not the
+     * original metadata table entries: each carries only the parts of its column qualifier retained by this snapshot, and the snapshot's
+     * {@link #getMaxTimestamp() watermark} as its timestamp.
+     *
+     * @param action
+     *            the action to perform on each key
+     */
+    public void forEachKey(Consumer<Key> action) {
+        for (Text columnFamily : FIELD_COLUMN_FAMILIES) {
+            if (!qualifiersByColumnFamily.containsKey(columnFamily)) {
+                for (Map.Entry<String,String> entry : fieldsByColumnFamily.get(columnFamily).entries()) {
+                    action.accept(new Key(new Text(entry.getValue()), columnFamily, new Text(entry.getKey()), maxTimestamp));
+                }
+            }
+        }
+        for (Text columnFamily : QUALIFIER_COLUMN_FAMILIES) {
+            for (Map.Entry<String,String> entry : qualifiersByColumnFamily.get(columnFamily).entries()) {
+                action.accept(new Key(new Text(entry.getKey()), columnFamily, new Text(entry.getValue()), maxTimestamp));
+            }
+        }
+        for (String field : normalizedFields) {
+            action.accept(new Key(new Text(field), ColumnFamilyConstants.COLF_N, new Text(), maxTimestamp));
+        }
+    }
+    
+    /**
+     * Accumulates metadata table entries into a {@link MetadataSnapshot}. Entries may be added in any order.
+     */
+    public static class Builder {
+        private final Map<Text,SetMultimap<String,String>> fields = new HashMap<>();
+        private final Map<Text,SortedSetMultimap<String,String>> qualifiers = new HashMap<>();
+        private final Set<String> datatypes = new HashSet<>();
+        private final Set<String> normalizedFields = new HashSet<>();
+        private long maxTimestamp = Long.MIN_VALUE;
+        private long fullLoadTime = 0L;
+        
+        public Builder() {
+            for (Text columnFamily : FIELD_COLUMN_FAMILIES) {
+                fields.put(columnFamily, HashMultimap.create());
+            }
+            for (Text columnFamily : QUALIFIER_COLUMN_FAMILIES) {
+                qualifiers.put(columnFamily, TreeMultimap.create());
+            }
+        }
+        
+        /**
+         * Create a builder that starts from a copy of a previous snapshot, including its timestamp watermark and full load time. Entries removed from the table
+         * since the previous snapshot was built are not removed from the copy.
+         *
+         * @param previous
+         *            the previous snapshot
+         */
+        public Builder(MetadataSnapshot previous) {
+            for (Text columnFamily : FIELD_COLUMN_FAMILIES) {
+                fields.put(columnFamily, HashMultimap.create(previous.fieldsByColumnFamily.get(columnFamily)));
+            }
+            for (Text columnFamily : QUALIFIER_COLUMN_FAMILIES) {
+                qualifiers.put(columnFamily, TreeMultimap.create(previous.qualifiersByColumnFamily.get(columnFamily)));
+            }
+            datatypes.addAll(previous.datatypes);
+            normalizedFields.addAll(previous.normalizedFields);
+            maxTimestamp = previous.maxTimestamp;
+            fullLoadTime = previous.fullLoadTime;
+        }
+        
+        /**
+         * Set the time at which the full scan feeding this builder was started
+         *
+         * @param fullLoadTime
+         *            the time in milliseconds
+         * @return this builder
+         */
+        public Builder setFullLoadTime(long fullLoadTime) {
+            this.fullLoadTime = fullLoadTime;
+            return this;
+        }
+        
+        /**
+         * Add a metadata table key to the snapshot. Keys for column families not read by a snapshot are ignored.
+         *
+         * @param key
+         *            the key
+         * @return this builder
+         */
+        public Builder add(Key key) {
+            maxTimestamp = Math.max(maxTimestamp, key.getTimestamp());
+            
+            Text columnFamily = key.getColumnFamily();
+            String field = key.getRow().toString();
+            
+            if (columnFamily.equals(ColumnFamilyConstants.COLF_N)) {
+                normalizedFields.add(field);
+                return this;
+            }
+            
+            String colq = key.getColumnQualifier().toString();
+            
+            SetMultimap<String,String> fieldsByDatatype = fields.get(columnFamily);
+            if (fieldsByDatatype != null) {
+                fieldsByDatatype.put(MetadataColumnQualifiers.getDatatype(colq), field);
+            }
+            
+            SortedSetMultimap<String,String> qualifiersByField = qualifiers.get(columnFamily);
+            if (qualifiersByField != null) {
+                qualifiersByField.put(field, colq);
+            }
+            
+            if (columnFamily.equals(ColumnFamilyConstants.COLF_E)) {
+                datatypes.add(colq);
+            }
+            return this;
+        }
+        
+        /**
+         * Find all of the fields which only have the 'i' column for a datatype, excluding any field that is the name of a composite field
+         *
+         * @return a multimap of datatype to index only field
+         */
+        private Multimap<String,String> computeIndexOnlyFields() {
+            Set<String> compositeFields = new HashSet<>();
+            for (String colq : qualifiers.get(ColumnFamilyConstants.COLF_CI).values()) {
+                compositeFields.add(MetadataColumnQualifiers.getCompositeFieldName(colq));
+            }
+            
+            SetMultimap<String,String> eventFields = fields.get(ColumnFamilyConstants.COLF_E);
+            SetMultimap<String,String> compositeIndexFields = fields.get(ColumnFamilyConstants.COLF_CI);
+            
+            Multimap<String,String> indexOnlyFields = HashMultimap.create();
+            for (Map.Entry<String,String> entry : fields.get(ColumnFamilyConstants.COLF_I).entries()) {
+                String datatype = entry.getKey();
+                String field = entry.getValue();
+                if (!eventFields.containsEntry(datatype, field) && !compositeIndexFields.containsEntry(datatype, field) && !compositeFields.contains(field)) {
+                    indexOnlyFields.put(datatype, field);
+                }
+            }
+            return indexOnlyFields;
+        }
+        
+        /**
+         * Build an immutable snapshot from the entries added so far
+         *
+         * @return the snapshot
+         */
+        public MetadataSnapshot build() {
+            return new MetadataSnapshot(this);
+        }
+    }
+}
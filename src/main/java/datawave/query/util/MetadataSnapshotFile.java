@@ -0,0 +1,216 @@
+package datawave.query.util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.hadoop.io.Text;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads and writes a {@link MetadataSnapshot} as a compact local binary file, so that a restarted node can serve the field sets, type metadata and composite
+ * metadata immediately instead of waiting for a scan of the metadata table.
+ * <p>
+ * The file records the metadata table name and the auths the snapshot was loaded with, and ends with a SHA-256 hash of everything before it. A file written
+ * for a different table or auths is ignored, and a file whose hash does not match is rejected. The file is memory-mapped when read and replaced atomically
+ * when written.
+ */
+public class MetadataSnapshotFile {
+    private static final Logger log = LoggerFactory.getLogger(MetadataSnapshotFile.class);
+    
+    private static final int MAGIC = 0x4D534E50;
+    private static final int VERSION = 1;
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final int HASH_LENGTH = 32;
+    
+    private MetadataSnapshotFile() {}
+    
+    /**
+     * Get the path of the snapshot file for a table and set of auths within a directory
+     *
+     * @param directory
+     *            the directory
+     * @param metadataTableName
+     *            the metadata table name
+     * @param auths
+     *            the auths
+     * @return the path of the file
+     */
+    public static Path getPath(Path directory, String metadataTableName, Set<Authorizations> auths) {
+        byte[] hash = newDigest().digest(toString(auths).getBytes(StandardCharsets.UTF_8));
+        StringBuilder name = new StringBuilder(metadataTableName).append('_');
+        for (int i = 0; i < 8; i++) {
+            name.append(String.format("%02x", hash[i]));
+        }
+        return directory.resolve(name.append(".snapshot").toString());
+    }
+    
+    /**
+     * Write a snapshot to a file, replacing any existing file once the new one is complete
+     *
+     * @param file
+     *            the file
+     * @param metadataTableName
+     *            the metadata table the snapshot was loaded from
+     * @param auths
+     *            the auths the snapshot was loaded with
+     * @param snapshot
+     *            the snapshot
+     * @throws IOException
+     *             if the file cannot be written
+     */
+    public static void write(Path file, String metadataTableName, Set<Authorizations> auths, MetadataSnapshot snapshot) throws IOException {
+        List<Key> keys = new ArrayList<>();
+        snapshot.forEachKey(keys::add);
+        
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path tmp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            MessageDigest digest = newDigest();
+            try (OutputStream fileOut = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+                DataOutputStream out = new DataOutputStream(new DigestOutputStream(fileOut, digest));
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                writeString(out, metadataTableName);
+                writeString(out, toString(auths));
+                out.writeLong(snapshot.getFullLoadTime());
+                out.writeLong(snapshot.getMaxTimestamp());
+                out.writeInt(keys.size());
+                for (Key key : keys) {
+                    out.writeByte(MetadataSnapshot.COLUMN_FAMILIES.indexOf(key.getColumnFamily()));
+                    writeBytes(out, key.getRowData().toArray());
+                    writeBytes(out, key.getColumnQualifierData().toArray());
+                }
+                out.flush();
+                fileOut.write(digest.digest());
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        log.debug("wrote metadata snapshot for {} with {} to {} with {} keys", metadataTableName, auths, file, keys.size());
+    }
+    
+    /**
+     * Read a snapshot from a file
+     *
+     * @param file
+     *            the file
+     * @param metadataTableName
+     *            the metadata table the snapshot is expected to be loaded from
+     * @param auths
+     *            the auths the snapshot is expected to be loaded with
+     * @return the snapshot, or null if the file does not exist or was written for a different table or auths
+     * @throws IOException
+     *             if the file cannot be read or is corrupt
+     */
+    public static MetadataSnapshot read(Path file, String metadataTableName, Set<Authorizations> auths) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HASH_LENGTH || size > Integer.MAX_VALUE) {
+                throw new IOException("Invalid metadata snapshot file size " + size + ": " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            
+            ByteBuffer content = buffer.duplicate();
+            content.limit((int) size - HASH_LENGTH);
+            MessageDigest digest = newDigest();
+            digest.update(content.duplicate());
+            byte[] expectedHash = new byte[HASH_LENGTH];
+            buffer.duplicate().position((int) size - HASH_LENGTH).get(expectedHash);
+            if (!MessageDigest.isEqual(expectedHash, digest.digest())) {
+                throw new IOException("Content hash mismatch in metadata snapshot file " + file);
+            }
+            
+            if (content.getInt() != MAGIC || content.getInt() != VERSION) {
+                throw new IOException("Unrecognized metadata snapshot file " + file);
+            }
+            String tableName = readString(content);
+            String authString = readString(content);
+            if (!tableName.equals(metadataTableName) || !authString.equals(toString(auths))) {
+                log.debug("ignoring metadata snapshot file {} written for {} with {}", file, tableName, authString);
+                return null;
+            }
+            
+            MetadataSnapshot.Builder builder = new MetadataSnapshot.Builder().setFullLoadTime(content.getLong());
+            long maxTimestamp = content.getLong();
+            int count = content.getInt();
+            for (int i = 0; i < count; i++) {
+                Text columnFamily = MetadataSnapshot.COLUMN_FAMILIES.get(content.get());
+                builder.add(new Key(readBytes(content), columnFamily.copyBytes(), readBytes(content), new byte[0], maxTimestamp));
+            }
+            return builder.build();
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (RuntimeException e) {
+            throw new IOException("Unable to parse metadata snapshot file " + file, e);
+        }
+    }
+    
+    /**
+     * Get a canonical string for a set of auths, independent of the order of the set and of each {@link Authorizations}
+     *
+     * @param auths
+     *            the auths
+     * @return the canonical string
+     */
+    private static String toString(Set<Authorizations> auths) {
+        List<String> authStrings = new ArrayList<>();
+        for (Authorizations authorizations : auths) {
+            List<String> strings = authorizations.getAuthorizations().stream().map(b -> new String(b, StandardCharsets.UTF_8)).sorted()
+                            .collect(Collectors.toList());
+            authStrings.add(String.join(",", strings));
+        }
+        Collections.sort(authStrings);
+        return String.join("|", authStrings);
+    }
+    
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+    
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        writeBytes(out, value.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+    
+    private static String readString(ByteBuffer buffer) {
+        return new String(readBytes(buffer), StandardCharsets.UTF_8);
+    }
+    
+    private static byte[] readBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
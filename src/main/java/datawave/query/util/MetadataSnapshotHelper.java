@@ -0,0 +1,444 @@
+package datawave.query.util;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.client.AccumuloClient;
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.user.TimestampFilter;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.hadoop.io.Text;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Loads a {@link MetadataSnapshot} with a single scan of the metadata table. When a helper is configured with a MetadataSnapshotHelper, the field sets, type
+ * metadata, composite metadata and normalized fields are all served from the same snapshot instead of a separate full-table scan per structure.
+ * <p>
+ * With {@link #setIncrementalRefresh(boolean) incremental refresh} enabled, the last snapshot loaded for each table and set of auths is retained beyond the
+ * expiration of the cached value. The next load then scans only the entries with a timestamp at or after the previous snapshot's
+ * {@link MetadataSnapshot#getMaxTimestamp() watermark} and merges them into a copy of the previous snapshot. Entries that are deleted, or that are written
+ * with a timestamp older than the watermark, are only picked up by the full reconcile that runs once the
+ * {@link #setFullReconcileIntervalMillis(long) reconcile interval} has elapsed since the last full load.
+ * <p>
+ * With {@link #setSharedScan(boolean) shared scan} enabled, the table is instead scanned once with the {@link #setAllMetadataAuths(Set) full set of metadata
+ * auths} into a {@link VisibilityAwareMetadata} that is shared by every helper for the same table. The snapshot for this helper's auths is derived from it in
+ * memory.
+ * <p>
+ * With a {@link #setSnapshotDirectory(String) snapshot directory} set, each loaded snapshot is also written to a local {@link MetadataSnapshotFile} at most
+ * once per {@link #setSnapshotWriteIntervalMillis(long) write interval}. The first load for a table and set of auths after a restart is then served from the
+ * file without scanning the table, while a full load runs in the background. That load rewrites the file and is used for the next load of the snapshot.
+ */
+@EnableCaching
+@Component("metadataSnapshotHelper")
+@Scope("prototype")
+public class MetadataSnapshotHelper {
+    private static final Logger log = LoggerFactory.getLogger(MetadataSnapshotHelper.class);
+    
+    protected final AccumuloClient accumuloClient;
+    protected final String metadataTableName;
+    protected final Set<Authorizations> auths;
+    
+    protected int fullTableScanThreads = 1;
+    
+    protected boolean incrementalRefresh = false;
+    protected long fullReconcileIntervalMillis = TimeUnit.HOURS.toMillis(1);
+    
+    // the last snapshot loaded for each table and set of auths, the basis for an incremental refresh
+    private static final Cache<List<Object>,MetadataSnapshot> previousSnapshots = Caffeine.newBuilder().maximumSize(100).softValues().build();
+    
+    protected Set<Authorizations> allMetadataAuths = null;
+    protected boolean sharedScan = false;
+    protected long sharedMetadataMaxAgeMillis = TimeUnit.MINUTES.toMillis(1);
+    
+    // the metadata scanned with the full set of metadata auths for each table, shared by all auth subsets
+    private static final ConcurrentMap<List<Object>,VisibilityAwareMetadata> sharedMetadata = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<List<Object>,Object> sharedMetadataLocks = new ConcurrentHashMap<>();
+    
+    protected String snapshotDirectory = null;
+    protected long snapshotWriteIntervalMillis = TimeUnit.MINUTES.toMillis(10);
+    
+    // the tables and auths for which the snapshot file has been consulted, which is only done for the first load after a restart
+    private static final Set<List<Object>> warmStarted = ConcurrentHashMap.newKeySet();
+    // the snapshots loaded in the background after a warm start, each of which is used once for the next load
+    private static final ConcurrentMap<List<Object>,MetadataSnapshot> backgroundSnapshots = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<List<Object>,Long> lastSnapshotWrites = new ConcurrentHashMap<>();
+    private static final ExecutorService snapshotFileExecutor = Executors
+                    .newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("metadata-snapshot-file-%d").setDaemon(true).build());
+    
+    /**
+     * Initializes the instance
+     *
+     * @param client
+     *            A client connection to Accumulo
+     * @param metadataTableName
+     *            The name of the DatawaveMetadata table
+     * @param auths
+     *            Any {@link Authorizations} to use
+     */
+    public MetadataSnapshotHelper(AccumuloClient client, String metadataTableName, Set<Authorizations> auths) {
+        Preconditions.checkNotNull(client, "A valid AccumuloClient is required by MetadataSnapshotHelper");
+        this.accumuloClient = client;
+        
+        Preconditions.checkNotNull(metadataTableName, "The metadata table name is required by MetadataSnapshotHelper");
+        this.metadataTableName = metadataTableName;
+        
+        Preconditions.checkNotNull(auths, "Accumulo scan Authorizations are required by MetadataSnapshotHelper");
+        this.auths = auths;
+    }
+    
+    public Set<Authorizations> getAuths() {
+        return auths;
+    }
+    
+    public String getMetadataTableName() {
+        return metadataTableName;
+    }
+    
+    public int getFullTableScanThreads() {
+        return fullTableScanThreads;
+    }
+    
+    /**
+     * Set the number of threads used for the full-table scan, see {@link FullTableScanner}
+     *
+     * @param fullTableScanThreads
+     *            the number of threads, 1 to scan serially
+     */
+    public void setFullTableScanThreads(int fullTableScanThreads) {
+        this.fullTableScanThreads = fullTableScanThreads;
+    }
+    
+    public boolean isIncrementalRefresh() {
+        return incrementalRefresh;
+    }
+    
+    /**
+     * Set whether a load may be built from the previous snapshot for the same table and auths plus the entries written since it was loaded
+     *
+     * @param incrementalRefresh
+     *            true to enable incremental refresh
+     */
+    public void setIncrementalRefresh(boolean incrementalRefresh) {
+        this.incrementalRefresh = incrementalRefresh;
+    }
+    
+    public long getFullReconcileIntervalMillis() {
+        return fullReconcileIntervalMillis;
+    }
+    
+    /**
+     * Set how long incremental refreshes may be built on top of a full load before the next load scans the full table again
+     *
+     * @param fullReconcileIntervalMillis
+     *            the interval in milliseconds
+     */
+    public void setFullReconcileIntervalMillis(long fullReconcileIntervalMillis) {
+        this.fullReconcileIntervalMillis = fullReconcileIntervalMillis;
+    }
+    
+    /**
+     * Forget the snapshots retained for incremental refresh, forcing the next load of every snapshot to scan the full table
+     */
+    public static void clearPreviousSnapshots() {
+        previousSnapshots.invalidateAll();
+    }
+    
+    public Set<Authorizations> getAllMetadataAuths() {
+        return allMetadataAuths;
+    }
+    
+    /**
+     * Set the full set of metadata auths, of which this helper's auths are a subset. These are the auths used for the scan when shared scan is enabled.
+     *
+     * @param allMetadataAuths
+     *            the full set of metadata auths
+     */
+    public void setAllMetadataAuths(Set<Authorizations> allMetadataAuths) {
+        this.allMetadataAuths = allMetadataAuths;
+    }
+    
+    public boolean isSharedScan() {
+        return sharedScan;
+    }
+    
+    /**
+     * Set whether to derive the snapshot from metadata scanned once with all metadata auths and shared across auth subsets. This has no effect unless the
+     * {@link #setAllMetadataAuths(Set) full set of metadata auths} is set.
+     *
+     * @param sharedScan
+     *            true to enable the shared scan
+     */
+    public void setSharedScan(boolean sharedScan) {
+        this.sharedScan = sharedScan;
+    }
+    
+    public long getSharedMetadataMaxAgeMillis() {
+        return sharedMetadataMaxAgeMillis;
+    }
+    
+    /**
+     * Set the age after which the shared metadata is scanned again on the next load of a snapshot
+     *
+     * @param sharedMetadataMaxAgeMillis
+     *            the age in milliseconds
+     */
+    public void setSharedMetadataMaxAgeMillis(long sharedMetadataMaxAgeMillis) {
+        this.sharedMetadataMaxAgeMillis = sharedMetadataMaxAgeMillis;
+    }
+    
+    /**
+     * Forget the shared metadata, forcing the next load of every shared snapshot to scan the table
+     */
+    public static void clearSharedMetadata() {
+        sharedMetadata.clear();
+    }
+    
+    public String getSnapshotDirectory() {
+        return snapshotDirectory;
+    }
+    
+    /**
+     * Set the local directory in which snapshots are persisted for a fast start after a restart
+     *
+     * @param snapshotDirectory
+     *            the directory, or null to disable the snapshot files
+     */
+    public void setSnapshotDirectory(String snapshotDirectory) {
+        this.snapshotDirectory = snapshotDirectory;
+    }
+    
+    public long getSnapshotWriteIntervalMillis() {
+        return snapshotWriteIntervalMillis;
+    }
+    
+    /**
+     * Set the minimum time between writes of the snapshot file for a table and set of auths
+     *
+     * @param snapshotWriteIntervalMillis
+     *            the interval in milliseconds
+     */
+    public void setSnapshotWriteIntervalMillis(long snapshotWriteIntervalMillis) {
+        this.snapshotWriteIntervalMillis = snapshotWriteIntervalMillis;
+    }
+    
+    /**
+     * Forget the snapshots loaded in the background after a warm start, forcing the next load of those snapshots to scan the table
+     */
+    public static void clearBackgroundSnapshots() {
+        backgroundSnapshots.clear();
+    }
+    
+    /**
+     * Get the {@link MetadataSnapshot} for the metadata table. The snapshot is cached by the {@code metadataHelperCacheManager}, which controls its lifetime,
+     * so a helper that is not proxied loads a new snapshot on every call.
+     *
+     * @return the metadata snapshot
+     * @throws TableNotFoundException
+     *             if no table exists
+     */
+    @Cacheable(value = "getMetadataSnapshot", key = "{#root.target.auths,#root.target.metadataTableName}", cacheManager = "metadataHelperCacheManager",
+                    sync = true)
+    public MetadataSnapshot getMetadataSnapshot() throws TableNotFoundException {
+        log.debug("cache fault for getMetadataSnapshot({}, {})", this.auths, this.metadataTableName);
+        return loadMetadataSnapshot();
+    }
+    
+    /**
+     * Load a new snapshot, from the snapshot file for the first load after a restart when a snapshot directory is set, and otherwise with
+     * {@link #scanMetadataSnapshot()}
+     *
+     * @return a new metadata snapshot
+     * @throws TableNotFoundException
+     *             if no table exists
+     */
+    protected MetadataSnapshot loadMetadataSnapshot() throws TableNotFoundException {
+        if (snapshotDirectory == null) {
+            return scanMetadataSnapshot();
+        }
+        
+        List<Object> key = Arrays.asList(metadataTableName, auths);
+        Path file = MetadataSnapshotFile.getPath(Paths.get(snapshotDirectory), metadataTableName, auths);
+        if (warmStarted.add(key)) {
+            MetadataSnapshot warm = readSnapshotFile(file);
+            if (warm != null) {
+                log.info("serving metadata snapshot for {} with {} from {} while it is reloaded", metadataTableName, auths, file);
+                snapshotFileExecutor.execute(() -> {
+                    try {
+                        MetadataSnapshot current = scanMetadataSnapshot();
+                        backgroundSnapshots.put(key, current);
+                        writeSnapshotFile(key, file, current);
+                    } catch (TableNotFoundException | RuntimeException e) {
+                        log.warn("Failed to reload metadata snapshot for {} with {} after a warm start", metadataTableName, auths, e);
+                    }
+                });
+                return warm;
+            }
+        }
+        
+        MetadataSnapshot current = backgroundSnapshots.remove(key);
+        if (current == null) {
+            current = scanMetadataSnapshot();
+        }
+        
+        Long lastWrite = lastSnapshotWrites.get(key);
+        if (lastWrite == null || System.currentTimeMillis() - lastWrite >= snapshotWriteIntervalMillis) {
+            MetadataSnapshot toWrite = current;
+            snapshotFileExecutor.execute(() -> writeSnapshotFile(key, file, toWrite));
+        }
+        return current;
+    }
+    
+    private MetadataSnapshot readSnapshotFile(Path file) {
+        try {
+            return MetadataSnapshotFile.read(file, metadataTableName, auths);
+        } catch (IOException e) {
+            log.warn("Unable to read metadata snapshot file {}, scanning the table instead", file, e);
+            return null;
+        }
+    }
+    
+    private void writeSnapshotFile(List<Object> key, Path file, MetadataSnapshot snapshot) {
+        try {
+            MetadataSnapshotFile.write(file, metadataTableName, auths, snapshot);
+            lastSnapshotWrites.put(key, System.currentTimeMillis());
+        } catch (IOException | RuntimeException e) {
+            log.warn("Unable to write metadata snapshot file {}", file, e);
+        }
+    }
+    
+    /**
+     * Scan for a new snapshot. The snapshot is derived from the shared metadata when shared scan is enabled, and otherwise loaded incrementally from the
+     * previous snapshot for this table and auths when incremental refresh is enabled and the reconcile interval has not elapsed, or else with a full scan
+     *
+     * @return a new metadata snapshot
+     * @throws TableNotFoundException
+     *             if no table exists
+     */
+    protected MetadataSnapshot scanMetadataSnapshot() throws TableNotFoundException {
+        if (sharedScan && allMetadataAuths != null) {
+            return getVisibilityAwareMetadata().getSnapshot(auths);
+        }
+        
+        if (!incrementalRefresh) {
+            return loadMetadataSnapshot(new MetadataSnapshot.Builder().setFullLoadTime(System.currentTimeMillis()), null);
+        }
+        
+        List<Object> key = Arrays.asList(metadataTableName, auths);
+        MetadataSnapshot previous = previousSnapshots.getIfPresent(key);
+        long now = System.currentTimeMillis();
+        
+        MetadataSnapshot current;
+        if (previous != null && now - previous.getFullLoadTime() < fullReconcileIntervalMillis) {
+            log.debug("refreshing metadata snapshot from table {} with entries since {}", metadataTableName, previous.getMaxTimestamp());
+            current = loadMetadataSnapshot(new MetadataSnapshot.Builder(previous), previous.getMaxTimestamp());
+        } else {
+            current = loadMetadataSnapshot(new MetadataSnapshot.Builder().setFullLoadTime(now), null);
+        }
+        
+        previousSnapshots.put(key, current);
+        return current;
+    }
+    
+    /**
+     * Scan the {@link MetadataSnapshot#COLUMN_FAMILIES} of the metadata table once, adding every entry to the builder as the entries stream past
+     *
+     * @param builder
+     *            the builder, possibly seeded from a previous snapshot
+     * @param startTimestamp
+     *            if not null, only entries with a timestamp at or after this one are scanned
+     * @return a new metadata snapshot
+     * @throws TableNotFoundException
+     *             if no table exists
+     */
+    protected MetadataSnapshot loadMetadataSnapshot(MetadataSnapshot.Builder builder, Long startTimestamp) throws TableNotFoundException {
+        if (log.isTraceEnabled()) {
+            log.trace("loadMetadataSnapshot from table: {} since: {}", metadataTableName, startTimestamp);
+        }
+        
+        try (FullTableScanner bs = new FullTableScanner(accumuloClient, metadataTableName, auths, fullTableScanThreads)) {
+            for (Text colf : MetadataSnapshot.COLUMN_FAMILIES) {
+                bs.fetchColumnFamily(colf);
+            }
+            
+            if (startTimestamp != null) {
+                IteratorSetting cfg = new IteratorSetting(50, "timestampFilter", TimestampFilter.class);
+                TimestampFilter.setStart(cfg, startTimestamp, true);
+                bs.addScanIterator(cfg);
+            }
+            
+            for (Entry<Key,Value> entry : bs) {
+                builder.add(entry.getKey());
+            }
+        }
+        
+        return builder.build();
+    }
+    
+    /**
+     * Get the metadata scanned with all metadata auths for this table, scanning the table if it has not been scanned within the max age
+     *
+     * @return the shared metadata
+     * @throws TableNotFoundException
+     *             if no table exists
+     */
+    protected VisibilityAwareMetadata getVisibilityAwareMetadata() throws TableNotFoundException {
+        List<Object> key = Arrays.asList(metadataTableName, allMetadataAuths);
+        VisibilityAwareMetadata metadata = sharedMetadata.get(key);
+        if (metadata == null || System.currentTimeMillis() - metadata.getLoadTime() >= sharedMetadataMaxAgeMillis) {
+            synchronized (sharedMetadataLocks.computeIfAbsent(key, k -> new Object())) {
+                metadata = sharedMetadata.get(key);
+                if (metadata == null || System.currentTimeMillis() - metadata.getLoadTime() >= sharedMetadataMaxAgeMillis) {
+                    metadata = loadVisibilityAwareMetadata();
+                    sharedMetadata.put(key, metadata);
+                }
+            }
+        }
+        return metadata;
+    }
+    
+    /**
+     * Scan the {@link MetadataSnapshot#COLUMN_FAMILIES} of the metadata table once with all metadata auths, retaining the visibility of every entry
+     *
+     * @return the shared metadata
+     * @throws TableNotFoundException
+     *             if no table exists
+     */
+    protected VisibilityAwareMetadata loadVisibilityAwareMetadata() throws TableNotFoundException {
+        log.debug("loading shared metadata from table {} with {}", metadataTableName, allMetadataAuths);
+        
+        VisibilityAwareMetadata.Builder builder = new VisibilityAwareMetadata.Builder().setLoadTime(System.currentTimeMillis());
+        try (FullTableScanner bs = new FullTableScanner(accumuloClient, metadataTableName, allMetadataAuths, fullTableScanThreads)) {
+            for (Text colf : MetadataSnapshot.COLUMN_FAMILIES) {
+                bs.fetchColumnFamily(colf);
+            }
+            
+            for (Entry<Key,Value> entry : bs) {
+                builder.add(entry.getKey());
+            }
+        }
+        return builder.build();
+    }
+}
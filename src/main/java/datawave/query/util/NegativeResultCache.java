@@ -0,0 +1,68 @@
+package datawave.query.util;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+/**
+ * Remembers lookups that found nothing in either the cache of a {@link datawave.webservice.common.connection.WrappedAccumuloClient} or the real table, so
+ * that repeated requests for a field without data are answered in memory instead of with two scans. Each result expires after its own time to live, after
+ * which the next request scans again and picks up any data written since.
+ */
+public class NegativeResultCache {
+    
+    public static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    public static final long DEFAULT_MAXIMUM_SIZE = 100000L;
+    
+    private final Cache<List<Object>,Boolean> emptyResults;
+    
+    public NegativeResultCache() {
+        this(DEFAULT_TTL_MILLIS, DEFAULT_MAXIMUM_SIZE, Ticker.systemTicker());
+    }
+    
+    /**
+     * Create a cache
+     *
+     * @param ttlMillis
+     *            how long an empty result is remembered, in milliseconds
+     * @param maximumSize
+     *            the most empty results remembered
+     * @param ticker
+     *            the time source used to expire results, primarily for testing
+     */
+    public NegativeResultCache(long ttlMillis, long maximumSize, Ticker ticker) {
+        this.emptyResults = Caffeine.newBuilder().expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS).maximumSize(maximumSize).ticker(ticker).build();
+    }
+    
+    /**
+     * Determine whether a lookup is known to find nothing
+     *
+     * @param key
+     *            the parts identifying the lookup, e.g. the table, auths, kind of lookup and its arguments
+     * @return true if the lookup found nothing within the time to live
+     */
+    public boolean isEmpty(Object... key) {
+        return emptyResults.getIfPresent(Arrays.asList(key)) != null;
+    }
+    
+    /**
+     * Record that a lookup found nothing
+     *
+     * @param key
+     *            the parts identifying the lookup
+     */
+    public void recordEmpty(Object... key) {
+        emptyResults.put(Arrays.asList(key), Boolean.TRUE);
+    }
+    
+    /**
+     * Forget every empty result
+     */
+    public void clear() {
+        emptyResults.invalidateAll();
+    }
+}
@@ -0,0 +1,214 @@
+package datawave.query.util;
+
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+/**
+ * A Spring {@link org.springframework.cache.Cache} backed by Caffeine that reloads entries ahead of their expiration. Once an entry is older than the refresh
+ * interval, the next {@link #get(Object, Callable)} returns the current value immediately and reloads the entry on the refresh executor. The reloaded value
+ * replaces the current one only if the entry has not been changed or evicted in the meantime. A reload that fails leaves the current value in place, and the
+ * reload is tried again on the next access.
+ * <p>
+ * Only a caller that finds no entry at all waits for the value to be loaded, which is the behavior of a {@code @Cacheable(sync = true)} method on a plain
+ * Caffeine cache. The exception is a reload that depends on other cached values, such as a field set derived from the metadata snapshot: an entry that is due
+ * for a reload when it is read by another reload is reloaded in place, so the derived value is built from the current entry rather than lagging it by another
+ * refresh interval.
+ */
+public class RefreshAheadCache extends AbstractValueAdaptingCache {
+    private static final Logger log = LoggerFactory.getLogger(RefreshAheadCache.class);
+    
+    private final String name;
+    private final Cache<Object,TimestampedValue> cache;
+    private final long refreshAfterWriteNanos;
+    private final Executor executor;
+    private final Ticker ticker;
+    
+    // the keys with a reload in flight, which keeps to a single reload per key
+    private final Set<Object> refreshing = ConcurrentHashMap.newKeySet();
+    
+    // set while a reload runs, across all caches, so that the entries read by a reload are brought up to date first
+    private static final ThreadLocal<Boolean> reloading = ThreadLocal.withInitial(() -> Boolean.FALSE);
+    
+    /**
+     * Initializes the instance
+     *
+     * @param name
+     *            the name of the cache
+     * @param cache
+     *            the backing Caffeine cache
+     * @param refreshAfterWriteNanos
+     *            the age at which an entry is reloaded on access
+     * @param executor
+     *            the executor used for reloads
+     * @param ticker
+     *            the time source used to age the entries
+     * @param allowNullValues
+     *            whether to accept and convert null values for this cache
+     */
+    public RefreshAheadCache(String name, Cache<Object,TimestampedValue> cache, long refreshAfterWriteNanos, Executor executor, Ticker ticker,
+                    boolean allowNullValues) {
+        super(allowNullValues);
+        this.name = name;
+        this.cache = cache;
+        this.refreshAfterWriteNanos = refreshAfterWriteNanos;
+        this.executor = executor;
+        this.ticker = ticker;
+    }
+    
+    @Override
+    public String getName() {
+        return name;
+    }
+    
+    @Override
+    public Cache<Object,TimestampedValue> getNativeCache() {
+        return cache;
+    }
+    
+    @Override
+    protected Object lookup(Object key) {
+        TimestampedValue current = cache.getIfPresent(key);
+        if (current == null) {
+            return null;
+        }
+        return current.value;
+    }
+    
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        TimestampedValue current = cache.get(key, k -> new TimestampedValue(load(k, valueLoader), ticker.read()));
+        if (ticker.read() - current.writeTime >= refreshAfterWriteNanos) {
+            if (reloading.get()) {
+                current = reload(key, current, valueLoader);
+            } else {
+                refresh(key, current, valueLoader);
+            }
+        }
+        return (T) fromStoreValue(current.value);
+    }
+    
+    private Object load(Object key, Callable<?> valueLoader) {
+        try {
+            return toStoreValue(valueLoader.call());
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+    }
+    
+    /**
+     * Reload an entry on the refresh executor, unless a reload of the entry is already in flight
+     *
+     * @param key
+     *            the key
+     * @param current
+     *            the entry being refreshed
+     * @param valueLoader
+     *            the loader for the value
+     */
+    private void refresh(Object key, TimestampedValue current, Callable<?> valueLoader) {
+        if (!refreshing.add(key)) {
+            return;
+        }
+        
+        try {
+            executor.execute(() -> {
+                reloading.set(Boolean.TRUE);
+                try {
+                    reload(key, current, valueLoader);
+                } finally {
+                    reloading.remove();
+                    refreshing.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(key);
+            log.warn("Unable to schedule a reload of {} in {}, keeping the current value", key, name, e);
+        }
+    }
+    
+    /**
+     * Reload an entry on the calling thread, replacing it only if it has not been changed or evicted in the meantime
+     *
+     * @param key
+     *            the key
+     * @param current
+     *            the entry being reloaded
+     * @param valueLoader
+     *            the loader for the value
+     * @return the reloaded entry, or the current entry if the reload failed
+     */
+    private TimestampedValue reload(Object key, TimestampedValue current, Callable<?> valueLoader) {
+        try {
+            TimestampedValue reloaded = new TimestampedValue(load(key, valueLoader), ticker.read());
+            if (!cache.asMap().replace(key, current, reloaded)) {
+                log.debug("Discarding reloaded value for {} in {} as the entry changed during the reload", key, name);
+            }
+            return reloaded;
+        } catch (RuntimeException e) {
+            log.warn("Failed to reload {} in {}, keeping the current value", key, name, e);
+            return current;
+        }
+    }
+    
+    @Override
+    public void put(Object key, Object value) {
+        cache.put(key, new TimestampedValue(toStoreValue(value), ticker.read()));
+    }
+    
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        TimestampedValue existing = cache.asMap().putIfAbsent(key, new TimestampedValue(toStoreValue(value), ticker.read()));
+        return existing == null ? null : toValueWrapper(existing.value);
+    }
+    
+    @Override
+    public void evict(Object key) {
+        cache.invalidate(key);
+    }
+    
+    @Override
+    public boolean evictIfPresent(Object key) {
+        return cache.asMap().remove(key) != null;
+    }
+    
+    @Override
+    public void clear() {
+        cache.invalidateAll();
+    }
+    
+    @Override
+    public boolean invalidate() {
+        boolean notEmpty = !cache.asMap().isEmpty();
+        cache.invalidateAll();
+        return notEmpty;
+    }
+    
+    /**
+     * A cached value along with the time it was loaded. Equality is identity, so that a reload only replaces the exact entry it was started for.
+     */
+    public static class TimestampedValue {
+        private final Object value;
+        private final long writeTime;
+        
+        TimestampedValue(Object value, long writeTime) {
+            this.value = value;
+            this.writeTime = writeTime;
+        }
+        
+        @Override
+        public String toString() {
+            return String.valueOf(value);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package datawave.query.util;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.CaffeineSpec;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * A {@link CacheManager} of {@link RefreshAheadCache}s, intended as a drop-in replacement for a {@link org.springframework.cache.caffeine.CaffeineCacheManager}
+ * as the {@code metadataHelperCacheManager}. Entries older than the {@link #setRefreshAfterWriteMillis(long) refresh interval} continue to be served while
+ * they are reloaded in the background. The {@link #setCacheSpecification(String) cache specification} still controls the size of the caches and the hard
+ * expiration of entries that are not accessed, and it should not include a {@code refreshAfterWrite} setting of its own.
+ */
+public class RefreshAheadCacheManager implements CacheManager {
+    
+    private final ConcurrentMap<String,Cache> caches = new ConcurrentHashMap<>();
+    
+    private Caffeine<Object,Object> cacheBuilder = Caffeine.newBuilder();
+    private long refreshAfterWriteMillis = TimeUnit.MINUTES.toMillis(1);
+    private Executor executor;
+    private Ticker ticker = Ticker.systemTicker();
+    private boolean allowNullValues = true;
+    
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, this::createCache);
+    }
+    
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+    
+    private Cache createCache(String name) {
+        return new RefreshAheadCache(name, cacheBuilder.build(), TimeUnit.MILLISECONDS.toNanos(refreshAfterWriteMillis), getExecutor(), ticker,
+                        allowNullValues);
+    }
+    
+    private synchronized Executor getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(2, new ThreadFactoryBuilder().setNameFormat("metadata-cache-refresh-%d").setDaemon(true).build());
+        }
+        return executor;
+    }
+    
+    /**
+     * Set the Caffeine specification used to build each cache, see {@link CaffeineSpec}. Only caches created after this call are affected.
+     *
+     * @param cacheSpecification
+     *            the specification, e.g. {@code maximumSize=100, expireAfterWrite=10m}
+     */
+    public void setCacheSpecification(String cacheSpecification) {
+        this.cacheBuilder = Caffeine.from(cacheSpecification);
+    }
+    
+    public long getRefreshAfterWriteMillis() {
+        return refreshAfterWriteMillis;
+    }
+    
+    /**
+     * Set the age at which an entry is reloaded in the background on its next access. This should be shorter than any {@code expireAfterWrite} in the cache
+     * specification. Only caches created after this call are affected.
+     *
+     * @param refreshAfterWriteMillis
+     *            the age in milliseconds
+     */
+    public void setRefreshAfterWriteMillis(long refreshAfterWriteMillis) {
+        this.refreshAfterWriteMillis = refreshAfterWriteMillis;
+    }
+    
+    /**
+     * Set the executor used to reload entries. By default, a small pool of daemon threads is used.
+     *
+     * @param executor
+     *            the executor
+     */
+    public synchronized void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+    
+    /**
+     * Set the time source used to age entries, primarily for testing
+     *
+     * @param ticker
+     *            the ticker
+     */
+    public void setTicker(Ticker ticker) {
+        this.ticker = ticker;
+    }
+    
+    public boolean isAllowNullValues() {
+        return allowNullValues;
+    }
+    
+    public void setAllowNullValues(boolean allowNullValues) {
+        this.allowNullValues = allowNullValues;
+    }
+}
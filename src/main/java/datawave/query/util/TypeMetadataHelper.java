@@ -1,8 +1,11 @@
 package datawave.query.util;
 
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -11,10 +14,8 @@ import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
 import org.apache.accumulo.core.client.AccumuloClient;
-import org.apache.accumulo.core.client.Scanner;
 import org.apache.accumulo.core.client.TableNotFoundException;
 import org.apache.accumulo.core.data.Key;
-import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.security.Authorizations;
 import org.apache.hadoop.io.Text;
@@ -34,7 +35,6 @@ import com.google.common.collect.Sets;
 
 import datawave.data.ColumnFamilyConstants;
 import datawave.security.util.AuthorizationsMinimizer;
-import datawave.security.util.ScannerHelper;
 
 @EnableCaching
 @Component("typeMetadataHelper")
@@ -53,6 +53,9 @@ public class TypeMetadataHelper {
     protected final Map<String,String> typeSubstitutions;
     protected final Set<Authorizations> allMetadataAuths;
     
+    protected MetadataSnapshotHelper metadataSnapshotHelper = null;
+    protected int fullTableScanThreads = 1;
+    
     /**
      * Initializes the instance with a provided update interval.
      *
@@ -92,6 +95,34 @@ public class TypeMetadataHelper {
         return metadataTableName;
     }
     
+    public MetadataSnapshotHelper getMetadataSnapshotHelper() {
+        return metadataSnapshotHelper;
+    }
+    
+    /**
+     * Set the {@link MetadataSnapshotHelper} used to build the {@link TypeMetadata} for this helper's auths without a separate scan of the table
+     *
+     * @param metadataSnapshotHelper
+     *            the MetadataSnapshotHelper, or null to scan the table
+     */
+    public void setMetadataSnapshotHelper(MetadataSnapshotHelper metadataSnapshotHelper) {
+        this.metadataSnapshotHelper = metadataSnapshotHelper;
+    }
+    
+    public int getFullTableScanThreads() {
+        return fullTableScanThreads;
+    }
+    
+    /**
+     * Set the number of threads used for the full-table scan, see {@link FullTableScanner}
+     *
+     * @param fullTableScanThreads
+     *            the number of threads, 1 to scan serially
+     */
+    public void setFullTableScanThreads(int fullTableScanThreads) {
+        this.fullTableScanThreads = fullTableScanThreads;
+    }
+    
     @Cacheable(value = "getTypeMetadata", key = "{#root.target.auths,#root.target.metadataTableName}", cacheManager = "metadataHelperCacheManager", sync = true)
     public TypeMetadata getTypeMetadata() throws TableNotFoundException {
         if (log.isDebugEnabled())
@@ -104,10 +135,24 @@ public class TypeMetadataHelper {
     public TypeMetadata getTypeMetadata(Set<String> datatypeFilter) throws TableNotFoundException {
         if (log.isDebugEnabled())
             log.debug("cache fault for getTypeMetadata(" + this.auths + "," + this.metadataTableName + "," + datatypeFilter + ")");
+        if (metadataSnapshotHelper != null) {
+            return this.getTypeMetadata(metadataSnapshotHelper.getMetadataSnapshot(), datatypeFilter);
+        }
         return this.getTypeMetadata(this.auths, this.metadataTableName, datatypeFilter);
         
     }
     
+    /**
+     * Get the {@link TypeMetadata} for every subset of the metadata auths. The {@link ColumnFamilyConstants#COLF_T} column is scanned once with all of the
+     * auths, retaining the visibility of each entry, and the TypeMetadata for each subset is built from the entries visible to it. Subsets that can see the
+     * same set of visibilities share the same TypeMetadata instance.
+     *
+     * @param allAuths
+     *            the metadata auths
+     * @return a mapping of each subset of the auths to its TypeMetadata
+     * @throws TableNotFoundException
+     *             if no table exists
+     */
     public Map<Set<String>,TypeMetadata> getTypeMetadataMap(Collection<Authorizations> allAuths) throws TableNotFoundException {
         Collection<Set<String>> powerset = getAllMetadataAuthsPowerSet(allAuths);
         if (log.isTraceEnabled()) {
@@ -116,7 +161,13 @@ public class TypeMetadataHelper {
                 log.trace("powerset has :" + s);
             }
         }
+        
+        Set<String> union = new HashSet<>();
+        powerset.forEach(union::addAll);
+        VisibilityAwareMetadata metadata = loadTypeMetadataVisibilities(Collections.singleton(new Authorizations(union.toArray(new String[0]))));
+        
         Map<Set<String>,TypeMetadata> map = Maps.newHashMap();
+        Map<BitSet,TypeMetadata> typeMetadataByVisible = new HashMap<>();
         
         for (Set<String> a : powerset) {
             if (log.isTraceEnabled())
@@ -126,12 +177,45 @@ public class TypeMetadataHelper {
             
             if (log.isTraceEnabled())
                 log.trace("made an Authorizations:" + at);
-            TypeMetadata tm = this.getTypeMetadataForAuths(Collections.singleton(at));
+            BitSet visible = metadata.getVisible(Collections.singleton(at));
+            TypeMetadata tm = typeMetadataByVisible.computeIfAbsent(visible, v -> {
+                TypeMetadata typeMetadata = new TypeMetadata();
+                metadata.forEachVisible(v, key -> addTypeMetadata(typeMetadata, key.getRow().toString(), key.getColumnQualifier().toString(), null));
+                return typeMetadata;
+            });
             map.put(a, tm);
         }
+        
+        if (log.isDebugEnabled()) {
+            log.debug("built {} distinct TypeMetadata for {} auth subsets from {} visibilities", typeMetadataByVisible.size(), map.size(),
+                            metadata.getVisibilities().size());
+        }
         return map;
     }
     
+    /**
+     * Scan the {@link ColumnFamilyConstants#COLF_T} column, retaining the visibility of each entry
+     *
+     * @param auths
+     *            the auths for the scan
+     * @return the entries and their visibilities
+     * @throws TableNotFoundException
+     *             if no table exists
+     */
+    private VisibilityAwareMetadata loadTypeMetadataVisibilities(Set<Authorizations> auths) throws TableNotFoundException {
+        VisibilityAwareMetadata.Builder builder = new VisibilityAwareMetadata.Builder().setLoadTime(System.currentTimeMillis());
+        try (FullTableScanner bs = new FullTableScanner(accumuloClient, metadataTableName, auths, fullTableScanThreads)) {
+            for (Text colf : metadataTypeColfs) {
+                bs.fetchColumnFamily(colf);
+            }
+            
+            for (Entry<Key,Value> entry : bs) {
+                builder.add(entry.getKey());
+            }
+        }
+        return builder.build();
+    }
+    
     private Set<Set<String>> getAllMetadataAuthsPowerSet(Collection<Authorizations> allMetadataAuthsCollection) {
         
         // first, minimize the usersAuths:
@@ -167,52 +251,78 @@ public class TypeMetadataHelper {
             log.trace("got:" + got + " and it is a " + (got == null ? null : got.getClass()));
         }
         
-        Scanner bs = ScannerHelper.createScanner(accumuloClient, metadataTableName, auths);
-        
-        Range range = new Range();
-        bs.setRange(range);
-        
-        // Fetch all the column
-        for (Text colf : metadataTypeColfs) {
-            bs.fetchColumnFamily(colf);
-        }
-        
-        for (Entry<Key,Value> entry : bs) {
-            // Get the column qualifier from the key. It contains the datatype
-            // and normalizer class
-            if (null != entry.getKey().getColumnQualifier()) {
-                String colq = entry.getKey().getColumnQualifier().toString();
-                int idx = colq.indexOf(NULL_BYTE);
-                
-                if (idx != -1) {
-                    String field = entry.getKey().getRow().toString();
-                    String type = colq.substring(0, idx);
-                    String className = null;
-                    if (datatypeFilter == null || datatypeFilter.isEmpty()) { // no filtering, getem all
-                        className = colq.substring(idx + 1);
-                    } else if (datatypeFilter.contains(type)) {
-                        className = colq.substring(idx + 1);
-                    }
-                    if (className != null) {
-                        if (this.useTypeSubstitution && this.typeSubstitutions.containsKey(className)) {
-                            className = this.typeSubstitutions.get(className);
-                        }
-                        typeMetadata.put(field, type, className);
-                    }
-                    
+        try (FullTableScanner bs = new FullTableScanner(accumuloClient, metadataTableName, auths, fullTableScanThreads)) {
+            // Fetch all the column
+            for (Text colf : metadataTypeColfs) {
+                bs.fetchColumnFamily(colf);
+            }
+            
+            for (Entry<Key,Value> entry : bs) {
+                // Get the column qualifier from the key. It contains the datatype
+                // and normalizer class
+                if (null != entry.getKey().getColumnQualifier()) {
+                    addTypeMetadata(typeMetadata, entry.getKey().getRow().toString(), entry.getKey().getColumnQualifier().toString(), datatypeFilter);
                 } else {
-                    log.warn("EventMetadata entry did not contain a null byte in the column qualifier: " + entry.getKey());
+                    log.warn("ColumnQualifier null in EventMetadata for key: " + entry.getKey());
                 }
-            } else {
-                log.warn("ColumnQualifier null in EventMetadata for key: " + entry.getKey());
             }
         }
         
-        bs.close();
-        
         return typeMetadata;
     }
     
+    /**
+     * Build the {@link TypeMetadata} from the {@link ColumnFamilyConstants#COLF_T} qualifiers retained by a {@link MetadataSnapshot}
+     *
+     * @param snapshot
+     *            the metadata snapshot
+     * @param datatypeFilter
+     *            the set of datatypes to include, null or empty for all
+     * @return the TypeMetadata
+     */
+    private TypeMetadata getTypeMetadata(MetadataSnapshot snapshot, Set<String> datatypeFilter) {
+        TypeMetadata typeMetadata = new TypeMetadata();
+        for (Entry<String,String> entry : snapshot.getColumnQualifiers(ColumnFamilyConstants.COLF_T).entries()) {
+            addTypeMetadata(typeMetadata, entry.getKey(), entry.getValue(), datatypeFilter);
+        }
+        return typeMetadata;
+    }
+    
+    /**
+     * Add a single {@link ColumnFamilyConstants#COLF_T} entry to the {@link TypeMetadata}, applying the datatype filter and any type substitution
+     *
+     * @param typeMetadata
+     *            the TypeMetadata to update
+     * @param field
+     *            the field, taken from the row
+     * @param colq
+     *            the column qualifier, which contains the datatype and normalizer class
+     * @param datatypeFilter
+     *            the set of datatypes to include, null or empty for all
+     */
+    private void addTypeMetadata(TypeMetadata typeMetadata, String field, String colq, Set<String> datatypeFilter) {
+        int idx = colq.indexOf(NULL_BYTE);
+        
+        if (idx != -1) {
+            String type = colq.substring(0, idx);
+            String className = null;
+            if (datatypeFilter == null || datatypeFilter.isEmpty()) { // no filtering, getem all
+                className = colq.substring(idx + 1);
+            } else if (datatypeFilter.contains(type)) {
+                className = colq.substring(idx + 1);
+            }
+            if (className != null) {
+                if (this.useTypeSubstitution && this.typeSubstitutions.containsKey(className)) {
+                    className = this.typeSubstitutions.get(className);
+                }
+                typeMetadata.put(field, type, className);
+            }
+            
+        } else {
+            log.warn("EventMetadata entry did not contain a null byte in the column qualifier: " + field + " " + colq);
+        }
+    }
+    
     @Component
     public static class Factory {
         private final BeanFactory beanFactory;
@@ -0,0 +1,207 @@
+package datawave.query.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.apache.accumulo.core.security.VisibilityEvaluator;
+import org.apache.accumulo.core.security.VisibilityParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The metadata table entries read by a {@link MetadataSnapshot}, scanned once with the full set of metadata auths and retained along with their visibility.
+ * Each distinct {@link ColumnVisibility} is stored once in a dictionary and every entry refers to it by index, so the visibilities cost little beyond the keys
+ * themselves.
+ * <p>
+ * A snapshot for any subset of the metadata auths is derived in memory by evaluating each distinct visibility once against that subset and keeping the entries
+ * whose visibility passes. The derived snapshots are memoized, so every auth subset is served from the one scan and shares its keys.
+ */
+public class VisibilityAwareMetadata {
+    private static final Logger log = LoggerFactory.getLogger(VisibilityAwareMetadata.class);
+    
+    private final List<Key> keys;
+    private final int[] visibilityIndices;
+    private final List<ColumnVisibility> visibilities;
+    private final long loadTime;
+    
+    private final ConcurrentMap<Set<Authorizations>,MetadataSnapshot> snapshots = new ConcurrentHashMap<>();
+    
+    private VisibilityAwareMetadata(Builder builder) {
+        this.keys = Collections.unmodifiableList(new ArrayList<>(builder.keys));
+        this.visibilityIndices = Arrays.copyOf(builder.visibilityIndices, builder.keys.size());
+        this.visibilities = Collections.unmodifiableList(new ArrayList<>(builder.visibilities));
+        this.loadTime = builder.loadTime;
+    }
+    
+    /**
+     * Get the distinct visibilities of the entries, in the order of their indices
+     *
+     * @return an unmodifiable list of visibilities
+     */
+    public List<ColumnVisibility> getVisibilities() {
+        return visibilities;
+    }
+    
+    /**
+     * Get the time at which the scan for this metadata was started
+     *
+     * @return the time in milliseconds
+     */
+    public long getLoadTime() {
+        return loadTime;
+    }
+    
+    /**
+     * Get the number of entries retained
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return keys.size();
+    }
+    
+    /**
+     * Determine which of the distinct {@link #getVisibilities() visibilities} can be seen with a set of auths. As with a scan using multiple
+     * {@link Authorizations}, a visibility must be satisfied by each of them.
+     *
+     * @param auths
+     *            the auths
+     * @return a bitset of the indices of the visible visibilities
+     */
+    public BitSet getVisible(Set<Authorizations> auths) {
+        List<VisibilityEvaluator> evaluators = new ArrayList<>(auths.size());
+        for (Authorizations authorizations : auths) {
+            evaluators.add(new VisibilityEvaluator(authorizations));
+        }
+        
+        BitSet visible = new BitSet(visibilities.size());
+        for (int i = 0; i < visibilities.size(); i++) {
+            if (isVisible(evaluators, visibilities.get(i))) {
+                visible.set(i);
+            }
+        }
+        return visible;
+    }
+    
+    private static boolean isVisible(List<VisibilityEvaluator> evaluators, ColumnVisibility visibility) {
+        try {
+            for (VisibilityEvaluator evaluator : evaluators) {
+                if (!evaluator.evaluate(visibility)) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (VisibilityParseException e) {
+            log.warn("Unable to evaluate visibility {}, treating it as not visible", visibility, e);
+            return false;
+        }
+    }
+    
+    /**
+     * Perform an action for each entry, in the order the entries were added, whose visibility is in a set of visible visibilities
+     *
+     * @param visible
+     *            the indices of the visible visibilities, see {@link #getVisible(Set)}
+     * @param action
+     *            the action to perform on the key of each visible entry, which has no visibility
+     */
+    public void forEachVisible(BitSet visible, Consumer<Key> action) {
+        for (int i = 0; i < visibilityIndices.length; i++) {
+            if (visible.get(visibilityIndices[i])) {
+                action.accept(keys.get(i));
+            }
+        }
+    }
+    
+    /**
+     * Get the snapshot of the entries visible with a set of auths, deriving it if this has not already been done for the same auths
+     *
+     * @param auths
+     *            the auths, which should be a subset of the auths used to scan the metadata
+     * @return the metadata snapshot
+     */
+    public MetadataSnapshot getSnapshot(Set<Authorizations> auths) {
+        return snapshots.computeIfAbsent(auths, this::deriveSnapshot);
+    }
+    
+    private MetadataSnapshot deriveSnapshot(Set<Authorizations> auths) {
+        BitSet visible = getVisible(auths);
+        if (log.isDebugEnabled()) {
+            log.debug("deriving metadata snapshot for {} with {} of {} visibilities", auths, visible.cardinality(), visibilities.size());
+        }
+        
+        MetadataSnapshot.Builder builder = new MetadataSnapshot.Builder().setFullLoadTime(loadTime);
+        forEachVisible(visible, builder::add);
+        return builder.build();
+    }
+    
+    /**
+     * Accumulates metadata table entries, interning their visibilities
+     */
+    public static class Builder {
+        private final List<Key> keys = new ArrayList<>();
+        private int[] visibilityIndices = new int[1024];
+        private final List<ColumnVisibility> visibilities = new ArrayList<>();
+        private final Map<ByteSequence,Integer> visibilityDictionary = new HashMap<>();
+        private long loadTime = 0L;
+        
+        /**
+         * Set the time at which the scan feeding this builder was started
+         *
+         * @param loadTime
+         *            the time in milliseconds
+         * @return this builder
+         */
+        public Builder setLoadTime(long loadTime) {
+            this.loadTime = loadTime;
+            return this;
+        }
+        
+        /**
+         * Add a metadata table key. The key is retained without its visibility, which is interned in the visibility dictionary.
+         *
+         * @param key
+         *            the key
+         * @return this builder
+         */
+        public Builder add(Key key) {
+            ByteSequence visibility = key.getColumnVisibilityData();
+            Integer index = visibilityDictionary.get(visibility);
+            if (index == null) {
+                index = visibilities.size();
+                visibilities.add(new ColumnVisibility(visibility.toArray()));
+                visibilityDictionary.put(visibility, index);
+            }
+            
+            keys.add(new Key(key.getRowData().toArray(), key.getColumnFamilyData().toArray(), key.getColumnQualifierData().toArray(), new byte[0],
+                            key.getTimestamp()));
+            if (keys.size() > visibilityIndices.length) {
+                visibilityIndices = Arrays.copyOf(visibilityIndices, visibilityIndices.length * 2);
+            }
+            visibilityIndices[keys.size() - 1] = index;
+            return this;
+        }
+        
+        /**
+         * Build the metadata from the entries added so far
+         *
+         * @return the metadata
+         */
+        public VisibilityAwareMetadata build() {
+            return new VisibilityAwareMetadata(this);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package datawave.iterators;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.user.SummingCombiner;
+import org.apache.accumulo.core.iteratorsImpl.system.SortedMapIterator;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import datawave.data.ColumnFamilyConstants;
+import datawave.util.time.DateHelper;
+
+class FieldIndexHoleIteratorTest {
+    
+    private final SortedMap<Key,Value> data = new TreeMap<>();
+    
+    @BeforeEach
+    void setup() {
+        data.clear();
+        
+        // under indexed on the 2nd and not indexed on the 3rd for datatype-a, fully indexed for datatype-b
+        put("COLOR", "e", "datatype-a", 0L);
+        for (String date : List.of("20240101", "20240102", "20240103", "20240104")) {
+            put("COLOR", "f", "datatype-a\0" + date, 10L);
+            put("COLOR", "f", "datatype-b\0" + date, 5L);
+            put("COLOR", "i", "datatype-b\0" + date, 5L);
+        }
+        put("COLOR", "i", "datatype-a\u000020240101", 10L);
+        put("COLOR", "i", "datatype-a\u000020240102", 4L);
+        put("COLOR", "i", "datatype-a\u000020240104", 10L);
+        
+        // never indexed
+        put("SHAPE", "f", "datatype-a\u000020240101", 3L);
+        put("SHAPE", "f", "datatype-a\u000020240102", 3L);
+        
+        // indexed on and before the 2nd by a boundary marker, so only the 3rd is a hole
+        for (String date : List.of("20240101", "20240102", "20240103")) {
+            put("SIZE", "f", "datatype-a\0" + date, 7L);
+        }
+        put("SIZE", "i", "datatype-a\u000020240102\u0000true", 0L);
+    }
+    
+    private void put(String row, String cf, String cq, long count) {
+        data.put(new Key(row, cf, cq), new Value(SummingCombiner.VAR_LEN_ENCODER.encode(count)));
+    }
+    
+    @Test
+    void testHoles() throws Exception {
+        Map<Key,List<Pair<Date,Date>>> expected = new LinkedHashMap<>();
+        expected.put(new Key("COLOR", "i", "datatype-a\u000020240104"), List.of(hole("20240102", "20240103")));
+        expected.put(new Key("SHAPE", "f", "datatype-a\u000020240102"), List.of(hole("20240101", "20240102")));
+        expected.put(new Key("SIZE", "i", "datatype-a\u000020240102\u0000true"), List.of(hole("20240103", "20240103")));
+        
+        assertEquals(expected, scan(new Range(), Collections.emptySet(), 1.0d));
+    }
+    
+    @Test
+    void testThreshold() throws Exception {
+        // 4 of 10 meets a 40% threshold, which leaves only the 3rd
+        Map<Key,List<Pair<Date,Date>>> holes = scan(new Range("COLOR"), Collections.emptySet(), 0.4d);
+        assertEquals(Map.of(new Key("COLOR", "i", "datatype-a\u000020240104"), List.of(hole("20240103", "20240103"))), holes);
+    }
+    
+    @Test
+    void testDatatypes() throws Exception {
+        assertEquals(Collections.emptyMap(), scan(new Range("COLOR"), Set.of("datatype-b"), 1.0d));
+    }
+    
+    @Test
+    void testSeekWithinRow() throws Exception {
+        // a seek past the first key of a row must still find the holes of the whole row
+        Range range = new Range(new Key("COLOR", "f", "datatype-b\u000020240101"), true, null, true);
+        Map<Key,List<Pair<Date,Date>>> holes = scan(range, Collections.emptySet(), 1.0d);
+        assertEquals(3, holes.size());
+        assertEquals(List.of(hole("20240102", "20240103")), holes.get(new Key("COLOR", "i", "datatype-a\u000020240104")));
+        
+        // and an entry at the start key of an exclusive range is not returned again
+        range = new Range(new Key("COLOR", "i", "datatype-a\u000020240104"), false, null, true);
+        assertEquals(2, scan(range, Collections.emptySet(), 1.0d).size());
+    }
+    
+    @Test
+    void testDateRange() throws Exception {
+        // the boundary marker of SIZE on the 2nd is before the range, which leaves the 3rd as a hole
+        Map<Key,List<Pair<Date,Date>>> expected = new LinkedHashMap<>();
+        expected.put(new Key("COLOR", "i", "datatype-a\u000020240104"), List.of(hole("20240103", "20240103")));
+        expected.put(new Key("SIZE", "f", "datatype-a\u000020240103"), List.of(hole("20240103", "20240103")));
+        
+        assertEquals(expected, scan(new Range(), "20240103", "20240104"));
+    }
+    
+    @Test
+    void testDateRangeWithLaterBoundaryMarkers() throws Exception {
+        // boundary markers after the range replace the holes within it
+        for (String date : List.of("20240101", "20240102", "20240103", "20240104")) {
+            put("WEIGHT", "f", "datatype-a\0" + date, 2L);
+            put("WEIGHT", "i", "datatype-a\0" + date, 2L);
+            put("WIDTH", "f", "datatype-a\0" + date, 2L);
+        }
+        put("WEIGHT", "i", "datatype-a\u000020240104\u0000false", 0L);
+        put("WIDTH", "i", "datatype-a\u000020240104\u0000true", 0L);
+        
+        Map<Key,List<Pair<Date,Date>>> holes = scan(new Range("WEIGHT", "WIDTH"), "20240102", "20240103");
+        assertEquals(Map.of(new Key("WEIGHT", "i", "datatype-a\u000020240104\u0000false"), List.of(hole("20240102", "20240103"))), holes);
+    }
+    
+    private static Pair<Date,Date> hole(String start, String end) {
+        return Pair.of(DateHelper.parse(start), DateHelper.parse(end));
+    }
+    
+    private Map<Key,List<Pair<Date,Date>>> scan(Range range, Set<String> datatypes, double minThreshold) throws Exception {
+        IteratorSetting setting = new IteratorSetting(50, FieldIndexHoleIterator.class);
+        FieldIndexHoleIterator.configure(setting, ColumnFamilyConstants.COLF_I, datatypes, minThreshold);
+        return scan(range, setting);
+    }
+    
+    private Map<Key,List<Pair<Date,Date>>> scan(Range range, String startDate, String endDate) throws Exception {
+        IteratorSetting setting = new IteratorSetting(50, FieldIndexHoleIterator.class);
+        FieldIndexHoleIterator.configure(setting, ColumnFamilyConstants.COLF_I, Collections.emptySet(), 1.0d, DateHelper.parse(startDate),
+                        DateHelper.parse(endDate));
+        return scan(range, setting);
+    }
+    
+    private Map<Key,List<Pair<Date,Date>>> scan(Range range, IteratorSetting setting) throws Exception {
+        FieldIndexHoleIterator iterator = new FieldIndexHoleIterator();
+        iterator.init(new SortedMapIterator(data), setting.getOptions(), null);
+        iterator.seek(range, Collections.emptySet(), false);
+        
+        Map<Key,List<Pair<Date,Date>>> holes = new LinkedHashMap<>();
+        List<Key> keys = new ArrayList<>();
+        while (iterator.hasTop()) {
+            keys.add(iterator.getTopKey());
+            holes.put(iterator.getTopKey(), FieldIndexHoleIterator.decodeHoles(iterator.getTopValue()));
+            iterator.next();
+        }
+        
+        // the entries are returned in sorted order
+        assertEquals(new ArrayList<>(new TreeMap<>(holes).keySet()), keys);
+        return holes;
+    }
+}
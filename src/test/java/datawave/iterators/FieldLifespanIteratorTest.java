@@ -0,0 +1,106 @@
+package datawave.iterators;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.user.SummingCombiner;
+import org.apache.accumulo.core.iteratorsImpl.system.SortedMapIterator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import datawave.query.util.FieldLifespans;
+import datawave.query.util.FieldLifespans.Lifespan;
+
+class FieldLifespanIteratorTest {
+    
+    private final SortedMap<Key,Value> data = new TreeMap<>();
+    
+    @BeforeEach
+    void setup() {
+        data.clear();
+        
+        put("COLOR", "datatype-a\u000020240301", 3L);
+        put("COLOR", "datatype-a\u000020240302", 5L);
+        put("COLOR", "datatype-a\u000020240305", 4L);
+        put("COLOR", "datatype-b\u000020240303", 9L);
+        put("COLOR", "malformed", 1L);
+        
+        put("SHAPE", "datatype-a\u000020240310", 2L);
+    }
+    
+    private void put(String row, String cq, long timestamp) {
+        data.put(new Key(row, "f", cq, timestamp), new Value(SummingCombiner.VAR_LEN_ENCODER.encode(1L)));
+    }
+    
+    @Test
+    void testFirstAndLastDates() throws Exception {
+        FieldLifespans lifespans = scan(new Range(), new FieldLifespans.Builder());
+        
+        assertEquals(Map.of("datatype-a", new Lifespan("20240301", "20240305"), "datatype-b", new Lifespan("20240303", "20240303")),
+                        lifespans.getLifespansByDatatype("COLOR"));
+        assertEquals(new Lifespan("20240310", "20240310"), lifespans.getLifespan("SHAPE", Collections.emptySet()));
+        assertEquals(9L, lifespans.getMaxTimestamp());
+    }
+    
+    @Test
+    void testLifespansAcrossDatatypes() throws Exception {
+        FieldLifespans lifespans = scan(new Range(), new FieldLifespans.Builder());
+        
+        assertEquals(new Lifespan("20240301", "20240305"), lifespans.getLifespan("COLOR", Set.of("datatype-a", "datatype-b")));
+        assertEquals(new Lifespan("20240303", "20240303"), lifespans.getLifespan("COLOR", Set.of("datatype-b")));
+        assertNull(lifespans.getLifespan("COLOR", Set.of("datatype-c")));
+        assertNull(lifespans.getLifespan("SIZE", Collections.emptySet()));
+        
+        Map<String,Lifespan> byField = lifespans.getLifespans(List.of("COLOR", "SHAPE", "SIZE"), Set.of("datatype-a"));
+        assertEquals(Map.of("COLOR", new Lifespan("20240301", "20240305"), "SHAPE", new Lifespan("20240310", "20240310")), byField);
+        
+        assertTrue(byField.get("COLOR").overlaps("20240305", "20240309"));
+        assertFalse(byField.get("COLOR").overlaps("20240306", "20240309"));
+    }
+    
+    @Test
+    void testIncrementalBuildWidensLifespans() throws Exception {
+        FieldLifespans previous = new FieldLifespans.Builder().add("COLOR", "datatype-a", "20240201", "20240302").build();
+        FieldLifespans lifespans = scan(new Range(), new FieldLifespans.Builder(previous));
+        
+        assertEquals(new Lifespan("20240201", "20240305"), lifespans.getLifespan("COLOR", Set.of("datatype-a")));
+    }
+    
+    @Test
+    void testResumedScan() throws Exception {
+        // resuming after a returned key may return the last day again, which leaves the lifespan unchanged
+        FieldLifespanIterator iterator = new FieldLifespanIterator();
+        iterator.init(new SortedMapIterator(data), Collections.emptyMap(), null);
+        iterator.seek(new Range(), Collections.emptySet(), false);
+        Key first = iterator.getTopKey();
+        
+        FieldLifespans.Builder builder = new FieldLifespans.Builder().add(first, iterator.getTopValue());
+        FieldLifespans lifespans = scan(new Range(first, false, null, true), builder);
+        assertEquals(new Lifespan("20240301", "20240305"), lifespans.getLifespan("COLOR", Set.of("datatype-a")));
+        assertEquals(new Lifespan("20240303", "20240303"), lifespans.getLifespan("COLOR", Set.of("datatype-b")));
+    }
+    
+    private FieldLifespans scan(Range range, FieldLifespans.Builder builder) throws Exception {
+        FieldLifespanIterator iterator = new FieldLifespanIterator();
+        iterator.init(new SortedMapIterator(data), Collections.emptyMap(), null);
+        iterator.seek(range, Collections.emptySet(), false);
+        
+        while (iterator.hasTop()) {
+            builder.add(iterator.getTopKey(), iterator.getTopValue());
+            iterator.next();
+        }
+        return builder.build();
+    }
+}
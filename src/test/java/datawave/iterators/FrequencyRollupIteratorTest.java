@@ -0,0 +1,106 @@
+package datawave.iterators;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.IteratorUtil.IteratorScope;
+import org.apache.accumulo.core.iterators.user.SummingCombiner;
+import org.apache.accumulo.core.iteratorsImpl.system.SortedMapIterator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class FrequencyRollupIteratorTest {
+    
+    private final SortedMap<Key,Value> data = new TreeMap<>();
+    
+    @BeforeEach
+    void setup() {
+        data.clear();
+        
+        put("COLOR", "f", "datatype-a\u000020231231", 1L, 10L);
+        put("COLOR", "f", "datatype-a\u000020240301", 2L, 30L);
+        put("COLOR", "f", "datatype-a\u000020240302", 4L, 20L);
+        put("COLOR", "f", "datatype-b\u000020240301", 8L, 10L);
+        put("COLOR", "i", "datatype-a", 0L, 10L);
+        
+        put("SHAPE", "f", "datatype-a\u000020240401", 16L, 10L);
+        // a stale rollup from a previous compaction
+        put("SHAPE", "fm", "datatype-a\u0000202404", 99L, 5L);
+    }
+    
+    private void put(String row, String cf, String cq, long count, long timestamp) {
+        data.put(new Key(row, cf, cq, timestamp), new Value(SummingCombiner.VAR_LEN_ENCODER.encode(count)));
+    }
+    
+    @Test
+    void testFullMajorCompactionRebuildsRollups() throws Exception {
+        Map<Key,Long> expected = new LinkedHashMap<>();
+        expected.put(new Key("COLOR", "f", "datatype-a\u000020231231", 10L), 1L);
+        expected.put(new Key("COLOR", "f", "datatype-a\u000020240301", 30L), 2L);
+        expected.put(new Key("COLOR", "f", "datatype-a\u000020240302", 20L), 4L);
+        expected.put(new Key("COLOR", "f", "datatype-b\u000020240301", 10L), 8L);
+        expected.put(new Key("COLOR", "fm", "datatype-a\u0000202312", 10L), 1L);
+        expected.put(new Key("COLOR", "fm", "datatype-a\u0000202403", 30L), 6L);
+        expected.put(new Key("COLOR", "fm", "datatype-b\u0000202403", 10L), 8L);
+        expected.put(new Key("COLOR", "fy", "datatype-a\u00002023", 10L), 1L);
+        expected.put(new Key("COLOR", "fy", "datatype-a\u00002024", 30L), 6L);
+        expected.put(new Key("COLOR", "fy", "datatype-b\u00002024", 10L), 8L);
+        expected.put(new Key("COLOR", "i", "datatype-a", 10L), 0L);
+        expected.put(new Key("SHAPE", "f", "datatype-a\u000020240401", 10L), 16L);
+        expected.put(new Key("SHAPE", "fm", "datatype-a\u0000202404", 10L), 16L);
+        expected.put(new Key("SHAPE", "fy", "datatype-a\u00002024", 10L), 16L);
+        
+        assertEquals(expected, compact(IteratorScope.majc, true));
+    }
+    
+    @Test
+    void testMinorCompactionAddsToRollups() throws Exception {
+        Map<Key,Long> compacted = compact(IteratorScope.minc, false);
+        
+        // the existing rollup is kept for a combiner to add to
+        assertEquals(99L, compacted.get(new Key("SHAPE", "fm", "datatype-a\u0000202404", 5L)));
+        assertEquals(16L, compacted.get(new Key("SHAPE", "fm", "datatype-a\u0000202404", 10L)));
+        assertEquals(6L, compacted.get(new Key("COLOR", "fm", "datatype-a\u0000202403", 30L)));
+        assertEquals(15, compacted.size());
+    }
+    
+    @Test
+    void testPartialMajorCompactionPassesThrough() throws Exception {
+        assertEquals(data.size(), compact(IteratorScope.majc, false).size());
+        assertEquals(data.size(), compact(IteratorScope.scan, false).size());
+    }
+    
+    private Map<Key,Long> compact(IteratorScope scope, boolean fullMajorCompaction) throws Exception {
+        IteratorEnvironment env = new IteratorEnvironment() {
+            @Override
+            public IteratorScope getIteratorScope() {
+                return scope;
+            }
+            
+            @Override
+            public boolean isFullMajorCompaction() {
+                return fullMajorCompaction;
+            }
+        };
+        
+        FrequencyRollupIterator iterator = new FrequencyRollupIterator();
+        iterator.init(new SortedMapIterator(data), Collections.emptyMap(), env);
+        iterator.seek(new Range(), Collections.emptySet(), false);
+        
+        Map<Key,Long> compacted = new LinkedHashMap<>();
+        while (iterator.hasTop()) {
+            compacted.put(iterator.getTopKey(), SummingCombiner.VAR_LEN_ENCODER.decode(iterator.getTopValue().get()));
+            iterator.next();
+        }
+        return compacted;
+    }
+}
@@ -0,0 +1,93 @@
+package datawave.iterators;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.ValueFormatException;
+import org.apache.accumulo.core.iterators.user.SummingCombiner;
+import org.apache.accumulo.core.iteratorsImpl.system.SortedMapIterator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class FrequencySummingIteratorTest {
+    
+    private final SortedMap<Key,Value> data = new TreeMap<>();
+    
+    @BeforeEach
+    void setup() {
+        data.clear();
+        
+        put("COLOR", "datatype-a\u000020240301", 1L);
+        put("COLOR", "datatype-a\u000020240302", 2L);
+        put("COLOR", "datatype-b\u000020240301", 4L);
+        
+        put("SHAPE", "datatype-a\u000020240301", 8L);
+        put("SHAPE", "datatype-a2\u000020240301", 16L);
+    }
+    
+    private void put(String row, String cq, long count) {
+        data.put(new Key(row, "f", cq), new Value(SummingCombiner.VAR_LEN_ENCODER.encode(count)));
+    }
+    
+    @Test
+    void testSumByField() throws Exception {
+        Map<Key,Long> expected = new LinkedHashMap<>();
+        expected.put(new Key("COLOR", "f", "datatype-b\u000020240301"), 7L);
+        expected.put(new Key("SHAPE", "f", "datatype-a2\u000020240301"), 24L);
+        
+        assertEquals(expected, scan(new Range(), Collections.emptyMap()));
+    }
+    
+    @Test
+    void testSumByDatatype() throws Exception {
+        Map<Key,Long> expected = new LinkedHashMap<>();
+        expected.put(new Key("COLOR", "f", "datatype-a\u000020240302"), 3L);
+        expected.put(new Key("COLOR", "f", "datatype-b\u000020240301"), 4L);
+        expected.put(new Key("SHAPE", "f", "datatype-a\u000020240301"), 8L);
+        expected.put(new Key("SHAPE", "f", "datatype-a2\u000020240301"), 16L);
+        
+        Map<String,String> options = Collections.singletonMap(FrequencySummingIterator.GROUPING_OPT, "datatype");
+        assertEquals(expected, scan(new Range(), options));
+        
+        // a scan resumed after a returned key continues with the next group
+        Range resumed = new Range(new Key("COLOR", "f", "datatype-a\u000020240302"), false, null, true);
+        expected.remove(new Key("COLOR", "f", "datatype-a\u000020240302"));
+        assertEquals(expected, scan(resumed, options));
+    }
+    
+    @Test
+    void testInvalidGrouping() {
+        assertThrows(IllegalArgumentException.class, () -> scan(new Range(), Collections.singletonMap(FrequencySummingIterator.GROUPING_OPT, "day")));
+    }
+    
+    @Test
+    void testReadVLong() {
+        for (long value : new long[] {0L, 1L, -1L, 127L, -112L, -113L, 128L, 255L, 256L, 1L << 31, Long.MAX_VALUE, Long.MIN_VALUE}) {
+            assertEquals(value, FrequencySummingIterator.readVLong(SummingCombiner.VAR_LEN_ENCODER.encode(value)));
+        }
+        assertThrows(ValueFormatException.class, () -> FrequencySummingIterator.readVLong(new byte[0]));
+        assertThrows(ValueFormatException.class, () -> FrequencySummingIterator.readVLong(new byte[] {-114, 1}));
+    }
+    
+    private Map<Key,Long> scan(Range range, Map<String,String> options) throws Exception {
+        FrequencySummingIterator iterator = new FrequencySummingIterator();
+        iterator.init(new SortedMapIterator(data), options, null);
+        iterator.seek(range, Collections.emptySet(), false);
+        
+        Map<Key,Long> sums = new LinkedHashMap<>();
+        while (iterator.hasTop()) {
+            sums.put(iterator.getTopKey(), SummingCombiner.VAR_LEN_ENCODER.decode(iterator.getTopValue().get()));
+            iterator.next();
+        }
+        return sums;
+    }
+}
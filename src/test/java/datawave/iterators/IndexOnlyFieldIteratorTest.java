@@ -0,0 +1,89 @@
+package datawave.iterators;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iteratorsImpl.system.SortedMapIterator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class IndexOnlyFieldIteratorTest {
+    
+    private final SortedMap<Key,Value> data = new TreeMap<>();
+    
+    @BeforeEach
+    void setup() {
+        data.clear();
+        
+        // indexed event field
+        put("COLOR", "e", "datatype-a");
+        put("COLOR", "i", "datatype-a");
+        put("COLOR", "ci", "datatype-a\0SHAPE_COLOR,1");
+        
+        // index only for datatype-a, an event field for datatype-b
+        put("DEFINITION", "e", "datatype-b");
+        put("DEFINITION", "i", "datatype-a");
+        put("DEFINITION", "i", "datatype-a\u000020240301\0true");
+        put("DEFINITION", "i", "datatype-b");
+        put("DEFINITION", "t", "datatype-a\0datawave.data.type.LcType");
+        
+        // composite field, which looks index only
+        put("SHAPE_COLOR", "i", "datatype-a");
+        
+        // index only
+        put("TEXT", "i", "datatype-c");
+    }
+    
+    private void put(String row, String cf, String cq) {
+        data.put(new Key(row, cf, cq), new Value());
+    }
+    
+    @Test
+    void testClassification() throws Exception {
+        List<Key> expected = new ArrayList<>();
+        expected.add(new Key("COLOR", "ci", "datatype-a\0SHAPE_COLOR,1"));
+        expected.add(new Key("DEFINITION", "i", "datatype-a"));
+        expected.add(new Key("SHAPE_COLOR", "i", "datatype-a"));
+        expected.add(new Key("TEXT", "i", "datatype-c"));
+        
+        assertEquals(expected, scan(new Range()));
+    }
+    
+    @Test
+    void testSeekWithinRow() throws Exception {
+        // a seek past the first key of a row must still classify the whole row
+        Range range = new Range(new Key("DEFINITION", "e", "datatype-b"), false, null, true);
+        
+        List<Key> expected = new ArrayList<>();
+        expected.add(new Key("DEFINITION", "i", "datatype-a"));
+        expected.add(new Key("SHAPE_COLOR", "i", "datatype-a"));
+        expected.add(new Key("TEXT", "i", "datatype-c"));
+        
+        assertEquals(expected, scan(range));
+        
+        // and keys of the row at or before the start key are not returned again
+        range = new Range(new Key("DEFINITION", "i", "datatype-a"), false, null, true);
+        assertEquals(expected.subList(1, 3), scan(range));
+    }
+    
+    private List<Key> scan(Range range) throws Exception {
+        IndexOnlyFieldIterator iterator = new IndexOnlyFieldIterator();
+        iterator.init(new SortedMapIterator(data), Collections.emptyMap(), null);
+        iterator.seek(range, Collections.emptySet(), false);
+        
+        List<Key> keys = new ArrayList<>();
+        while (iterator.hasTop()) {
+            keys.add(iterator.getTopKey());
+            iterator.next();
+        }
+        return keys;
+    }
+}
@@ -34,6 +34,7 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
@@ -1088,6 +1089,149 @@ class AllFieldMetadataHelperTest {
             Assertions.assertEquals(expected, fieldIndexHoles);
         }
         
+        /**
+         * Test that the field index holes within a date range honor a boundary marker after the range, and are clipped to the range.
+         */
+        @ParameterizedTest
+        @ValueSource(strings = {"i", "ri"})
+        void testFieldIndexHolesInDateRange(String cf) throws TableNotFoundException, IOException {
+            FieldIndexHoleMutationCreator mutationCreator = new FieldIndexHoleMutationCreator();
+            mutationCreator.addFrequencyMutations("NAME", "wiki", "20200101", "20200110", 1L);
+            mutationCreator.addIndexMutations(cf, "NAME", "wiki", "20200101", "20200103", 1L);
+            mutationCreator.addIndexMutations(cf, "NAME", "wiki", "20200107", "20200110", 1L);
+            mutationCreator.addIndexMarkerMutation(cf, "NAME", "wiki", "20200109", false);
+            mutationCreator.addFrequencyMutations("NAME", "csv", "20200101", "20200105", 1L);
+            mutationCreator.addIndexMutations(cf, "NAME", "csv", "20200101", "20200102", 1L);
+            writeMutations(mutationCreator.getMutations());
+            
+            Date begin = DateHelper.parse("20200104");
+            Date end = DateHelper.parse("20200106");
+            Map<String,Map<String,IndexFieldHole>> fieldIndexHoles = cf.equals("i") ? helper.getFieldIndexHoles(fields, datatypes, 1.0d, begin, end)
+                            : helper.getReversedFieldIndexHoles(fields, datatypes, 1.0d, begin, end);
+            Map<String,Map<String,IndexFieldHole>> expected = createFieldIndexHoleMap(createFieldIndexHole("NAME", "wiki", dateRange("20200104", "20200106")),
+                            createFieldIndexHole("NAME", "csv", dateRange("20200104", "20200105")));
+            Assertions.assertEquals(expected, fieldIndexHoles);
+        }
+        
+        /**
+         * Tests for the field index holes cached by a {@link FieldIndexHoleHelper}.
+         */
+        @Nested
+        public class CachedFieldIndexHoleTests {
+            
+            @BeforeEach
+            void setUp() {
+                FieldIndexHoleHelper.clearFieldIndexHoles();
+                FieldIndexHoleHelper fieldIndexHoleHelper = new FieldIndexHoleHelper(accumuloClient, TABLE_METADATA,
+                                Collections.singleton(new Authorizations(AUTHS)));
+                // refresh on every request
+                fieldIndexHoleHelper.setRefreshIntervalMillis(0L);
+                helper.setFieldIndexHoleHelper(fieldIndexHoleHelper);
+            }
+            
+            /**
+             * Test that the cached holes are extended with the entries of the last date and after.
+             */
+            @Test
+            void testHolesExtendedFromLastDate() {
+                FieldIndexHoleMutationCreator mutationCreator = new FieldIndexHoleMutationCreator();
+                mutationCreator.addFrequencyMutations("NAME", "csv", "20200101", "20200105", 1L);
+                mutationCreator.addIndexMutations("i", "NAME", "csv", "20200101", "20200102", 1L);
+                writeMutations(mutationCreator.getMutations());
+                givenFields("NAME");
+                
+                Map<String,Map<String,IndexFieldHole>> expected = createFieldIndexHoleMap(
+                                createFieldIndexHole("NAME", "csv", dateRange("20200103", "20200105")));
+                Assertions.assertEquals(expected, INDEX_FUNCTION.get());
+                
+                // the index entry of the last date closes the hole
+                mutationCreator = new FieldIndexHoleMutationCreator();
+                mutationCreator.addFrequencyMutations("NAME", "csv", "20200106", "20200108", 1L);
+                mutationCreator.addIndexMutations("i", "NAME", "csv", "20200105", "20200108", 1L);
+                writeMutations(mutationCreator.getMutations());
+                
+                expected = createFieldIndexHoleMap(createFieldIndexHole("NAME", "csv", dateRange("20200103", "20200104")));
+                Assertions.assertEquals(expected, INDEX_FUNCTION.get());
+                
+                // entries before the last date are not read again until the holes are recomputed
+                mutationCreator = new FieldIndexHoleMutationCreator();
+                mutationCreator.addIndexMutations("i", "NAME", "csv", "20200103", "20200103", 1L);
+                writeMutations(mutationCreator.getMutations());
+                Assertions.assertEquals(expected, INDEX_FUNCTION.get());
+                
+                FieldIndexHoleHelper.clearFieldIndexHoles();
+                expected = createFieldIndexHoleMap(createFieldIndexHole("NAME", "csv", dateRange("20200104", "20200104")));
+                Assertions.assertEquals(expected, INDEX_FUNCTION.get());
+            }
+            
+            /**
+             * Test that the holes are recomputed when a boundary marker is written for a date before the last date.
+             */
+            @Test
+            void testHolesRecomputedForNewBoundaryMarker() {
+                FieldIndexHoleMutationCreator mutationCreator = new FieldIndexHoleMutationCreator();
+                mutationCreator.addFrequencyMutations("NAME", "csv", "20200101", "20200105", 1L);
+                mutationCreator.addIndexMutations("i", "NAME", "csv", "20200101", "20200102", 1L);
+                writeMutations(mutationCreator.getMutations());
+                givenFields("NAME");
+                
+                Map<String,Map<String,IndexFieldHole>> expected = createFieldIndexHoleMap(
+                                createFieldIndexHole("NAME", "csv", dateRange("20200103", "20200105")));
+                Assertions.assertEquals(expected, INDEX_FUNCTION.get());
+                
+                mutationCreator = new FieldIndexHoleMutationCreator();
+                mutationCreator.addIndexMarkerMutation("i", "NAME", "csv", "20200104", true);
+                writeMutations(mutationCreator.getMutations());
+                
+                expected = createFieldIndexHoleMap(createFieldIndexHole("NAME", "csv", dateRange("20200105", "20200105")));
+                Assertions.assertEquals(expected, INDEX_FUNCTION.get());
+            }
+            
+            /**
+             * Test that the holes are recomputed when a datatype that the field had no entries for is found, so that its entries before the last date are read.
+             */
+            @Test
+            void testHolesRecomputedForNewDatatype() {
+                FieldIndexHoleMutationCreator mutationCreator = new FieldIndexHoleMutationCreator();
+                mutationCreator.addFrequencyMutations("NAME", "csv", "20200101", "20200110", 1L);
+                mutationCreator.addIndexMutations("i", "NAME", "csv", "20200101", "20200110", 1L);
+                writeMutations(mutationCreator.getMutations());
+                givenFields("NAME");
+                
+                Assertions.assertEquals(Collections.emptyMap(), INDEX_FUNCTION.get());
+                
+                // a datatype backfilled from before the last date of the cached datatypes
+                mutationCreator = new FieldIndexHoleMutationCreator();
+                mutationCreator.addFrequencyMutations("NAME", "wiki", "20200101", "20200110", 1L);
+                mutationCreator.addIndexMutations("i", "NAME", "wiki", "20200104", "20200110", 1L);
+                writeMutations(mutationCreator.getMutations());
+                
+                Map<String,Map<String,IndexFieldHole>> expected = createFieldIndexHoleMap(
+                                createFieldIndexHole("NAME", "wiki", dateRange("20200101", "20200103")));
+                Assertions.assertEquals(expected, INDEX_FUNCTION.get());
+            }
+            
+            /**
+             * Test that the cached holes are clipped to a date range.
+             */
+            @Test
+            void testHolesClippedToDateRange() throws TableNotFoundException, IOException {
+                FieldIndexHoleMutationCreator mutationCreator = new FieldIndexHoleMutationCreator();
+                mutationCreator.addFrequencyMutations("NAME", "csv", "20200101", "20200110", 1L);
+                mutationCreator.addIndexMutations("i", "NAME", "csv", "20200101", "20200102", 1L);
+                mutationCreator.addIndexMutations("i", "NAME", "csv", "20200106", "20200107", 1L);
+                writeMutations(mutationCreator.getMutations());
+                givenFields("NAME");
+                
+                Map<String,Map<String,IndexFieldHole>> expected = createFieldIndexHoleMap(
+                                createFieldIndexHole("NAME", "csv", dateRange("20200104", "20200105"), dateRange("20200108", "20200108")));
+                Assertions.assertEquals(expected,
+                                helper.getFieldIndexHoles(fields, datatypes, 1.0d, DateHelper.parse("20200104"), DateHelper.parse("20200108")));
+                Assertions.assertEquals(Collections.emptyMap(),
+                                helper.getFieldIndexHoles(fields, datatypes, 1.0d, DateHelper.parse("20200106"), DateHelper.parse("20200107")));
+            }
+        }
+        
         private void givenFields(String... fields) {
             this.fields = Sets.newHashSet(fields);
         }
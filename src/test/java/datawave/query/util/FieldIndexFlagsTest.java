@@ -0,0 +1,59 @@
+package datawave.query.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import datawave.data.ColumnFamilyConstants;
+
+class FieldIndexFlagsTest {
+    
+    private FieldIndexFlags flags;
+    
+    @BeforeEach
+    void setup() {
+        flags = new FieldIndexFlags.Builder().add(ColumnFamilyConstants.COLF_I, "SHAPE", "datatype-a").add(ColumnFamilyConstants.COLF_RI, "SHAPE", "datatype-a")
+                        .add(ColumnFamilyConstants.COLF_I, "DEFINITION", "datatype-a").add(ColumnFamilyConstants.COLF_I, "DEFINITION", "datatype-b")
+                        .add(ColumnFamilyConstants.COLF_TF, "DEFINITION", "datatype-b").add(ColumnFamilyConstants.COLF_E, "COLOR", "datatype-c").build();
+    }
+    
+    @Test
+    void testAnyDatatype() {
+        assertTrue(flags.isSet(ColumnFamilyConstants.COLF_I, "SHAPE", Collections.emptySet()));
+        assertTrue(flags.isSet(ColumnFamilyConstants.COLF_RI, "SHAPE", null));
+        assertFalse(flags.isSet(ColumnFamilyConstants.COLF_TF, "SHAPE", Collections.emptySet()));
+        assertFalse(flags.isSet(ColumnFamilyConstants.COLF_I, "COLOR", Collections.emptySet()));
+        assertFalse(flags.isSet(ColumnFamilyConstants.COLF_I, "MISSING", Collections.emptySet()));
+    }
+    
+    @Test
+    void testDatatypeFilter() {
+        assertTrue(flags.isSet(ColumnFamilyConstants.COLF_I, "SHAPE", Set.of("datatype-a")));
+        assertFalse(flags.isSet(ColumnFamilyConstants.COLF_I, "SHAPE", Set.of("datatype-b")));
+        assertTrue(flags.isSet(ColumnFamilyConstants.COLF_I, "SHAPE", Set.of("datatype-b", "datatype-a")));
+        assertTrue(flags.isSet(ColumnFamilyConstants.COLF_TF, "DEFINITION", Set.of("datatype-b")));
+        assertFalse(flags.isSet(ColumnFamilyConstants.COLF_TF, "DEFINITION", Set.of("datatype-a", "unknown")));
+        
+        // column families other than the flags are not tracked
+        assertEquals(Set.of("datatype-a", "datatype-b"), flags.getDatatypes());
+        assertThrows(IllegalArgumentException.class, () -> flags.isSet(ColumnFamilyConstants.COLF_E, "COLOR", Collections.emptySet()));
+    }
+    
+    @Test
+    void testBatch() {
+        List<String> fields = List.of("SHAPE", "DEFINITION", "COLOR");
+        assertEquals(Map.of("SHAPE", true, "DEFINITION", true, "COLOR", false), flags.isSet(ColumnFamilyConstants.COLF_I, fields, Collections.emptySet()));
+        assertEquals(Map.of("SHAPE", false, "DEFINITION", true, "COLOR", false), flags.isSet(ColumnFamilyConstants.COLF_I, fields, Set.of("datatype-b")));
+        assertEquals(Map.of("SHAPE", false, "DEFINITION", false, "COLOR", false), flags.isSet(ColumnFamilyConstants.COLF_TF, fields, Set.of("unknown")));
+        assertEquals(List.of("SHAPE", "DEFINITION", "COLOR"), List.copyOf(flags.isSet(ColumnFamilyConstants.COLF_RI, fields, null).keySet()));
+    }
+}
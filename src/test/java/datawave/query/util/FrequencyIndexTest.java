@@ -0,0 +1,91 @@
+package datawave.query.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.util.Collections;
+import java.util.Set;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.user.SummingCombiner;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class FrequencyIndexTest {
+    
+    private FrequencyIndex index;
+    
+    @BeforeEach
+    void setup() {
+        FrequencyIndex.Builder builder = new FrequencyIndex.Builder().setLoadTime(2000L).setFullLoadTime(1000L);
+        add(builder, "SHAPE", "datatype-a\u000020240301", "", 1L, 10L);
+        add(builder, "SHAPE", "datatype-a\u000020240302", "", 2L, 20L);
+        add(builder, "SHAPE", "datatype-a\u000020240305", "", 4L, 30L);
+        add(builder, "SHAPE", "datatype-a\u000020240305", "FOO", 8L, 40L);
+        add(builder, "SHAPE", "datatype-b\u000020240302", "", 16L, 50L);
+        // malformed entries are skipped
+        add(builder, "SHAPE", "datatype-b", "", 32L, 60L);
+        add(builder, "SHAPE", "datatype-b\u0000notadate", "", 64L, 70L);
+        index = builder.build();
+    }
+    
+    private static void add(FrequencyIndex.Builder builder, String row, String cq, String cv, long count, long timestamp) {
+        builder.add(new Key(row, "f", cq, cv, timestamp), new Value(SummingCombiner.VAR_LEN_ENCODER.encode(count)));
+    }
+    
+    private static int day(String date) {
+        return FrequencyIndex.toDayOrdinal(date);
+    }
+    
+    @Test
+    void testRangeCounts() {
+        Set<String> all = Collections.emptySet();
+        assertEquals(31L, index.getCount("SHAPE", all, day("20240301"), day("20240331")));
+        assertEquals(18L, index.getCount("SHAPE", all, day("20240302"), day("20240302")));
+        assertEquals(12L, index.getCount("SHAPE", all, day("20240303"), day("20240305")));
+        assertEquals(3L, index.getCount("SHAPE", Set.of("datatype-a"), day("20240201"), day("20240304")));
+        assertEquals(16L, index.getCount("SHAPE", Set.of("datatype-b", "datatype-c"), day("20240301"), day("20240331")));
+        
+        assertNull(index.getCount("SHAPE", all, day("20240303"), day("20240304")));
+        assertNull(index.getCount("SHAPE", Set.of("datatype-c"), day("20240301"), day("20240331")));
+        assertNull(index.getCount("COLOR", all, day("20240301"), day("20240331")));
+        
+        assertEquals(50L, index.getMaxTimestamp());
+        assertEquals(2000L, index.getLoadTime());
+        assertEquals(1000L, index.getFullLoadTime());
+    }
+    
+    @Test
+    void testIncrementalEntriesReplaceCounts() {
+        FrequencyIndex.Builder builder = new FrequencyIndex.Builder(index).setLoadTime(3000L);
+        // the combined count for an existing day, and a new day
+        add(builder, "SHAPE", "datatype-a\u000020240305", "", 5L, 80L);
+        add(builder, "SHAPE", "datatype-a\u000020240306", "", 100L, 90L);
+        FrequencyIndex refreshed = builder.build();
+        
+        assertEquals(132L, refreshed.getCount("SHAPE", Collections.emptySet(), day("20240301"), day("20240331")));
+        assertEquals(13L, refreshed.getCount("SHAPE", Collections.emptySet(), day("20240305"), day("20240305")));
+        // the series without new entries are unchanged
+        assertEquals(16L, refreshed.getCount("SHAPE", Set.of("datatype-b"), day("20240301"), day("20240331")));
+        assertEquals(90L, refreshed.getMaxTimestamp());
+        assertEquals(1000L, refreshed.getFullLoadTime());
+        
+        // the previous index is unchanged
+        assertEquals(31L, index.getCount("SHAPE", Collections.emptySet(), day("20240301"), day("20240331")));
+    }
+    
+    @Test
+    void testDayOrdinalFromBytes() {
+        byte[] colq = "datatype-a\u000020240229".getBytes(StandardCharsets.UTF_8);
+        assertEquals(day("20240229"), FrequencyIndex.toDayOrdinal(colq, 11));
+        assertEquals(day("19700101"), FrequencyIndex.toDayOrdinal("19700101".getBytes(StandardCharsets.UTF_8), 0));
+        
+        assertThrows(DateTimeException.class, () -> FrequencyIndex.toDayOrdinal("2024022".getBytes(StandardCharsets.UTF_8), 0));
+        assertThrows(DateTimeException.class, () -> FrequencyIndex.toDayOrdinal("2024o229".getBytes(StandardCharsets.UTF_8), 0));
+        assertThrows(DateTimeException.class, () -> FrequencyIndex.toDayOrdinal("20230229".getBytes(StandardCharsets.UTF_8), 0));
+    }
+}
@@ -0,0 +1,67 @@
+package datawave.query.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import datawave.data.ColumnFamilyConstants;
+import datawave.query.util.FrequencyRollupPlan.Segment;
+
+class FrequencyRollupPlanTest {
+    
+    @Test
+    void testDaysOnly() {
+        assertEquals(List.of(days("20240302", "20240304")), FrequencyRollupPlan.plan("20240302", "20240304"));
+        // days across a month boundary that is not a whole month
+        assertEquals(List.of(days("20240315", "20240410")), FrequencyRollupPlan.plan("20240315", "20240410"));
+    }
+    
+    @Test
+    void testWholeMonths() {
+        assertEquals(List.of(months("202402", "202402")), FrequencyRollupPlan.plan("20240201", "20240229"));
+        assertEquals(List.of(days("20240215", "20240229"), months("202403", "202403"), days("20240401", "20240405")),
+                        FrequencyRollupPlan.plan("20240215", "20240405"));
+        // months across a year boundary that is not a whole year
+        assertEquals(List.of(months("202311", "202402")), FrequencyRollupPlan.plan("20231101", "20240229"));
+    }
+    
+    @Test
+    void testWholeYears() {
+        assertEquals(List.of(years("2024", "2024")), FrequencyRollupPlan.plan("20240101", "20241231"));
+        
+        List<Segment> segments = FrequencyRollupPlan.plan("20190615", "20240310");
+        assertEquals(List.of(days("20190615", "20190630"), months("201907", "201912"), years("2020", "2023"), months("202401", "202402"),
+                        days("20240301", "20240310")), segments);
+    }
+    
+    @Test
+    void testSettleDate() {
+        // the month of the settle date is read from the daily counts, and joined to the days before it
+        assertEquals(List.of(months("202401", "202402"), days("20240301", "20240331")), FrequencyRollupPlan.plan("20240101", "20240331", "20240315"));
+        assertEquals(List.of(months("202401", "202402"), days("20240301", "20241231")), FrequencyRollupPlan.plan("20240101", "20241231", "20240301"));
+        // ranges that end before or start after the settle date
+        assertEquals(List.of(years("2023", "2023")), FrequencyRollupPlan.plan("20230101", "20231231", "20240101"));
+        assertEquals(List.of(days("20240101", "20241231")), FrequencyRollupPlan.plan("20240101", "20241231", "20240101"));
+        assertEquals(Collections.emptyList(), FrequencyRollupPlan.plan("20240302", "20240301", "20240101"));
+    }
+    
+    @Test
+    void testEmptyRange() {
+        assertEquals(Collections.emptyList(), FrequencyRollupPlan.plan("20240302", "20240301"));
+    }
+    
+    private static Segment days(String begin, String end) {
+        return new Segment(ColumnFamilyConstants.COLF_F, begin, end);
+    }
+    
+    private static Segment months(String begin, String end) {
+        return new Segment(ColumnFamilyConstants.COLF_FM, begin, end);
+    }
+    
+    private static Segment years(String begin, String end) {
+        return new Segment(ColumnFamilyConstants.COLF_FY, begin, end);
+    }
+}
@@ -0,0 +1,131 @@
+package datawave.query.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.apache.accumulo.core.client.AccumuloClient;
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.BatchWriterConfig;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.hadoop.io.Text;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import datawave.accumulo.inmemory.InMemoryAccumuloClient;
+import datawave.accumulo.inmemory.InMemoryInstance;
+import datawave.data.ColumnFamilyConstants;
+
+class FullTableScannerTest {
+    
+    private static final String TABLE_NAME = "metadata";
+    private static final Set<Authorizations> AUTHS = Collections.singleton(new Authorizations("FOO"));
+    
+    private static AccumuloClient client;
+    
+    @BeforeAll
+    static void beforeAll() throws Exception {
+        client = new InMemoryAccumuloClient("", new InMemoryInstance(FullTableScannerTest.class.getName()));
+        client.tableOperations().create(TABLE_NAME);
+        
+        SortedSet<Text> splits = new TreeSet<>();
+        splits.add(new Text("F"));
+        splits.add(new Text("M"));
+        splits.add(new Text("T"));
+        client.tableOperations().addSplits(TABLE_NAME, splits);
+        
+        try (BatchWriter bw = client.createBatchWriter(TABLE_NAME, new BatchWriterConfig())) {
+            for (char c = 'A'; c <= 'Z'; c++) {
+                Mutation m = new Mutation("FIELD_" + c);
+                m.put("e", "datatype", new Value());
+                m.put("i", "datatype", new Value());
+                m.put("f", "datatype\u000020240301", new Value());
+                bw.addMutation(m);
+                
+                // rows which sort exactly on a split point
+                m = new Mutation(String.valueOf(c));
+                m.put("e", "datatype", new Value());
+                bw.addMutation(m);
+            }
+        }
+    }
+    
+    @Test
+    void testParallelScanMatchesSerialScan() throws Exception {
+        List<Entry<Key,Value>> expected = scan(1);
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, scan(2));
+        assertEquals(expected, scan(8));
+    }
+    
+    @Test
+    void testScanStreamsThroughBoundedQueues() throws Exception {
+        List<Entry<Key,Value>> expected = scan(1);
+        assertEquals(expected, scan(2, 1));
+        assertEquals(expected, scan(3, 2));
+    }
+    
+    @Test
+    void testCloseBeforeExhausted() throws Exception {
+        // the partition scans are left waiting on their queues until the scan is closed
+        for (int i = 0; i < 32; i++) {
+            try (FullTableScanner scanner = new FullTableScanner(client, TABLE_NAME, AUTHS, 4, 1)) {
+                Iterator<Entry<Key,Value>> entries = scanner.iterator();
+                assertTrue(entries.hasNext());
+                entries.next();
+            }
+        }
+        assertEquals(scan(1), scan(4, 1));
+    }
+    
+    private List<Entry<Key,Value>> scan(int threads) throws Exception {
+        return scan(threads, FullTableScanner.DEFAULT_QUEUE_CAPACITY);
+    }
+    
+    private List<Entry<Key,Value>> scan(int threads, int queueCapacity) throws Exception {
+        List<Entry<Key,Value>> entries = new ArrayList<>();
+        try (FullTableScanner scanner = new FullTableScanner(client, TABLE_NAME, AUTHS, threads, queueCapacity)) {
+            scanner.fetchColumnFamily(ColumnFamilyConstants.COLF_E);
+            scanner.fetchColumnFamily(ColumnFamilyConstants.COLF_I);
+            for (Entry<Key,Value> entry : scanner) {
+                assertTrue(entry.getKey().getColumnFamily().equals(ColumnFamilyConstants.COLF_E)
+                                || entry.getKey().getColumnFamily().equals(ColumnFamilyConstants.COLF_I));
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+    
+    @Test
+    void testPartitionsCoverTheTable() {
+        List<Range> partitions = FullTableScanner.getPartitions(List.of(new Text("F"), new Text("M")));
+        assertEquals(3, partitions.size());
+        
+        assertTrue(partitions.get(0).contains(new Key("A")));
+        assertTrue(partitions.get(0).contains(new Key("F", "e", "datatype")));
+        assertFalse(partitions.get(0).contains(new Key("F\0")));
+        
+        assertTrue(partitions.get(1).contains(new Key("F\0")));
+        assertFalse(partitions.get(1).contains(new Key("F", "e", "datatype")));
+        assertTrue(partitions.get(1).contains(new Key("M", "e", "datatype")));
+        
+        assertTrue(partitions.get(2).contains(new Key("MA")));
+        assertTrue(partitions.get(2).contains(new Key("ZZZ")));
+        assertFalse(partitions.get(2).contains(new Key("M", "e", "datatype")));
+        
+        assertEquals(Collections.singletonList(new Range()), FullTableScanner.getPartitions(Collections.emptyList()));
+    }
+}
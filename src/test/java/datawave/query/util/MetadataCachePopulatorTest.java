@@ -0,0 +1,87 @@
+package datawave.query.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.AbstractMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+
+import org.apache.accumulo.core.client.AccumuloClient;
+import org.apache.accumulo.core.client.Scanner;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import datawave.accumulo.inmemory.InMemoryAccumuloClient;
+import datawave.accumulo.inmemory.InMemoryInstance;
+
+class MetadataCachePopulatorTest {
+    
+    private static final String METADATA_TABLE_NAME = "metadata";
+    
+    // never runs the scheduled writes, so that the tests control when entries are written with flush
+    private static final Executor MANUAL = command -> {};
+    
+    private AccumuloClient cacheClient;
+    
+    @BeforeEach
+    void beforeEach() throws Exception {
+        cacheClient = new InMemoryAccumuloClient("", new InMemoryInstance(MetadataCachePopulatorTest.class.getName() + System.nanoTime()));
+        cacheClient.tableOperations().create(METADATA_TABLE_NAME);
+    }
+    
+    @Test
+    void testBatchesAndDeduplicates() throws Exception {
+        MetadataCachePopulator populator = new MetadataCachePopulator(cacheClient, 10, 2, MANUAL);
+        assertTrue(populator.add(METADATA_TABLE_NAME, entry("SHAPE", "datatype-a\u000020240301", 1L)));
+        assertTrue(populator.add(METADATA_TABLE_NAME, entry("SHAPE", "datatype-a\u000020240302", 2L)));
+        assertTrue(populator.add(METADATA_TABLE_NAME, entry("COLOR", "datatype-b\u000020240301", 3L)));
+        assertFalse(populator.add(METADATA_TABLE_NAME, entry("SHAPE", "datatype-a\u000020240301", 1L)));
+        assertEquals(3, populator.getBacklog());
+        
+        populator.flush();
+        
+        Map<Key,Value> cached = new TreeMap<>();
+        try (Scanner scanner = cacheClient.createScanner(METADATA_TABLE_NAME, new Authorizations())) {
+            scanner.forEach(e -> cached.put(e.getKey(), e.getValue()));
+        }
+        assertEquals(3, cached.size());
+        assertEquals(new Value("1"), cached.get(new Key("SHAPE", "f", "datatype-a\u000020240301", 1L)));
+        
+        assertEquals(0, populator.getBacklog());
+        assertEquals(3L, populator.getQueuedCount());
+        assertEquals(1L, populator.getDeduplicatedCount());
+        assertEquals(3L, populator.getWrittenCount());
+        assertEquals(0L, populator.getFailedCount());
+        
+        // once written, an entry may be queued again, and is written with a new writer as the previous one was closed
+        assertTrue(populator.add(METADATA_TABLE_NAME, entry("SHAPE", "datatype-a\u000020240301", 1L)));
+        populator.flush();
+        assertEquals(4L, populator.getWrittenCount());
+        assertEquals(0L, populator.getFailedCount());
+    }
+    
+    @Test
+    void testDropsWhenFull() {
+        MetadataCachePopulator populator = new MetadataCachePopulator(cacheClient, 2, 10, MANUAL);
+        assertTrue(populator.add("nonexistent", entry("SHAPE", "datatype-a\u000020240301", 1L)));
+        assertTrue(populator.add("nonexistent", entry("SHAPE", "datatype-a\u000020240302", 2L)));
+        assertFalse(populator.add("nonexistent", entry("SHAPE", "datatype-a\u000020240303", 3L)));
+        assertEquals(1L, populator.getDroppedCount());
+        
+        // entries for a table that does not exist are counted as failed rather than retried
+        populator.flush();
+        assertEquals(0, populator.getBacklog());
+        assertEquals(0L, populator.getWrittenCount());
+        assertEquals(2L, populator.getFailedCount());
+    }
+    
+    private static Map.Entry<Key,Value> entry(String row, String cq, long timestamp) {
+        return new AbstractMap.SimpleEntry<>(new Key(row, "f", cq, timestamp), new Value(Long.toString(timestamp)));
+    }
+}
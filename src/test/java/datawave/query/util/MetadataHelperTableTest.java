@@ -1,5 +1,6 @@
 package datawave.query.util;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotSame;
@@ -19,21 +20,31 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 
 import org.apache.accumulo.core.client.AccumuloClient;
 import org.apache.accumulo.core.client.BatchWriter;
 import org.apache.accumulo.core.client.BatchWriterConfig;
+import org.apache.accumulo.core.client.Scanner;
 import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.IteratorUtil.IteratorScope;
 import org.apache.accumulo.core.iterators.LongCombiner;
+import org.apache.accumulo.core.iteratorsImpl.system.SortedMapIterator;
 import org.apache.accumulo.core.security.Authorizations;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
@@ -48,6 +59,7 @@ import datawave.accumulo.inmemory.InMemoryInstance;
 import datawave.data.MetadataCardinalityCounts;
 import datawave.data.type.LcType;
 import datawave.data.type.Type;
+import datawave.iterators.FrequencyRollupIterator;
 import datawave.query.composite.CompositeMetadataHelper;
 import datawave.query.model.Direction;
 import datawave.query.model.FieldMapping;
@@ -396,6 +408,36 @@ public class MetadataHelperTableTest {
         assertFalse(helper.isReverseIndexed("EVENT_ONLY", Set.of("datatype-b")));
     }
     
+    @Test
+    public void testCachedFieldIndexFlagsMatchRowLookups() throws Exception {
+        List<Set<String>> filters = List.of(Collections.emptySet(), Set.of("datatype-a"), Set.of("datatype-b"));
+        List<String> fields = List.of("SHAPE", "COLOR", "DEFINITION", "EVENT_ONLY", "shape");
+        for (Set<String> filter : filters) {
+            Map<String,Boolean> indexed = new HashMap<>();
+            Map<String,Boolean> reverseIndexed = new HashMap<>();
+            Map<String,Boolean> tokenized = new HashMap<>();
+            for (String field : fields) {
+                indexed.put(field, helper.isIndexed(field, filter));
+                reverseIndexed.put(field, helper.isReverseIndexed(field, filter));
+                tokenized.put(field, helper.isTokenized(field, filter));
+            }
+            
+            helper.setFieldIndexFlagsCached(true);
+            try {
+                for (String field : fields) {
+                    assertEquals(indexed.get(field), helper.isIndexed(field, filter), field);
+                    assertEquals(reverseIndexed.get(field), helper.isReverseIndexed(field, filter), field);
+                    assertEquals(tokenized.get(field), helper.isTokenized(field, filter), field);
+                }
+                assertEquals(indexed, helper.areIndexed(fields, filter));
+                assertEquals(reverseIndexed, helper.areReverseIndexed(fields, filter));
+                assertEquals(tokenized, helper.areTokenized(fields, filter));
+            } finally {
+                helper.setFieldIndexFlagsCached(false);
+            }
+        }
+    }
+    
     @Test
     public void isIndexed() throws Exception {
         // SHAPE is indexed for datatype-a
@@ -419,6 +461,24 @@ public class MetadataHelperTableTest {
         assertFalse(helper.isIndexed("EVENT_ONLY", Set.of("datatype-b")));
     }
     
+    @Test
+    public void testAreIndexed() throws Exception {
+        List<String> fields = List.of("SHAPE", "color", "DEFINITION", "EVENT_ONLY");
+        
+        Map<String,Boolean> expected = new LinkedHashMap<>();
+        expected.put("SHAPE", true);
+        expected.put("color", true);
+        expected.put("DEFINITION", true);
+        expected.put("EVENT_ONLY", false);
+        assertEquals(expected, helper.areIndexed(fields, Collections.emptySet()));
+        
+        expected.put("SHAPE", false);
+        assertEquals(expected, helper.areIndexed(fields, Set.of("datatype-b")));
+        
+        expected.put("color", false);
+        assertEquals(expected, helper.areReverseIndexed(fields, Set.of("datatype-b")));
+    }
+    
     @Test
     public void isTokenized() throws Exception {
         // SHAPE is indexed for datatype-a
@@ -882,6 +942,128 @@ public class MetadataHelperTableTest {
         assertEquals(536L, counts.get("SHAPE"));
     }
     
+    @Test
+    public void testGetCountsForFieldsInDateRangeFromRollups() throws Exception {
+        String rollupTableName = METADATA_TABLE_NAME + "Rollups";
+        client.tableOperations().create(rollupTableName);
+        compactWithRollups(rollupTableName);
+        
+        Set<Authorizations> auths = Collections.singleton(new Authorizations(authorizations));
+        TypeMetadataHelper typeMetadataHelper = new TypeMetadataHelper(new HashMap<>(), auths, client, rollupTableName, auths, false);
+        CompositeMetadataHelper compositeMetadataHelper = new CompositeMetadataHelper(client, rollupTableName, auths);
+        AllFieldMetadataHelper rollupAllFieldHelper = new AllFieldMetadataHelper(typeMetadataHelper, compositeMetadataHelper, client, rollupTableName, auths,
+                        auths);
+        MetadataHelper rollupHelper = new MetadataHelper(rollupAllFieldHelper, auths, client, rollupTableName, auths, auths);
+        rollupHelper.setFrequencyRollupsEnabled(true);
+        
+        // whole years, whole months, days around a whole month, and days only, compared to the daily counts
+        Set<String> fields = Set.of("SHAPE", "COLOR", "DEFINITION");
+        String[][] ranges = {{"20230101", "20251231"}, {"20240101", "20241231"}, {"20240301", "20240331"}, {"20240215", "20240405"}, {"20240302", "20240304"}};
+        for (String[] range : ranges) {
+            for (Set<String> datatypes : List.of(Set.<String> of(), Set.of("datatype-b"))) {
+                assertEquals(helper.getCountsForFieldsInDateRange(fields, datatypes, range[0], range[1]),
+                                rollupHelper.getCountsForFieldsInDateRange(fields, datatypes, range[0], range[1]));
+            }
+        }
+        assertEquals(Map.of("SHAPE", 658L), rollupHelper.getCountsForFieldsInDateRange(Set.of("SHAPE"), Set.of(), "20240101", "20241231"));
+        assertEquals(658L, rollupHelper.getCardinalityForField("SHAPE", getDate("20240101"), getDate("20241231")));
+        assertEquals(Map.of("SHAPE", 658L), rollupHelper.getCountsForFieldsInDateRangeAsync(Set.of("SHAPE"), Set.of(), "20240301", "20240331").get());
+        
+        // a daily count that has not been compacted is only seen while its month is within the settle time
+        try (BatchWriter bw = client.createBatchWriter(rollupTableName, new BatchWriterConfig())) {
+            write(bw, "SHAPE", "f", "datatype-a\u000020240320", createValue(100L));
+        }
+        assertEquals(Map.of("SHAPE", 658L), rollupHelper.getCountsForFieldsInDateRange(Set.of("SHAPE"), Set.of(), "20240101", "20241231"));
+        rollupHelper.setFrequencyRollupSettleMillis(System.currentTimeMillis() - getDate("20240301").getTime());
+        assertEquals(Map.of("SHAPE", 758L), rollupHelper.getCountsForFieldsInDateRange(Set.of("SHAPE"), Set.of(), "20240101", "20241231"));
+    }
+    
+    /**
+     * Copy the metadata table to another table through the {@link FrequencyRollupIterator}, as a full major compaction with the iterator configured would
+     *
+     * @param tableName
+     *            the table to write the compacted entries to
+     */
+    private void compactWithRollups(String tableName) throws Exception {
+        SortedMap<Key,Value> data = new TreeMap<>();
+        try (Scanner scanner = client.createScanner(METADATA_TABLE_NAME, new Authorizations(authorizations))) {
+            for (Entry<Key,Value> entry : scanner) {
+                data.put(entry.getKey(), entry.getValue());
+            }
+        }
+        
+        IteratorEnvironment env = new IteratorEnvironment() {
+            @Override
+            public IteratorScope getIteratorScope() {
+                return IteratorScope.majc;
+            }
+            
+            @Override
+            public boolean isFullMajorCompaction() {
+                return true;
+            }
+        };
+        FrequencyRollupIterator iterator = new FrequencyRollupIterator();
+        iterator.init(new SortedMapIterator(data), Collections.emptyMap(), env);
+        iterator.seek(new Range(), Collections.emptySet(), false);
+        
+        try (BatchWriter bw = client.createBatchWriter(tableName, new BatchWriterConfig())) {
+            while (iterator.hasTop()) {
+                Key key = iterator.getTopKey();
+                Mutation m = new Mutation(key.getRow());
+                m.put(key.getColumnFamily(), key.getColumnQualifier(), key.getColumnVisibilityParsed(), key.getTimestamp(), iterator.getTopValue());
+                bw.addMutation(m);
+                iterator.next();
+            }
+        }
+    }
+    
+    @Test
+    public void testGetDailyCounts() {
+        Map<String,Map<String,long[]>> dailyCounts = helper.getDailyCounts(Set.of("SHAPE", "DEFINITION", "NONEXISTENT"), Set.of(), "20240304", "20240306");
+        
+        assertEquals(Set.of("SHAPE", "DEFINITION"), dailyCounts.keySet());
+        assertEquals(Set.of("datatype-a"), dailyCounts.get("SHAPE").keySet());
+        assertArrayEquals(new long[] {450L, 99L, 0L}, dailyCounts.get("SHAPE").get("datatype-a"));
+        assertArrayEquals(new long[] {450L, 99L, 0L}, dailyCounts.get("DEFINITION").get("datatype-a"));
+        assertArrayEquals(new long[] {0L, 55L, 66L}, dailyCounts.get("DEFINITION").get("datatype-b"));
+        
+        // datatype filter
+        dailyCounts = helper.getDailyCounts(Set.of("DEFINITION"), Set.of("datatype-b"), "20240301", "20240305");
+        assertEquals(Set.of("datatype-b"), dailyCounts.get("DEFINITION").keySet());
+        assertArrayEquals(new long[] {0L, 0L, 0L, 0L, 55L}, dailyCounts.get("DEFINITION").get("datatype-b"));
+    }
+    
+    @Test
+    public void testGetLifespans() {
+        FieldLifespanHelper.clearFieldLifespans();
+        
+        Map<String,FieldLifespans.Lifespan> lifespans = helper.getLifespans(Set.of("SHAPE", "DEFINITION", "NONEXISTENT"), Set.of());
+        assertEquals(Map.of("SHAPE", new FieldLifespans.Lifespan("20240301", "20240305"), "DEFINITION", new FieldLifespans.Lifespan("20240301", "20240310")),
+                        lifespans);
+        
+        lifespans = helper.getLifespans(Set.of("DEFINITION"), Set.of("datatype-b"));
+        assertEquals(Map.of("DEFINITION", new FieldLifespans.Lifespan("20240305", "20240310")), lifespans);
+        
+        assertEquals(getDate("20240310"), helper.getLatestOccurrenceOfField("DEFINITION"));
+        assertEquals(getDate("20240305"), helper.getLatestOccurrenceOfFieldWithType("DEFINITION", "datatype-a"));
+        assertNull(helper.getLatestOccurrenceOfField("NONEXISTENT"));
+    }
+    
+    @Test
+    public void testGetCountsForFieldsInDateRangeAsync() throws Exception {
+        Set<String> fields = Set.of("SHAPE", "DEFINITION", "NONEXISTENT");
+        Set<String> datatypes = Set.of("datatype-a", "datatype-b");
+        Map<String,Long> expected = helper.getCountsForFieldsInDateRange(fields, datatypes, "20240302", "20240304");
+        
+        assertEquals(expected, helper.getCountsForFieldsInDateRangeAsync(fields, datatypes, "20240302", "20240304").get());
+        
+        Map<String,Long> streamed = new ConcurrentHashMap<>();
+        helper.streamCountsForFieldsInDateRange(fields, datatypes, "20240302", "20240304", streamed::put).get();
+        assertEquals(expected, streamed);
+        assertFalse(streamed.containsKey("NONEXISTENT"));
+    }
+    
     @Test
     public void testInternalTypeCache() throws TableNotFoundException, InstantiationException, IllegalAccessException {
         MetadataHelper helperWithDefaultCache = createMetadataHelper(null);
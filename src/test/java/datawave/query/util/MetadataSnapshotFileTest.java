@@ -0,0 +1,86 @@
+package datawave.query.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Set;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.hadoop.io.Text;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import datawave.data.ColumnFamilyConstants;
+
+class MetadataSnapshotFileTest {
+    
+    private static final String METADATA_TABLE_NAME = "metadata";
+    private static final Set<Authorizations> AUTHS = Collections.singleton(new Authorizations("FOO", "BAR"));
+    
+    @TempDir
+    Path directory;
+    
+    private MetadataSnapshot snapshot;
+    private Path file;
+    
+    @BeforeEach
+    void setup() {
+        snapshot = new MetadataSnapshot.Builder().setFullLoadTime(1000L).add(key("SHAPE", "e", "datatype-a", 1L)).add(key("SHAPE", "i", "datatype-a", 2L))
+                        .add(key("SHAPE", "t", "datatype-a\0datawave.data.type.LcType", 3L)).add(key("SHAPE", "ci", "datatype-a\0SHAPE_COLOR,0", 4L))
+                        .add(key("COLOR", "ci", "datatype-a\0SHAPE_COLOR,1", 5L)).add(key("SHAPE_COLOR", "citd", "datatype-a\020240301 000000.000", 6L))
+                        .add(key("DEFINITION", "i", "datatype-b", 7L)).add(key("DEFINITION", "ri", "datatype-b", 8L))
+                        .add(key("DEFINITION", "content", "datatype-b\0", 9L)).add(key("COUNT", "n", "", 10L)).build();
+        file = MetadataSnapshotFile.getPath(directory, METADATA_TABLE_NAME, AUTHS);
+    }
+    
+    private static Key key(String row, String cf, String cq, long timestamp) {
+        return new Key(row, cf, cq, timestamp);
+    }
+    
+    @Test
+    void testRoundTrip() throws IOException {
+        MetadataSnapshotFile.write(file, METADATA_TABLE_NAME, AUTHS, snapshot);
+        MetadataSnapshot read = MetadataSnapshotFile.read(file, METADATA_TABLE_NAME, Collections.singleton(new Authorizations("BAR", "FOO")));
+        
+        for (Text columnFamily : MetadataSnapshot.FIELD_COLUMN_FAMILIES) {
+            assertEquals(snapshot.getFields(columnFamily), read.getFields(columnFamily));
+        }
+        for (Text columnFamily : MetadataSnapshot.QUALIFIER_COLUMN_FAMILIES) {
+            assertEquals(snapshot.getColumnQualifiers(columnFamily), read.getColumnQualifiers(columnFamily));
+        }
+        assertEquals(snapshot.getAllFields(), read.getAllFields());
+        assertEquals(snapshot.getIndexOnlyFields(), read.getIndexOnlyFields());
+        assertEquals(Set.of("datatype-a"), read.getDatatypes());
+        assertEquals(Set.of("COUNT"), read.getNormalizedFields());
+        assertEquals(10L, read.getMaxTimestamp());
+        assertEquals(1000L, read.getFullLoadTime());
+        
+        // the fields are retained under the column family they were written with
+        assertEquals(Set.of("DEFINITION"), Set.copyOf(read.getFields(ColumnFamilyConstants.COLF_CONTENT).values()));
+    }
+    
+    @Test
+    void testMissingOrMismatchedFile() throws IOException {
+        assertNull(MetadataSnapshotFile.read(file, METADATA_TABLE_NAME, AUTHS));
+        
+        MetadataSnapshotFile.write(file, METADATA_TABLE_NAME, AUTHS, snapshot);
+        assertNull(MetadataSnapshotFile.read(file, "otherTable", AUTHS));
+        assertNull(MetadataSnapshotFile.read(file, METADATA_TABLE_NAME, Collections.singleton(new Authorizations("FOO"))));
+    }
+    
+    @Test
+    void testCorruptFileRejected() throws IOException {
+        MetadataSnapshotFile.write(file, METADATA_TABLE_NAME, AUTHS, snapshot);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(file, bytes);
+        assertThrows(IOException.class, () -> MetadataSnapshotFile.read(file, METADATA_TABLE_NAME, AUTHS));
+    }
+}
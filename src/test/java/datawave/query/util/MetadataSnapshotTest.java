@@ -0,0 +1,261 @@
+package datawave.query.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.accumulo.core.client.AccumuloClient;
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.BatchWriterConfig;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.hadoop.io.Text;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+
+import datawave.accumulo.inmemory.InMemoryAccumuloClient;
+import datawave.accumulo.inmemory.InMemoryInstance;
+import datawave.data.ColumnFamilyConstants;
+import datawave.data.type.LcType;
+import datawave.data.type.NumberType;
+import datawave.query.composite.CompositeMetadata;
+import datawave.query.composite.CompositeMetadataHelper;
+
+/**
+ * Verifies that the structures served from a {@link MetadataSnapshot} match those built by the per-column family scans.
+ */
+class MetadataSnapshotTest {
+    
+    private static final String METADATA_TABLE_NAME = "metadata";
+    private static final Set<Authorizations> AUTHS = Collections.singleton(new Authorizations("FOO", "BAR"));
+    private static final Value EMPTY_VALUE = new Value();
+    
+    private static AccumuloClient client;
+    
+    private MetadataHelper scanHelper;
+    private MetadataHelper snapshotHelper;
+    
+    @BeforeAll
+    static void beforeAll() throws Exception {
+        client = new InMemoryAccumuloClient("", new InMemoryInstance(MetadataSnapshotTest.class.getName()));
+        client.tableOperations().create(METADATA_TABLE_NAME);
+        
+        try (BatchWriter bw = client.createBatchWriter(METADATA_TABLE_NAME, new BatchWriterConfig())) {
+            write(bw, "SHAPE", "e", "datatype-a");
+            write(bw, "SHAPE", "i", "datatype-a");
+            write(bw, "SHAPE", "ri", "datatype-a");
+            write(bw, "SHAPE", "t", "datatype-a\0" + LcType.class.getName());
+            write(bw, "SHAPE", "ci", "datatype-a\0SHAPE_COLOR,0");
+            write(bw, "SHAPE", "f", "datatype-a\u000020240301");
+            
+            write(bw, "COLOR", "e", "datatype-b");
+            write(bw, "COLOR", "i", "datatype-b");
+            write(bw, "COLOR", "t", "datatype-b\0" + LcType.class.getName());
+            write(bw, "COLOR", "ci", "datatype-a\0SHAPE_COLOR,1");
+            write(bw, "COLOR", "exp", "datatype-b");
+            
+            // composite field, indexed but never an event field
+            write(bw, "SHAPE_COLOR", "i", "datatype-a");
+            write(bw, "SHAPE_COLOR", "citd", "datatype-a\020240301 000000.000");
+            write(bw, "SHAPE_COLOR", "cisep", "datatype-a\0|");
+            
+            // index only fields
+            write(bw, "DEFINITION", "i", "datatype-a");
+            write(bw, "DEFINITION", "i", "datatype-b");
+            write(bw, "DEFINITION", "ri", "datatype-b");
+            write(bw, "DEFINITION", "tf", "datatype-a");
+            write(bw, "DEFINITION", "content", "datatype-a\0");
+            write(bw, "DEFINITION", "t", "datatype-a\0" + LcType.class.getName());
+            write(bw, "DEFINITION", "t", "datatype-b\0" + NumberType.class.getName());
+            
+            write(bw, "COUNT", "e", "datatype-c");
+            write(bw, "COUNT", "n", "datatype-c\0" + NumberType.class.getName());
+            write(bw, "COUNT", "t", "datatype-c\0" + NumberType.class.getName());
+        }
+    }
+    
+    private static void write(BatchWriter bw, String row, String cf, String cq) throws Exception {
+        Mutation m = new Mutation(row);
+        m.put(cf, cq, EMPTY_VALUE);
+        bw.addMutation(m);
+    }
+    
+    private static void write(BatchWriter bw, String row, String cf, String cq, long timestamp) throws Exception {
+        Mutation m = new Mutation(row);
+        m.put(cf, cq, timestamp, EMPTY_VALUE);
+        bw.addMutation(m);
+    }
+    
+    @BeforeEach
+    void setUp() {
+        scanHelper = createMetadataHelper();
+        snapshotHelper = createMetadataHelper();
+        snapshotHelper.allFieldMetadataHelper.setMetadataSnapshotHelper(new MetadataSnapshotHelper(client, METADATA_TABLE_NAME, AUTHS));
+    }
+    
+    private MetadataHelper createMetadataHelper() {
+        TypeMetadataHelper typeMetadataHelper = new TypeMetadataHelper(new HashMap<>(), AUTHS, client, METADATA_TABLE_NAME, AUTHS, false);
+        CompositeMetadataHelper compositeMetadataHelper = new CompositeMetadataHelper(client, METADATA_TABLE_NAME, AUTHS);
+        AllFieldMetadataHelper allFieldHelper = new AllFieldMetadataHelper(typeMetadataHelper, compositeMetadataHelper, client, METADATA_TABLE_NAME, AUTHS,
+                        AUTHS);
+        return new MetadataHelper(allFieldHelper, AUTHS, client, METADATA_TABLE_NAME, AUTHS, AUTHS);
+    }
+    
+    @Test
+    void testFieldSetsMatchScans() throws Exception {
+        AllFieldMetadataHelper expected = scanHelper.allFieldMetadataHelper;
+        AllFieldMetadataHelper actual = snapshotHelper.allFieldMetadataHelper;
+        
+        assertEquals(expected.loadAllFields(), actual.loadAllFields());
+        assertEquals(expected.getIndexOnlyFields(), actual.getIndexOnlyFields());
+        assertEquals(expected.loadIndexedFields(), actual.loadIndexedFields());
+        assertEquals(expected.loadReverseIndexedFields(), actual.loadReverseIndexedFields());
+        assertEquals(expected.loadTermFrequencyFields(), actual.loadTermFrequencyFields());
+        assertEquals(expected.loadExpansionFields(), actual.loadExpansionFields());
+        assertEquals(expected.loadContentFields(), actual.loadContentFields());
+        assertEquals(expected.loadDatatypes(), actual.loadDatatypes());
+        assertEquals(scanHelper.getAllNormalized(), snapshotHelper.getAllNormalized());
+    }
+    
+    @Test
+    void testTypeAndCompositeMetadataMatchScans() throws Exception {
+        assertEquals(scanHelper.getTypeMetadata(), snapshotHelper.getTypeMetadata());
+        assertEquals(scanHelper.getTypeMetadata(Set.of("datatype-b")), snapshotHelper.getTypeMetadata(Set.of("datatype-b")));
+        assertCompositeMetadataEquals(scanHelper.getCompositeMetadata(), snapshotHelper.getCompositeMetadata());
+        assertCompositeMetadataEquals(scanHelper.getCompositeMetadata(Set.of("datatype-a")), snapshotHelper.getCompositeMetadata(Set.of("datatype-a")));
+    }
+    
+    private void assertCompositeMetadataEquals(CompositeMetadata expected, CompositeMetadata actual) {
+        assertEquals(expected.getCompositeFieldMapByType(), actual.getCompositeFieldMapByType());
+        assertEquals(expected.getCompositeTransitionDatesByType(), actual.getCompositeTransitionDatesByType());
+        assertEquals(expected.getCompositeFieldSeparatorsByType(), actual.getCompositeFieldSeparatorsByType());
+    }
+    
+    @Test
+    void testIndexOnlyFieldsExcludeCompositeFields() {
+        MetadataSnapshot snapshot = new MetadataSnapshot.Builder().add(new Key("SHAPE", "e", "datatype-a")).add(new Key("SHAPE", "i", "datatype-a"))
+                        .add(new Key("SHAPE", "ci", "datatype-a\0SHAPE_COLOR,0")).add(new Key("SHAPE_COLOR", "i", "datatype-a"))
+                        .add(new Key("DEFINITION", "i", "datatype-a")).add(new Key("DEFINITION", "i", "datatype-b"))
+                        .add(new Key("DEFINITION", "e", "datatype-b")).build();
+        
+        Multimap<String,String> expected = HashMultimap.create();
+        expected.put("datatype-a", "DEFINITION");
+        assertEquals(expected, snapshot.getIndexOnlyFields());
+        assertEquals(Set.of("datatype-a", "datatype-b"), snapshot.getDatatypes());
+    }
+    
+    @Test
+    void testBuilderFromPreviousSnapshot() {
+        MetadataSnapshot previous = new MetadataSnapshot.Builder().setFullLoadTime(1000L).add(new Key("SHAPE", "e", "datatype-a", 10L))
+                        .add(new Key("SHAPE", "t", "datatype-a\0" + LcType.class.getName(), 20L)).build();
+        assertEquals(20L, previous.getMaxTimestamp());
+        
+        MetadataSnapshot snapshot = new MetadataSnapshot.Builder(previous).add(new Key("COLOR", "e", "datatype-b", 15L)).build();
+        assertEquals(20L, snapshot.getMaxTimestamp());
+        assertEquals(1000L, snapshot.getFullLoadTime());
+        assertEquals(Set.of("datatype-a", "datatype-b"), snapshot.getDatatypes());
+        assertEquals(Set.of("SHAPE"), snapshot.getColumnQualifiers(ColumnFamilyConstants.COLF_T).keySet());
+        
+        assertEquals(Long.MIN_VALUE, new MetadataSnapshot.Builder().build().getMaxTimestamp());
+    }
+    
+    @Test
+    void testIncrementalRefresh() throws Exception {
+        String tableName = "metadata_incremental";
+        client.tableOperations().create(tableName);
+        try (BatchWriter bw = client.createBatchWriter(tableName, new BatchWriterConfig())) {
+            write(bw, "SHAPE", "e", "datatype-a", 100L);
+        }
+        
+        assertEquals(Set.of("datatype-a"), createIncrementalHelper(tableName).getMetadataSnapshot().getDatatypes());
+        
+        try (BatchWriter bw = client.createBatchWriter(tableName, new BatchWriterConfig())) {
+            write(bw, "COLOR", "e", "datatype-b", 200L);
+            // written with a timestamp older than the watermark, so only found by a full reconcile
+            write(bw, "COUNT", "e", "datatype-c", 50L);
+        }
+        
+        MetadataSnapshotHelper helper = createIncrementalHelper(tableName);
+        assertEquals(Set.of("datatype-a", "datatype-b"), helper.getMetadataSnapshot().getDatatypes());
+        assertEquals(200L, helper.getMetadataSnapshot().getMaxTimestamp());
+        
+        helper = createIncrementalHelper(tableName);
+        helper.setFullReconcileIntervalMillis(0L);
+        assertEquals(Set.of("datatype-a", "datatype-b", "datatype-c"), helper.getMetadataSnapshot().getDatatypes());
+    }
+    
+    private MetadataSnapshotHelper createIncrementalHelper(String tableName) {
+        MetadataSnapshotHelper helper = new MetadataSnapshotHelper(client, tableName, AUTHS);
+        helper.setIncrementalRefresh(true);
+        return helper;
+    }
+    
+    @Test
+    void testRefreshAheadOfDerivedCache() throws Exception {
+        String tableName = "metadata_refresh_ahead";
+        client.tableOperations().create(tableName);
+        try (BatchWriter bw = client.createBatchWriter(tableName, new BatchWriterConfig())) {
+            write(bw, "SHAPE", "e", "datatype-a");
+        }
+        
+        AtomicLong time = new AtomicLong();
+        List<Runnable> reloads = new ArrayList<>();
+        RefreshAheadCacheManager cacheManager = new RefreshAheadCacheManager();
+        cacheManager.setCacheSpecification("maximumSize=100");
+        cacheManager.setRefreshAfterWriteMillis(1000L);
+        cacheManager.setExecutor(reloads::add);
+        cacheManager.setTicker(time::get);
+        
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.registerBean("metadataHelperCacheManager", CacheManager.class, () -> cacheManager);
+            context.register(MetadataSnapshotHelper.class, AllFieldMetadataHelper.class);
+            context.refresh();
+            
+            MetadataSnapshotHelper snapshotHelper = context.getBean(MetadataSnapshotHelper.class, client, tableName, AUTHS);
+            TypeMetadataHelper typeMetadataHelper = new TypeMetadataHelper(new HashMap<>(), AUTHS, client, tableName, AUTHS, false);
+            CompositeMetadataHelper compositeMetadataHelper = new CompositeMetadataHelper(client, tableName, AUTHS);
+            AllFieldMetadataHelper allFieldHelper = context.getBean(AllFieldMetadataHelper.class, typeMetadataHelper, compositeMetadataHelper, client,
+                            tableName, AUTHS, AUTHS);
+            allFieldHelper.setMetadataSnapshotHelper(snapshotHelper);
+            assertEquals(Set.of("SHAPE"), Set.copyOf(allFieldHelper.loadAllFields().values()));
+            
+            try (BatchWriter bw = client.createBatchWriter(tableName, new BatchWriterConfig())) {
+                write(bw, "COLOR", "e", "datatype-b");
+            }
+            
+            // the cached field set is served while it is reloaded
+            time.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000L));
+            assertEquals(Set.of("SHAPE"), Set.copyOf(allFieldHelper.loadAllFields().values()));
+            assertEquals(1, reloads.size());
+            
+            // the reload of the field set reloads the snapshot it is derived from rather than reading the stale one
+            reloads.remove(0).run();
+            assertTrue(reloads.isEmpty());
+            assertEquals(Set.of("SHAPE", "COLOR"), Set.copyOf(allFieldHelper.loadAllFields().values()));
+            assertEquals(Set.of("SHAPE", "COLOR"), Set.copyOf(snapshotHelper.getMetadataSnapshot().getAllFields().values()));
+        }
+    }
+    
+    @Test
+    void testUntrackedColumnFamily() {
+        MetadataSnapshot snapshot = new MetadataSnapshot.Builder().build();
+        assertThrows(IllegalArgumentException.class, () -> snapshot.getFields(ColumnFamilyConstants.COLF_F));
+        assertThrows(IllegalArgumentException.class, () -> snapshot.getColumnQualifiers(new Text("e")));
+    }
+}
@@ -0,0 +1,61 @@
+package datawave.query.util;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class NegativeResultCacheTest {
+    
+    private final AtomicLong time = new AtomicLong();
+    
+    private NegativeResultCache cache;
+    
+    @BeforeEach
+    void setup() {
+        time.set(0L);
+        cache = new NegativeResultCache(1000L, 100L, time::get);
+    }
+    
+    private void advanceMillis(long millis) {
+        time.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+    
+    @Test
+    void testRecordEmpty() {
+        assertFalse(cache.isEmpty("metadata", "f", "SHAPE", "20240301"));
+        cache.recordEmpty("metadata", "f", "SHAPE", "20240301");
+        
+        assertTrue(cache.isEmpty("metadata", "f", "SHAPE", "20240301"));
+        assertFalse(cache.isEmpty("metadata", "f", "SHAPE", "20240302"));
+        assertFalse(cache.isEmpty("metadata", "f", "COLOR", "20240301"));
+    }
+    
+    @Test
+    void testNullKeyParts() {
+        // an earliest occurrence lookup across all datatypes has no datatype
+        cache.recordEmpty("metadata", "earliestOccurrence", "SHAPE", null);
+        assertTrue(cache.isEmpty("metadata", "earliestOccurrence", "SHAPE", null));
+        assertFalse(cache.isEmpty("metadata", "earliestOccurrence", "SHAPE", "datatype-a"));
+    }
+    
+    @Test
+    void testExpiration() {
+        cache.recordEmpty("metadata", "f", "SHAPE", "20240301");
+        advanceMillis(999L);
+        assertTrue(cache.isEmpty("metadata", "f", "SHAPE", "20240301"));
+        advanceMillis(1L);
+        assertFalse(cache.isEmpty("metadata", "f", "SHAPE", "20240301"));
+    }
+    
+    @Test
+    void testClear() {
+        cache.recordEmpty("metadata", "f", "SHAPE", "20240301");
+        cache.clear();
+        assertFalse(cache.isEmpty("metadata", "f", "SHAPE", "20240301"));
+    }
+}
@@ -0,0 +1,127 @@
+package datawave.query.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+
+class RefreshAheadCacheTest {
+    
+    private final AtomicLong time = new AtomicLong();
+    private final List<Runnable> reloads = new ArrayList<>();
+    
+    private RefreshAheadCacheManager cacheManager;
+    private Cache cache;
+    
+    @BeforeEach
+    void setup() {
+        time.set(0L);
+        reloads.clear();
+        
+        cacheManager = new RefreshAheadCacheManager();
+        cacheManager.setCacheSpecification("maximumSize=100");
+        cacheManager.setRefreshAfterWriteMillis(1000L);
+        cacheManager.setExecutor(reloads::add);
+        cacheManager.setTicker(time::get);
+        cache = cacheManager.getCache("getAllFields");
+    }
+    
+    private void advanceMillis(long millis) {
+        time.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+    
+    private void runReloads() {
+        List<Runnable> pending = new ArrayList<>(reloads);
+        reloads.clear();
+        pending.forEach(Runnable::run);
+    }
+    
+    @Test
+    void testStaleValueServedWhileReloading() {
+        assertEquals("first", cache.get("key", () -> "first"));
+        
+        advanceMillis(500L);
+        assertEquals("first", cache.get("key", () -> "second"));
+        assertTrue(reloads.isEmpty());
+        
+        advanceMillis(500L);
+        assertEquals("first", cache.get("key", () -> "second"));
+        assertEquals("first", cache.get("key", () -> "third"));
+        // a single reload per key is in flight
+        assertEquals(1, reloads.size());
+        
+        runReloads();
+        assertEquals("second", cache.get("key", () -> "fourth"));
+        assertTrue(reloads.isEmpty());
+    }
+    
+    @Test
+    void testFailedReloadKeepsValue() {
+        assertEquals("first", cache.get("key", () -> "first"));
+        
+        advanceMillis(1000L);
+        assertEquals("first", cache.get("key", () -> {
+            throw new IllegalStateException("scan failed");
+        }));
+        runReloads();
+        assertEquals("first", cache.get("key", String.class));
+        
+        // the next access tries again
+        assertEquals("first", cache.get("key", () -> "second"));
+        runReloads();
+        assertEquals("second", cache.get("key", String.class));
+    }
+    
+    @Test
+    void testEvictedEntryNotRestoredByReload() {
+        assertEquals("first", cache.get("key", () -> "first"));
+        
+        advanceMillis(1000L);
+        assertEquals("first", cache.get("key", () -> "second"));
+        cache.evict("key");
+        runReloads();
+        assertNull(cache.get("key"));
+    }
+    
+    @Test
+    void testInitialLoadFailure() {
+        assertThrows(Cache.ValueRetrievalException.class, () -> cache.get("key", () -> {
+            throw new IllegalStateException("scan failed");
+        }));
+        assertNull(cache.get("key"));
+        
+        assertNull(cache.get("null", () -> null));
+        assertNull(cache.get("null").get());
+    }
+    
+    @Test
+    void testCacheManager() {
+        assertSame(cache, cacheManager.getCache("getAllFields"));
+        assertEquals(RefreshAheadCache.class, cacheManager.getCache("getTypeMetadata").getClass());
+        assertEquals(Set.of("getAllFields", "getTypeMetadata"), cacheManager.getCacheNames());
+        
+        // the cache specification configures the backing Caffeine caches
+        com.github.benmanes.caffeine.cache.Cache<?,?> nativeCache = (com.github.benmanes.caffeine.cache.Cache<?,?>) cache.getNativeCache();
+        assertEquals(100L, nativeCache.policy().eviction().orElseThrow().getMaximum());
+        
+        // reloads use the configured interval
+        cache.get("key", () -> "first");
+        advanceMillis(cacheManager.getRefreshAfterWriteMillis() - 1);
+        cache.get("key", () -> "second");
+        assertTrue(reloads.isEmpty());
+        advanceMillis(1L);
+        cache.get("key", () -> "second");
+        assertEquals(1, reloads.size());
+    }
+}
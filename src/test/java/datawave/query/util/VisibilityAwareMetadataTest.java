@@ -0,0 +1,93 @@
+package datawave.query.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.security.Authorizations;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+
+import datawave.data.ColumnFamilyConstants;
+
+class VisibilityAwareMetadataTest {
+    
+    private VisibilityAwareMetadata metadata;
+    
+    @BeforeEach
+    void setup() {
+        metadata = new VisibilityAwareMetadata.Builder().setLoadTime(1000L).add(new Key("SHAPE", "e", "datatype-a", "", 1L))
+                        .add(new Key("SHAPE", "i", "datatype-a", "FOO", 2L)).add(new Key("COLOR", "e", "datatype-a", "FOO", 3L))
+                        .add(new Key("COLOR", "e", "datatype-b", "BAR", 4L)).add(new Key("DEFINITION", "i", "datatype-b", "FOO&BAR", 5L))
+                        .add(new Key("TEXT", "i", "datatype-c", "FOO|BAR", 6L)).build();
+    }
+    
+    @Test
+    void testVisibilitiesAreInterned() {
+        assertEquals(5, metadata.getVisibilities().size());
+        assertEquals(6, metadata.size());
+        assertEquals(1000L, metadata.getLoadTime());
+        
+        BitSet expected = new BitSet();
+        expected.set(0);
+        expected.set(1);
+        expected.set(4);
+        assertEquals(expected, metadata.getVisible(Collections.singleton(new Authorizations("FOO"))));
+    }
+    
+    @Test
+    void testSnapshotPerAuthSubset() {
+        Multimap<String,String> expected = HashMultimap.create();
+        expected.put("datatype-a", "SHAPE");
+        assertEquals(expected, metadata.getSnapshot(Collections.singleton(new Authorizations())).getAllFields());
+        
+        MetadataSnapshot snapshot = metadata.getSnapshot(Collections.singleton(new Authorizations("FOO")));
+        expected.put("datatype-a", "COLOR");
+        expected.put("datatype-c", "TEXT");
+        assertEquals(expected, snapshot.getAllFields());
+        assertEquals(Set.of("datatype-a"), snapshot.getDatatypes());
+        assertEquals(6L, snapshot.getMaxTimestamp());
+        assertEquals(1000L, snapshot.getFullLoadTime());
+        
+        expected.put("datatype-b", "COLOR");
+        expected.put("datatype-b", "DEFINITION");
+        MetadataSnapshot all = metadata.getSnapshot(Collections.singleton(new Authorizations("FOO", "BAR")));
+        assertEquals(expected, all.getAllFields());
+        assertEquals(Set.of("DEFINITION", "TEXT"), Set.copyOf(all.getIndexOnlyFields().values()));
+        assertEquals(Set.of("datatype-a", "datatype-b"), all.getDatatypes());
+        
+        // derived snapshots are memoized
+        assertSame(snapshot, metadata.getSnapshot(Collections.singleton(new Authorizations("FOO"))));
+    }
+    
+    @Test
+    void testForEachVisibleInAddOrder() {
+        List<String> rows = new ArrayList<>();
+        metadata.forEachVisible(metadata.getVisible(Collections.singleton(new Authorizations("FOO"))), key -> {
+            assertEquals(0, key.getColumnVisibilityData().length());
+            rows.add(key.getRow().toString());
+        });
+        assertEquals(List.of("SHAPE", "SHAPE", "COLOR", "TEXT"), rows);
+    }
+    
+    @Test
+    void testMultipleAuthorizationsMustAllBeSatisfied() {
+        Set<Authorizations> auths = Set.of(new Authorizations("FOO", "BAR"), new Authorizations("BAR"));
+        MetadataSnapshot snapshot = metadata.getSnapshot(auths);
+        
+        Multimap<String,String> expected = HashMultimap.create();
+        expected.put("datatype-a", "SHAPE");
+        expected.put("datatype-b", "COLOR");
+        assertEquals(expected, snapshot.getFields(ColumnFamilyConstants.COLF_E));
+        assertEquals(Set.of("SHAPE", "COLOR", "TEXT"), Set.copyOf(snapshot.getAllFields().values()));
+    }
+}